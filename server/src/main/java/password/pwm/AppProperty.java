@@ -52,6 +52,8 @@ public enum AppProperty
     BACKUP_LOCALDB_COUNT                            ( "backup.localdb.count" ),
     CACHE_ENABLE                                    ( "cache.enable" ),
     CACHE_MEMORY_MAX_ITEMS                          ( "cache.memory.maxItems" ),
+    CACHE_LOCALDB_MAX_ITEMS                         ( "cache.localDB.maxItems" ),
+    CACHE_MEMORY_REFRESH_AHEAD_PERCENT              ( "cache.memory.refreshAheadPercent" ),
     CACHE_PWRULECHECK_LIFETIME_MS                   ( "cache.pwRuleCheckLifetimeMS" ),
     CACHE_FORM_UNIQUE_VALUE_LIFETIME_MS             ( "cache.uniqueFormValueLifetimeMS" ),
     CLIENT_ACTIVITY_MAX_EPS_RATE                    ( "client.ajax.activityMaxEpsRate" ),
@@ -86,10 +88,15 @@ public enum AppProperty
     CLUSTER_LDAP_HEARTBEAT_SECONDS                  ( "cluster.ldap.heartbeatSeconds" ),
     CLUSTER_LDAP_NODE_TIMEOUT_SECONDS               ( "cluster.ldap.nodeTimeoutSeconds" ),
     CLUSTER_LDAP_NODE_PURGE_SECONDS                 ( "cluster.ldap.nodePurgeSeconds" ),
+    DB_BATCH_SIZE                                   ( "db.batch.size" ),
     DB_JDBC_LOAD_STRATEGY                           ( "db.jdbcLoadStrategy" ),
     DB_CONNECTIONS_MAX                              ( "db.connections.max" ),
     DB_CONNECTIONS_TIMEOUT_MS                       ( "db.connections.timeoutMs" ),
     DB_CONNECTIONS_WATCHDOG_FREQUENCY_SECONDS       ( "db.connections.watchdogFrequencySeconds" ),
+    DB_CONNECTIONS_IDLE_TIMEOUT_SECONDS             ( "db.connections.idleTimeoutSeconds" ),
+    DB_CONNECTIONS_VALIDATE_IDLE_SECONDS            ( "db.connections.validateIdleSeconds" ),
+    DB_STATEMENT_CACHE_SIZE                         ( "db.statementCache.size" ),
+    DB_VENDOR                                       ( "db.vendor" ),
     DB_INIT_HALT_ON_INDEX_CREATE_ERROR              ( "db.init.haltOnIndexCreateError" ),
     DB_SCHEMA_KEY_LENGTH                            ( "db.schema.keyLength" ),
     DOWNLOAD_FILENAME_STATISTICS_CSV                ( "download.filename.statistics.csv" ),
@@ -175,7 +182,9 @@ public enum AppProperty
     LOCALDB_LOCATION                                ( "localdb.location" ),
     LOCALDB_LOGWRITER_BUFFER_SIZE                   ( "localdb.logWriter.bufferSize" ),
     LOCALDB_LOGWRITER_MAX_BUFFER_WAIT_MS            ( "localdb.logWriter.maxBufferWaitMs" ),
-    LOCALDB_LOGWRITER_MAX_TRIM_SIZE                 ( "localdb.logWriter.maxTrimSize" ),
+    LOCALDB_LOGWRITER_OVERFLOW_POLICY               ( "localdb.logWriter.overflowPolicy" ),
+    LOCALDB_LOGWRITER_SEGMENT_DURATION_SECONDS      ( "localdb.logWriter.segmentDurationSeconds" ),
+    LOCALDB_LOGWRITER_SEGMENT_MAX_EVENTS            ( "localdb.logWriter.segmentMaxEvents" ),
     MACRO_RANDOM_CHAR_MAX_LENGTH                    ( "macro.randomChar.maxLength" ),
     MACRO_LDAP_ATTR_CHAR_MAX_LENGTH                 ( "macro.ldapAttr.maxLength" ),
 
@@ -185,6 +194,8 @@ public enum AppProperty
 
     /** How often to cleanup the intruder table. */
     INTRUDER_CLEANUP_FREQUENCY_MS                   ( "intruder.cleanupFrequencyMS" ),
+    INTRUDER_WRITE_BEHIND_FLUSH_INTERVAL_MS         ( "intruder.writeBehind.flushIntervalMS" ),
+    INTRUDER_WRITE_BEHIND_CONSISTENCY_WINDOW_MS     ( "intruder.writeBehind.consistencyWindowMS" ),
     INTRUDER_MIN_DELAY_PENALTY_MS                   ( "intruder.minimumDelayPenaltyMS" ),
     INTRUDER_MAX_DELAY_PENALTY_MS                   ( "intruder.maximumDelayPenaltyMS" ),
     INTRUDER_DELAY_PER_COUNT_MS                     ( "intruder.delayPerCountMS" ),
@@ -214,7 +225,12 @@ public enum AppProperty
     LDAP_CHAI_SETTINGS                              ( "ldap.chaiSettings" ),
     LDAP_PROXY_CONNECTION_PER_PROFILE               ( "ldap.proxy.connectionsPerProfile" ),
     LDAP_PROXY_MAX_CONNECTIONS                      ( "ldap.proxy.maxConnections" ),
-    LDAP_PROXY_USE_THREAD_LOCAL                     ( "ldap.proxy.useThreadLocal" ),
+    LDAP_PROXY_POOL_MIN_CONNECTIONS                 ( "ldap.proxy.pool.minConnections" ),
+    LDAP_PROXY_POOL_CHECKOUT_TIMEOUT_MS             ( "ldap.proxy.pool.checkoutTimeoutMs" ),
+    LDAP_PROXY_POOL_IDLE_TIMEOUT_SECONDS            ( "ldap.proxy.pool.idleTimeoutSeconds" ),
+    LDAP_PROXY_POOL_LATENCY_SPIKE_FACTOR            ( "ldap.proxy.pool.latencySpikeFactor" ),
+    LDAP_PROXY_POOL_LATENCY_SPIKE_MIN_MS            ( "ldap.proxy.pool.latencySpikeMinimumMs" ),
+    LDAP_PROXY_POOL_WRITE_AFFINITY_MS               ( "ldap.proxy.pool.writeAffinityMs" ),
     LDAP_EXTENSIONS_NMAS_ENABLE                     ( "ldap.extensions.nmas.enable" ),
     LDAP_CONNECTION_TIMEOUT                         ( "ldap.connection.timeoutMS" ),
     LDAP_PROFILE_RETRY_DELAY                        ( "ldap.profile.retryDelayMS" ),
@@ -267,9 +283,16 @@ public enum AppProperty
     OTP_QR_IMAGE_HEIGHT                             ( "otp.qrImage.height" ),
     OTP_QR_IMAGE_WIDTH                              ( "otp.qrImage.width" ),
     OTP_ENCRYPTION_ALG                              ( "otp.encryptionAlg" ),
+    PASSWORD_CHECK_ASYNC_ENABLE                     ( "password.check.async.enable" ),
+    PASSWORD_CHECK_ASYNC_THREADS                    ( "password.check.async.threads" ),
+    PASSWORD_CHECK_ASYNC_DEBOUNCE_MS                ( "password.check.async.debounceMS" ),
+    PASSWORD_CHECK_ASYNC_RESPONSE_WAIT_MS           ( "password.check.async.responseWaitMS" ),
     PASSWORD_RANDOMGEN_MAX_ATTEMPTS                 ( "password.randomGenerator.maxAttempts" ),
     PASSWORD_RANDOMGEN_MAX_LENGTH                   ( "password.randomGenerator.maxLength" ),
     PASSWORD_RANDOMGEN_JITTER_COUNT                 ( "password.randomGenerator.jitter.count" ),
+    PASSWORD_RANDOMGEN_CONSTRUCT_ATTEMPTS           ( "password.randomGenerator.constructAttempts" ),
+    PASSWORD_RANDOMGEN_POOL_SIZE                    ( "password.randomGenerator.pool.size" ),
+    PASSWORD_RANDOMGEN_POOL_MAX_AGE_SECONDS         ( "password.randomGenerator.pool.maxAgeSeconds" ),
 
     /* Strength thresholds, introduced by the addition of the zxcvbn strength meter library (since it has 5 levels) */
     PASSWORD_STRENGTH_THRESHOLD_VERY_STRONG         ( "password.strength.threshold.veryStrong" ),
@@ -297,17 +320,27 @@ public enum AppProperty
     QUEUE_EMAIL_RETRY_TIMEOUT_MS                    ( "queue.email.retryTimeoutMs" ),
     QUEUE_EMAIL_MAX_COUNT                           ( "queue.email.maxCount" ),
     QUEUE_EMAIL_MAX_THREADS                         ( "queue.email.maxThreads" ),
+    QUEUE_EMAIL_WORKER_THREADS                      ( "queue.email.workerThreads" ),
+    QUEUE_EMAIL_BATCH_SIZE                          ( "queue.email.batchSize" ),
     QUEUE_SMS_RETRY_TIMEOUT_MS                      ( "queue.sms.retryTimeoutMs" ),
     QUEUE_SMS_MAX_COUNT                             ( "queue.sms.maxCount" ),
+    QUEUE_SMS_WORKER_THREADS                        ( "queue.sms.workerThreads" ),
+    QUEUE_SMS_BATCH_SIZE                            ( "queue.sms.batchSize" ),
     QUEUE_SYSLOG_RETRY_TIMEOUT_MS                   ( "queue.syslog.retryTimeoutMs" ),
     QUEUE_SYSLOG_MAX_AGE_MS                         ( "queue.syslog.maxAgeMs" ),
     QUEUE_SYSLOG_MAX_COUNT                          ( "queue.syslog.maxCount" ),
+    QUEUE_SYSLOG_BATCH_SIZE                         ( "queue.syslog.batchSize" ),
     RECAPTCHA_CLIENT_JS_URL                         ( "recaptcha.clientJsUrl" ),
     RECAPTCHA_CLIENT_IFRAME_URL                     ( "recaptcha.clientIframeUrl" ),
     RECAPTCHA_VALIDATE_URL                          ( "recaptcha.validateUrl" ),
     REPORTING_LDAP_SEARCH_TIMEOUT                   ( "reporting.ldap.searchTimeoutMs" ),
     REPORTING_LDAP_SEARCH_THREADS                   ( "reporting.ldap.searchThreads" ),
+    REPORTING_LDAP_SHARD_THREADS                    ( "reporting.ldap.shardThreads" ),
+    REPORTING_INCREMENTAL_ENABLE                    ( "reporting.incremental.enable" ),
+    REPORTING_INCREMENTAL_CHANGE_ATTRIBUTE          ( "reporting.incremental.changeAttribute" ),
+    REPORTING_INCREMENTAL_FULL_CRAWL_SECONDS        ( "reporting.incremental.fullCrawlIntervalSeconds" ),
     REPORTING_MAX_REPORT_AGE_SECONDS                ( "reporting.maxReportAgeSeconds" ),
+    REPORTING_USER_CACHE_ENCODING                   ( "reporting.userCache.encoding" ),
     SECURITY_STRIP_INLINE_JAVASCRIPT                ( "security.html.stripInlineJavascript" ),
     SECURITY_HTTP_FORCE_REQUEST_SEQUENCING          ( "security.http.forceRequestSequencing" ),
     SECURITY_HTTP_STRIP_HEADER_REGEX                ( "security.http.stripHeaderRegex" ),
@@ -332,11 +365,15 @@ public enum AppProperty
     SECURITY_CONFIG_MIN_SECURITY_KEY_LENGTH         ( "security.config.minSecurityKeyLength" ),
     SECURITY_DEFAULT_EPHEMERAL_BLOCK_ALG            ( "security.defaultEphemeralBlockAlg" ),
     SECURITY_DEFAULT_EPHEMERAL_HASH_ALG             ( "security.defaultEphemeralHashAlg" ),
+    SECURITY_PAYLOAD_ENCODING                       ( "security.payload.encoding" ),
+    SECURITY_PAYLOAD_COMPRESS_THRESHOLD             ( "security.payload.compressThresholdBytes" ),
     SEEDLIST_BUILTIN_PATH                           ( "seedlist.builtin.path" ),
+    SERVICES_STARTUP_THREADS                        ( "services.startup.threads" ),
     SMTP_IO_CONNECT_TIMEOUT                         ( "smtp.io.connectTimeoutMs" ),
     SMTP_IO_READ_TIMEOUT                            ( "smtp.io.readTimeoutMs" ),
     SMTP_SUBJECT_ENCODING_CHARSET                   ( "smtp.subjectEncodingCharset" ),
     SMTP_RETRYABLE_SEND_RESPONSE_STATUSES           ( "smtp.retryableSendResponseStatus" ),
+    STATISTICS_TIME_SERIES_MINUTES                  ( "statistics.timeSeries.minutes" ),
     TOKEN_CLEANER_INTERVAL_SECONDS                  ( "token.cleaner.intervalSeconds" ),
     TOKEN_MASK_EMAIL_REGEX                          ( "token.mask.email.regex" ),
     TOKEN_MASK_EMAIL_REPLACE                        ( "token.mask.email.replace" ),
@@ -360,6 +397,7 @@ public enum AppProperty
     /** Regular expression to be used for matching URLs to be shortened by the URL Shortening Service Class. */
     URL_SHORTNER_URL_REGEX                          ( "urlshortener.url.regex" ),
     WORDLIST_BUILTIN_PATH                           ( "wordlist.builtin.path" ),
+    WORDLIST_CHECK_CACHE_MAX_ENTRIES                ( "wordlist.checkCache.maxEntries" ),
     WORDLIST_CHAR_LENGTH_MAX                        ( "wordlist.maxCharLength" ),
     WORDLIST_CHAR_LENGTH_MIN                        ( "wordlist.minCharLength" ),
     WORDLIST_IMPORT_AUTO_IMPORT_RECHECK_SECONDS     ( "wordlist.import.autoImportRecheckSeconds" ),
@@ -369,6 +407,12 @@ public enum AppProperty
     WORDLIST_IMPORT_MAX_TRANSACTIONS                ( "wordlist.import.maxTransactions" ),
     WORDLIST_IMPORT_MAX_CHARS_TRANSACTIONS          ( "wordlist.import.maxCharsTransactions" ),
     WORDLIST_IMPORT_LINE_COMMENTS                   ( "wordlist.import.lineComments" ),
+    WORDLIST_IMPORT_THREADS                         ( "wordlist.import.threads" ),
+    WORDLIST_IMPORT_QUEUE_SIZE                      ( "wordlist.import.queueSize" ),
+    WORDLIST_IMPORT_BATCH_LINES                     ( "wordlist.import.batchLines" ),
+    WORDLIST_INDEX_ENABLE                           ( "wordlist.index.enable" ),
+    WORDLIST_INDEX_FALSE_POSITIVE_RATE              ( "wordlist.index.falsePositiveRate" ),
+    WORDLIST_INDEX_SORT_BUFFER_ENTRIES              ( "wordlist.index.sortBufferEntries" ),
     WORDLIST_INSPECTOR_FREQUENCY_SECONDS            ( "wordlist.inspector.frequencySeconds" ),
     WORDLIST_TEST_MODE                              ( "wordlist.testMode" ),
     WS_REST_CLIENT_PWRULE_HALTONERROR               ( "ws.restClient.pwRule.haltOnError" ),
@@ -40,6 +40,7 @@ import password.pwm.ldap.LdapConnectionService;
 import password.pwm.ldap.search.UserSearchEngine;
 import password.pwm.svc.PwmService;
 import password.pwm.svc.PwmServiceManager;
+import password.pwm.svc.ServiceStartupTimeline;
 import password.pwm.svc.cache.CacheService;
 import password.pwm.svc.email.EmailService;
 import password.pwm.svc.event.AuditEvent;
@@ -81,6 +82,8 @@ import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroMachine;
 import password.pwm.util.operations.CrService;
 import password.pwm.util.operations.OtpService;
+import password.pwm.util.password.PasswordCheckService;
+import password.pwm.util.password.RandomPasswordService;
 import password.pwm.util.queue.SmsQueueManager;
 import password.pwm.util.secure.HttpsServerCertificateManager;
 import password.pwm.util.secure.PwmRandom;
@@ -561,6 +564,11 @@ public class PwmApplication
         return ( HttpClientService ) pwmServiceManager.getService( HttpClientService.class );
     }
 
+    public ServiceStartupTimeline getServiceStartupTimeline( )
+    {
+        return pwmServiceManager.getStartupTimeline();
+    }
+
     public List<PwmService> getPwmServices( )
     {
         final List<PwmService> pwmServices = new ArrayList<>();
@@ -766,6 +774,16 @@ public class PwmApplication
         return ( SecureService ) pwmServiceManager.getService( SecureService.class );
     }
 
+    public RandomPasswordService getRandomPasswordService( )
+    {
+        return ( RandomPasswordService ) pwmServiceManager.getService( RandomPasswordService.class );
+    }
+
+    public PasswordCheckService getPasswordCheckService( )
+    {
+        return ( PasswordCheckService ) pwmServiceManager.getService( PasswordCheckService.class );
+    }
+
     public void sendSmsUsingQueue(
             final String to,
             final String message,
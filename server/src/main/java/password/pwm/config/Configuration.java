@@ -95,6 +95,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
@@ -940,12 +941,19 @@ public class Configuration implements SettingReader
 
     public String readAppProperty( final AppProperty property )
     {
-        if ( dataCache.appPropertyOverrides == null )
+        String[] appPropertyValues = dataCache.appPropertyValues;
+        if ( appPropertyValues == null )
         {
-            dataCache.appPropertyOverrides = StringUtil.convertStringListToNameValuePair( this.readSettingAsStringArray( PwmSetting.APP_PROPERTY_OVERRIDES ), "=" );
+            final Map<String, String> overrides = StringUtil.convertStringListToNameValuePair( this.readSettingAsStringArray( PwmSetting.APP_PROPERTY_OVERRIDES ), "=" );
+            appPropertyValues = new String[AppProperty.values().length];
+            for ( final AppProperty loopProperty : AppProperty.values() )
+            {
+                appPropertyValues[loopProperty.ordinal()] = overrides.getOrDefault( loopProperty.getKey(), loopProperty.getDefaultValue() );
+            }
+            dataCache.appPropertyValues = appPropertyValues;
         }
 
-        return dataCache.appPropertyOverrides.getOrDefault( property.getKey(), property.getDefaultValue() );
+        return appPropertyValues[property.ordinal()];
     }
 
     private Convenience helper = new Convenience();
@@ -1007,6 +1015,12 @@ public class Configuration implements SettingReader
 
     private StoredValue readStoredValue( final PwmSetting setting )
     {
+        // a locked stored configuration reads from its own compiled snapshot without locking
+        if ( storedConfiguration.isLocked() )
+        {
+            return storedConfiguration.readSetting( setting );
+        }
+
         if ( dataCache.settings.containsKey( setting ) )
         {
             return dataCache.settings.get( setting );
@@ -1023,8 +1037,8 @@ public class Configuration implements SettingReader
         private Map<Locale, String> localeFlagMap = null;
         private final Map<PwmSetting, StoredValue> settings = new EnumMap<>( PwmSetting.class );
         private final Map<String, Map<Locale, String>> customText = new LinkedHashMap<>();
-        private final Map<ProfileDefinition, Map> profileCache = new LinkedHashMap<>();
-        private Map<String, String> appPropertyOverrides = null;
+        private final Map<ProfileDefinition, Map> profileCache = new ConcurrentHashMap<>();
+        private volatile String[] appPropertyValues = null;
     }
 
     public Map<AppProperty, String> readAllNonDefaultAppProperties( )
@@ -1093,7 +1107,7 @@ public class Configuration implements SettingReader
             {
                 returnMap.put( entry.getKey(), ( T ) entry.getValue() );
             }
-            dataCache.profileCache.put( profileDefinition, Collections.unmodifiableMap( returnMap ) );
+            dataCache.profileCache.putIfAbsent( profileDefinition, Collections.unmodifiableMap( returnMap ) );
         }
         return dataCache.profileCache.get( profileDefinition );
     }
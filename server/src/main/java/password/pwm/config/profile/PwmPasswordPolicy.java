@@ -63,6 +63,8 @@ public class PwmPasswordPolicy implements Profile, Serializable
 
     private final transient ChaiPasswordPolicy chaiPasswordPolicy;
 
+    private transient PasswordRuleReaderHelper ruleHelper;
+
     private String profileID;
     private List<UserPermission> userPermissions;
     private String ruleText;
@@ -167,7 +169,12 @@ public class PwmPasswordPolicy implements Profile, Serializable
 
     public PasswordRuleReaderHelper getRuleHelper( )
     {
-        return new PasswordRuleReaderHelper( this );
+        // the policy map does not change after construction, so the helper (and its chai policy) is only built once.
+        if ( ruleHelper == null )
+        {
+            ruleHelper = new PasswordRuleReaderHelper( this );
+        }
+        return ruleHelper;
     }
 
     public String getValue( final PwmPasswordRule rule )
@@ -97,7 +97,8 @@ public class StoredConfigurationImpl implements StoredConfiguration
     private XmlDocument document = XmlFactory.getFactory().newDocument( XML_ELEMENT_ROOT );
     private ChangeLog changeLog = new ChangeLog();
 
-    private boolean locked;
+    private volatile boolean locked;
+    private volatile StoredConfigurationSnapshot compiledSnapshot;
     private final boolean setting_writeLabels = true;
     private final ReentrantReadWriteLock domModifyLock = new ReentrantReadWriteLock();
 
@@ -791,30 +792,19 @@ public class StoredConfigurationImpl implements StoredConfiguration
         {
             throw new IllegalStateException( "cannot read setting key " + setting.getKey() + " with non-null profileID" );
         }
-        domModifyLock.readLock().lock();
-        try
+        if ( locked )
         {
-            final XmlElement settingElement = xmlHelper.xpathForSetting( setting, profileID );
-
-            if ( settingElement == null )
-            {
-                return defaultValue( setting, getTemplateSet() );
-            }
-
-            if ( settingElement.getChild( XML_ELEMENT_DEFAULT ) != null )
+            final StoredValue compiledValue = compiledSnapshot().read( setting, profileID );
+            if ( compiledValue != null )
             {
-                return defaultValue( setting, getTemplateSet() );
+                return compiledValue;
             }
+        }
 
-            try
-            {
-                return ValueFactory.fromXmlValues( setting, settingElement, getKey() );
-            }
-            catch ( PwmException e )
-            {
-                final String errorMsg = "unexpected error reading setting '" + setting.getKey() + "' profile '" + profileID + "', error: " + e.getMessage();
-                throw new IllegalStateException( errorMsg );
-            }
+        domModifyLock.readLock().lock();
+        try
+        {
+            return readSettingFromDocument( setting, profileID, getTemplateSet() );
         }
         finally
         {
@@ -822,6 +812,59 @@ public class StoredConfigurationImpl implements StoredConfiguration
         }
     }
 
+    StoredValue readSettingFromDocument( final PwmSetting setting, final String profileID, final PwmSettingTemplateSet templateSet )
+    {
+        final XmlElement settingElement = xmlHelper.xpathForSetting( setting, profileID );
+
+        if ( settingElement == null )
+        {
+            return defaultValue( setting, templateSet );
+        }
+
+        if ( settingElement.getChild( XML_ELEMENT_DEFAULT ) != null )
+        {
+            return defaultValue( setting, templateSet );
+        }
+
+        try
+        {
+            return ValueFactory.fromXmlValues( setting, settingElement, getKey() );
+        }
+        catch ( PwmException e )
+        {
+            final String errorMsg = "unexpected error reading setting '" + setting.getKey() + "' profile '" + profileID + "', error: " + e.getMessage();
+            throw new IllegalStateException( errorMsg );
+        }
+    }
+
+    private StoredConfigurationSnapshot compiledSnapshot( )
+    {
+        StoredConfigurationSnapshot snapshot = compiledSnapshot;
+        if ( snapshot == null )
+        {
+            synchronized ( this )
+            {
+                snapshot = compiledSnapshot;
+                if ( snapshot == null )
+                {
+                    final Instant startTime = Instant.now();
+                    domModifyLock.readLock().lock();
+                    try
+                    {
+                        snapshot = StoredConfigurationSnapshot.compile( this );
+                    }
+                    finally
+                    {
+                        domModifyLock.readLock().unlock();
+                    }
+                    compiledSnapshot = snapshot;
+                    LOGGER.trace( () -> "compiled locked configuration settings in " + TimeDuration.compactFromCurrent( startTime ) );
+                }
+            }
+        }
+        return snapshot;
+    }
+
     public void writeLocaleBundleMap( final String bundleName, final String keyName, final Map<String, String> localeMap )
     {
         ResourceBundle theBundle = null;
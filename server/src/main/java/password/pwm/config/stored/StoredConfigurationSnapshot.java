@@ -0,0 +1,139 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.config.stored;
+
+import password.pwm.config.PwmSetting;
+import password.pwm.config.PwmSettingTemplateSet;
+import password.pwm.config.StoredValue;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table of every setting value of a locked {@link StoredConfigurationImpl}, indexed by {@link PwmSetting}
+ * ordinal and profile ID.  Reads are plain array lookups and take no lock.  A value that could not be compiled is
+ * left empty so the read falls back to the document, which reports the error the same way it did before.
+ */
+class StoredConfigurationSnapshot
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( StoredConfigurationSnapshot.class );
+
+    private static final PwmSetting[] SETTINGS = PwmSetting.values();
+
+    private final StoredValue[] values;
+    private final Map<String, StoredValue[]> profileValues;
+
+    private StoredConfigurationSnapshot( final StoredValue[] values, final Map<String, StoredValue[]> profileValues )
+    {
+        this.values = values;
+        this.profileValues = profileValues;
+    }
+
+    static StoredConfigurationSnapshot compile( final StoredConfigurationImpl storedConfiguration )
+    {
+        final PwmSettingTemplateSet templateSet = storedConfiguration.getTemplateSet();
+        final StoredValue[] values = new StoredValue[SETTINGS.length];
+        final Map<String, StoredValue[]> profileValues = new HashMap<>();
+
+        for ( final PwmSetting setting : SETTINGS )
+        {
+            if ( !setting.getCategory().hasProfiles() )
+            {
+                values[setting.ordinal()] = compileValue( storedConfiguration, setting, null, templateSet );
+            }
+        }
+
+        for ( final PwmSetting setting : SETTINGS )
+        {
+            if ( setting.getCategory().hasProfiles() )
+            {
+                for ( final String profileID : profileIDs( values, setting.getCategory().getProfileSetting() ) )
+                {
+                    final StoredValue[] profileArray = profileValues.computeIfAbsent( profileID, k -> new StoredValue[SETTINGS.length] );
+                    profileArray[setting.ordinal()] = compileValue( storedConfiguration, setting, profileID, templateSet );
+                }
+            }
+        }
+
+        return new StoredConfigurationSnapshot( values, Collections.unmodifiableMap( profileValues ) );
+    }
+
+    /**
+     * Read a compiled value.
+     *
+     * @param setting setting to read
+     * @param profileID profile of the setting, or null for a non-profile setting
+     * @return the compiled value, or null if the value was not compiled
+     */
+    StoredValue read( final PwmSetting setting, final String profileID )
+    {
+        if ( profileID == null )
+        {
+            return values[setting.ordinal()];
+        }
+
+        final StoredValue[] profileArray = profileValues.get( profileID );
+        return profileArray == null ? null : profileArray[setting.ordinal()];
+    }
+
+    private static StoredValue compileValue(
+            final StoredConfigurationImpl storedConfiguration,
+            final PwmSetting setting,
+            final String profileID,
+            final PwmSettingTemplateSet templateSet
+    )
+    {
+        try
+        {
+            return storedConfiguration.readSettingFromDocument( setting, profileID, templateSet );
+        }
+        catch ( Exception e )
+        {
+            LOGGER.trace( () -> "unable to compile value for setting " + setting.getKey() + " profile '" + profileID + "': " + e.getMessage() );
+            return null;
+        }
+    }
+
+    private static List<String> profileIDs( final StoredValue[] values, final PwmSetting profileSetting )
+    {
+        final StoredValue profileValue = profileSetting == null ? null : values[profileSetting.ordinal()];
+        if ( profileValue == null )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<String> profileIDs = new ArrayList<>();
+        for ( final Object profileID : ( List<?> ) profileValue.toNativeObject() )
+        {
+            if ( profileID != null && !StringUtil.isEmpty( profileID.toString() ) )
+            {
+                profileIDs.add( profileID.toString() );
+            }
+        }
+        return profileIDs;
+    }
+}
@@ -90,6 +90,7 @@ public enum PwmRequestAttribute
     NewUser_VisibleProfiles,
 
     CookieBeanStorage,
+    CookieBeanContent,
     CookieNonce,
 
     ShortcutItems,
@@ -42,6 +42,7 @@ import password.pwm.http.PwmResponse;
 import password.pwm.http.PwmSession;
 import password.pwm.http.PwmSessionWrapper;
 import password.pwm.http.PwmURL;
+import password.pwm.svc.intruder.IntruderManager;
 import password.pwm.svc.stats.EpsStatistic;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsManager;
@@ -163,7 +164,7 @@ public class RequestInitializationFilter implements Filter
         try
         {
             localPwmApplication.getInprogressRequests().incrementAndGet();
-            initializeServletRequest( req, resp, filterChain );
+            initializeServletRequest( localPwmApplication, req, resp, filterChain );
         }
         finally
         {
@@ -172,6 +173,7 @@ public class RequestInitializationFilter implements Filter
     }
 
     private void initializeServletRequest(
+            final PwmApplication pwmApplication,
             final HttpServletRequest req,
             final HttpServletResponse resp,
             final FilterChain filterChain
@@ -241,7 +243,23 @@ public class RequestInitializationFilter implements Filter
             return;
         }
 
-        filterChain.doFilter( req, resp );
+        // intruder delay penalties suspend the request and are delivered when the response is completed, see IntruderManager
+        final IntruderManager intruderManager = pwmApplication.getIntruderManager();
+        if ( intruderManager == null )
+        {
+            filterChain.doFilter( req, resp );
+            return;
+        }
+
+        intruderManager.beginDeferredDelayPenalty( req );
+        try
+        {
+            filterChain.doFilter( req, resp );
+        }
+        finally
+        {
+            intruderManager.completeDeferredDelayPenalty();
+        }
     }
 
     private void respondWithUnavailableError( final HttpServletRequest req, final HttpServletResponse resp )
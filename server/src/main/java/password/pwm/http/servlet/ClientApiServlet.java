@@ -78,6 +78,7 @@ import java.util.TreeSet;
 
 @WebServlet(
         name = "ClientApiServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/api",
         }
@@ -59,6 +59,7 @@ import java.util.Locale;
 
 @WebServlet(
         name = "SelfDeleteServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/delete",
                 PwmConstants.URL_PREFIX_PRIVATE + "/DeleteAccount"
@@ -62,6 +62,7 @@ import java.util.Map;
 
 @WebServlet(
         name = "ForgottenUsernameServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/forgottenusername",
                 PwmConstants.URL_PREFIX_PUBLIC + "/ForgottenUsername",
@@ -41,6 +41,7 @@ import java.util.Locale;
 
 @WebServlet(
         name = "FullPageHealthServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/health",
         }
@@ -87,6 +87,7 @@ import java.util.Set;
 
 @WebServlet(
         name = "GuestRegistrationServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/guest-registration",
                 PwmConstants.URL_PREFIX_PRIVATE + "/GuestRegistration",
@@ -61,6 +61,7 @@ import java.util.Map;
  */
 @WebServlet(
         name = "LoginServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/login",
                 PwmConstants.URL_PREFIX_PRIVATE + "/Login"
@@ -46,6 +46,7 @@ import java.util.Optional;
 
 @WebServlet(
         name = "LogoutServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/logout",
                 PwmConstants.URL_PREFIX_PRIVATE + "/logout",
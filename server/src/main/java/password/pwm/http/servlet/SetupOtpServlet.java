@@ -73,6 +73,7 @@ import java.util.Map;
  */
 @WebServlet(
         name = "SetupOtpServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/setup-otp",
                 PwmConstants.URL_PREFIX_PRIVATE + "/SetupOtp"
@@ -79,6 +79,7 @@ import java.util.Map;
 
 @WebServlet(
         name = "SetupResponsesServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/setup-responses",
                 PwmConstants.URL_PREFIX_PRIVATE + "/SetupResponses",
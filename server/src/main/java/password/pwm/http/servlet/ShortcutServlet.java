@@ -53,6 +53,7 @@ import java.util.Set;
 
 @WebServlet(
         name = "ShortcutServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/shortcuts",
                 PwmConstants.URL_PREFIX_PRIVATE + "/Shortcuts",
@@ -45,6 +45,7 @@ import java.util.Collections;
 
 @WebServlet(
         name = "UserInformationServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/account",
                 PwmConstants.URL_PREFIX_PRIVATE + "/userinfo",
@@ -83,6 +83,7 @@ import java.util.Optional;
  */
 @WebServlet(
         name = "ActivateUserServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/activate",
                 PwmConstants.URL_PREFIX_PUBLIC + "/activate/*",
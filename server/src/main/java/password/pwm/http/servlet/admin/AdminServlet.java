@@ -101,6 +101,7 @@ import java.util.zip.ZipOutputStream;
 
 @WebServlet(
         name = "AdminServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/admin",
                 PwmConstants.URL_PREFIX_PRIVATE + "/admin/*",
@@ -34,6 +34,7 @@ import password.pwm.http.bean.DisplayElement;
 import password.pwm.i18n.Admin;
 import password.pwm.i18n.Display;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.ServiceStartupTimeline;
 import password.pwm.svc.node.NodeInfo;
 import password.pwm.svc.sessiontrack.SessionTrackService;
 import password.pwm.util.i18n.LocaleHelper;
@@ -58,6 +59,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
 
 
@@ -257,11 +259,20 @@ public class AppDashboardData implements Serializable
                     ? Collections.emptyList()
                     : serviceInfo.getUsedStorageMethods();
 
-            final Map<String, String> debugData = serviceInfo == null
-                    ? Collections.emptyMap()
-                    : serviceInfo.getDebugProperties() == null
-                    ? Collections.emptyMap()
-                    : serviceInfo.getDebugProperties();
+            final Map<String, String> debugData = new LinkedHashMap<>();
+            if ( serviceInfo != null && serviceInfo.getDebugProperties() != null )
+            {
+                debugData.putAll( serviceInfo.getDebugProperties() );
+            }
+
+            final Optional<ServiceStartupTimeline.Entry> startupEntry = pwmApplication.getServiceStartupTimeline()
+                    .entryForService( pwmService.getClass().getSimpleName() );
+            if ( startupEntry.isPresent() )
+            {
+                debugData.put( "startupOffset", TimeDuration.of( startupEntry.get().getStartOffsetMS(), TimeDuration.Unit.MILLISECONDS ).asCompactString() );
+                debugData.put( "startupDuration", TimeDuration.of( startupEntry.get().getDurationMS(), TimeDuration.Unit.MILLISECONDS ).asCompactString() );
+                debugData.put( "startupCriticalPath", String.valueOf( startupEntry.get().isCriticalPath() ) );
+            }
 
             returnData.put( pwmService.getClass().getSimpleName(), new ServiceData(
                     pwmService.getClass().getSimpleName(),
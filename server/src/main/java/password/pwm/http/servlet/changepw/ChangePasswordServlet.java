@@ -59,6 +59,7 @@ import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroMachine;
+import password.pwm.util.password.PasswordCheckService;
 import password.pwm.util.password.PasswordUtility;
 import password.pwm.util.password.PwmPasswordRuleValidator;
 import password.pwm.util.password.RandomPasswordGenerator;
@@ -404,14 +405,16 @@ public abstract class ChangePasswordServlet extends ControlledPwmServlet
         );
 
         final UserInfo userInfo = pwmRequest.getPwmSession().getUserInfo();
-        final PasswordUtility.PasswordCheckInfo passwordCheckInfo = PasswordUtility.checkEnteredPassword(
-                pwmRequest.getPwmApplication(),
-                pwmRequest.getLocale(),
-                pwmRequest.getPwmSession().getSessionManager().getActor( pwmRequest.getPwmApplication() ),
-                userInfo,
-                pwmRequest.getPwmSession().getLoginInfoBean(),
-                PasswordData.forStringValue( jsonInput.getPassword1() ),
-                PasswordData.forStringValue( jsonInput.getPassword2() )
+        final PasswordUtility.PasswordCheckInfo passwordCheckInfo = pwmRequest.getPwmApplication().getPasswordCheckService().checkEnteredPassword(
+                PasswordCheckService.AsyncCheckRequest.builder()
+                        .sessionKey( pwmRequest.getPwmSession().getSessionStateBean().getSessionID() )
+                        .locale( pwmRequest.getLocale() )
+                        .chaiUser( pwmRequest.getPwmSession().getSessionManager().getActor( pwmRequest.getPwmApplication() ) )
+                        .userInfo( userInfo )
+                        .loginInfoBean( pwmRequest.getPwmSession().getLoginInfoBean() )
+                        .password( PasswordData.forStringValue( jsonInput.getPassword1() ) )
+                        .confirmPassword( PasswordData.forStringValue( jsonInput.getPassword2() ) )
+                        .build()
         );
 
 
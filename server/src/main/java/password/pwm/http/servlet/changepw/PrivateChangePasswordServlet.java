@@ -26,6 +26,7 @@ import javax.servlet.annotation.WebServlet;
 
 @WebServlet(
         name = "PrivateChangePasswordServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/changepassword",
                 PwmConstants.URL_PREFIX_PRIVATE + "/ChangePassword",
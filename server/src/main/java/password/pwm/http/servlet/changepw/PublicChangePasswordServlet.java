@@ -26,6 +26,7 @@ import javax.servlet.annotation.WebServlet;
 
 @WebServlet(
         name = "PublicChangePasswordServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/changepassword",
                 PwmConstants.URL_PREFIX_PUBLIC + "/ChangePassword"
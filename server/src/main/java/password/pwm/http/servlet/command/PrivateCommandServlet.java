@@ -26,6 +26,7 @@ import javax.servlet.annotation.WebServlet;
 
 @WebServlet(
         name = "PrivateCommandServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/command",
                 PwmConstants.URL_PREFIX_PRIVATE + "/command/*",
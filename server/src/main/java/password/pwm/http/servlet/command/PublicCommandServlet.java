@@ -26,6 +26,7 @@ import javax.servlet.annotation.WebServlet;
 
 @WebServlet(
         name = "PublicCommandServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/command",
                 PwmConstants.URL_PREFIX_PUBLIC + "/command/*",
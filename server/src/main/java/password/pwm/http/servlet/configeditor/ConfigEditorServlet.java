@@ -107,6 +107,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 @WebServlet(
         name = "ConfigEditorServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/editor",
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/editor/*",
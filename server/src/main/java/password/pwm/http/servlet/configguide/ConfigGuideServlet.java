@@ -87,6 +87,7 @@ import java.util.Map;
 
 @WebServlet(
         name = "ConfigGuideServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/config-guide",
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/ConfigGuide"
@@ -57,6 +57,7 @@ import java.util.List;
 
 @WebServlet(
         name = "ConfigManagerCertificateServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/manager/certificates",
         }
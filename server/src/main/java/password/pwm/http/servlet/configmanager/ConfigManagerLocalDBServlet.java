@@ -62,6 +62,7 @@ import java.util.Collections;
 
 @WebServlet(
         name = "ConfigManagerLocalDBServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/manager/localdb",
         }
@@ -67,6 +67,7 @@ import java.util.List;
 
 @WebServlet(
         name = "ConfigManagerLogin",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/login",
         }
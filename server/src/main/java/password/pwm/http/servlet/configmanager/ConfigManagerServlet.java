@@ -76,6 +76,7 @@ import java.util.zip.ZipOutputStream;
 
 @WebServlet(
         name = "ConfigManagerServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/manager",
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/ConfigManager"
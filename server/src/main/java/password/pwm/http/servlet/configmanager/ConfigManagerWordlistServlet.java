@@ -60,6 +60,7 @@ import java.util.List;
 
 @WebServlet(
         name = "ConfigManagerWordlistServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/config/manager/wordlists",
         }
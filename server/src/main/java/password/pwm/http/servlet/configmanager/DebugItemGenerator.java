@@ -359,11 +359,15 @@ public class DebugItemGenerator
                     serviceOutput.put( "status", service.status() );
                     serviceOutput.put( "health", service.healthCheck() );
                     serviceOutput.put( "serviceInfo", service.serviceInfo() );
+                    pwmApplication.getServiceStartupTimeline().entryForService( service.getClass().getSimpleName() )
+                            .ifPresent( entry -> serviceOutput.put( "startup", entry ) );
                     servicesMap.put( service.getClass().getSimpleName(), serviceOutput );
                 }
                 outputMap.put( "services", servicesMap );
             }
 
+            outputMap.put( "startupTimeline", pwmApplication.getServiceStartupTimeline() );
+
             final String recordJson = JsonUtil.serializeMap( outputMap, JsonUtil.Flag.PrettyPrint );
             outputStream.write( recordJson.getBytes( PwmConstants.DEFAULT_CHARSET ) );
         }
@@ -109,6 +109,7 @@ import java.util.Set;
  */
 @WebServlet(
         name = "ForgottenPasswordServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/forgottenpassword",
                 PwmConstants.URL_PREFIX_PUBLIC + "/forgottenpassword/*",
@@ -116,6 +116,7 @@ import java.util.concurrent.Callable;
 
 @WebServlet(
         name = "HelpdeskServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/helpdesk",
                 PwmConstants.URL_PREFIX_PRIVATE + "/Helpdesk",
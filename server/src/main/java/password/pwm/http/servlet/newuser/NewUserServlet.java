@@ -89,6 +89,7 @@ import java.util.Set;
  */
 @WebServlet(
         name = "NewUserServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/newuser",
                 PwmConstants.URL_PREFIX_PUBLIC + "/newuser/*",
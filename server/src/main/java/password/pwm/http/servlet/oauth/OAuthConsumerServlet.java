@@ -54,6 +54,7 @@ import java.util.Optional;
 
 @WebServlet(
         name = "OAuthConsumerServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/oauth"
         }
@@ -32,6 +32,7 @@ import java.io.IOException;
 
 @WebServlet(
         name = "PrivatePeopleSearchServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/peoplesearch/",
                 PwmConstants.URL_PREFIX_PRIVATE + "/peoplesearch",
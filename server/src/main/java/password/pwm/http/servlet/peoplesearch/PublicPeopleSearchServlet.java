@@ -31,6 +31,7 @@ import java.io.IOException;
 
 @WebServlet(
         name = "PublicPeopleSearchServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/peoplesearch/",
                 PwmConstants.URL_PREFIX_PUBLIC + "/peoplesearch",
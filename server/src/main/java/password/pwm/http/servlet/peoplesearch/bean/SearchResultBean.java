@@ -20,22 +20,56 @@
 
 package password.pwm.http.servlet.peoplesearch.bean;
 
-import lombok.Data;
-
 import lombok.Builder;
 import lombok.Value;
+import password.pwm.svc.cache.ImmutableCacheValue;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Search results are shared by reference from the cache, so the result rows are copied into unmodifiable
+ * collections when the bean is built.
+ */
 @Value
-@Builder( toBuilder = true )
-@Data
+@ImmutableCacheValue
 public class SearchResultBean implements Serializable
 {
     private List<Map<String, Object>> searchResults;
     private boolean sizeExceeded;
     private String aboutResultMessage;
     private boolean fromCache;
+
+    @Builder( toBuilder = true )
+    private SearchResultBean(
+            final List<Map<String, Object>> searchResults,
+            final boolean sizeExceeded,
+            final String aboutResultMessage,
+            final boolean fromCache
+    )
+    {
+        this.searchResults = immutableRows( searchResults );
+        this.sizeExceeded = sizeExceeded;
+        this.aboutResultMessage = aboutResultMessage;
+        this.fromCache = fromCache;
+    }
+
+    private static List<Map<String, Object>> immutableRows( final List<Map<String, Object>> rows )
+    {
+        if ( rows == null || rows.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<Map<String, Object>> copy = new ArrayList<>( rows.size() );
+        for ( final Map<String, Object> row : rows )
+        {
+            copy.add( row == null ? null : Collections.unmodifiableMap( new LinkedHashMap<>( row ) ) );
+        }
+        return Collections.unmodifiableList( copy );
+    }
 }
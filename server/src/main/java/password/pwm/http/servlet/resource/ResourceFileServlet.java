@@ -54,6 +54,7 @@ import java.util.zip.GZIPOutputStream;
 
 @WebServlet(
         name = "ResourceFileServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PUBLIC + "/resources/*"
         }
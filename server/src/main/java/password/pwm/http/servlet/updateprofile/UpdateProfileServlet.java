@@ -83,6 +83,7 @@ import java.util.Map;
  */
 @WebServlet(
         name = "UpdateProfileServlet",
+        asyncSupported = true,
         urlPatterns = {
                 PwmConstants.URL_PREFIX_PRIVATE + "/updateprofile",
                 PwmConstants.URL_PREFIX_PRIVATE + "/UpdateProfile"
@@ -20,6 +20,8 @@
 
 package password.pwm.http.state;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import password.pwm.config.PwmSetting;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
@@ -35,8 +37,11 @@ import password.pwm.util.secure.PwmSecurityKey;
 import password.pwm.util.secure.SecureService;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 class CryptoCookieBeanImpl implements SessionBeanProvider
 {
@@ -45,6 +50,18 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
 
     private static final PwmHttpResponseWrapper.CookiePath COOKIE_PATH = PwmHttpResponseWrapper.CookiePath.PwmServlet;
 
+    private static final int SESSION_KEY_CACHE_SIZE = 10_000;
+    private static final int SESSION_KEY_CACHE_MINUTES = 30;
+
+    private final Map<Class<? extends PwmSessionBean>, String> cookieNames = new ConcurrentHashMap<>();
+
+    // derived keys are reused across requests of the same session so the key material is only hashed once.  this instance
+    // only lives as long as the configuration, so the cache is keyed by the session guid alone.
+    private final Cache<String, PwmSecurityKey> sessionKeyCache = Caffeine.newBuilder()
+            .maximumSize( SESSION_KEY_CACHE_SIZE )
+            .expireAfterAccess( SESSION_KEY_CACHE_MINUTES, TimeUnit.MINUTES )
+            .build();
+
     @Override
     public <E extends PwmSessionBean> E getSessionBean( final PwmRequest pwmRequest, final Class<E> theClass ) throws PwmUnrecoverableException
     {
@@ -61,12 +78,18 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         try
         {
             final String rawValue = pwmRequest.readCookie( cookieName );
-            final PwmSecurityKey key = keyForSession( pwmRequest );
-            final E cookieBean = pwmRequest.getPwmApplication().getSecureService().decryptObject( rawValue, key, theClass );
-            if ( validateCookie( pwmRequest, cookieName, cookieBean ) )
+            if ( !StringUtil.isEmpty( rawValue ) )
             {
-                sessionBeans.put( theClass, cookieBean );
-                return cookieBean;
+                final PwmSecurityKey key = keyForSession( pwmRequest );
+                final SecureService secureService = pwmRequest.getPwmApplication().getSecureService();
+                final byte[] payload = secureService.decryptStringValueToBytes( rawValue, key );
+                final E cookieBean = secureService.decodeObject( payload, theClass );
+                if ( validateCookie( pwmRequest, cookieName, cookieBean ) )
+                {
+                    sessionBeans.put( theClass, cookieBean );
+                    getRequestBeanContentMap( pwmRequest ).put( theClass, payload );
+                    return cookieBean;
+                }
             }
         }
         catch ( PwmException e )
@@ -134,6 +157,7 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
             if ( pwmRequest != null && pwmRequest.getPwmResponse() != null )
             {
                 final Map<Class<? extends PwmSessionBean>, PwmSessionBean> beansInRequest = getRequestBeanMap( pwmRequest );
+                final Map<Class<? extends PwmSessionBean>, byte[]> beanContent = getRequestBeanContentMap( pwmRequest );
                 if ( beansInRequest != null )
                 {
                     for ( final Map.Entry<Class<? extends PwmSessionBean>, PwmSessionBean> entry : beansInRequest.entrySet() )
@@ -143,13 +167,21 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
                         final PwmSessionBean bean = entry.getValue();
                         if ( bean == null )
                         {
+                            beanContent.remove( theClass );
                             pwmRequest.getPwmResponse().removeCookie( cookieName, COOKIE_PATH );
                         }
                         else
                         {
-                            final PwmSecurityKey key = keyForSession( pwmRequest );
-                            final String encrytedValue = pwmRequest.getPwmApplication().getSecureService().encryptObjectToString( entry.getValue(), key );
-                            pwmRequest.getPwmResponse().writeCookie( cookieName, encrytedValue, -1, COOKIE_PATH );
+                            // beans are only re-encrypted when their content differs from the cookie already held by the browser
+                            final SecureService secureService = pwmRequest.getPwmApplication().getSecureService();
+                            final byte[] payload = secureService.encodeObject( bean );
+                            if ( !Arrays.equals( payload, beanContent.get( theClass ) ) )
+                            {
+                                final PwmSecurityKey key = keyForSession( pwmRequest );
+                                final String encryptedValue = secureService.encryptBytesToString( payload, key );
+                                pwmRequest.getPwmResponse().writeCookie( cookieName, encryptedValue, -1, COOKIE_PATH );
+                                beanContent.put( theClass, payload );
+                            }
                         }
                     }
                 }
@@ -180,11 +212,33 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         return ( Map<Class<? extends PwmSessionBean>, PwmSessionBean> ) sessionBeans;
     }
 
-    private static String nameForClass( final PwmRequest pwmRequest, final Class<? extends PwmSessionBean> theClass )
+    /**
+     * Encoded payload of each bean as last read from or written to the cookie during this request.
+     */
+    private static Map<Class<? extends PwmSessionBean>, byte[]> getRequestBeanContentMap( final PwmRequest pwmRequest )
+    {
+        Serializable beanContent = pwmRequest.getAttribute( PwmRequestAttribute.CookieBeanContent );
+        if ( beanContent == null )
+        {
+            beanContent = new BeanContentMap();
+            pwmRequest.setAttribute( PwmRequestAttribute.CookieBeanContent, beanContent );
+        }
+        return ( BeanContentMap ) beanContent;
+    }
+
+    private String nameForClass( final PwmRequest pwmRequest, final Class<? extends PwmSessionBean> theClass )
             throws PwmUnrecoverableException
     {
+        final String cachedName = cookieNames.get( theClass );
+        if ( cachedName != null )
+        {
+            return cachedName;
+        }
+
         final SecureService secureService = pwmRequest.getPwmApplication().getSecureService();
-        return "b-" + StringUtil.truncate( secureService.hash( theClass.getName() ), 8 );
+        final String cookieName = "b-" + StringUtil.truncate( secureService.hash( theClass.getName() ), 8 );
+        cookieNames.put( theClass, cookieName );
+        return cookieName;
     }
 
     @Override
@@ -198,6 +252,21 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
     {
         final PasswordData configKey = pwmRequest.getConfig().readSettingAsPassword( PwmSetting.PWM_SECURITY_KEY );
         final String userGuid = pwmRequest.getPwmSession().getLoginInfoBean().getGuid();
-        return new PwmSecurityKey( configKey.getStringValue() + userGuid );
+        final String cacheKey = String.valueOf( userGuid );
+
+        final PwmSecurityKey cachedKey = sessionKeyCache.getIfPresent( cacheKey );
+        if ( cachedKey != null )
+        {
+            return cachedKey;
+        }
+
+        final PwmSecurityKey newKey = new PwmSecurityKey( configKey.getStringValue() + userGuid );
+        sessionKeyCache.put( cacheKey, newKey );
+        return newKey;
+    }
+
+    private static class BeanContentMap extends HashMap<Class<? extends PwmSessionBean>, byte[]>
+    {
+        private static final long serialVersionUID = 1L;
     }
 }
@@ -25,6 +25,7 @@ import com.novell.ldapchai.provider.ChaiProvider;
 import com.novell.ldapchai.provider.ChaiProviderFactory;
 import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
+import password.pwm.config.PwmSetting;
 import password.pwm.config.option.DataStorageMethod;
 import password.pwm.config.profile.LdapProfile;
 import password.pwm.error.ErrorInformation;
@@ -33,7 +34,6 @@ import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthRecord;
 import password.pwm.svc.PwmService;
-import password.pwm.util.java.AtomicLoopIntIncrementer;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.logging.PwmLogger;
 
@@ -49,14 +49,13 @@ public class LdapConnectionService implements PwmService
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( LdapConnectionService.class );
 
-    private final Map<String, Map<Integer, ChaiProvider>> proxyChaiProviders = new ConcurrentHashMap<>();
+    private final Map<String, LdapProxyPool> proxyPools = new ConcurrentHashMap<>();
+    private final Map<String, ChaiProvider> proxyChaiProviders = new ConcurrentHashMap<>();
     private final Map<String, ErrorInformation> lastLdapErrors = new ConcurrentHashMap<>();
 
-    private boolean useThreadLocal;
     private PwmApplication pwmApplication;
     private STATUS status = STATUS.NEW;
-    private AtomicLoopIntIncrementer slotIncrementer;
-    private final ThreadLocal<Map<String, ChaiProvider>> threadLocalProvider = new ThreadLocal<>();
+    private LdapProxyPool.Settings poolSettings;
     private ChaiProviderFactory chaiProviderFactory;
 
     public STATUS status( )
@@ -71,19 +70,12 @@ public class LdapConnectionService implements PwmService
 
         chaiProviderFactory = ChaiProviderFactory.newProviderFactory();
 
-        useThreadLocal = Boolean.parseBoolean( pwmApplication.getConfig().readAppProperty( AppProperty.LDAP_PROXY_USE_THREAD_LOCAL ) );
-
         // read the lastLoginTime
         this.lastLdapErrors.putAll( readLastLdapFailure( pwmApplication ) );
 
         final int connectionsPerProfile = maxSlotsPerProfile( pwmApplication );
-        LOGGER.trace( () -> "allocating " + connectionsPerProfile + " ldap proxy connections per profile" );
-        slotIncrementer = new AtomicLoopIntIncrementer( connectionsPerProfile );
-
-        for ( final LdapProfile ldapProfile : pwmApplication.getConfig().getLdapProfiles().values() )
-        {
-            proxyChaiProviders.put( ldapProfile.getIdentifier(), new ConcurrentHashMap<>() );
-        }
+        LOGGER.trace( () -> "allowing up to " + connectionsPerProfile + " ldap proxy connections per profile" );
+        poolSettings = LdapProxyPool.Settings.fromConfiguration( pwmApplication.getConfig(), connectionsPerProfile );
 
         status = STATUS.OPEN;
     }
@@ -92,6 +84,10 @@ public class LdapConnectionService implements PwmService
     {
         status = STATUS.CLOSED;
         LOGGER.trace( () -> "closing ldap proxy connections" );
+        for ( final LdapProxyPool ldapProxyPool : proxyPools.values() )
+        {
+            ldapProxyPool.close();
+        }
         if ( chaiProviderFactory != null )
         {
             try
@@ -103,6 +99,7 @@ public class LdapConnectionService implements PwmService
                 LOGGER.error( "error closing ldap proxy connection: " + e.getMessage(), e );
             }
         }
+        proxyPools.clear();
         proxyChaiProviders.clear();
     }
 
@@ -137,26 +134,7 @@ public class LdapConnectionService implements PwmService
                 ? pwmApplication.getConfig().getDefaultLdapProfile()
                 : ldapProfile;
 
-        if ( useThreadLocal )
-        {
-            if ( threadLocalProvider.get() != null && threadLocalProvider.get().containsKey( effectiveProfile.getIdentifier() ) )
-            {
-                return threadLocalProvider.get().get( effectiveProfile.getIdentifier() );
-            }
-        }
-
-        final ChaiProvider chaiProvider = getNewProxyChaiProvider( effectiveProfile );
-
-        if ( useThreadLocal )
-        {
-            if ( threadLocalProvider.get() == null )
-            {
-                threadLocalProvider.set( new ConcurrentHashMap<>() );
-            }
-            threadLocalProvider.get().put( effectiveProfile.getIdentifier(), chaiProvider );
-        }
-
-        return chaiProvider;
+        return getNewProxyChaiProvider( effectiveProfile );
     }
 
     private ChaiProvider getNewProxyChaiProvider( final LdapProfile ldapProfile )
@@ -167,27 +145,23 @@ public class LdapConnectionService implements PwmService
             throw new NullPointerException( "ldapProfile must not be null" );
         }
 
-        final int slot = slotIncrementer.next();
-
-        final ChaiProvider proxyChaiProvider = proxyChaiProviders.get( ldapProfile.getIdentifier() ).get( slot );
-
-        if ( proxyChaiProvider != null )
-        {
-            return proxyChaiProvider;
-        }
+        final LdapProxyPool ldapProxyPool = proxyPools.computeIfAbsent( ldapProfile.getIdentifier(), k -> makeProxyPool( ldapProfile ) );
 
         try
         {
-            final ChaiProvider newProvider = LdapOperationsHelper.openProxyChaiProvider(
-                    pwmApplication,
-                    null,
-                    ldapProfile,
-                    pwmApplication.getConfig(),
-                    pwmApplication.getStatisticsManager()
-            );
-            proxyChaiProviders.get( ldapProfile.getIdentifier() ).put( slot, newProvider );
-
-            return newProvider;
+            ldapProxyPool.ensureConnected();
+            final ChaiProvider existingProvider = proxyChaiProviders.get( ldapProfile.getIdentifier() );
+            if ( existingProvider != null )
+            {
+                return existingProvider;
+            }
+
+            final ChaiProvider pooledProvider = new PooledChaiProvider(
+                    ldapProxyPool,
+                    LdapOperationsHelper.createChaiConfiguration( pwmApplication.getConfig(), ldapProfile ),
+                    chaiProviderFactory );
+            proxyChaiProviders.put( ldapProfile.getIdentifier(), pooledProvider );
+            return pooledProvider;
         }
         catch ( PwmUnrecoverableException e )
         {
@@ -203,6 +177,23 @@ public class LdapConnectionService implements PwmService
         }
     }
 
+    private LdapProxyPool makeProxyPool( final LdapProfile ldapProfile )
+    {
+        final List<String> ldapURLs = ldapProfile.readSettingAsStringArray( PwmSetting.LDAP_SERVER_URLS );
+        return new LdapProxyPool(
+                ldapProfile.getIdentifier(),
+                ldapURLs,
+                poolSettings,
+                ldapURL -> LdapOperationsHelper.openProxyChaiProvider(
+                        chaiProviderFactory,
+                        null,
+                        ldapProfile,
+                        Collections.singletonList( ldapURL ),
+                        pwmApplication.getConfig(),
+                        pwmApplication.getStatisticsManager()
+                ) );
+    }
+
     public void setLastLdapFailure( final LdapProfile ldapProfile, final ErrorInformation errorInformation )
     {
         lastLdapErrors.put( ldapProfile.getIdentifier(), errorInformation );
@@ -256,7 +247,7 @@ public class LdapConnectionService implements PwmService
 
         if ( ( perProfile * profileCount ) >= maxConnections )
         {
-            final int adjustedConnections = Math.min( 1, ( maxConnections / profileCount ) );
+            final int adjustedConnections = Math.max( 1, ( maxConnections / profileCount ) );
             LOGGER.warn( "connections per profile (" + perProfile + ") multiplied by number of profiles ("
                     + profileCount + ") exceeds max connections (" + maxConnections + "), will limit to " + adjustedConnections );
             return adjustedConnections;
@@ -313,10 +304,14 @@ public class LdapConnectionService implements PwmService
                 }
             }
         }
-        final Map<String, String> debugInfo = new HashMap<>();
+        final Map<String, String> debugInfo = new LinkedHashMap<>();
         debugInfo.put( DebugKey.ALLOCATED_CONNECTIONS.name(), String.valueOf( allocatedConnections ) );
         debugInfo.put( DebugKey.ACTIVE_CONNECTIONS.name(), String.valueOf( activeConnections ) );
         debugInfo.put( DebugKey.IDLE_CONNECTIONS.name(), String.valueOf( idleConnections ) );
+        for ( final LdapProxyPool ldapProxyPool : proxyPools.values() )
+        {
+            debugInfo.putAll( ldapProxyPool.debugInfo() );
+        }
         return Collections.unmodifiableMap( debugInfo );
     }
 }
@@ -174,14 +174,29 @@ public class LdapOperationsHelper
     )
             throws PwmUnrecoverableException
     {
-        LOGGER.trace( sessionLabel, () -> "opening new ldap proxy connection" );
+        final List<String> ldapURLs = ldapProfile.readSettingAsStringArray( PwmSetting.LDAP_SERVER_URLS );
+        return openProxyChaiProvider( chaiProviderFactory, sessionLabel, ldapProfile, ldapURLs, config, statisticsManager );
+    }
+
+    static ChaiProvider openProxyChaiProvider(
+            final ChaiProviderFactory chaiProviderFactory,
+            final SessionLabel sessionLabel,
+            final LdapProfile ldapProfile,
+            final List<String> ldapURLs,
+            final Configuration config,
+            final StatisticsManager statisticsManager
+    )
+            throws PwmUnrecoverableException
+    {
+        LOGGER.trace( sessionLabel, () -> "opening new ldap proxy connection to " + ldapURLs );
 
         final String proxyDN = ldapProfile.readSettingAsString( PwmSetting.LDAP_PROXY_USER_DN );
         final PasswordData proxyPW = ldapProfile.readSettingAsPassword( PwmSetting.LDAP_PROXY_USER_PASSWORD );
 
         try
         {
-            return createChaiProvider( chaiProviderFactory, sessionLabel, ldapProfile, config, proxyDN, proxyPW );
+            final ChaiConfiguration chaiConfig = createChaiConfiguration( config, ldapProfile, ldapURLs, proxyDN, proxyPW );
+            return chaiProviderFactory.newProvider( chaiConfig );
         }
         catch ( ChaiUnavailableException e )
         {
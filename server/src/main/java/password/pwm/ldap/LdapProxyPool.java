@@ -0,0 +1,649 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.provider.ChaiProvider;
+import lombok.Builder;
+import lombok.Value;
+import password.pwm.AppProperty;
+import password.pwm.config.Configuration;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.Percent;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of proxy connections for a single ldap profile.  Each connection is bound to one of the profile's ldap server
+ * urls (replicas).  A checkout selects the replica with the fewest operations in flight, reuses an idle connection to
+ * it or opens a new one up to the pool maximum, and the connection is returned after a single ldap operation.
+ * After a write, the writing thread stays on the same replica for a while so it reads its own changes.
+ * Connections that fail or become much slower than the pool average are closed and replaced on demand, and a failed
+ * replica is skipped until the replica retry delay has passed.  Search
+ * durations depend on the result size, so they are only counted in the latency histograms.
+ */
+class LdapProxyPool
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( LdapProxyPool.class );
+
+    private static final long[] LATENCY_BUCKETS_MS = new long[]
+            {
+                    10, 50, 100, 500, 1000, 5000,
+            };
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final int LATENCY_MIN_SAMPLES = 5;
+
+    private final String profileID;
+    private final Settings settings;
+    private final ConnectionOpener connectionOpener;
+    private final List<Replica> replicas;
+    private final Semaphore permits;
+    private final ThreadLocal<WriteAffinity> writeAffinity = new ThreadLocal<>();
+
+    // guarded by this
+    private final List<Member> members = new ArrayList<>();
+    private int openingCount;
+    private double poolLatency;
+    private boolean closed;
+
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong checkoutTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong openedConnections = new AtomicLong();
+    private final AtomicLong evictedConnections = new AtomicLong();
+
+    enum OperationType
+    {
+        READ,
+        WRITE,
+        SEARCH,
+    }
+
+    interface ConnectionOpener
+    {
+        ChaiProvider open( String ldapURL ) throws PwmUnrecoverableException;
+    }
+
+    @Value
+    @Builder
+    static class Settings
+    {
+        @Builder.Default
+        private int minConnections = 1;
+
+        @Builder.Default
+        private int maxConnections = 10;
+
+        @Builder.Default
+        private TimeDuration checkoutTimeout = TimeDuration.of( 30, TimeDuration.Unit.SECONDS );
+
+        @Builder.Default
+        private TimeDuration idleTimeout = TimeDuration.of( 5, TimeDuration.Unit.MINUTES );
+
+        @Builder.Default
+        private TimeDuration replicaRetryDelay = TimeDuration.MINUTE;
+
+        @Builder.Default
+        private double latencySpikeFactor = 4;
+
+        @Builder.Default
+        private TimeDuration latencySpikeMinimum = TimeDuration.of( 5, TimeDuration.Unit.SECONDS );
+
+        @Builder.Default
+        private TimeDuration writeAffinity = TimeDuration.of( 30, TimeDuration.Unit.SECONDS );
+
+        static Settings fromConfiguration( final Configuration config, final int maxConnections )
+        {
+            return Settings.builder()
+                    .minConnections( Integer.parseInt( config.readAppProperty( AppProperty.LDAP_PROXY_POOL_MIN_CONNECTIONS ) ) )
+                    .maxConnections( maxConnections )
+                    .checkoutTimeout( TimeDuration.of(
+                            Long.parseLong( config.readAppProperty( AppProperty.LDAP_PROXY_POOL_CHECKOUT_TIMEOUT_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
+                    .idleTimeout( TimeDuration.of(
+                            Long.parseLong( config.readAppProperty( AppProperty.LDAP_PROXY_POOL_IDLE_TIMEOUT_SECONDS ) ), TimeDuration.Unit.SECONDS ) )
+                    .replicaRetryDelay( TimeDuration.of(
+                            Long.parseLong( config.readAppProperty( AppProperty.LDAP_PROFILE_RETRY_DELAY ) ), TimeDuration.Unit.MILLISECONDS ) )
+                    .latencySpikeFactor( Double.parseDouble( config.readAppProperty( AppProperty.LDAP_PROXY_POOL_LATENCY_SPIKE_FACTOR ) ) )
+                    .latencySpikeMinimum( TimeDuration.of(
+                            Long.parseLong( config.readAppProperty( AppProperty.LDAP_PROXY_POOL_LATENCY_SPIKE_MIN_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
+                    .writeAffinity( TimeDuration.of(
+                            Long.parseLong( config.readAppProperty( AppProperty.LDAP_PROXY_POOL_WRITE_AFFINITY_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
+                    .build();
+        }
+    }
+
+    LdapProxyPool(
+            final String profileID,
+            final List<String> ldapURLs,
+            final Settings settings,
+            final ConnectionOpener connectionOpener
+    )
+    {
+        this.profileID = profileID;
+        this.settings = settings;
+        this.connectionOpener = connectionOpener;
+        this.permits = new Semaphore( Math.max( 1, settings.getMaxConnections() ), true );
+
+        final List<Replica> replicaList = new ArrayList<>();
+        for ( final String ldapURL : ldapURLs )
+        {
+            replicaList.add( new Replica( ldapURL ) );
+        }
+        this.replicas = Collections.unmodifiableList( replicaList );
+    }
+
+    /**
+     * Make sure at least one connection is open, so an unreachable directory is reported to the caller requesting
+     * the proxy provider instead of on its first ldap operation.
+     */
+    void ensureConnected( )
+            throws PwmUnrecoverableException
+    {
+        synchronized ( this )
+        {
+            if ( !members.isEmpty() )
+            {
+                return;
+            }
+        }
+        release( checkout(), 0, false, OperationType.READ );
+    }
+
+    Member checkout( )
+            throws PwmUnrecoverableException
+    {
+        final Instant startTime = Instant.now();
+        try
+        {
+            if ( !permits.tryAcquire( settings.getCheckoutTimeout().asMillis(), TimeUnit.MILLISECONDS ) )
+            {
+                checkoutTimeouts.incrementAndGet();
+                final String msg = "timeout waiting " + settings.getCheckoutTimeout().asCompactString()
+                        + " for available ldap proxy connection for profile " + profileID;
+                throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_DIRECTORY_UNAVAILABLE, msg ) );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_DIRECTORY_UNAVAILABLE, "interrupted waiting for ldap proxy connection" ) );
+        }
+
+        totalWaitMs.addAndGet( TimeDuration.fromCurrent( startTime ).asMillis() );
+        checkouts.incrementAndGet();
+
+        try
+        {
+            return selectMember();
+        }
+        catch ( PwmUnrecoverableException | RuntimeException e )
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release( final Member member, final long durationMs, final boolean connectionFailed, final OperationType operationType )
+    {
+        if ( operationType == OperationType.WRITE && !connectionFailed && !settings.getWriteAffinity().isZero() )
+        {
+            writeAffinity.set( new WriteAffinity( member.replica, Instant.now().plus( settings.getWriteAffinity().asDuration() ) ) );
+        }
+
+        final boolean evict;
+        final List<Member> failedReplicaMembers = new ArrayList<>();
+        synchronized ( this )
+        {
+            member.inUse = false;
+            member.lastUsed = Instant.now();
+            member.replica.inFlight--;
+
+            if ( durationMs > 0 )
+            {
+                member.replica.recordHistogram( durationMs );
+                if ( operationType != OperationType.SEARCH )
+                {
+                    member.replica.recordLatency( durationMs );
+                    member.recordLatency( durationMs );
+                    poolLatency = smooth( poolLatency, durationMs );
+                }
+            }
+
+            if ( connectionFailed )
+            {
+                // idle connections to a failed replica would fail the same way, so they are closed as well
+                member.replica.markDown( settings.getReplicaRetryDelay() );
+                for ( final Member otherMember : members )
+                {
+                    if ( otherMember != member && !otherMember.inUse && otherMember.replica == member.replica )
+                    {
+                        failedReplicaMembers.add( otherMember );
+                    }
+                }
+                members.removeAll( failedReplicaMembers );
+            }
+
+            evict = closed || connectionFailed || isLatencySpike( member );
+            if ( evict )
+            {
+                members.remove( member );
+            }
+        }
+
+        if ( evict )
+        {
+            if ( !closed )
+            {
+                evictedConnections.incrementAndGet();
+                LOGGER.debug( () -> "evicting ldap proxy connection to " + member.replica.ldapURL + " for profile " + profileID
+                        + ( connectionFailed ? " after connection failure" : " due to latency " + ( long ) member.latency + "ms" ) );
+            }
+            closeQuietly( member );
+        }
+        if ( !failedReplicaMembers.isEmpty() )
+        {
+            evictedConnections.addAndGet( failedReplicaMembers.size() );
+            failedReplicaMembers.forEach( LdapProxyPool::closeQuietly );
+        }
+        permits.release();
+    }
+
+    void close( )
+    {
+        final List<Member> idleMembers = new ArrayList<>();
+        synchronized ( this )
+        {
+            closed = true;
+            for ( final Member member : new ArrayList<>( members ) )
+            {
+                if ( !member.inUse )
+                {
+                    members.remove( member );
+                    idleMembers.add( member );
+                }
+            }
+        }
+        idleMembers.forEach( LdapProxyPool::closeQuietly );
+    }
+
+    long openedConnectionCount( )
+    {
+        return openedConnections.get();
+    }
+
+    /**
+     * Indicates if any replica is currently considered available, that is has not failed within the replica retry delay.
+     *
+     * @return true if at least one replica is available
+     */
+    synchronized boolean hasAvailableReplica( )
+    {
+        return replicas.stream().anyMatch( replica -> !replica.isDown() );
+    }
+
+    synchronized boolean hasConnectedMember( )
+    {
+        return members.stream().anyMatch( member -> member.provider.isConnected() );
+    }
+
+    synchronized Map<String, String> debugInfo( )
+    {
+        final String prefix = "proxyPool." + profileID + ".";
+        final int inUse = ( int ) members.stream().filter( member -> member.inUse ).count();
+        final int maxConnections = Math.max( 1, settings.getMaxConnections() );
+        final long checkoutCount = checkouts.get();
+
+        final Map<String, String> debugInfo = new LinkedHashMap<>();
+        debugInfo.put( prefix + "openConnections", String.valueOf( members.size() ) );
+        debugInfo.put( prefix + "activeConnections", String.valueOf( inUse ) );
+        debugInfo.put( prefix + "idleConnections", String.valueOf( members.size() - inUse ) );
+        debugInfo.put( prefix + "maxConnections", String.valueOf( maxConnections ) );
+        debugInfo.put( prefix + "saturation", new Percent( maxConnections - permits.availablePermits(), maxConnections ).pretty( 0 ) );
+        debugInfo.put( prefix + "waitingThreads", String.valueOf( permits.getQueueLength() ) );
+        debugInfo.put( prefix + "checkouts", String.valueOf( checkoutCount ) );
+        debugInfo.put( prefix + "averageCheckoutWaitMs", String.valueOf( checkoutCount == 0 ? 0 : totalWaitMs.get() / checkoutCount ) );
+        debugInfo.put( prefix + "checkoutTimeouts", String.valueOf( checkoutTimeouts.get() ) );
+        debugInfo.put( prefix + "openedConnections", String.valueOf( openedConnections.get() ) );
+        debugInfo.put( prefix + "evictedConnections", String.valueOf( evictedConnections.get() ) );
+        debugInfo.put( prefix + "averageLatencyMs", String.valueOf( ( long ) poolLatency ) );
+
+        for ( final Replica replica : replicas )
+        {
+            final String replicaPrefix = prefix + "replica." + replica.ldapURL + ".";
+            final long replicaMembers = members.stream().filter( member -> member.replica == replica ).count();
+            debugInfo.put( replicaPrefix + "connections", String.valueOf( replicaMembers ) );
+            debugInfo.put( replicaPrefix + "inFlight", String.valueOf( replica.inFlight ) );
+            debugInfo.put( replicaPrefix + "averageLatencyMs", String.valueOf( ( long ) replica.latency ) );
+            debugInfo.put( replicaPrefix + "latencyHistogram", replica.histogramString() );
+            if ( replica.isDown() )
+            {
+                debugInfo.put( replicaPrefix + "unavailableUntil", JavaHelper.toIsoDate( replica.downUntil ) );
+            }
+        }
+        return Collections.unmodifiableMap( debugInfo );
+    }
+
+    private Member selectMember( )
+            throws PwmUnrecoverableException
+    {
+        final Replica affinityReplica = readWriteAffinity();
+
+        PwmUnrecoverableException lastError = null;
+        for ( int attempt = 0; attempt < Math.max( 1, replicas.size() ); attempt++ )
+        {
+            final Replica replica;
+            Member replacedMember = null;
+            synchronized ( this )
+            {
+                if ( closed )
+                {
+                    throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_SERVICE_NOT_AVAILABLE, "ldap proxy pool is closed" ) );
+                }
+
+                evictIdleMembers();
+
+                replica = affinityReplica != null && !affinityReplica.isDown() ? affinityReplica : leastLoadedReplica();
+                final Member idleMember = findIdleMember( replica );
+                if ( idleMember != null )
+                {
+                    return markInUse( idleMember );
+                }
+
+                if ( members.size() + openingCount >= settings.getMaxConnections() )
+                {
+                    // pool is full, so an idle connection to some other replica must exist since this thread holds a permit
+                    final Member anyIdleMember = findIdleMember( null );
+                    if ( anyIdleMember == null )
+                    {
+                        throw new IllegalStateException( "no idle ldap proxy connection available while holding pool permit" );
+                    }
+                    if ( replica != affinityReplica )
+                    {
+                        return markInUse( anyIdleMember );
+                    }
+
+                    // the thread must stay on the replica it wrote to, so replace the idle connection to the other replica
+                    members.remove( anyIdleMember );
+                    replacedMember = anyIdleMember;
+                }
+
+                openingCount++;
+            }
+
+            if ( replacedMember != null )
+            {
+                closeQuietly( replacedMember );
+            }
+
+            try
+            {
+                final ChaiProvider provider = connectionOpener.open( replica.ldapURL );
+                openedConnections.incrementAndGet();
+                synchronized ( this )
+                {
+                    openingCount--;
+                    final Member newMember = new Member( replica, provider );
+                    members.add( newMember );
+                    return markInUse( newMember );
+                }
+            }
+            catch ( PwmUnrecoverableException e )
+            {
+                synchronized ( this )
+                {
+                    openingCount--;
+                    replica.markDown( settings.getReplicaRetryDelay() );
+                }
+                LOGGER.debug( () -> "unable to open ldap proxy connection to " + replica.ldapURL + " for profile " + profileID + ": " + e.getMessage() );
+                lastError = e;
+            }
+        }
+
+        throw lastError;
+    }
+
+    private Replica readWriteAffinity( )
+    {
+        final WriteAffinity affinity = writeAffinity.get();
+        if ( affinity == null )
+        {
+            return null;
+        }
+        if ( affinity.expires.isBefore( Instant.now() ) )
+        {
+            writeAffinity.remove();
+            return null;
+        }
+        return affinity.replica;
+    }
+
+    private Member markInUse( final Member member )
+    {
+        member.inUse = true;
+        member.replica.inFlight++;
+        return member;
+    }
+
+    /**
+     * Replica with the fewest operations in flight, preferring the lower average latency on a tie.  Replicas that
+     * recently failed are only used if every replica has failed.
+     */
+    private Replica leastLoadedReplica( )
+    {
+        Replica selected = null;
+        for ( final Replica replica : replicas )
+        {
+            if ( !replica.isDown() && ( selected == null || replica.compareLoad( selected ) < 0 ) )
+            {
+                selected = replica;
+            }
+        }
+
+        if ( selected == null )
+        {
+            for ( final Replica replica : replicas )
+            {
+                if ( selected == null || replica.downUntil.isBefore( selected.downUntil ) )
+                {
+                    selected = replica;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private Member findIdleMember( final Replica replica )
+    {
+        // most recently used first, so surplus connections age out
+        Member selected = null;
+        for ( final Member member : members )
+        {
+            if ( !member.inUse && ( replica == null || member.replica == replica ) )
+            {
+                if ( selected == null || member.lastUsed.isAfter( selected.lastUsed ) )
+                {
+                    selected = member;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private void evictIdleMembers( )
+    {
+        final List<Member> expiredMembers = new ArrayList<>();
+        for ( final Member member : members )
+        {
+            if ( members.size() - expiredMembers.size() <= settings.getMinConnections() )
+            {
+                break;
+            }
+            if ( !member.inUse && TimeDuration.fromCurrent( member.lastUsed ).isLongerThan( settings.getIdleTimeout() ) )
+            {
+                expiredMembers.add( member );
+            }
+        }
+
+        if ( !expiredMembers.isEmpty() )
+        {
+            members.removeAll( expiredMembers );
+            LOGGER.trace( () -> "closing " + expiredMembers.size() + " idle ldap proxy connections for profile " + profileID );
+            expiredMembers.forEach( LdapProxyPool::closeQuietly );
+        }
+    }
+
+    private boolean isLatencySpike( final Member member )
+    {
+        return member.samples >= LATENCY_MIN_SAMPLES
+                && member.latency > settings.getLatencySpikeMinimum().asMillis()
+                && member.latency > poolLatency * settings.getLatencySpikeFactor();
+    }
+
+    private static double smooth( final double average, final long sample )
+    {
+        return average == 0 ? sample : average + LATENCY_SMOOTHING * ( sample - average );
+    }
+
+    private static void closeQuietly( final Member member )
+    {
+        try
+        {
+            member.provider.close();
+        }
+        catch ( Exception e )
+        {
+            LOGGER.debug( () -> "error closing ldap proxy connection: " + e.getMessage() );
+        }
+    }
+
+    static final class Member
+    {
+        private final Replica replica;
+        private final ChaiProvider provider;
+        private boolean inUse;
+        private Instant lastUsed = Instant.now();
+        private double latency;
+        private int samples;
+
+        private Member( final Replica replica, final ChaiProvider provider )
+        {
+            this.replica = replica;
+            this.provider = provider;
+        }
+
+        ChaiProvider getProvider( )
+        {
+            return provider;
+        }
+
+        private void recordLatency( final long durationMs )
+        {
+            latency = smooth( latency, durationMs );
+            samples++;
+        }
+    }
+
+    private static final class Replica
+    {
+        private final String ldapURL;
+        private final long[] histogram = new long[LATENCY_BUCKETS_MS.length + 1];
+        private int inFlight;
+        private double latency;
+        private Instant downUntil = Instant.EPOCH;
+
+        private Replica( final String ldapURL )
+        {
+            this.ldapURL = ldapURL;
+        }
+
+        private boolean isDown( )
+        {
+            return downUntil.isAfter( Instant.now() );
+        }
+
+        private void markDown( final TimeDuration retryDelay )
+        {
+            downUntil = Instant.now().plus( retryDelay.asDuration() );
+        }
+
+        private int compareLoad( final Replica other )
+        {
+            final int inFlightCompare = Integer.compare( inFlight, other.inFlight );
+            return inFlightCompare != 0 ? inFlightCompare : Double.compare( latency, other.latency );
+        }
+
+        private void recordLatency( final long durationMs )
+        {
+            latency = smooth( latency, durationMs );
+        }
+
+        private void recordHistogram( final long durationMs )
+        {
+            int bucket = 0;
+            while ( bucket < LATENCY_BUCKETS_MS.length && durationMs >= LATENCY_BUCKETS_MS[bucket] )
+            {
+                bucket++;
+            }
+            histogram[bucket]++;
+        }
+
+        private String histogramString( )
+        {
+            final StringBuilder sb = new StringBuilder();
+            for ( int i = 0; i < histogram.length; i++ )
+            {
+                if ( i > 0 )
+                {
+                    sb.append( ", " );
+                }
+                sb.append( i < LATENCY_BUCKETS_MS.length ? "<" + LATENCY_BUCKETS_MS[i] : ">=" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] );
+                sb.append( "ms=" ).append( histogram[i] );
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class WriteAffinity
+    {
+        private final Replica replica;
+        private final Instant expires;
+
+        private WriteAffinity( final Replica replica, final Instant expires )
+        {
+            this.replica = replica;
+            this.expires = expires;
+        }
+    }
+}
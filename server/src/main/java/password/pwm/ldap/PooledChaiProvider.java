@@ -0,0 +1,479 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.ChaiEntryFactory;
+import com.novell.ldapchai.ChaiRequestControl;
+import com.novell.ldapchai.exception.ChaiError;
+import com.novell.ldapchai.exception.ChaiOperationException;
+import com.novell.ldapchai.exception.ChaiUnavailableException;
+import com.novell.ldapchai.provider.ChaiConfiguration;
+import com.novell.ldapchai.provider.ChaiProvider;
+import com.novell.ldapchai.provider.ChaiProviderFactory;
+import com.novell.ldapchai.provider.DirectoryVendor;
+import com.novell.ldapchai.provider.ProviderStatistics;
+import com.novell.ldapchai.provider.SearchScope;
+import com.novell.ldapchai.util.SearchHelper;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+
+import javax.naming.ldap.ExtendedRequest;
+import javax.naming.ldap.ExtendedResponse;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ChaiProvider} handed out as the proxy provider of an ldap profile.  Every operation checks out a connection
+ * from the profile's {@link LdapProxyPool} and returns it as soon as the operation completes, so callers holding on to
+ * the proxy provider (or entries created from it) are spread across the pool instead of serializing on one connection.
+ * Operations are counted for the whole pool, with the connections opened by the pool reported as binds.
+ */
+class PooledChaiProvider implements ChaiProvider
+{
+    private final LdapProxyPool ldapProxyPool;
+    private final ChaiConfiguration chaiConfiguration;
+    private final ChaiProviderFactory chaiProviderFactory;
+    private final PoolProviderStatistics providerStatistics = new PoolProviderStatistics();
+
+    PooledChaiProvider(
+            final LdapProxyPool ldapProxyPool,
+            final ChaiConfiguration chaiConfiguration,
+            final ChaiProviderFactory chaiProviderFactory
+    )
+    {
+        this.ldapProxyPool = ldapProxyPool;
+        this.chaiConfiguration = chaiConfiguration;
+        this.chaiProviderFactory = chaiProviderFactory;
+    }
+
+    private interface LdapOperation<T>
+    {
+        T execute( ChaiProvider chaiProvider ) throws ChaiOperationException, ChaiUnavailableException;
+    }
+
+    private <T> T execute( final LdapProxyPool.OperationType operationType, final LdapOperation<T> ldapOperation )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        providerStatistics.markOperation( operationType );
+        try
+        {
+            try
+            {
+                return executeOnMember( checkout(), operationType, ldapOperation );
+            }
+            catch ( ChaiUnavailableException e )
+            {
+                // the failed replica is now marked down, so reads and searches are retried once on another replica.  writes
+                // are not retried since the write may have been applied before the connection was lost.
+                if ( operationType == LdapProxyPool.OperationType.WRITE || !ldapProxyPool.hasAvailableReplica() )
+                {
+                    throw e;
+                }
+                return executeOnMember( checkout(), operationType, ldapOperation );
+            }
+        }
+        finally
+        {
+            providerStatistics.markFinish();
+        }
+    }
+
+    private LdapProxyPool.Member checkout( )
+            throws ChaiUnavailableException
+    {
+        try
+        {
+            return ldapProxyPool.checkout();
+        }
+        catch ( PwmUnrecoverableException e )
+        {
+            providerStatistics.markUnavailable();
+            throw new ChaiUnavailableException( e.getMessage(), ChaiError.COMMUNICATION );
+        }
+    }
+
+    private <T> T executeOnMember(
+            final LdapProxyPool.Member member,
+            final LdapProxyPool.OperationType operationType,
+            final LdapOperation<T> ldapOperation
+    )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        final Instant startTime = Instant.now();
+        boolean connectionFailed = false;
+        try
+        {
+            return ldapOperation.execute( member.getProvider() );
+        }
+        catch ( ChaiUnavailableException e )
+        {
+            connectionFailed = true;
+            providerStatistics.markUnavailable();
+            throw e;
+        }
+        finally
+        {
+            ldapProxyPool.release( member, TimeDuration.fromCurrent( startTime ).asMillis(), connectionFailed, operationType );
+        }
+    }
+
+    @Override
+    public void close( )
+    {
+        // pooled connections are closed by LdapConnectionService
+    }
+
+    @Override
+    public boolean compareStringAttribute( final String entryDN, final String attributeName, final String value )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.READ, provider -> provider.compareStringAttribute( entryDN, attributeName, value ) );
+    }
+
+    @Override
+    public void createEntry( final String entryDN, final String baseObjectClass, final Map<String, String> stringAttributes )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.createEntry( entryDN, baseObjectClass, stringAttributes );
+            return null;
+        } );
+    }
+
+    @Override
+    public void createEntry( final String entryDN, final Set<String> baseObjectClasses, final Map<String, String> stringAttributes )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.createEntry( entryDN, baseObjectClasses, stringAttributes );
+            return null;
+        } );
+    }
+
+    @Override
+    public void renameEntry( final String entryDN, final String newRDN, final String newParentDN )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.renameEntry( entryDN, newRDN, newParentDN );
+            return null;
+        } );
+    }
+
+    @Override
+    public void deleteEntry( final String entryDN )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.deleteEntry( entryDN );
+            return null;
+        } );
+    }
+
+    @Override
+    public void deleteStringAttributeValue( final String entryDN, final String attributeName, final String value )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.deleteStringAttributeValue( entryDN, attributeName, value );
+            return null;
+        } );
+    }
+
+    @Override
+    public ExtendedResponse extendedOperation( final ExtendedRequest request )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.WRITE, provider -> provider.extendedOperation( request ) );
+    }
+
+    @Override
+    public ChaiConfiguration getChaiConfiguration( )
+    {
+        return chaiConfiguration;
+    }
+
+    @Override
+    public ProviderStatistics getProviderStatistics( )
+    {
+        return providerStatistics;
+    }
+
+    @Override
+    public byte[][] readMultiByteAttribute( final String entryDN, final String attribute )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.READ, provider -> provider.readMultiByteAttribute( entryDN, attribute ) );
+    }
+
+    @Override
+    public Set<String> readMultiStringAttribute( final String entryDN, final String attribute )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.READ, provider -> provider.readMultiStringAttribute( entryDN, attribute ) );
+    }
+
+    @Override
+    public String readStringAttribute( final String entryDN, final String attribute )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.READ, provider -> provider.readStringAttribute( entryDN, attribute ) );
+    }
+
+    @Override
+    public Map<String, String> readStringAttributes( final String entryDN, final Set<String> attributes )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.READ, provider -> provider.readStringAttributes( entryDN, attributes ) );
+    }
+
+    @Override
+    public void replaceStringAttribute( final String entryDN, final String attributeName, final String oldValue, final String newValue )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.replaceStringAttribute( entryDN, attributeName, oldValue, newValue );
+            return null;
+        } );
+    }
+
+    @Override
+    public Map<String, Map<String, String>> search( final String baseDN, final SearchHelper searchHelper )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.SEARCH, provider -> provider.search( baseDN, searchHelper ) );
+    }
+
+    @Override
+    public Map<String, Map<String, String>> search( final String baseDN, final String filter, final Set<String> attributes, final SearchScope searchScope )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.SEARCH, provider -> provider.search( baseDN, filter, attributes, searchScope ) );
+    }
+
+    @Override
+    public Map<String, Map<String, List<String>>> searchMultiValues( final String baseDN, final SearchHelper searchHelper )
+            throws ChaiUnavailableException, ChaiOperationException
+    {
+        return execute( LdapProxyPool.OperationType.SEARCH, provider -> provider.searchMultiValues( baseDN, searchHelper ) );
+    }
+
+    @Override
+    public Map<String, Map<String, List<String>>> searchMultiValues(
+            final String baseDN,
+            final String filter,
+            final Set<String> attributes,
+            final SearchScope searchScope
+    )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        return execute( LdapProxyPool.OperationType.SEARCH, provider -> provider.searchMultiValues( baseDN, filter, attributes, searchScope ) );
+    }
+
+    @Override
+    public void writeBinaryAttribute( final String entryDN, final String attributeName, final byte[][] values, final boolean overwrite )
+            throws ChaiUnavailableException, ChaiOperationException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.writeBinaryAttribute( entryDN, attributeName, values, overwrite );
+            return null;
+        } );
+    }
+
+    @Override
+    public void writeBinaryAttribute(
+            final String entryDN,
+            final String attributeName,
+            final byte[][] values,
+            final boolean overwrite,
+            final ChaiRequestControl[] controls
+    )
+            throws ChaiUnavailableException, ChaiOperationException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.writeBinaryAttribute( entryDN, attributeName, values, overwrite, controls );
+            return null;
+        } );
+    }
+
+    @Override
+    public void writeStringAttribute( final String entryDN, final String attributeName, final Set<String> values, final boolean overwrite )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.writeStringAttribute( entryDN, attributeName, values, overwrite );
+            return null;
+        } );
+    }
+
+    @Override
+    public void writeStringAttributes( final String entryDN, final Map<String, String> attributeValueProps, final boolean overwrite )
+            throws ChaiOperationException, ChaiUnavailableException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.writeStringAttributes( entryDN, attributeValueProps, overwrite );
+            return null;
+        } );
+    }
+
+    @Override
+    public DirectoryVendor getDirectoryVendor( )
+            throws ChaiUnavailableException
+    {
+        try
+        {
+            return execute( LdapProxyPool.OperationType.READ, ChaiProvider::getDirectoryVendor );
+        }
+        catch ( ChaiOperationException e )
+        {
+            throw new IllegalStateException( "unexpected error reading directory vendor: " + e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public void replaceBinaryAttribute( final String entryDN, final String attributeName, final byte[] oldValue, final byte[] newValue )
+            throws ChaiUnavailableException, ChaiOperationException
+    {
+        execute( LdapProxyPool.OperationType.WRITE, provider ->
+        {
+            provider.replaceBinaryAttribute( entryDN, attributeName, oldValue, newValue );
+            return null;
+        } );
+    }
+
+    @Override
+    public boolean isConnected( )
+    {
+        return ldapProxyPool.hasConnectedMember();
+    }
+
+    @Override
+    public ChaiProviderFactory getProviderFactory( )
+    {
+        return chaiProviderFactory;
+    }
+
+    @Override
+    public ChaiEntryFactory getEntryFactory( )
+    {
+        return ChaiEntryFactory.newChaiFactory( this );
+    }
+
+    private class PoolProviderStatistics implements ProviderStatistics
+    {
+        private final Map<IncrementerStatistic, LongAdder> counters = new EnumMap<>( IncrementerStatistic.class );
+        private final Map<TimestampStatistic, Instant> timestamps = new ConcurrentHashMap<>();
+
+        PoolProviderStatistics( )
+        {
+            for ( final IncrementerStatistic statistic : IncrementerStatistic.values() )
+            {
+                counters.put( statistic, new LongAdder() );
+            }
+            for ( final TimestampStatistic statistic : TimestampStatistic.values() )
+            {
+                timestamps.put( statistic, Instant.now() );
+            }
+        }
+
+        private void markOperation( final LdapProxyPool.OperationType operationType )
+        {
+            timestamps.put( TimestampStatistic.LAST_OPERATION_BEGIN, Instant.now() );
+            counters.get( IncrementerStatistic.OPERATION_COUNT ).increment();
+            switch ( operationType )
+            {
+                case READ:
+                    counters.get( IncrementerStatistic.READ_COUNT ).increment();
+                    break;
+
+                case WRITE:
+                    counters.get( IncrementerStatistic.MODIFY_COUNT ).increment();
+                    break;
+
+                case SEARCH:
+                    counters.get( IncrementerStatistic.SEARCH_COUNT ).increment();
+                    break;
+
+                default:
+                    JavaHelper.unhandledSwitchStatement( operationType );
+            }
+        }
+
+        private void markFinish( )
+        {
+            timestamps.put( TimestampStatistic.LAST_OPERATION_FINISH, Instant.now() );
+        }
+
+        private void markUnavailable( )
+        {
+            counters.get( IncrementerStatistic.UNAVAILABLE_COUNT ).increment();
+            timestamps.put( TimestampStatistic.LAST_UNAVAILABLE_EXCEPTION, Instant.now() );
+        }
+
+        @Override
+        public long getIncrementorStatistic( final IncrementerStatistic statistic )
+        {
+            return statistic == IncrementerStatistic.BIND_COUNT
+                    ? ldapProxyPool.openedConnectionCount()
+                    : counters.get( statistic ).sum();
+        }
+
+        @Override
+        public Instant getTimestampStatistic( final TimestampStatistic statistic )
+        {
+            return timestamps.get( statistic );
+        }
+
+        @Override
+        public Map<String, String> allStatistics( )
+        {
+            final Map<String, String> outputMap = new LinkedHashMap<>();
+            for ( final IncrementerStatistic statistic : IncrementerStatistic.values() )
+            {
+                outputMap.put( statistic.name(), String.valueOf( getIncrementorStatistic( statistic ) ) );
+            }
+            for ( final TimestampStatistic statistic : TimestampStatistic.values() )
+            {
+                outputMap.put( statistic.name(), String.valueOf( timestamps.get( statistic ) ) );
+            }
+            return Collections.unmodifiableMap( outputMap );
+        }
+    }
+}
@@ -28,41 +28,78 @@ import password.pwm.svc.wordlist.WordlistService;
 import password.pwm.util.java.JavaHelper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Services started by {@link PwmServiceManager}.  Each service lists the services it needs to be initialized before
+ * its own initialization; services without an initialized dependency between them may be started concurrently.  A service
+ * can only depend on services declared above it, so declaration order is always a valid sequential start order.
+ */
 public enum PwmServiceEnum
 {
-    LocalDBService( password.pwm.util.localdb.LocalDBService.class, Flag.StartDuringRuntimeInstance ),
-    SecureService( password.pwm.util.secure.SecureService.class, Flag.StartDuringRuntimeInstance ),
-    HttpClientService( password.pwm.svc.httpclient.HttpClientService.class, Flag.StartDuringRuntimeInstance ),
-    LdapConnectionService( password.pwm.ldap.LdapConnectionService.class, Flag.StartDuringRuntimeInstance ),
-    DatabaseService( password.pwm.util.db.DatabaseService.class, Flag.StartDuringRuntimeInstance ),
-    SharedHistoryManager( password.pwm.svc.wordlist.SharedHistoryManager.class ),
-    AuditService( password.pwm.svc.event.AuditService.class ),
-    StatisticsManager( password.pwm.svc.stats.StatisticsManager.class, Flag.StartDuringRuntimeInstance ),
-    WordlistManager( WordlistService.class, Flag.StartDuringRuntimeInstance ),
-    SeedlistManager( SeedlistService.class ),
-    EmailQueueManager( EmailService.class ),
-    SmsQueueManager( password.pwm.util.queue.SmsQueueManager.class ),
-    UrlShortenerService( password.pwm.svc.shorturl.UrlShortenerService.class ),
-    TokenService( password.pwm.svc.token.TokenService.class, Flag.StartDuringRuntimeInstance ),
-    IntruderManager( password.pwm.svc.intruder.IntruderManager.class ),
-    CrService( password.pwm.util.operations.CrService.class, Flag.StartDuringRuntimeInstance ),
-    OtpService( password.pwm.util.operations.OtpService.class ),
-    CacheService( password.pwm.svc.cache.CacheService.class, Flag.StartDuringRuntimeInstance ),
-    HealthMonitor( password.pwm.health.HealthMonitor.class ),
-    ReportService( password.pwm.svc.report.ReportService.class, Flag.StartDuringRuntimeInstance ),
-    ResourceServletService( password.pwm.http.servlet.resource.ResourceServletService.class ),
-    SessionTrackService( password.pwm.svc.sessiontrack.SessionTrackService.class ),
-    SessionStateSvc( password.pwm.http.state.SessionStateService.class ),
-    UserSearchEngine( password.pwm.ldap.search.UserSearchEngine.class, Flag.StartDuringRuntimeInstance ),
-    PeopleSearchService( password.pwm.http.servlet.peoplesearch.PeopleSearchService.class ),
-    TelemetryService( password.pwm.svc.telemetry.TelemetryService.class ),
-    ClusterService( NodeService.class ),
-    PwExpiryNotifyService( PwNotifyService.class ),;
+    LocalDBService( password.pwm.util.localdb.LocalDBService.class, dependsOn(), Flag.StartDuringRuntimeInstance ),
+    SecureService( password.pwm.util.secure.SecureService.class, dependsOn( LocalDBService ), Flag.StartDuringRuntimeInstance ),
+    HttpClientService( password.pwm.svc.httpclient.HttpClientService.class, dependsOn( SecureService ), Flag.StartDuringRuntimeInstance ),
+    LdapConnectionService( password.pwm.ldap.LdapConnectionService.class, dependsOn( SecureService ), Flag.StartDuringRuntimeInstance ),
+    DatabaseService( password.pwm.util.db.DatabaseService.class, dependsOn( SecureService, HttpClientService ), Flag.StartDuringRuntimeInstance ),
+    SharedHistoryManager( password.pwm.svc.wordlist.SharedHistoryManager.class, dependsOn( LocalDBService ) ),
+    AuditService(
+            password.pwm.svc.event.AuditService.class,
+            dependsOn( LocalDBService, SecureService, HttpClientService, LdapConnectionService, DatabaseService ) ),
+    StatisticsManager(
+            password.pwm.svc.stats.StatisticsManager.class,
+            dependsOn( LocalDBService, DatabaseService ), Flag.StartDuringRuntimeInstance ),
+    WordlistManager(
+            WordlistService.class,
+            dependsOn( LocalDBService, SecureService, HttpClientService, StatisticsManager ), Flag.StartDuringRuntimeInstance ),
+    SeedlistManager( SeedlistService.class, dependsOn( LocalDBService, SecureService, HttpClientService, StatisticsManager ) ),
+    RandomPasswordService(
+            password.pwm.util.password.RandomPasswordService.class,
+            dependsOn( SecureService, SharedHistoryManager, StatisticsManager, WordlistManager, SeedlistManager ) ),
+    PasswordCheckService(
+            password.pwm.util.password.PasswordCheckService.class,
+            dependsOn( SecureService, HttpClientService, LdapConnectionService, SharedHistoryManager, StatisticsManager, WordlistManager ) ),
+    EmailQueueManager( EmailService.class, dependsOn( LocalDBService, SecureService, StatisticsManager ) ),
+    SmsQueueManager(
+            password.pwm.util.queue.SmsQueueManager.class,
+            dependsOn( LocalDBService, SecureService, HttpClientService, StatisticsManager ) ),
+    UrlShortenerService( password.pwm.svc.shorturl.UrlShortenerService.class, dependsOn() ),
+    TokenService(
+            password.pwm.svc.token.TokenService.class,
+            dependsOn( LocalDBService, SecureService, LdapConnectionService, DatabaseService, AuditService, StatisticsManager ), Flag.StartDuringRuntimeInstance ),
+    IntruderManager(
+            password.pwm.svc.intruder.IntruderManager.class,
+            dependsOn( LocalDBService, DatabaseService, AuditService, StatisticsManager, EmailQueueManager ) ),
+    CrService(
+            password.pwm.util.operations.CrService.class,
+            dependsOn( LocalDBService, SecureService, LdapConnectionService, DatabaseService ), Flag.StartDuringRuntimeInstance ),
+    OtpService( password.pwm.util.operations.OtpService.class, dependsOn( LocalDBService, SecureService, LdapConnectionService, DatabaseService ) ),
+    CacheService( password.pwm.svc.cache.CacheService.class, dependsOn( LocalDBService, SecureService ), Flag.StartDuringRuntimeInstance ),
+    HealthMonitor( password.pwm.health.HealthMonitor.class, dependsOn( LocalDBService ) ),
+    ReportService(
+            password.pwm.svc.report.ReportService.class,
+            dependsOn( LocalDBService, LdapConnectionService, StatisticsManager, CacheService ), Flag.StartDuringRuntimeInstance ),
+    ResourceServletService( password.pwm.http.servlet.resource.ResourceServletService.class, dependsOn() ),
+    SessionTrackService( password.pwm.svc.sessiontrack.SessionTrackService.class, dependsOn( SecureService ) ),
+    SessionStateSvc( password.pwm.http.state.SessionStateService.class, dependsOn( SecureService ) ),
+    UserSearchEngine(
+            password.pwm.ldap.search.UserSearchEngine.class,
+            dependsOn( LdapConnectionService, StatisticsManager, CacheService ), Flag.StartDuringRuntimeInstance ),
+    PeopleSearchService(
+            password.pwm.http.servlet.peoplesearch.PeopleSearchService.class,
+            dependsOn( LdapConnectionService, CacheService, UserSearchEngine ) ),
+    TelemetryService(
+            password.pwm.svc.telemetry.TelemetryService.class,
+            dependsOn( LocalDBService, SecureService, HttpClientService, StatisticsManager ) ),
+    ClusterService( NodeService.class, dependsOn( LocalDBService, SecureService, LdapConnectionService, DatabaseService ) ),
+    PwExpiryNotifyService(
+            PwNotifyService.class,
+            dependsOn( SecureService, LdapConnectionService, DatabaseService, StatisticsManager, EmailQueueManager, ClusterService ) ),;
 
     private final Class<? extends PwmService> clazz;
+    private final List<PwmServiceEnum> dependencies;
     private final Flag[] flags;
 
     private enum Flag
@@ -70,12 +107,18 @@ public enum PwmServiceEnum
         StartDuringRuntimeInstance,
     }
 
-    PwmServiceEnum( final Class<? extends PwmService> clazz, final Flag... flags )
+    PwmServiceEnum( final Class<? extends PwmService> clazz, final PwmServiceEnum[] dependencies, final Flag... flags )
     {
         this.clazz = clazz;
+        this.dependencies = Collections.unmodifiableList( Arrays.asList( dependencies ) );
         this.flags = flags;
     }
 
+    private static PwmServiceEnum[] dependsOn( final PwmServiceEnum... dependencies )
+    {
+        return dependencies;
+    }
+
     public boolean isInternalRuntime( )
     {
         return JavaHelper.enumArrayContainsValue( flags, Flag.StartDuringRuntimeInstance );
@@ -95,4 +138,9 @@ public enum PwmServiceEnum
     {
         return clazz;
     }
+
+    public List<PwmServiceEnum> getDependencies( )
+    {
+        return dependencies;
+    }
 }
@@ -20,21 +20,33 @@
 
 package password.pwm.svc;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmEnvironment;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class PwmServiceManager
 {
@@ -43,7 +55,8 @@ public class PwmServiceManager
 
 
     private final PwmApplication pwmApplication;
-    private final Map<Class<? extends PwmService>, PwmService> runningServices = new HashMap<>();
+    private final Map<Class<? extends PwmService>, PwmService> runningServices = new ConcurrentHashMap<>();
+    private volatile ServiceStartupTimeline startupTimeline = ServiceStartupTimeline.builder().build();
     private boolean initialized;
 
     public PwmServiceManager( final PwmApplication pwmApplication )
@@ -56,6 +69,11 @@ public class PwmServiceManager
         return runningServices.get( serviceClass );
     }
 
+    public ServiceStartupTimeline getStartupTimeline( )
+    {
+        return startupTimeline;
+    }
+
     public void initAllServices( )
             throws PwmUnrecoverableException
     {
@@ -64,8 +82,7 @@ public class PwmServiceManager
         final boolean internalRuntimeInstance = pwmApplication.getPwmEnvironment().isInternalRuntimeInstance()
                 || pwmApplication.getPwmEnvironment().getFlags().contains( PwmEnvironment.ApplicationFlag.CommandLineInstance );
 
-        int serviceCounter = 0;
-
+        final List<PwmServiceEnum> servicesToStart = new ArrayList<>();
         for ( final PwmServiceEnum serviceClassEnum : PwmServiceEnum.values() )
         {
             boolean startService = true;
@@ -75,19 +92,195 @@ public class PwmServiceManager
             }
             if ( startService )
             {
-                final Class<? extends PwmService> serviceClass = serviceClassEnum.getPwmServiceClass();
-                final PwmService newServiceInstance = initService( serviceClass );
-                runningServices.put( serviceClass, newServiceInstance );
-                serviceCounter++;
+                servicesToStart.add( serviceClassEnum );
+            }
+        }
+
+        final int threads = Math.max( 1, Math.min( servicesToStart.size(), readStartupThreads() ) );
+        final Map<PwmServiceEnum, ServiceStartupTimeline.Entry> timelineEntries = new ConcurrentHashMap<>();
+
+        if ( threads < 2 )
+        {
+            for ( final PwmServiceEnum serviceClassEnum : servicesToStart )
+            {
+                startService( serviceClassEnum, startTime, timelineEntries );
             }
         }
+        else
+        {
+            startServicesConcurrently( servicesToStart, threads, startTime, timelineEntries );
+        }
 
         initialized = true;
 
         final TimeDuration timeDuration = TimeDuration.fromCurrent( startTime );
+        startupTimeline = makeTimeline( servicesToStart, timelineEntries, threads, timeDuration );
+        {
+            final int finalServiceCounter = servicesToStart.size();
+            LOGGER.trace( () -> "started " + finalServiceCounter + " services in " + timeDuration.asCompactString()
+                    + " using " + threads + " threads, critical path: " + String.join( " > ", startupTimeline.getCriticalPath() )
+                    + " (" + startupTimeline.getCriticalPathMS() + "ms)" );
+        }
+    }
+
+    /**
+     * Start each service once all of its dependencies have started.  A fatal error starting a service prevents its
+     * dependents from starting, the first such error is thrown once all in-progress services have completed.
+     */
+    private void startServicesConcurrently(
+            final List<PwmServiceEnum> servicesToStart,
+            final int threads,
+            final Instant startTime,
+            final Map<PwmServiceEnum, ServiceStartupTimeline.Entry> timelineEntries
+    )
+            throws PwmUnrecoverableException
+    {
+        final ExecutorService executorService = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                PwmScheduler.makePwmThreadFactory( PwmScheduler.makeThreadName( pwmApplication, PwmServiceManager.class ) + "-", true ) );
+
+        try
+        {
+            final Map<PwmServiceEnum, CompletableFuture<Void>> futures = new EnumMap<>( PwmServiceEnum.class );
+            for ( final PwmServiceEnum serviceClassEnum : servicesToStart )
+            {
+                final CompletableFuture<?>[] dependencyFutures = serviceClassEnum.getDependencies().stream()
+                        .map( futures::get )
+                        .filter( Objects::nonNull )
+                        .toArray( CompletableFuture[]::new );
+
+                final CompletableFuture<Void> future = CompletableFuture.allOf( dependencyFutures ).thenRunAsync( () ->
+                {
+                    try
+                    {
+                        startService( serviceClassEnum, startTime, timelineEntries );
+                    }
+                    catch ( PwmUnrecoverableException e )
+                    {
+                        throw new CompletionException( e );
+                    }
+                }, executorService );
+
+                futures.put( serviceClassEnum, future );
+            }
+
+            PwmUnrecoverableException firstError = null;
+            for ( final CompletableFuture<Void> future : futures.values() )
+            {
+                try
+                {
+                    future.join();
+                }
+                catch ( CompletionException e )
+                {
+                    if ( firstError == null )
+                    {
+                        firstError = e.getCause() instanceof PwmUnrecoverableException
+                                ? ( PwmUnrecoverableException ) e.getCause()
+                                : new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_STARTUP_ERROR,
+                                "unexpected error starting services: " + JavaHelper.readHostileExceptionMessage( e.getCause() ) ) );
+                    }
+                }
+            }
+
+            if ( firstError != null )
+            {
+                throw firstError;
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    private void startService(
+            final PwmServiceEnum serviceClassEnum,
+            final Instant startTime,
+            final Map<PwmServiceEnum, ServiceStartupTimeline.Entry> timelineEntries
+    )
+            throws PwmUnrecoverableException
+    {
+        final Instant serviceStartTime = Instant.now();
+        final Class<? extends PwmService> serviceClass = serviceClassEnum.getPwmServiceClass();
+        final PwmService newServiceInstance = initService( serviceClass );
+        runningServices.put( serviceClass, newServiceInstance );
+
+        final List<String> dependencyNames = new ArrayList<>();
+        for ( final PwmServiceEnum dependency : serviceClassEnum.getDependencies() )
+        {
+            dependencyNames.add( dependency.getPwmServiceClass().getSimpleName() );
+        }
+
+        timelineEntries.put( serviceClassEnum, ServiceStartupTimeline.Entry.builder()
+                .service( serviceClass.getSimpleName() )
+                .dependencies( Collections.unmodifiableList( dependencyNames ) )
+                .startOffsetMS( serviceStartTime.toEpochMilli() - startTime.toEpochMilli() )
+                .durationMS( TimeDuration.fromCurrent( serviceStartTime ).asMillis() )
+                .thread( Thread.currentThread().getName() )
+                .build() );
+    }
+
+    private static ServiceStartupTimeline makeTimeline(
+            final List<PwmServiceEnum> startedServices,
+            final Map<PwmServiceEnum, ServiceStartupTimeline.Entry> timelineEntries,
+            final int threads,
+            final TimeDuration totalDuration
+    )
+    {
+        // walk back from the last service to finish, at each step following the dependency that finished last.
+        final List<PwmServiceEnum> criticalPath = new ArrayList<>();
+        PwmServiceEnum current = startedServices.stream()
+                .filter( timelineEntries::containsKey )
+                .max( Comparator.comparingLong( service -> timelineEntries.get( service ).getEndOffsetMS() ) )
+                .orElse( null );
+        while ( current != null )
+        {
+            criticalPath.add( 0, current );
+            current = current.getDependencies().stream()
+                    .filter( timelineEntries::containsKey )
+                    .max( Comparator.comparingLong( service -> timelineEntries.get( service ).getEndOffsetMS() ) )
+                    .orElse( null );
+        }
+
+        final List<ServiceStartupTimeline.Entry> entries = new ArrayList<>();
+        for ( final PwmServiceEnum service : startedServices )
+        {
+            final ServiceStartupTimeline.Entry entry = timelineEntries.get( service );
+            if ( entry != null )
+            {
+                entries.add( entry.toBuilder().criticalPath( criticalPath.contains( service ) ).build() );
+            }
+        }
+
+        final List<String> criticalPathNames = new ArrayList<>();
+        for ( final PwmServiceEnum service : criticalPath )
+        {
+            criticalPathNames.add( service.getPwmServiceClass().getSimpleName() );
+        }
+
+        return ServiceStartupTimeline.builder()
+                .threads( threads )
+                .totalMS( totalDuration.asMillis() )
+                .criticalPathMS( criticalPath.isEmpty() ? 0 : timelineEntries.get( criticalPath.get( criticalPath.size() - 1 ) ).getEndOffsetMS() )
+                .criticalPath( Collections.unmodifiableList( criticalPathNames ) )
+                .entries( Collections.unmodifiableList( entries ) )
+                .build();
+    }
+
+    private int readStartupThreads( )
+    {
+        try
+        {
+            return Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.SERVICES_STARTUP_THREADS ) );
+        }
+        catch ( Exception e )
         {
-            final int finalServiceCounter = serviceCounter;
-            LOGGER.trace( () -> "started " + finalServiceCounter + " services in " + timeDuration.asCompactString() );
+            LOGGER.warn( "unable to read service startup thread count, services will be started sequentially: " + e.getMessage() );
+            return 1;
         }
     }
 
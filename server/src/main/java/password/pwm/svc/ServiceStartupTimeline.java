@@ -0,0 +1,75 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Record of the most recent {@link PwmServiceManager#initAllServices()} run.  Offsets are relative to the start of the
+ * service initialization; the critical path is the chain of dependencies that determined when the last service finished.
+ */
+@Value
+@Builder
+public class ServiceStartupTimeline implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int threads;
+    private final long totalMS;
+    private final long criticalPathMS;
+
+    @Builder.Default
+    private final List<String> criticalPath = Collections.emptyList();
+
+    @Builder.Default
+    private final List<Entry> entries = Collections.emptyList();
+
+    public Optional<Entry> entryForService( final String serviceName )
+    {
+        return entries.stream().filter( entry -> entry.getService().equals( serviceName ) ).findFirst();
+    }
+
+    @Value
+    @Builder( toBuilder = true )
+    public static class Entry implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String service;
+        private final List<String> dependencies;
+        private final long startOffsetMS;
+        private final long durationMS;
+        private final String thread;
+        private final boolean criticalPath;
+
+        public long getEndOffsetMS( )
+        {
+            return startOffsetMS + durationMS;
+        }
+    }
+}
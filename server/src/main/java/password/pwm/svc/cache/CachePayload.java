@@ -0,0 +1,153 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.cache;
+
+import password.pwm.util.java.JsonUtil;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory representation of a cached value.  Immutable payloads are held by reference, other payloads are held
+ * as json so each read returns an independent copy.
+ */
+class CachePayload
+{
+    private static final Map<Class<?>, Boolean> IMMUTABLE_CLASSES = new ConcurrentHashMap<>();
+
+    enum Encoding
+    {
+        REFERENCE,
+        JSON,
+    }
+
+    private final Encoding encoding;
+    private final Class<?> payloadClass;
+    private final Object value;
+
+    private CachePayload( final Encoding encoding, final Class<?> payloadClass, final Object value )
+    {
+        this.encoding = encoding;
+        this.payloadClass = payloadClass;
+        this.value = value;
+    }
+
+    static CachePayload fromData( final Serializable data )
+    {
+        final Class<?> payloadClass = data.getClass();
+        if ( isImmutable( payloadClass ) )
+        {
+            return new CachePayload( Encoding.REFERENCE, payloadClass, data );
+        }
+
+        return new CachePayload( Encoding.JSON, payloadClass, JsonUtil.serialize( data ) );
+    }
+
+    Encoding getEncoding( )
+    {
+        return encoding;
+    }
+
+    Class<?> getPayloadClass( )
+    {
+        return payloadClass;
+    }
+
+    /**
+     * Read the payload value.
+     *
+     * @param classOfT the expected payload class
+     * @param <T> the expected payload type
+     * @return the payload, or null if the payload is not assignable to {@code classOfT} or can not be read
+     */
+    <T extends Serializable> T toData( final Class<T> classOfT )
+    {
+        switch ( encoding )
+        {
+            case REFERENCE:
+                return classOfT.isInstance( value ) ? classOfT.cast( value ) : null;
+
+            case JSON:
+                if ( !classOfT.isAssignableFrom( payloadClass ) )
+                {
+                    return null;
+                }
+                return classOfT.cast( JsonUtil.deserialize( ( String ) value, payloadClass ) );
+
+            default:
+                throw new IllegalStateException( "unexpected cache payload encoding " + encoding );
+        }
+    }
+
+    /**
+     * Json form of the payload, used when the payload is moved to a persistent cache tier.
+     *
+     * @return json value of the payload, or null if the payload can not be read
+     */
+    String toJson( )
+    {
+        if ( encoding == Encoding.JSON )
+        {
+            return ( String ) value;
+        }
+
+        final Serializable data = toData( Serializable.class );
+        return data == null ? null : JsonUtil.serialize( data );
+    }
+
+    /**
+     * Rough size of the payload, used for debug output only.  Reference payloads other than strings are not measured.
+     *
+     * @return approximate payload size in bytes or chars
+     */
+    int size( )
+    {
+        switch ( encoding )
+        {
+            case REFERENCE:
+                return value instanceof String ? ( ( String ) value ).length() : 0;
+
+            case JSON:
+                return ( ( String ) value ).length();
+
+            default:
+                throw new IllegalStateException( "unexpected cache payload encoding " + encoding );
+        }
+    }
+
+    static boolean isImmutable( final Class<?> payloadClass )
+    {
+        return IMMUTABLE_CLASSES.computeIfAbsent( payloadClass, CachePayload::checkImmutable );
+    }
+
+    private static boolean checkImmutable( final Class<?> payloadClass )
+    {
+        return payloadClass == String.class
+                || payloadClass == Boolean.class
+                || payloadClass == Character.class
+                || payloadClass == Instant.class
+                || ( Number.class.isAssignableFrom( payloadClass ) && payloadClass.getName().startsWith( "java.lang." ) )
+                || payloadClass.isEnum()
+                || payloadClass.isAnnotationPresent( ImmutableCacheValue.class );
+    }
+}
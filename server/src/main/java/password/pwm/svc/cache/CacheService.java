@@ -27,7 +27,9 @@ import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthRecord;
 import password.pwm.svc.PwmService;
+import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.ConditionalTaskExecutor;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
@@ -42,12 +44,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 public class CacheService implements PwmService
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( CacheService.class );
 
     private MemoryCacheStore memoryCacheStore;
+    private LocalDBCacheStore localDBCacheStore;
+    private ExecutorService refreshExecutor;
 
     private STATUS status = STATUS.NEW;
 
@@ -87,7 +92,17 @@ public class CacheService implements PwmService
 
         status = STATUS.OPENING;
         final int maxMemItems = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.CACHE_MEMORY_MAX_ITEMS ) );
-        memoryCacheStore = new MemoryCacheStore( maxMemItems );
+        final int maxLocalDBItems = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.CACHE_LOCALDB_MAX_ITEMS ) );
+        if ( maxLocalDBItems > 0 )
+        {
+            localDBCacheStore = new LocalDBCacheStore( pwmApplication.getLocalDB(), pwmApplication.getSecureService(), maxLocalDBItems );
+        }
+        final int refreshAheadPercent = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.CACHE_MEMORY_REFRESH_AHEAD_PERCENT ) );
+        if ( refreshAheadPercent > 0 )
+        {
+            refreshExecutor = PwmScheduler.makeBackgroundExecutor( pwmApplication, CacheService.class );
+        }
+        memoryCacheStore = new MemoryCacheStore( maxMemItems, localDBCacheStore, refreshAheadPercent, refreshExecutor );
         this.traceDebugOutputter = new ConditionalTaskExecutor(
                 ( ) -> outputTraceInfo(),
                 new ConditionalTaskExecutor.TimeDurationPredicate( 1, TimeDuration.Unit.MINUTES )
@@ -99,6 +114,11 @@ public class CacheService implements PwmService
     public void close( )
     {
         status = STATUS.CLOSED;
+        if ( refreshExecutor != null )
+        {
+            JavaHelper.closeAndWaitExecutor( refreshExecutor, TimeDuration.SECONDS_10 );
+            refreshExecutor = null;
+        }
     }
 
     @Override
@@ -120,6 +140,14 @@ public class CacheService implements PwmService
         debugInfo.put( "byteCount", String.valueOf( memoryCacheStore.byteCount() ) );
         debugInfo.putAll( JsonUtil.deserializeStringMap( JsonUtil.serialize( memoryCacheStore.getCacheStoreInfo() ) ) );
         debugInfo.putAll( JsonUtil.deserializeStringMap( JsonUtil.serializeMap( memoryCacheStore.storedClassHistogram( "histogram." ) ) ) );
+        if ( localDBCacheStore != null )
+        {
+            debugInfo.put( "localDB.itemCount", String.valueOf( localDBCacheStore.itemCount() ) );
+            for ( final Map.Entry<String, String> entry : JsonUtil.deserializeStringMap( JsonUtil.serialize( localDBCacheStore.getCacheStoreInfo() ) ).entrySet() )
+            {
+                debugInfo.put( "localDB." + entry.getKey(), entry.getValue() );
+            }
+        }
         return new ServiceInfoBean( Collections.emptyList(), debugInfo );
     }
 
@@ -129,6 +157,10 @@ public class CacheService implements PwmService
         debugInfo.put( "memory-statistics", memoryCacheStore.getCacheStoreInfo() );
         debugInfo.put( "memory-items", new ArrayList<Serializable>( memoryCacheStore.getCacheDebugItems() ) );
         debugInfo.put( "memory-histogram", new HashMap<>( memoryCacheStore.storedClassHistogram( "" ) ) );
+        if ( localDBCacheStore != null )
+        {
+            debugInfo.put( "localDB-statistics", localDBCacheStore.getCacheStoreInfo() );
+        }
         return Collections.unmodifiableMap( debugInfo );
     }
 
@@ -163,7 +195,14 @@ public class CacheService implements PwmService
         T payload = null;
         if ( memoryCacheStore != null )
         {
-            payload = memoryCacheStore.read( cacheKey, classOfT );
+            try
+            {
+                payload = memoryCacheStore.read( cacheKey, classOfT );
+            }
+            catch ( PwmUnrecoverableException e )
+            {
+                LOGGER.debug( () -> "error reading cache item: " + JavaHelper.readHostileExceptionMessage( e ) );
+            }
         }
 
         traceDebugOutputter.conditionallyExecuteTask();
@@ -201,6 +240,11 @@ public class CacheService implements PwmService
             traceOutput.append( ", histogram=" );
             traceOutput.append( JsonUtil.serializeMap( memoryCacheStore.storedClassHistogram( "" ) ) );
         }
+        if ( localDBCacheStore != null )
+        {
+            traceOutput.append( ", localDBCache=" );
+            traceOutput.append( JsonUtil.serialize( localDBCacheStore.getCacheStoreInfo() ) );
+        }
         LOGGER.trace( () -> traceOutput );
     }
 }
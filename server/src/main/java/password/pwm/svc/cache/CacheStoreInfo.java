@@ -20,6 +20,8 @@
 
 package password.pwm.svc.cache;
 
+import password.pwm.util.java.TimeDuration;
+
 import java.io.Serializable;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -29,6 +31,10 @@ public class CacheStoreInfo implements Serializable
     private final AtomicLong readCount = new AtomicLong();
     private final AtomicLong hitCount = new AtomicLong();
     private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong loadTimeMS = new AtomicLong();
+    private final AtomicLong coalescedWaitCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
 
     public void incrementStoreCount( )
     {
@@ -50,6 +56,28 @@ public class CacheStoreInfo implements Serializable
         missCount.incrementAndGet();
     }
 
+    public void incrementCoalescedWaitCount( )
+    {
+        coalescedWaitCount.incrementAndGet();
+    }
+
+    public void incrementRefreshCount( )
+    {
+        refreshCount.incrementAndGet();
+    }
+
+    /**
+     * Record the time taken to produce a value on a miss of this tier, either by reading a lower cache tier or by
+     * calling the {@link CacheLoader}.
+     *
+     * @param loadTime time spent loading the value
+     */
+    public void recordLoad( final TimeDuration loadTime )
+    {
+        loadCount.incrementAndGet();
+        loadTimeMS.addAndGet( loadTime.asMillis() );
+    }
+
     public long getStoreCount( )
     {
         return storeCount.get();
@@ -69,4 +97,30 @@ public class CacheStoreInfo implements Serializable
     {
         return missCount.get();
     }
+
+    public long getLoadCount( )
+    {
+        return loadCount.get();
+    }
+
+    public long getLoadTimeMS( )
+    {
+        return loadTimeMS.get();
+    }
+
+    public long getAverageLoadTimeMS( )
+    {
+        final long count = loadCount.get();
+        return count == 0 ? 0 : loadTimeMS.get() / count;
+    }
+
+    public long getCoalescedWaitCount( )
+    {
+        return coalescedWaitCount.get();
+    }
+
+    public long getRefreshCount( )
+    {
+        return refreshCount.get();
+    }
 }
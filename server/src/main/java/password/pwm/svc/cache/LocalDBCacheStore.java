@@ -0,0 +1,328 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.cache;
+
+import lombok.Value;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.SecureEngine;
+import password.pwm.util.secure.SecureService;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Second cache tier backed by {@link LocalDB.DB#CACHE}.  Values are stored as json encrypted with the application
+ * security key, keyed by a hash of the {@link CacheKey}, so cached user data is not written to disk in the clear.
+ * The tier has its own item budget; when the budget is exceeded an arbitrary tenth of the stored items are removed.
+ * Stored items do not survive a restart.
+ */
+class LocalDBCacheStore implements CacheStore
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( LocalDBCacheStore.class );
+
+    private static final LocalDB.DB DB = LocalDB.DB.CACHE;
+
+    private final LocalDB localDB;
+    private final SecureService secureService;
+    private final int maxItems;
+    private final CacheStoreInfo cacheStoreInfo = new CacheStoreInfo();
+    private final AtomicLong itemCount = new AtomicLong();
+
+    LocalDBCacheStore( final LocalDB localDB, final SecureService secureService, final int maxItems )
+            throws LocalDBException
+    {
+        this.localDB = localDB;
+        this.secureService = secureService;
+        this.maxItems = maxItems;
+        localDB.truncate( DB );
+    }
+
+    @Override
+    public void store( final CacheKey cacheKey, final Instant expirationDate, final Serializable data )
+            throws PwmUnrecoverableException
+    {
+        storeJson( cacheKey, expirationDate, data.getClass(), JsonUtil.serialize( data ) );
+    }
+
+    void storePayload( final CacheKey cacheKey, final Instant expirationDate, final CachePayload payload )
+            throws PwmUnrecoverableException
+    {
+        final String jsonPayload = payload.toJson();
+        if ( jsonPayload != null )
+        {
+            storeJson( cacheKey, expirationDate, payload.getPayloadClass(), jsonPayload );
+        }
+    }
+
+    @Override
+    public <T extends Serializable> T readAndStore( final CacheKey cacheKey, final Instant expirationDate, final Class<T> classOfT, final CacheLoader<T> cacheLoader )
+            throws PwmUnrecoverableException
+    {
+        final T cachedValue = read( cacheKey, classOfT );
+        if ( cachedValue != null )
+        {
+            return cachedValue;
+        }
+
+        final Instant startTime = Instant.now();
+        final T data = cacheLoader.read();
+        cacheStoreInfo.recordLoad( TimeDuration.fromCurrent( startTime ) );
+        store( cacheKey, expirationDate, data );
+        return data;
+    }
+
+    @Override
+    public <T extends Serializable> T read( final CacheKey cacheKey, final Class<T> classOfT )
+            throws PwmUnrecoverableException
+    {
+        final StoredEntry<T> storedEntry = readEntry( cacheKey, classOfT, false );
+        return storedEntry == null ? null : storedEntry.getValue();
+    }
+
+    /**
+     * Read an entry and remove it from this tier, used when an entry is promoted back to the memory tier.
+     *
+     * @param cacheKey key of the entry
+     * @param classOfT expected payload class
+     * @param <T> expected payload type
+     * @return the entry with its original expiration date, or null if there is no valid entry for the key
+     * @throws PwmUnrecoverableException if the key can not be hashed
+     */
+    <T extends Serializable> StoredEntry<T> take( final CacheKey cacheKey, final Class<T> classOfT )
+            throws PwmUnrecoverableException
+    {
+        return readEntry( cacheKey, classOfT, true );
+    }
+
+    void remove( final CacheKey cacheKey )
+            throws PwmUnrecoverableException
+    {
+        if ( itemCount.get() < 1 )
+        {
+            return;
+        }
+
+        try
+        {
+            if ( localDB.remove( DB, makeStorageKey( cacheKey ) ) )
+            {
+                itemCount.decrementAndGet();
+            }
+        }
+        catch ( LocalDBException e )
+        {
+            LOGGER.error( "error removing localDB cache item: " + e.getMessage() );
+        }
+    }
+
+    @Override
+    public CacheStoreInfo getCacheStoreInfo( )
+    {
+        return cacheStoreInfo;
+    }
+
+    @Override
+    public int itemCount( )
+    {
+        return ( int ) itemCount.get();
+    }
+
+    /**
+     * Individual items are not listed for this tier, reading them would require a scan of the entire db.
+     */
+    @Override
+    public List<CacheDebugItem> getCacheDebugItems( )
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Stored bytes are not tracked for this tier.
+     */
+    @Override
+    public long byteCount( )
+    {
+        return 0;
+    }
+
+    private <T extends Serializable> StoredEntry<T> readEntry( final CacheKey cacheKey, final Class<T> classOfT, final boolean remove )
+            throws PwmUnrecoverableException
+    {
+        cacheStoreInfo.incrementReadCount();
+
+        if ( itemCount.get() < 1 )
+        {
+            cacheStoreInfo.incrementMissCount();
+            return null;
+        }
+
+        final Instant startTime = Instant.now();
+        final String storageKey = makeStorageKey( cacheKey );
+        try
+        {
+            final String storedJson = localDB.get( DB, storageKey );
+            if ( !StringUtil.isEmpty( storedJson ) )
+            {
+                final StoredValue storedValue = decryptStoredValue( storedJson );
+                final boolean valid = storedValue != null
+                        && makeKeyString( cacheKey ).equals( storedValue.getKey() )
+                        && storedValue.getExpiration() > System.currentTimeMillis();
+
+                if ( valid || remove )
+                {
+                    if ( localDB.remove( DB, storageKey ) )
+                    {
+                        itemCount.decrementAndGet();
+                    }
+                }
+
+                if ( valid && classOfT.getName().equals( storedValue.getPayloadClass() ) )
+                {
+                    final T value = JsonUtil.deserialize( storedValue.getPayload(), classOfT );
+                    cacheStoreInfo.incrementHitCount();
+                    cacheStoreInfo.recordLoad( TimeDuration.fromCurrent( startTime ) );
+                    return new StoredEntry<>( value, Instant.ofEpochMilli( storedValue.getExpiration() ) );
+                }
+            }
+        }
+        catch ( LocalDBException e )
+        {
+            LOGGER.error( "error reading localDB cache item: " + e.getMessage() );
+        }
+
+        cacheStoreInfo.incrementMissCount();
+        return null;
+    }
+
+    private void storeJson( final CacheKey cacheKey, final Instant expirationDate, final Class<?> payloadClass, final String jsonPayload )
+            throws PwmUnrecoverableException
+    {
+        if ( expirationDate.isBefore( Instant.now() ) )
+        {
+            return;
+        }
+
+        final StoredValue storedValue = new StoredValue( makeKeyString( cacheKey ), expirationDate.toEpochMilli(), payloadClass.getName(), jsonPayload );
+        final String storedJson = secureService.encryptToString( JsonUtil.serialize( storedValue ) );
+        if ( storedJson.length() > LocalDB.MAX_VALUE_LENGTH )
+        {
+            return;
+        }
+
+        cacheStoreInfo.incrementStoreCount();
+        try
+        {
+            // the put() return value is not consistent across LocalDB implementations, so check for an existing key first
+            final String storageKey = makeStorageKey( cacheKey );
+            final boolean preExisting = localDB.contains( DB, storageKey );
+            localDB.put( DB, storageKey, storedJson );
+            if ( !preExisting && itemCount.incrementAndGet() > maxItems )
+            {
+                trim();
+            }
+        }
+        catch ( LocalDBException e )
+        {
+            LOGGER.error( "error writing localDB cache item: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Remove a tenth of the budget.  Items are removed in db iteration order, which for hashed keys is effectively random.
+     */
+    private synchronized void trim( )
+            throws LocalDBException
+    {
+        final long removeCount = itemCount.get() - ( maxItems - maxItems / 10 );
+        if ( removeCount < 1 )
+        {
+            return;
+        }
+
+        final List<String> removalKeys = new ArrayList<>();
+        try ( LocalDB.LocalDBIterator<String> iterator = localDB.iterator( DB ) )
+        {
+            while ( iterator.hasNext() && removalKeys.size() < removeCount )
+            {
+                removalKeys.add( iterator.next() );
+            }
+        }
+
+        localDB.removeAll( DB, removalKeys );
+        itemCount.set( localDB.size( DB ) );
+        LOGGER.trace( () -> "removed " + removalKeys.size() + " items from localDB cache to stay within item budget of " + maxItems );
+    }
+
+    private StoredValue decryptStoredValue( final String storedValue )
+    {
+        try
+        {
+            return JsonUtil.deserialize( secureService.decryptStringValue( storedValue ), StoredValue.class );
+        }
+        catch ( PwmUnrecoverableException e )
+        {
+            LOGGER.debug( () -> "unable to decrypt localDB cache item, item will be discarded: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    private static String makeStorageKey( final CacheKey cacheKey )
+            throws PwmUnrecoverableException
+    {
+        return SecureEngine.hash( makeKeyString( cacheKey ), PwmHashAlgorithm.SHA256 );
+    }
+
+    private static String makeKeyString( final CacheKey cacheKey )
+    {
+        return ( cacheKey.getSrcClass() == null ? "" : cacheKey.getSrcClass().getName() )
+                + "|" + ( cacheKey.getUserIdentity() == null ? "" : cacheKey.getUserIdentity().toDelimitedKey() )
+                + "|" + cacheKey.getValueID();
+    }
+
+    @Value
+    static class StoredEntry<T extends Serializable>
+    {
+        private final T value;
+        private final Instant expirationDate;
+    }
+
+    @Value
+    private static class StoredValue implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+        private final long expiration;
+        private final String payloadClass;
+        private final String payload;
+    }
+}
@@ -22,10 +22,13 @@ package password.pwm.svc.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import lombok.Value;
 import password.pwm.bean.UserIdentity;
+import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
-import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
@@ -36,18 +39,46 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Memory cache tier.  Payloads are held by reference when the payload class is immutable, otherwise as a copy, see
+ * {@link CachePayload}.  When an overflow store is configured, entries evicted due to the memory size limit are moved
+ * to the overflow store and are promoted back into memory on their next read.
+ *
+ * <p>Concurrent {@link #readAndStore(CacheKey, Instant, Class, CacheLoader)} misses for the same key share a single
+ * loader call.  When refresh-ahead is enabled, a hit on an entry that is within the configured percentage of its
+ * lifetime from expiration returns the current value and reloads the entry in the background.</p>
+ */
 class MemoryCacheStore implements CacheStore
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( MemoryCacheStore.class );
     private final Cache<CacheKey, CacheValueWrapper> memoryStore;
     private final CacheStoreInfo cacheStoreInfo = new CacheStoreInfo();
+    private final LocalDBCacheStore overflowStore;
+    private final int refreshAheadPercent;
+    private final ExecutorService refreshExecutor;
+    private final Map<CacheKey, CompletableFuture<CachePayload>> inFlightLoads = new ConcurrentHashMap<>();
+
+    MemoryCacheStore( final int maxItems, final LocalDBCacheStore overflowStore )
+    {
+        this( maxItems, overflowStore, 0, null );
+    }
 
-    MemoryCacheStore( final int maxItems )
+    MemoryCacheStore( final int maxItems, final LocalDBCacheStore overflowStore, final int refreshAheadPercent, final ExecutorService refreshExecutor )
     {
-        memoryStore = Caffeine.newBuilder()
-                .maximumSize( maxItems )
-                .build();
+        this.overflowStore = overflowStore;
+        this.refreshAheadPercent = refreshExecutor == null ? 0 : refreshAheadPercent;
+        this.refreshExecutor = refreshExecutor;
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize( maxItems );
+        memoryStore = overflowStore == null
+                ? builder.build()
+                : builder.<CacheKey, CacheValueWrapper>removalListener( ( key, value, cause ) -> spillToOverflowStore( value, cause ) ).build();
     }
 
     @Override
@@ -56,29 +87,141 @@ class MemoryCacheStore implements CacheStore
     {
         cacheStoreInfo.incrementStoreCount();
 
-        final String jsonData = JsonUtil.serialize( data );
-        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, expirationDate, jsonData ) );
+        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, Instant.now(), expirationDate, CachePayload.fromData( data ) ) );
+
+        // an older copy in the overflow store must not be promoted once this value leaves memory
+        if ( overflowStore != null )
+        {
+            overflowStore.remove( cacheKey );
+        }
     }
 
     @Override
     public <T extends Serializable> T readAndStore( final CacheKey cacheKey, final Instant expirationDate, final Class<T> classOfT, final CacheLoader<T> cacheLoader )
             throws PwmUnrecoverableException
     {
-        cacheStoreInfo.incrementReadCount();
+        final T cachedValue = read( cacheKey, classOfT );
+        if ( cachedValue != null )
         {
-            final CacheValueWrapper valueWrapper = memoryStore.getIfPresent( cacheKey );
-            final T extractedValue = extractValue( classOfT, valueWrapper, cacheKey );
-            if ( extractedValue != null )
+            if ( refreshAheadPercent > 0 && isRefreshDue( memoryStore.getIfPresent( cacheKey ) ) )
             {
-                return extractedValue;
+                refreshAhead( cacheKey, expirationDate, cacheLoader );
             }
+            return cachedValue;
         }
 
-        final T data = cacheLoader.read();
-        final String jsonIfiedData = JsonUtil.serialize( data );
-        cacheStoreInfo.incrementMissCount();
-        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, expirationDate, jsonIfiedData ) );
-        return data;
+        final CompletableFuture<CachePayload> newLoad = new CompletableFuture<>();
+        final CompletableFuture<CachePayload> existingLoad = inFlightLoads.putIfAbsent( cacheKey, newLoad );
+        if ( existingLoad == null )
+        {
+            return load( cacheKey, expirationDate, cacheLoader, newLoad );
+        }
+
+        cacheStoreInfo.incrementCoalescedWaitCount();
+        try
+        {
+            final CachePayload payload = existingLoad.get();
+            return payload == null ? null : payload.toData( classOfT );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof PwmUnrecoverableException )
+            {
+                throw ( PwmUnrecoverableException ) e.getCause();
+            }
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) e.getCause();
+            }
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL,
+                    "error during coalesced cache load: " + JavaHelper.readHostileExceptionMessage( e.getCause() ) );
+        }
+
+        // waiting on the other loader was interrupted, so load without coalescing
+        return load( cacheKey, expirationDate, cacheLoader, new CompletableFuture<>() );
+    }
+
+    /**
+     * Run the loader and store the result, completing {@code loadFuture} for any coalesced callers.
+     */
+    private <T extends Serializable> T load(
+            final CacheKey cacheKey,
+            final Instant expirationDate,
+            final CacheLoader<T> cacheLoader,
+            final CompletableFuture<CachePayload> loadFuture
+    )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            final Instant startTime = Instant.now();
+            final T data = cacheLoader.read();
+            cacheStoreInfo.recordLoad( TimeDuration.fromCurrent( startTime ) );
+
+            final CachePayload payload = data == null ? null : CachePayload.fromData( data );
+            if ( payload != null )
+            {
+                memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, Instant.now(), expirationDate, payload ) );
+            }
+            loadFuture.complete( payload );
+            return data;
+        }
+        catch ( Throwable t )
+        {
+            // any failure, including an Error, must complete the future or coalesced callers would wait forever
+            loadFuture.completeExceptionally( t );
+            throw t;
+        }
+        finally
+        {
+            inFlightLoads.remove( cacheKey, loadFuture );
+        }
+    }
+
+    private boolean isRefreshDue( final CacheValueWrapper valueWrapper )
+    {
+        if ( valueWrapper == null )
+        {
+            return false;
+        }
+
+        final long lifetimeMs = valueWrapper.getExpirationDate().toEpochMilli() - valueWrapper.getStoreDate().toEpochMilli();
+        final long remainingMs = valueWrapper.getExpirationDate().toEpochMilli() - System.currentTimeMillis();
+        return lifetimeMs > 0 && remainingMs * 100 < lifetimeMs * refreshAheadPercent;
+    }
+
+    private <T extends Serializable> void refreshAhead( final CacheKey cacheKey, final Instant expirationDate, final CacheLoader<T> cacheLoader )
+    {
+        final CompletableFuture<CachePayload> refreshLoad = new CompletableFuture<>();
+        if ( inFlightLoads.putIfAbsent( cacheKey, refreshLoad ) != null )
+        {
+            return;
+        }
+
+        cacheStoreInfo.incrementRefreshCount();
+        try
+        {
+            refreshExecutor.execute( () ->
+            {
+                try
+                {
+                    load( cacheKey, expirationDate, cacheLoader, refreshLoad );
+                }
+                catch ( Exception e )
+                {
+                    LOGGER.debug( () -> "error during cache refresh-ahead load: " + JavaHelper.readHostileExceptionMessage( e ) );
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            inFlightLoads.remove( cacheKey, refreshLoad );
+            refreshLoad.complete( null );
+        }
     }
 
     private <T extends Serializable> T extractValue( final Class<T> classOfT, final CacheValueWrapper valueWrapper, final CacheKey cacheKey )
@@ -89,9 +232,7 @@ class MemoryCacheStore implements CacheStore
             {
                 if ( valueWrapper.getExpirationDate().isAfter( Instant.now() ) )
                 {
-                    cacheStoreInfo.incrementHitCount();
-                    final String jsonValue  = valueWrapper.getPayload();
-                    return JsonUtil.deserialize( jsonValue, classOfT );
+                    return valueWrapper.getPayload().toData( classOfT );
                 }
             }
         }
@@ -101,18 +242,64 @@ class MemoryCacheStore implements CacheStore
 
     @Override
     public <T extends Serializable> T read( final CacheKey cacheKey, final Class<T> classOfT )
+            throws PwmUnrecoverableException
     {
         cacheStoreInfo.incrementReadCount();
         final CacheValueWrapper valueWrapper = memoryStore.getIfPresent( cacheKey );
         final T extractedValue = extractValue( classOfT, valueWrapper, cacheKey );
         if ( extractedValue != null )
         {
+            cacheStoreInfo.incrementHitCount();
             return extractedValue;
         }
 
-        memoryStore.invalidate( cacheKey );
+        if ( valueWrapper != null )
+        {
+            memoryStore.invalidate( cacheKey );
+        }
         cacheStoreInfo.incrementMissCount();
-        return null;
+
+        return promoteFromOverflowStore( cacheKey, classOfT );
+    }
+
+    private <T extends Serializable> T promoteFromOverflowStore( final CacheKey cacheKey, final Class<T> classOfT )
+            throws PwmUnrecoverableException
+    {
+        if ( overflowStore == null )
+        {
+            return null;
+        }
+
+        final Instant startTime = Instant.now();
+        final LocalDBCacheStore.StoredEntry<T> storedEntry = overflowStore.take( cacheKey, classOfT );
+        if ( storedEntry == null || storedEntry.getValue() == null )
+        {
+            return null;
+        }
+
+        final CachePayload payload = CachePayload.fromData( storedEntry.getValue() );
+        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, Instant.now(), storedEntry.getExpirationDate(), payload ) );
+        cacheStoreInfo.recordLoad( TimeDuration.fromCurrent( startTime ) );
+
+        // copied payload types were copied again by fromData(), so the returned value is not shared with the memory tier
+        return storedEntry.getValue();
+    }
+
+    private void spillToOverflowStore( final CacheValueWrapper valueWrapper, final RemovalCause cause )
+    {
+        if ( cause != RemovalCause.SIZE || valueWrapper == null || !valueWrapper.getExpirationDate().isAfter( Instant.now() ) )
+        {
+            return;
+        }
+
+        try
+        {
+            overflowStore.storePayload( valueWrapper.getCacheKey(), valueWrapper.getExpirationDate(), valueWrapper.getPayload() );
+        }
+        catch ( Exception e )
+        {
+            LOGGER.debug( () -> "unable to move evicted memory cache item to overflow store: " + JavaHelper.readHostileExceptionMessage( e ) );
+        }
     }
 
     @Override
@@ -135,9 +322,9 @@ class MemoryCacheStore implements CacheStore
         {
             final CacheKey cacheKey = entry.getKey();
             final CacheValueWrapper cacheValueWrapper = entry.getValue();
-            final Instant storeDate = cacheValueWrapper.getExpirationDate();
+            final Instant storeDate = cacheValueWrapper.getStoreDate();
             final String age = Duration.between( storeDate, Instant.now() ).toString();
-            final int chars = cacheValueWrapper.getPayload().length();
+            final int chars = cacheValueWrapper.getPayload().size();
             final String keyClass = cacheKey.getSrcClass() == null ? "null" : cacheKey.getSrcClass().getName();
             final String keyUserID = cacheKey.getUserIdentity() == null ? "null" : cacheKey.getUserIdentity().toDisplayString();
             final String keyValue = cacheKey.getValueID() == null ? "null" : cacheKey.getValueID();
@@ -156,14 +343,12 @@ class MemoryCacheStore implements CacheStore
     }
 
     @Value
-    private static class CacheValueWrapper implements Serializable
+    private static class CacheValueWrapper
     {
         private final CacheKey cacheKey;
+        private final Instant storeDate;
         private final Instant expirationDate;
-
-        // serialize to json even though stored in memory, this prevents object-reuse because we don't know
-        // if the object is immutable.  Thus an effective clone is made for each store/read.
-        private final String payload;
+        private final CachePayload payload;
     }
 
     Map<String, Integer> storedClassHistogram( final String prefix )
@@ -192,7 +377,7 @@ class MemoryCacheStore implements CacheStore
             final String valueID = cacheKey.getValueID();
             byteCount += valueID == null ? 0 : cacheKey.getValueID().length();
             final CacheValueWrapper cacheValueWrapper = entry.getValue();
-            byteCount += cacheValueWrapper.payload.length();
+            byteCount += cacheValueWrapper.getPayload().size();
         }
         return byteCount;
     }
@@ -124,6 +124,8 @@ public class EmailService implements PwmService
                         TimeDuration.Unit.MILLISECONDS )
                 )
                 .preThreads( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_EMAIL_MAX_THREADS ) ) )
+                .workerThreads( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_EMAIL_WORKER_THREADS ) ) )
+                .batchSize( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_EMAIL_BATCH_SIZE ) ) )
                 .build();
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.EMAIL_QUEUE );
 
@@ -221,6 +223,12 @@ public class EmailService implements PwmService
         {
             return emailItemBean.toDebugString();
         }
+
+        @Override
+        public String orderingKey( final EmailItemBean emailItemBean )
+        {
+            return emailItemBean.getTo();
+        }
     }
 
     private boolean determineIfItemCanBeDelivered( final EmailItemBean emailItem )
@@ -23,7 +23,6 @@ package password.pwm.svc.intruder;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmDataStoreException;
 import password.pwm.error.PwmError;
-import password.pwm.error.PwmException;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.svc.PwmService;
@@ -34,13 +33,11 @@ import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class DataStoreRecordStore implements RecordStore
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( DataStoreRecordStore.class );
-    private static final int MAX_REMOVALS_PER_CYCLE = 10 * 1000;
 
     private final IntruderManager intruderManager;
     private final DataStore dataStore;
@@ -81,13 +78,10 @@ class DataStoreRecordStore implements RecordStore
             return null;
         }
 
-        try
-        {
-            return JsonUtil.deserialize( value, IntruderRecord.class );
-        }
-        catch ( Exception e )
+        final IntruderRecord intruderRecord = decodeRecord( value );
+        if ( intruderRecord != null )
         {
-            LOGGER.error( "error decoding IntruderRecord:" + e.getMessage() );
+            return intruderRecord;
         }
 
         //read failed, try to delete record
@@ -182,67 +176,58 @@ class DataStoreRecordStore implements RecordStore
         eldestRecord = Instant.now();
 
         final Instant startTime = Instant.now();
-        final int recordsExamined = 0;
+        final AtomicInteger recordsExamined = new AtomicInteger( 0 );
         int recordsRemoved = 0;
 
-        boolean complete = false;
-
-        while ( !complete && intruderManager.status() == PwmService.STATUS.OPEN )
+        try
         {
-
-            final List<String> recordsToRemove = discoverPurgableKeys( maxRecordAge );
-            if ( recordsToRemove.isEmpty() )
-            {
-                complete = true;
-            }
-            try
+            recordsRemoved = dataStore.removeWhere( ( key, value ) ->
             {
-                for ( final String key : recordsToRemove )
+                recordsExamined.incrementAndGet();
+                final IntruderRecord record = decodeRecord( value );
+                if ( record == null || record.getTimeStamp() == null )
                 {
-                    dataStore.remove( key );
+                    return true;
                 }
-            }
-            catch ( PwmException e )
-            {
-                LOGGER.error( "unable to perform removal of identified stale records: " + e.getMessage() );
-            }
-            recordsRemoved += recordsToRemove.size();
-            recordsToRemove.clear();
+                if ( TimeDuration.fromCurrent( record.getTimeStamp() ).isLongerThan( maxRecordAge ) )
+                {
+                    return true;
+                }
+                if ( eldestRecord.isAfter( record.getTimeStamp() ) )
+                {
+                    eldestRecord = record.getTimeStamp();
+                }
+                return false;
+            }, () -> intruderManager.status() == PwmService.STATUS.OPEN );
+        }
+        catch ( PwmDataStoreException | PwmUnrecoverableException e )
+        {
+            LOGGER.error( "unable to perform intruder table cleanup: " + e.getMessage() );
         }
+
         {
             final int finalRemoved = recordsRemoved;
             LOGGER.trace( () -> "completed cleanup of intruder table in "
                     + TimeDuration.compactFromCurrent( startTime ) + ", recordsExamined="
-                    + recordsExamined + ", recordsRemoved=" + finalRemoved );
+                    + recordsExamined.get() + ", recordsRemoved=" + finalRemoved );
         }
     }
 
-    private List<String> discoverPurgableKeys( final TimeDuration maxRecordAge )
+    private static IntruderRecord decodeRecord( final String value )
     {
-        final List<String> recordsToRemove = new ArrayList<>();
-        try ( ClosableIterator<String> dbIterator = dataStore.iterator() )
+        if ( value == null || value.length() < 1 )
         {
-            while ( intruderManager.status() == PwmService.STATUS.OPEN && dbIterator.hasNext() && recordsToRemove.size() < MAX_REMOVALS_PER_CYCLE )
-            {
-                final String key = dbIterator.next();
-                final IntruderRecord record = read( key );
-                if ( record != null )
-                {
-                    if ( TimeDuration.fromCurrent( record.getTimeStamp() ).isLongerThan( maxRecordAge ) )
-                    {
-                        recordsToRemove.add( key );
-                    }
-                    if ( eldestRecord.compareTo( record.getTimeStamp() ) == 1 )
-                    {
-                        eldestRecord = record.getTimeStamp();
-                    }
-                }
-            }
+            return null;
         }
-        catch ( PwmDataStoreException | PwmUnrecoverableException e )
+
+        try
         {
-            LOGGER.error( "unable to perform intruder table cleanup: " + e.getMessage() );
+            return JsonUtil.deserialize( value, IntruderRecord.class );
         }
-        return recordsToRemove;
+        catch ( Exception e )
+        {
+            LOGGER.error( "error decoding IntruderRecord:" + e.getMessage() );
+        }
+        return null;
     }
 }
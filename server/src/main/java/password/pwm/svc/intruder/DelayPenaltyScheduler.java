@@ -0,0 +1,193 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.intruder;
+
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import java.time.Instant;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers intruder delay penalties without holding a servlet worker thread.  When a penalty is applied while a request
+ * is being processed, the request itself is suspended using servlet async instead of sleeping.  Processing continues
+ * normally, but the response is only completed by a shared scheduler once the penalty has elapsed, so the client does
+ * not see the end of the response before the delay regardless of when (or if) the response was committed.  If the
+ * request does not support async the thread sleeps as before.
+ */
+class DelayPenaltyScheduler
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( DelayPenaltyScheduler.class );
+
+    private static final TimeDuration ASYNC_TIMEOUT_GRACE = TimeDuration.SECONDS_30;
+
+    private final ThreadLocal<Deferral> currentDeferral = new ThreadLocal<>();
+    private final AtomicInteger heldRequests = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+
+    DelayPenaltyScheduler( final ScheduledExecutorService scheduler )
+    {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Deliver penalties applied on the current thread to {@code request} until {@link #endDeferral()} is called.
+     *
+     * @param request the request being processed by the current thread
+     */
+    void beginDeferral( final HttpServletRequest request )
+    {
+        currentDeferral.set( new Deferral( request ) );
+    }
+
+    /**
+     * Apply a penalty to the current thread.  During a deferral the current request is suspended and its response is
+     * completed once the penalty has elapsed, otherwise the thread sleeps.
+     *
+     * @param delay penalty duration
+     */
+    void penalize( final TimeDuration delay )
+    {
+        final Deferral deferral = currentDeferral.get();
+        if ( deferral == null || !deferral.suspend( delay ) )
+        {
+            delay.pause();
+            return;
+        }
+
+        final Instant releaseTime = Instant.now().plusMillis( delay.asMillis() );
+        if ( deferral.releaseTime == null || releaseTime.isAfter( deferral.releaseTime ) )
+        {
+            deferral.releaseTime = releaseTime;
+        }
+    }
+
+    /**
+     * End the penalty deferral for the current thread.  If the request was suspended by a penalty, its response is
+     * completed by the scheduler once the longest penalty has elapsed.
+     */
+    void endDeferral( )
+    {
+        final Deferral deferral = currentDeferral.get();
+        currentDeferral.remove();
+
+        if ( deferral == null || deferral.asyncContext == null )
+        {
+            return;
+        }
+
+        final TimeDuration remaining = deferral.releaseTime.isAfter( Instant.now() )
+                ? TimeDuration.fromCurrent( deferral.releaseTime )
+                : TimeDuration.ZERO;
+        deferral.asyncContext.setTimeout( remaining.add( ASYNC_TIMEOUT_GRACE ).asMillis() );
+        heldRequests.incrementAndGet();
+        try
+        {
+            scheduler.schedule( () -> releaseResponse( deferral.asyncContext ), remaining.asMillis(), TimeUnit.MILLISECONDS );
+        }
+        catch ( RuntimeException e )
+        {
+            remaining.pause();
+            releaseResponse( deferral.asyncContext );
+        }
+    }
+
+    int heldRequestCount( )
+    {
+        return heldRequests.get();
+    }
+
+    /**
+     * Stop suspending requests, already held responses are still completed after their delay.
+     */
+    void close( )
+    {
+        scheduler.shutdown();
+    }
+
+    private void releaseResponse( final AsyncContext asyncContext )
+    {
+        try
+        {
+            asyncContext.complete();
+        }
+        catch ( IllegalStateException e )
+        {
+            LOGGER.trace( () -> "held intruder penalty response was already completed: " + e.getMessage() );
+        }
+        finally
+        {
+            heldRequests.decrementAndGet();
+        }
+    }
+
+    private class Deferral
+    {
+        private final HttpServletRequest request;
+        private AsyncContext asyncContext;
+        private Instant releaseTime;
+
+        Deferral( final HttpServletRequest request )
+        {
+            this.request = request;
+        }
+
+        /**
+         * Suspend the request, if it is not already suspended.
+         *
+         * @return true if the request is suspended and its response will be completed by the scheduler
+         */
+        boolean suspend( final TimeDuration delay )
+        {
+            if ( asyncContext != null )
+            {
+                return true;
+            }
+
+            if ( scheduler.isShutdown()
+                    || !request.isAsyncSupported()
+                    || request.isAsyncStarted()
+                    || request.getDispatcherType() != DispatcherType.REQUEST )
+            {
+                return false;
+            }
+
+            try
+            {
+                asyncContext = request.startAsync();
+            }
+            catch ( IllegalStateException e )
+            {
+                LOGGER.trace( () -> "unable to start async request for intruder delay penalty: " + e.getMessage() );
+                return false;
+            }
+
+            asyncContext.setTimeout( delay.add( ASYNC_TIMEOUT_GRACE ).asMillis() );
+            return true;
+        }
+    }
+}
@@ -65,6 +65,7 @@ import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroMachine;
 import password.pwm.util.secure.PwmRandom;
 
+import javax.servlet.http.HttpServletRequest;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -84,6 +85,7 @@ public class IntruderManager implements PwmService
     private STATUS status = STATUS.NEW;
     private ErrorInformation startupError;
     private Timer timer;
+    private DelayPenaltyScheduler delayPenaltyScheduler;
 
     private final Map<RecordType, RecordManager> recordManagers = new HashMap<>();
 
@@ -166,6 +168,8 @@ public class IntruderManager implements PwmService
             LOGGER.info( () -> debugMsg );
             serviceInfo = new ServiceInfoBean( Collections.singletonList( storageMethodUsed ) );
         }
+        delayPenaltyScheduler = new DelayPenaltyScheduler( PwmScheduler.makeSingleThreadExecutorService( pwmApplication, DelayPenaltyScheduler.class ) );
+
         final RecordStore recordStore;
         {
             recordStore = new DataStoreRecordStore( dataStore, this );
@@ -188,6 +192,19 @@ public class IntruderManager implements PwmService
                     }
                 }
             }, 1000, cleanerRunFrequency );
+
+            final long flushIntervalMs = Long.parseLong( pwmApplication.getConfig().readAppProperty( AppProperty.INTRUDER_WRITE_BEHIND_FLUSH_INTERVAL_MS ) );
+            if ( flushIntervalMs > 0 )
+            {
+                timer.schedule( new TimerTask()
+                {
+                    @Override
+                    public void run( )
+                    {
+                        flushRecordManagers();
+                    }
+                }, flushIntervalMs, flushIntervalMs );
+            }
         }
 
         try
@@ -217,8 +234,8 @@ public class IntruderManager implements PwmService
             }
             else
             {
-                recordManagers.put( RecordType.USERNAME, new RecordManagerImpl( RecordType.USERNAME, recordStore, settings ) );
-                recordManagers.put( RecordType.USER_ID, new RecordManagerImpl( RecordType.USER_ID, recordStore, settings ) );
+                recordManagers.put( RecordType.USERNAME, makeRecordManager( config, RecordType.USERNAME, recordStore, settings ) );
+                recordManagers.put( RecordType.USER_ID, makeRecordManager( config, RecordType.USER_ID, recordStore, settings ) );
             }
         }
         {
@@ -232,7 +249,7 @@ public class IntruderManager implements PwmService
             }
             else
             {
-                recordManagers.put( RecordType.ATTRIBUTE, new RecordManagerImpl( RecordType.ATTRIBUTE, recordStore, settings ) );
+                recordManagers.put( RecordType.ATTRIBUTE, makeRecordManager( config, RecordType.ATTRIBUTE, recordStore, settings ) );
             }
         }
         {
@@ -246,7 +263,7 @@ public class IntruderManager implements PwmService
             }
             else
             {
-                recordManagers.put( RecordType.TOKEN_DEST, new RecordManagerImpl( RecordType.TOKEN_DEST, recordStore, settings ) );
+                recordManagers.put( RecordType.TOKEN_DEST, makeRecordManager( config, RecordType.TOKEN_DEST, recordStore, settings ) );
             }
         }
         {
@@ -260,7 +277,38 @@ public class IntruderManager implements PwmService
             }
             else
             {
-                recordManagers.put( RecordType.ADDRESS, new RecordManagerImpl( RecordType.ADDRESS, recordStore, settings ) );
+                recordManagers.put( RecordType.ADDRESS, makeRecordManager( config, RecordType.ADDRESS, recordStore, settings ) );
+            }
+        }
+    }
+
+    private static RecordManager makeRecordManager(
+            final Configuration config,
+            final RecordType recordType,
+            final RecordStore recordStore,
+            final IntruderSettings settings
+    )
+    {
+        final long flushIntervalMs = Long.parseLong( config.readAppProperty( AppProperty.INTRUDER_WRITE_BEHIND_FLUSH_INTERVAL_MS ) );
+        if ( flushIntervalMs > 0 )
+        {
+            final long consistencyWindowMs = Long.parseLong( config.readAppProperty( AppProperty.INTRUDER_WRITE_BEHIND_CONSISTENCY_WINDOW_MS ) );
+            return new WriteBehindRecordManager( recordType, recordStore, settings, TimeDuration.of( consistencyWindowMs, TimeDuration.Unit.MILLISECONDS ) );
+        }
+        return new RecordManagerImpl( recordType, recordStore, settings );
+    }
+
+    private void flushRecordManagers( )
+    {
+        for ( final RecordManager recordManager : recordManagers.values() )
+        {
+            try
+            {
+                recordManager.flush();
+            }
+            catch ( Exception e )
+            {
+                LOGGER.error( "error writing pending intruder records: " + e.getMessage(), e );
             }
         }
     }
@@ -279,6 +327,11 @@ public class IntruderManager implements PwmService
             timer.cancel();
             timer = null;
         }
+        if ( delayPenaltyScheduler != null )
+        {
+            delayPenaltyScheduler.close();
+        }
+        flushRecordManagers();
     }
 
     @Override
@@ -469,7 +522,42 @@ public class IntruderManager implements PwmService
                 LOGGER.trace( sessionLabel, () -> "delaying response " + finalDelay + "ms due to intruder record: " + JsonUtil.serialize( intruderRecord ) );
             }
 
-            TimeDuration.of( delayPenalty, TimeDuration.Unit.MILLISECONDS ).pause();
+            final TimeDuration penalty = TimeDuration.of( delayPenalty, TimeDuration.Unit.MILLISECONDS );
+            if ( delayPenaltyScheduler != null )
+            {
+                delayPenaltyScheduler.penalize( penalty );
+            }
+            else
+            {
+                penalty.pause();
+            }
+        }
+    }
+
+    /**
+     * Defer delay penalties applied on the current thread until {@link #completeDeferredDelayPenalty()} is called.
+     * When possible a penalized request is suspended and its response is completed after the delay, otherwise the
+     * current thread sleeps.
+     *
+     * @param request the current request
+     */
+    public void beginDeferredDelayPenalty( final HttpServletRequest request )
+    {
+        if ( delayPenaltyScheduler != null )
+        {
+            delayPenaltyScheduler.beginDeferral( request );
+        }
+    }
+
+    /**
+     * End the deferral started by {@link #beginDeferredDelayPenalty(HttpServletRequest)}, scheduling the completion of
+     * the response if the request has been penalized.
+     */
+    public void completeDeferredDelayPenalty( )
+    {
+        if ( delayPenaltyScheduler != null )
+        {
+            delayPenaltyScheduler.endDeferral();
         }
     }
 
@@ -716,7 +804,14 @@ public class IntruderManager implements PwmService
 
     public ServiceInfoBean serviceInfo( )
     {
-        return serviceInfo;
+        if ( delayPenaltyScheduler == null )
+        {
+            return serviceInfo;
+        }
+
+        final Map<String, String> debugInfo = new LinkedHashMap<>();
+        debugInfo.put( "heldPenaltyRequests", String.valueOf( delayPenaltyScheduler.heldRequestCount() ) );
+        return new ServiceInfoBean( serviceInfo.getUsedStorageMethods(), Collections.unmodifiableMap( debugInfo ) );
     }
 
     public int countForNetworkEndpointInRequest( final PwmRequest pwmRequest )
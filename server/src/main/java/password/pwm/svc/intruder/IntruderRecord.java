@@ -49,6 +49,14 @@ public class IntruderRecord implements Serializable
         this.subject = subject;
     }
 
+    IntruderRecord( final RecordType type, final String subject, final Instant timeStamp, final int attemptCount, final boolean alerted )
+    {
+        this( type, subject );
+        this.timeStamp = timeStamp;
+        this.attemptCount = attemptCount;
+        this.alerted = alerted;
+    }
+
     public RecordType getType( )
     {
         return type;
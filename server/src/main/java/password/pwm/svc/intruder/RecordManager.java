@@ -38,4 +38,11 @@ public interface RecordManager
     IntruderRecord readIntruderRecord( String subject );
 
     ClosableIterator<IntruderRecord> iterator( ) throws PwmException;
+
+    /**
+     * Write any pending changes to the underlying {@link RecordStore}.
+     */
+    default void flush( )
+    {
+    }
 }
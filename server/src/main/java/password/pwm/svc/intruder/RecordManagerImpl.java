@@ -159,6 +159,11 @@ class RecordManagerImpl implements RecordManager
     }
 
     private String makeKey( final String subject ) throws PwmOperationalException
+    {
+        return makeKey( recordType, subject );
+    }
+
+    static String makeKey( final RecordType recordType, final String subject ) throws PwmOperationalException
     {
         final String hash;
         try
@@ -0,0 +1,430 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import lombok.Builder;
+import lombok.Value;
+import password.pwm.error.PwmException;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link RecordManager} that keeps intruder counters in memory and writes changes to the {@link RecordStore} in the
+ * background.  Checks and marks are answered from the in-memory table and only read the store when a subject is not
+ * in the table or its stored state is as old as the consistency window.  {@link #flush()} merges the pending attempt
+ * count of each changed subject into the stored record, so attempts counted by other nodes sharing the store are kept.
+ *
+ * <p>Each subject's state is an immutable {@link CounterState} updated by compare-and-set, so the hot path does not
+ * lock.  The table is a {@link ConcurrentHashMap} keyed by the hashed record key.</p>
+ */
+class WriteBehindRecordManager implements RecordManager
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( WriteBehindRecordManager.class );
+
+    private final RecordType recordType;
+    private final RecordStore recordStore;
+    private final IntruderSettings settings;
+    private final TimeDuration consistencyWindow;
+
+    private final Map<String, AtomicReference<CounterState>> counterTable = new ConcurrentHashMap<>();
+    private final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    WriteBehindRecordManager(
+            final RecordType recordType,
+            final RecordStore recordStore,
+            final IntruderSettings settings,
+            final TimeDuration consistencyWindow
+    )
+    {
+        this.recordType = recordType;
+        this.recordStore = recordStore;
+        this.settings = settings;
+        this.consistencyWindow = consistencyWindow;
+    }
+
+    @Override
+    public boolean checkSubject( final String subject )
+    {
+        if ( subject == null || subject.length() < 1 )
+        {
+            throw new IllegalArgumentException( "subject is required value" );
+        }
+
+        final CounterState state = readState( subject );
+        if ( state == null || isOutdated( state ) )
+        {
+            return false;
+        }
+        return state.effectiveCount() >= settings.getCheckCount();
+    }
+
+    @Override
+    public void markSubject( final String subject )
+    {
+        if ( subject == null || subject.length() < 1 )
+        {
+            throw new IllegalArgumentException( "subject is required value" );
+        }
+
+        updateState( subject, state ->
+        {
+            final Instant now = Instant.now();
+            if ( isOutdated( state ) )
+            {
+                // previous attempts no longer count; an outdated stored record is replaced when the changes are written
+                return state.toBuilder()
+                        .storedCount( 0 )
+                        .storedTimestamp( null )
+                        .storedAlerted( false )
+                        .pendingDelta( 1 )
+                        .pendingAlert( false )
+                        .lastAttempt( now )
+                        .build();
+            }
+            return state.toBuilder()
+                    .pendingDelta( state.getPendingDelta() + 1 )
+                    .lastAttempt( now )
+                    .build();
+        } );
+    }
+
+    @Override
+    public void clearSubject( final String subject )
+    {
+        final CounterState existingState = readState( subject );
+        if ( existingState == null || existingState.effectiveCount() == 0 )
+        {
+            return;
+        }
+
+        updateState( subject, state -> state.toBuilder()
+                .pendingReset( true )
+                .pendingDelta( 0 )
+                .pendingAlert( false )
+                .lastAttempt( state.effectiveTimestamp() )
+                .build() );
+    }
+
+    @Override
+    public boolean isAlerted( final String subject )
+    {
+        final CounterState state = readState( subject );
+        return state != null && state.effectiveAlerted();
+    }
+
+    @Override
+    public void markAlerted( final String subject )
+    {
+        final CounterState existingState = readState( subject );
+        if ( existingState == null || existingState.effectiveAlerted() )
+        {
+            return;
+        }
+
+        updateState( subject, state -> state.toBuilder().pendingAlert( true ).build() );
+    }
+
+    @Override
+    public IntruderRecord readIntruderRecord( final String subject )
+    {
+        final CounterState state = readState( subject );
+        if ( state == null )
+        {
+            return null;
+        }
+        return new IntruderRecord( recordType, subject, state.effectiveTimestamp(), state.effectiveCount(), state.effectiveAlerted() );
+    }
+
+    /**
+     * Iterates the stored records, changes that have not yet been flushed are not included.
+     */
+    @Override
+    public ClosableIterator<IntruderRecord> iterator( ) throws PwmException
+    {
+        return new RecordManagerImpl.RecordIterator<>( recordStore.iterator() );
+    }
+
+    /**
+     * Merge the pending changes of each changed subject into the record store, and drop unchanged subjects whose
+     * stored state is older than the consistency window.
+     */
+    @Override
+    public synchronized void flush( )
+    {
+        final List<String> flushKeys = new ArrayList<>( dirtyKeys );
+        for ( final String key : flushKeys )
+        {
+            dirtyKeys.remove( key );
+            final AtomicReference<CounterState> stateRef = counterTable.get( key );
+            if ( stateRef != null )
+            {
+                flushState( key, stateRef );
+            }
+        }
+
+        counterTable.entrySet().removeIf( entry ->
+        {
+            final CounterState state = entry.getValue().get();
+            return !state.hasPendingChanges() && isOutsideConsistencyWindow( state );
+        } );
+    }
+
+    private void flushState( final String key, final AtomicReference<CounterState> stateRef )
+    {
+        // readers keep seeing the same effective values while the write is in progress
+        final CounterState flushedState = stateRef.getAndUpdate( state -> state.toBuilder()
+                .storedCount( state.effectiveCount() )
+                .storedTimestamp( state.effectiveTimestamp() )
+                .storedAlerted( state.effectiveAlerted() )
+                .pendingReset( false )
+                .pendingDelta( 0 )
+                .pendingAlert( false )
+                .build() );
+
+        if ( !flushedState.hasPendingChanges() )
+        {
+            return;
+        }
+
+        try
+        {
+            final IntruderRecord storedRecord = recordStore.read( key );
+            final IntruderRecord mergedRecord = mergeRecord( flushedState, storedRecord );
+            recordStore.write( key, mergedRecord );
+
+            final Instant now = Instant.now();
+            stateRef.updateAndGet( state -> state.toBuilder()
+                    .storedCount( mergedRecord.getAttemptCount() )
+                    .storedTimestamp( mergedRecord.getTimeStamp() )
+                    .storedAlerted( mergedRecord.isAlerted() )
+                    .loadTime( now )
+                    .build() );
+        }
+        catch ( PwmException e )
+        {
+            LOGGER.warn( "unable to write intruder record for " + recordType + ", will retry: " + e.getMessage() );
+            stateRef.updateAndGet( state -> state.isPendingReset()
+                    ? state
+                    : state.toBuilder()
+                    .storedCount( flushedState.getStoredCount() )
+                    .storedTimestamp( flushedState.getStoredTimestamp() )
+                    .storedAlerted( flushedState.isStoredAlerted() )
+                    .pendingReset( flushedState.isPendingReset() )
+                    .pendingDelta( state.getPendingDelta() + flushedState.getPendingDelta() )
+                    .pendingAlert( state.isPendingAlert() || flushedState.isPendingAlert() )
+                    .build() );
+            dirtyKeys.add( key );
+        }
+    }
+
+    private IntruderRecord mergeRecord( final CounterState flushedState, final IntruderRecord storedRecord )
+    {
+        final String subject = flushedState.getSubject();
+        if ( flushedState.isPendingReset()
+                || storedRecord == null
+                || TimeDuration.fromCurrent( storedRecord.getTimeStamp() ).isLongerThan( settings.getCheckDuration() ) )
+        {
+            final Instant timeStamp = flushedState.isPendingReset() ? flushedState.getLastAttempt() : flushedState.effectiveTimestamp();
+            return new IntruderRecord(
+                    recordType,
+                    subject,
+                    timeStamp == null ? Instant.now() : timeStamp,
+                    flushedState.getPendingDelta(),
+                    flushedState.isPendingAlert() );
+        }
+
+        final Instant lastAttempt = flushedState.getLastAttempt();
+        final Instant timeStamp = lastAttempt != null && lastAttempt.isAfter( storedRecord.getTimeStamp() ) ? lastAttempt : storedRecord.getTimeStamp();
+        return new IntruderRecord(
+                recordType,
+                subject,
+                timeStamp,
+                storedRecord.getAttemptCount() + flushedState.getPendingDelta(),
+                storedRecord.isAlerted() || flushedState.isPendingAlert() );
+    }
+
+    private CounterState readState( final String subject )
+    {
+        final String key = makeKey( subject );
+        if ( key == null )
+        {
+            return null;
+        }
+
+        final CounterState state = readStateRef( key, subject ).get();
+        return state.getStoredTimestamp() == null && !state.hasPendingChanges() ? null : state;
+    }
+
+    private void updateState( final String subject, final UnaryOperator<CounterState> updateFunction )
+    {
+        final String key = makeKey( subject );
+        if ( key == null )
+        {
+            return;
+        }
+
+        while ( true )
+        {
+            final AtomicReference<CounterState> stateRef = readStateRef( key, subject );
+            stateRef.updateAndGet( updateFunction );
+            dirtyKeys.add( key );
+
+            // if the entry was dropped from the table concurrently, apply the update to its replacement
+            if ( counterTable.get( key ) == stateRef )
+            {
+                return;
+            }
+        }
+    }
+
+    private AtomicReference<CounterState> readStateRef( final String key, final String subject )
+    {
+        final AtomicReference<CounterState> existingRef = counterTable.get( key );
+        if ( existingRef != null && !isOutsideConsistencyWindow( existingRef.get() ) )
+        {
+            return existingRef;
+        }
+
+        final IntruderRecord storedRecord = readStoredRecord( key );
+        final Instant now = Instant.now();
+        if ( existingRef != null )
+        {
+            existingRef.updateAndGet( state -> state.toBuilder()
+                    .storedCount( storedRecord == null ? 0 : storedRecord.getAttemptCount() )
+                    .storedTimestamp( storedRecord == null ? null : storedRecord.getTimeStamp() )
+                    .storedAlerted( storedRecord != null && storedRecord.isAlerted() )
+                    .loadTime( now )
+                    .build() );
+            return existingRef;
+        }
+
+        final CounterState newState = CounterState.builder()
+                .subject( subject )
+                .storedCount( storedRecord == null ? 0 : storedRecord.getAttemptCount() )
+                .storedTimestamp( storedRecord == null ? null : storedRecord.getTimeStamp() )
+                .storedAlerted( storedRecord != null && storedRecord.isAlerted() )
+                .loadTime( now )
+                .build();
+        final AtomicReference<CounterState> newRef = new AtomicReference<>( newState );
+        final AtomicReference<CounterState> winningRef = counterTable.putIfAbsent( key, newRef );
+        return winningRef == null ? newRef : winningRef;
+    }
+
+    private IntruderRecord readStoredRecord( final String key )
+    {
+        try
+        {
+            // an outdated record is treated as absent so its attempts are not added to new ones
+            final IntruderRecord storedRecord = recordStore.read( key );
+            if ( storedRecord != null && !TimeDuration.fromCurrent( storedRecord.getTimeStamp() ).isLongerThan( settings.getCheckDuration() ) )
+            {
+                return storedRecord;
+            }
+        }
+        catch ( PwmException e )
+        {
+            LOGGER.error( "unable to read read intruder record from storage: " + e.getMessage() );
+        }
+        return null;
+    }
+
+    private String makeKey( final String subject )
+    {
+        try
+        {
+            return RecordManagerImpl.makeKey( recordType, subject );
+        }
+        catch ( PwmException e )
+        {
+            LOGGER.error( "unable to generate intruder record key: " + JavaHelper.readHostileExceptionMessage( e ) );
+        }
+        return null;
+    }
+
+    private boolean isOutdated( final CounterState state )
+    {
+        final Instant timestamp = state.effectiveTimestamp();
+        return timestamp == null || TimeDuration.fromCurrent( timestamp ).isLongerThan( settings.getCheckDuration() );
+    }
+
+    /**
+     * A state is outside the window once its age reaches the window, so a zero window always re-reads the store, even
+     * within the same millisecond as the last read.
+     */
+    private boolean isOutsideConsistencyWindow( final CounterState state )
+    {
+        return !TimeDuration.fromCurrent( state.getLoadTime() ).isShorterThan( consistencyWindow );
+    }
+
+    /**
+     * State of a subject: the last known stored record values plus changes made on this node that have not yet been
+     * written.  A pending reset means the stored count is replaced rather than added to when the changes are written.
+     */
+    @Value
+    @Builder( toBuilder = true )
+    private static class CounterState
+    {
+        private final String subject;
+        private final int storedCount;
+        private final Instant storedTimestamp;
+        private final boolean storedAlerted;
+        private final boolean pendingReset;
+        private final int pendingDelta;
+        private final boolean pendingAlert;
+        private final Instant lastAttempt;
+        private final Instant loadTime;
+
+        boolean hasPendingChanges( )
+        {
+            return pendingReset || pendingDelta != 0 || pendingAlert;
+        }
+
+        int effectiveCount( )
+        {
+            return pendingReset ? pendingDelta : storedCount + pendingDelta;
+        }
+
+        Instant effectiveTimestamp( )
+        {
+            if ( pendingReset || storedTimestamp == null )
+            {
+                return lastAttempt == null ? storedTimestamp : lastAttempt;
+            }
+            return lastAttempt != null && lastAttempt.isAfter( storedTimestamp ) ? lastAttempt : storedTimestamp;
+        }
+
+        boolean effectiveAlerted( )
+        {
+            return pendingAlert || ( !pendingReset && storedAlerted );
+        }
+    }
+}
@@ -31,11 +31,17 @@ import password.pwm.util.db.DatabaseException;
 import password.pwm.util.db.DatabaseTable;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
 
+import java.time.Instant;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 class PwNotifyDbStorageService implements PwNotifyStorageService
 {
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PwNotifyDbStorageService.class );
+
     private static final String DB_STATE_STRING = "PwNotifyJobState";
 
     private static final DatabaseTable TABLE = DatabaseTable.PW_NOTIFY;
@@ -109,6 +115,52 @@ class PwNotifyDbStorageService implements PwNotifyStorageService
         }
     }
 
+    @Override
+    public int purgeOutdatedUserStates( final TimeDuration maxAge, final BooleanSupplier continueCondition )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            return pwmApplication.getDatabaseAccessor().removeWhere( TABLE, ( key, value ) ->
+                    !DB_STATE_STRING.equals( key ) && userStateIsOutdated( key, value, maxAge ), continueCondition );
+        }
+        catch ( DatabaseException e )
+        {
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, e.getMessage() ) );
+        }
+    }
+
+    /**
+     * Only states with a readable expiration time that is older than {@code maxAge} are outdated.  States that can not be
+     * read are kept, so a format change or a damaged record does not clear the notice history of users.
+     */
+    private static boolean userStateIsOutdated( final String key, final String rawDbValue, final TimeDuration maxAge )
+    {
+        if ( StringUtil.isEmpty( rawDbValue ) )
+        {
+            return false;
+        }
+
+        final PwNotifyUserStatus userStatus;
+        try
+        {
+            userStatus = JsonUtil.deserialize( rawDbValue, PwNotifyUserStatus.class );
+        }
+        catch ( Exception e )
+        {
+            LOGGER.debug( () -> "skipping stored user state '" + key + "' during purge, unable to read value: " + e.getMessage() );
+            return false;
+        }
+
+        if ( userStatus == null || userStatus.getExpireTime() == null )
+        {
+            LOGGER.debug( () -> "skipping stored user state '" + key + "' during purge, value has no expire time" );
+            return false;
+        }
+
+        return Instant.now().minus( maxAge.asDuration() ).isAfter( userStatus.getExpireTime() );
+    }
+
     @Override
     public PwNotifyStoredJobState readStoredJobState()
             throws PwmUnrecoverableException
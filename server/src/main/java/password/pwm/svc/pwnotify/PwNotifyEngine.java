@@ -179,6 +179,12 @@ public class PwNotifyEngine
 
             JavaHelper.closeAndWaitExecutor( threadPoolExecutor, TimeDuration.DAY );
 
+            final int purgedStates = storageService.purgeOutdatedUserStates( TimeDuration.DAY, () -> !cancelFlag.get() );
+            if ( purgedStates > 0 )
+            {
+                log( "removed " + purgedStates + " stored user states for passwords that have expired" );
+            }
+
             log( "job complete, " + examinedCount + " users evaluated in " + TimeDuration.fromCurrent( startTime ).asCompactString()
                     + ", sent " + noticeCount + " notices."
             );
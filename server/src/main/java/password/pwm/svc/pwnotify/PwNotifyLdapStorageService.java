@@ -35,10 +35,12 @@ import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 class PwNotifyLdapStorageService implements PwNotifyStorageService
 {
@@ -136,6 +138,13 @@ class PwNotifyLdapStorageService implements PwNotifyStorageService
         }
     }
 
+    @Override
+    public int purgeOutdatedUserStates( final TimeDuration maxAge, final BooleanSupplier continueCondition )
+    {
+        // user states are stored on the user entries and are replaced on the next notice
+        return 0;
+    }
+
     @Override
     public PwNotifyStoredJobState readStoredJobState()
             throws PwmUnrecoverableException
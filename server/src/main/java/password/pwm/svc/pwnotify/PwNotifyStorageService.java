@@ -23,8 +23,10 @@ package password.pwm.svc.pwnotify;
 import password.pwm.bean.SessionLabel;
 import password.pwm.bean.UserIdentity;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.TimeDuration;
 
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 interface PwNotifyStorageService
 {
@@ -42,6 +44,16 @@ interface PwNotifyStorageService
     )
             throws PwmUnrecoverableException;
 
+    /**
+     * Remove stored user states for password expirations that have passed.
+     *
+     * @param maxAge how long a state is kept after the stored expiration time
+     * @param continueCondition checked before each stored state is examined, the purge stops once it returns false
+     * @return number of removed user states
+     */
+    int purgeOutdatedUserStates( TimeDuration maxAge, BooleanSupplier continueCondition )
+            throws PwmUnrecoverableException;
+
     PwNotifyStoredJobState readStoredJobState()
             throws PwmUnrecoverableException;
 
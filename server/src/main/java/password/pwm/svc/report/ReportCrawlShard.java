@@ -0,0 +1,128 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.report;
+
+import lombok.Value;
+import password.pwm.PwmApplication;
+import password.pwm.PwmConstants;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.profile.LdapProfile;
+import password.pwm.config.value.data.UserPermission;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.StringUtil;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One partition of the report ldap crawl: a single search context of a single ldap profile, searched with the filter
+ * of one configured report user permission.  Shards are searched independently so they can run in parallel and
+ * keep their own incremental change marker.
+ */
+@Value
+class ReportCrawlShard implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final String ldapProfile;
+    private final String context;
+
+    /**
+     * Search filter, or null to use the ldap profile's default user search filter.
+     */
+    private final String filter;
+
+    String getId( )
+    {
+        return ldapProfile + "|" + context + "|" + StringUtil.defaultString( filter, "" );
+    }
+
+    /**
+     * Search filter restricted to entries whose change marker attribute is at or after the supplied generalized time.
+     */
+    String changedSinceFilter( final String changeMarkerAttribute, final String generalizedTime )
+    {
+        final String baseFilter = filter.startsWith( "(" ) ? filter : "(" + filter + ")";
+        return "(&" + baseFilter + "(" + changeMarkerAttribute + ">=" + generalizedTime + "))";
+    }
+
+    static List<ReportCrawlShard> forPermissions(
+            final PwmApplication pwmApplication,
+            final List<UserPermission> userPermissions
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( userPermissions == null )
+        {
+            return Collections.emptyList();
+        }
+
+        final Map<String, ReportCrawlShard> shards = new LinkedHashMap<>();
+        for ( final UserPermission userPermission : userPermissions )
+        {
+            for ( final LdapProfile ldapProfile : profilesForPermission( pwmApplication, userPermission ) )
+            {
+                final String filter;
+                final List<String> contexts;
+                if ( userPermission.getType() == UserPermission.Type.ldapGroup )
+                {
+                    final String groupAttr = ldapProfile.readSettingAsString( PwmSetting.LDAP_USER_GROUP_ATTRIBUTE );
+                    filter = "(" + groupAttr + "=" + userPermission.getLdapBase() + ")";
+                    contexts = ldapProfile.getRootContexts( pwmApplication );
+                }
+                else
+                {
+                    filter = StringUtil.isEmpty( userPermission.getLdapQuery() ) ? null : userPermission.getLdapQuery();
+                    contexts = StringUtil.isEmpty( userPermission.getLdapBase() )
+                            ? ldapProfile.getRootContexts( pwmApplication )
+                            : Collections.singletonList( userPermission.getLdapBase() );
+                }
+
+                for ( final String context : contexts )
+                {
+                    final ReportCrawlShard shard = new ReportCrawlShard( ldapProfile.getIdentifier(), context, filter );
+                    shards.putIfAbsent( shard.getId(), shard );
+                }
+            }
+        }
+        return Collections.unmodifiableList( new ArrayList<>( shards.values() ) );
+    }
+
+    private static Collection<LdapProfile> profilesForPermission( final PwmApplication pwmApplication, final UserPermission userPermission )
+    {
+        final Map<String, LdapProfile> ldapProfiles = pwmApplication.getConfig().getLdapProfiles();
+        final String profileID = userPermission.getLdapProfileID();
+        if ( StringUtil.isEmpty( profileID ) || PwmConstants.PROFILE_ID_ALL.equals( profileID ) )
+        {
+            return ldapProfiles.values();
+        }
+
+        return ldapProfiles.containsKey( profileID )
+                ? Collections.singletonList( ldapProfiles.get( profileID ) )
+                : Collections.emptyList();
+    }
+}
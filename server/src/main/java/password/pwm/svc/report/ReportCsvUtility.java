@@ -24,6 +24,7 @@ import com.novell.ldapchai.exception.ChaiOperationException;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
 import org.apache.commons.csv.CSVPrinter;
 import password.pwm.PwmApplication;
+import password.pwm.bean.PasswordStatus;
 import password.pwm.config.Configuration;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
@@ -34,6 +35,7 @@ import password.pwm.util.java.JavaHelper;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -112,81 +114,86 @@ public class ReportCsvUtility
             csvPrinter.printRecord( headerRow );
         }
 
-        ClosableIterator<UserCacheRecord> cacheBeanIterator = null;
-        try
+        final RowLabels rowLabels = new RowLabels( config, locale );
+        try ( ClosableIterator<UserCacheRecordCodec.RecordView> recordViewIterator = reportService.recordViewIterator() )
         {
-            cacheBeanIterator = iterator();
-            while ( cacheBeanIterator.hasNext() )
+            while ( recordViewIterator.hasNext() )
             {
-                final UserCacheRecord userCacheRecord = cacheBeanIterator.next();
-                outputRecordRow( config, locale, userCacheRecord, csvPrinter );
-            }
-        }
-        finally
-        {
-            if ( cacheBeanIterator != null )
-            {
-                cacheBeanIterator.close();
+                outputRecordRow( rowLabels, recordViewIterator.next(), csvPrinter );
             }
         }
 
         csvPrinter.flush();
     }
 
+    /**
+     * Rows are written from the record columns directly, so the export does not build a {@link UserCacheRecord}
+     * for each cached user.
+     */
     private void outputRecordRow(
-            final Configuration config,
-            final Locale locale,
-            final UserCacheRecord userCacheRecord,
+            final RowLabels rowLabels,
+            final UserCacheRecordCodec.RecordView recordView,
             final CSVPrinter csvPrinter
     )
             throws IOException
     {
-        final String trueField = Display.getLocalizedMessage( locale, Display.Value_True, config );
-        final String falseField = Display.getLocalizedMessage( locale, Display.Value_False, config );
-        final String naField = Display.getLocalizedMessage( locale, Display.Value_NotApplicable, config );
+        final PasswordStatus passwordStatus = ( PasswordStatus ) recordView.read( UserCacheRecordCodec.Column.PASSWORD_STATUS );
         final List<String> csvRow = new ArrayList<>();
-        csvRow.add( userCacheRecord.getUsername() );
-        csvRow.add( userCacheRecord.getUserDN() );
-        csvRow.add( userCacheRecord.getLdapProfile() );
-        csvRow.add( userCacheRecord.getEmail() );
-        csvRow.add( userCacheRecord.getUserGUID() );
-        csvRow.add( userCacheRecord.getAccountExpirationTime() == null
-                ? naField
-                : JavaHelper.toIsoDate( userCacheRecord.getAccountExpirationTime() ) );
-        csvRow.add( userCacheRecord.getPasswordExpirationTime() == null
-                ? naField
-                : JavaHelper.toIsoDate( userCacheRecord.getPasswordExpirationTime() ) );
-        csvRow.add( userCacheRecord.getPasswordChangeTime() == null
-                ? naField
-                : JavaHelper.toIsoDate( userCacheRecord.getPasswordChangeTime() ) );
-        csvRow.add( userCacheRecord.getResponseSetTime() == null
-                ? naField
-                : JavaHelper.toIsoDate( userCacheRecord.getResponseSetTime() ) );
-        csvRow.add( userCacheRecord.getLastLoginTime() == null
-                ? naField
-                : JavaHelper.toIsoDate( userCacheRecord.getLastLoginTime() ) );
-        csvRow.add( userCacheRecord.isHasResponses() ? trueField : falseField );
-        csvRow.add( userCacheRecord.isHasHelpdeskResponses() ? trueField : falseField );
-        csvRow.add( userCacheRecord.getResponseStorageMethod() == null
-                ? naField
-                : userCacheRecord.getResponseStorageMethod().toString() );
-        csvRow.add( userCacheRecord.getResponseFormatType() == null
-                ? naField
-                : userCacheRecord.getResponseFormatType().toString() );
-        csvRow.add( userCacheRecord.getPasswordStatus().isExpired() ? trueField : falseField );
-        csvRow.add( userCacheRecord.getPasswordStatus().isPreExpired() ? trueField : falseField );
-        csvRow.add( userCacheRecord.getPasswordStatus().isViolatesPolicy() ? trueField : falseField );
-        csvRow.add( userCacheRecord.getPasswordStatus().isWarnPeriod() ? trueField : falseField );
-        csvRow.add( userCacheRecord.isRequiresPasswordUpdate() ? trueField : falseField );
-        csvRow.add( userCacheRecord.isRequiresResponseUpdate() ? trueField : falseField );
-        csvRow.add( userCacheRecord.isRequiresProfileUpdate() ? trueField : falseField );
-        csvRow.add( userCacheRecord.getCacheTimestamp() == null
-                ? naField
-                : JavaHelper.toIsoDate( userCacheRecord.getCacheTimestamp() ) );
+        csvRow.add( recordView.readString( UserCacheRecordCodec.Column.USERNAME ) );
+        csvRow.add( recordView.readString( UserCacheRecordCodec.Column.USER_DN ) );
+        csvRow.add( recordView.readString( UserCacheRecordCodec.Column.LDAP_PROFILE ) );
+        csvRow.add( recordView.readString( UserCacheRecordCodec.Column.EMAIL ) );
+        csvRow.add( recordView.readString( UserCacheRecordCodec.Column.USER_GUID ) );
+        csvRow.add( rowLabels.date( recordView.readInstant( UserCacheRecordCodec.Column.ACCOUNT_EXPIRATION_TIME ) ) );
+        csvRow.add( rowLabels.date( recordView.readInstant( UserCacheRecordCodec.Column.PASSWORD_EXPIRATION_TIME ) ) );
+        csvRow.add( rowLabels.date( recordView.readInstant( UserCacheRecordCodec.Column.PASSWORD_CHANGE_TIME ) ) );
+        csvRow.add( rowLabels.date( recordView.readInstant( UserCacheRecordCodec.Column.RESPONSE_SET_TIME ) ) );
+        csvRow.add( rowLabels.date( recordView.readInstant( UserCacheRecordCodec.Column.LAST_LOGIN_TIME ) ) );
+        csvRow.add( rowLabels.bool( recordView.readBoolean( UserCacheRecordCodec.Column.HAS_RESPONSES ) ) );
+        csvRow.add( rowLabels.bool( recordView.readBoolean( UserCacheRecordCodec.Column.HAS_HELPDESK_RESPONSES ) ) );
+        csvRow.add( rowLabels.value( recordView.read( UserCacheRecordCodec.Column.RESPONSE_STORAGE_METHOD ) ) );
+        csvRow.add( rowLabels.value( recordView.read( UserCacheRecordCodec.Column.RESPONSE_FORMAT_TYPE ) ) );
+        csvRow.add( rowLabels.bool( passwordStatus.isExpired() ) );
+        csvRow.add( rowLabels.bool( passwordStatus.isPreExpired() ) );
+        csvRow.add( rowLabels.bool( passwordStatus.isViolatesPolicy() ) );
+        csvRow.add( rowLabels.bool( passwordStatus.isWarnPeriod() ) );
+        csvRow.add( rowLabels.bool( recordView.readBoolean( UserCacheRecordCodec.Column.REQUIRES_PASSWORD_UPDATE ) ) );
+        csvRow.add( rowLabels.bool( recordView.readBoolean( UserCacheRecordCodec.Column.REQUIRES_RESPONSE_UPDATE ) ) );
+        csvRow.add( rowLabels.bool( recordView.readBoolean( UserCacheRecordCodec.Column.REQUIRES_PROFILE_UPDATE ) ) );
+        csvRow.add( rowLabels.date( recordView.readInstant( UserCacheRecordCodec.Column.CACHE_TIMESTAMP ) ) );
 
         csvPrinter.printRecord( csvRow );
     }
 
+    private static class RowLabels
+    {
+        private final String trueField;
+        private final String falseField;
+        private final String naField;
+
+        RowLabels( final Configuration config, final Locale locale )
+        {
+            trueField = Display.getLocalizedMessage( locale, Display.Value_True, config );
+            falseField = Display.getLocalizedMessage( locale, Display.Value_False, config );
+            naField = Display.getLocalizedMessage( locale, Display.Value_NotApplicable, config );
+        }
+
+        String bool( final boolean value )
+        {
+            return value ? trueField : falseField;
+        }
+
+        String date( final Instant value )
+        {
+            return value == null ? naField : JavaHelper.toIsoDate( value );
+        }
+
+        String value( final Object value )
+        {
+            return value == null ? naField : value.toString();
+        }
+    }
+
     public ClosableIterator<UserCacheRecord> iterator( )
     {
         return reportService.iterator();
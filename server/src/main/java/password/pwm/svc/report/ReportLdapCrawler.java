@@ -0,0 +1,313 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.report;
+
+import com.novell.ldapchai.impl.edir.entry.EdirEntries;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.ldap.search.SearchConfiguration;
+import password.pwm.ldap.search.UserSearchEngine;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Searches the report user population one {@link ReportCrawlShard} at a time, running shards in parallel.  Found
+ * users are handed to the supplied consumer as each shard completes so the work queue fills while other shards are
+ * still searching.  In incremental mode a shard with a known change marker only searches for entries modified since
+ * its last successful crawl.
+ */
+class ReportLdapCrawler
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( ReportLdapCrawler.class );
+
+    private final PwmApplication pwmApplication;
+    private final ReportSettings settings;
+    private final BooleanSupplier cancelFlag;
+
+    ReportLdapCrawler( final PwmApplication pwmApplication, final ReportSettings settings, final BooleanSupplier cancelFlag )
+    {
+        this.pwmApplication = pwmApplication;
+        this.settings = settings;
+        this.cancelFlag = cancelFlag;
+    }
+
+    /**
+     * Crawl the supplied shards.
+     *
+     * @param shards shards to search
+     * @param previousStatus shard status of the previous crawl, used for incremental change markers
+     * @param incremental if true, shards with a change marker only search for changed entries
+     * @param userConsumer receives the users found by each shard, called by one shard at a time
+     * @param progressListener receives the updated status of each shard as it starts and completes
+     * @return status of each shard, keyed by shard id
+     * @throws PwmUnrecoverableException if every shard failed because the directory was unavailable
+     */
+    Map<String, ReportStatusInfo.ShardStatus> crawl(
+            final List<ReportCrawlShard> shards,
+            final Map<String, ReportStatusInfo.ShardStatus> previousStatus,
+            final boolean incremental,
+            final Consumer<Collection<UserIdentity>> userConsumer,
+            final BiConsumer<String, ReportStatusInfo.ShardStatus> progressListener
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( shards.isEmpty() )
+        {
+            return Collections.emptyMap();
+        }
+
+        final AtomicInteger remainingResults = new AtomicInteger( settings.getMaxSearchSize() );
+        final AtomicInteger unavailableShards = new AtomicInteger( 0 );
+        final Map<String, ReportStatusInfo.ShardStatus> results = Collections.synchronizedMap( new LinkedHashMap<>() );
+        final int threadCount = Math.max( 1, Math.min( settings.getShardThreads(), shards.size() ) );
+
+        LOGGER.debug( SessionLabel.REPORTING_SESSION_LABEL, () -> "beginning " + ( incremental ? "incremental" : "full" )
+                + " ldap crawl of " + shards.size() + " shards using " + threadCount + " threads" );
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                PwmScheduler.makePwmThreadFactory( PwmScheduler.makeThreadName( pwmApplication, ReportLdapCrawler.class ), true )
+        );
+
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>( shards.size() );
+            for ( final ReportCrawlShard shard : shards )
+            {
+                final ReportStatusInfo.ShardStatus previous = previousStatus.get( shard.getId() );
+                final Instant changeMarker = incremental && previous != null ? previous.getChangeMarker() : null;
+                futures.add( executor.submit( () ->
+                {
+                    final ReportStatusInfo.ShardStatus shardStatus = crawlShard( shard, changeMarker, remainingResults, userConsumer, progressListener );
+                    if ( shardStatus.getLastError() != null && shardStatus.getLastError().getError() == PwmError.ERROR_DIRECTORY_UNAVAILABLE )
+                    {
+                        unavailableShards.incrementAndGet();
+                    }
+                    results.put( shard.getId(), shardStatus );
+                    progressListener.accept( shard.getId(), shardStatus );
+                } ) );
+            }
+
+            for ( final Future<?> future : futures )
+            {
+                try
+                {
+                    future.get();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                catch ( ExecutionException e )
+                {
+                    LOGGER.error( SessionLabel.REPORTING_SESSION_LABEL, "unexpected error during ldap crawl: "
+                            + JavaHelper.readHostileExceptionMessage( e.getCause() ), e.getCause() );
+                }
+            }
+        }
+        finally
+        {
+            JavaHelper.closeAndWaitExecutor( executor, TimeDuration.SECONDS_10 );
+        }
+
+        if ( unavailableShards.get() >= shards.size() )
+        {
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_DIRECTORY_UNAVAILABLE,
+                    "directory unavailable for all " + shards.size() + " report ldap crawl shards" ) );
+        }
+
+        return Collections.unmodifiableMap( new LinkedHashMap<>( results ) );
+    }
+
+    private ReportStatusInfo.ShardStatus crawlShard(
+            final ReportCrawlShard shard,
+            final Instant changeMarker,
+            final AtomicInteger remainingResults,
+            final Consumer<Collection<UserIdentity>> userConsumer,
+            final BiConsumer<String, ReportStatusInfo.ShardStatus> progressListener
+    )
+    {
+        final Instant startTime = Instant.now();
+        final ReportStatusInfo.ShardStatus.ShardStatusBuilder statusBuilder = ReportStatusInfo.ShardStatus.builder()
+                .ldapProfile( shard.getLdapProfile() )
+                .context( shard.getContext() )
+                .changeMarker( changeMarker );
+
+        progressListener.accept( shard.getId(), statusBuilder.build() );
+
+        final int maxResults = remainingResults.get();
+        if ( cancelFlag.getAsBoolean() || maxResults <= 0 )
+        {
+            return statusBuilder.build();
+        }
+
+        final boolean incremental = changeMarker != null && !StringUtil.isEmpty( shard.getFilter() );
+        final String filter = incremental
+                ? shard.changedSinceFilter( settings.getChangeMarkerAttribute(), EdirEntries.convertInstantToZulu( changeMarker ) )
+                : shard.getFilter();
+
+        try
+        {
+            final UserSearchEngine userSearchEngine = pwmApplication.getUserSearchEngine();
+            final SearchConfiguration searchConfiguration = SearchConfiguration.builder()
+                    .filter( filter )
+                    .ldapProfile( shard.getLdapProfile() )
+                    .contexts( Collections.singletonList( shard.getContext() ) )
+                    .enableContextValidation( false )
+                    .searchTimeout( JavaHelper.silentParseLong( pwmApplication.getConfig().readAppProperty( AppProperty.REPORTING_LDAP_SEARCH_TIMEOUT ), 30_000 ) )
+                    .build();
+
+            final Map<UserIdentity, Map<String, String>> searchResults = userSearchEngine.performMultiUserSearch(
+                    searchConfiguration,
+                    maxResults,
+                    Collections.singleton( settings.getChangeMarkerAttribute() ),
+                    SessionLabel.REPORTING_SESSION_LABEL
+            );
+
+            final int reserved = reserveResults( remainingResults, searchResults.size() );
+            final List<UserIdentity> foundUsers = new ArrayList<>( reserved );
+            Instant newChangeMarker = changeMarker;
+            for ( final Map.Entry<UserIdentity, Map<String, String>> entry : searchResults.entrySet() )
+            {
+                if ( foundUsers.size() >= reserved )
+                {
+                    break;
+                }
+                foundUsers.add( entry.getKey() );
+                final Instant entryMarker = readChangeMarker( entry.getValue() );
+                if ( entryMarker != null && ( newChangeMarker == null || entryMarker.isAfter( newChangeMarker ) ) )
+                {
+                    newChangeMarker = entryMarker;
+                }
+            }
+
+            final boolean cancelled = cancelFlag.getAsBoolean();
+            if ( !cancelled )
+            {
+                userConsumer.accept( foundUsers );
+            }
+
+            // a truncated or cancelled search may have missed changed entries, so the next crawl must search from the previous marker
+            final boolean truncated = searchResults.size() >= maxResults || reserved < searchResults.size();
+            final Instant storedChangeMarker = truncated || cancelled ? changeMarker : newChangeMarker;
+
+            final TimeDuration searchDuration = TimeDuration.fromCurrent( startTime );
+            LOGGER.trace( SessionLabel.REPORTING_SESSION_LABEL, () -> "completed " + ( incremental ? "incremental " : "" )
+                    + "ldap crawl of shard " + shard.getId() + ", found " + foundUsers.size() + " users"
+                    + ( truncated ? " (truncated)" : "" ) + " (" + searchDuration.asCompactString() + ")" );
+
+            return statusBuilder
+                    .complete( !cancelled )
+                    .usersFound( foundUsers.size() )
+                    .searchDuration( searchDuration )
+                    .changeMarker( storedChangeMarker )
+                    .build();
+        }
+        catch ( PwmException e )
+        {
+            LOGGER.error( SessionLabel.REPORTING_SESSION_LABEL, "error during ldap crawl of shard " + shard.getId() + ": " + e.getMessage() );
+            return statusBuilder
+                    .searchDuration( TimeDuration.fromCurrent( startTime ) )
+                    .lastError( e.getErrorInformation() )
+                    .build();
+        }
+    }
+
+    private Instant readChangeMarker( final Map<String, String> attributes )
+    {
+        if ( attributes == null )
+        {
+            return null;
+        }
+
+        for ( final Map.Entry<String, String> entry : attributes.entrySet() )
+        {
+            if ( settings.getChangeMarkerAttribute().equalsIgnoreCase( entry.getKey() ) && !StringUtil.isEmpty( entry.getValue() ) )
+            {
+                return parseGeneralizedTime( entry.getValue() );
+            }
+        }
+        return null;
+    }
+
+    static Instant parseGeneralizedTime( final String value )
+    {
+        try
+        {
+            // some directories (AD) include fractional seconds, which are not significant for a change marker
+            return EdirEntries.convertZuluToInstant( value.replaceFirst( "\\.\\d+Z$", "Z" ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            LOGGER.trace( SessionLabel.REPORTING_SESSION_LABEL, () -> "unable to parse change marker value '" + value + "'" );
+            return null;
+        }
+    }
+
+    /**
+     * Reserve up to {@code requested} results from the shared result budget.
+     *
+     * @return the number of results actually reserved, which is less than requested when the budget is nearly exhausted
+     */
+    static int reserveResults( final AtomicInteger remainingResults, final int requested )
+    {
+        while ( true )
+        {
+            final int remaining = remainingResults.get();
+            final int reserved = Math.max( 0, Math.min( remaining, requested ) );
+            if ( remainingResults.compareAndSet( remaining, remaining - reserved ) )
+            {
+                return reserved;
+            }
+        }
+    }
+}
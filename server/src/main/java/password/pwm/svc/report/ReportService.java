@@ -29,10 +29,8 @@ import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
-import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthRecord;
-import password.pwm.ldap.LdapOperationsHelper;
 import password.pwm.ldap.UserInfo;
 import password.pwm.ldap.UserInfoFactory;
 import password.pwm.svc.PwmService;
@@ -55,7 +53,10 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ExecutorService;
@@ -73,7 +74,7 @@ public class ReportService implements PwmService
     private PwmApplication pwmApplication;
     private STATUS status = STATUS.NEW;
     private volatile boolean cancelFlag = false;
-    private ReportSummaryData summaryData = ReportSummaryData.newSummaryData( null );
+    private volatile ReportSummaryData summaryData = ReportSummaryData.newSummaryData( null );
     private ExecutorService executorService;
 
     private UserCacheService userCacheService;
@@ -127,6 +128,7 @@ public class ReportService implements PwmService
         {
             userCacheService = new UserCacheService();
             userCacheService.init( pwmApplication );
+            userCacheService.setStoreListener( this::updateSummaryData );
         }
         catch ( Exception e )
         {
@@ -201,7 +203,7 @@ public class ReportService implements PwmService
                 )
                 {
                     executorService.execute( new ClearTask() );
-                    executorService.execute( new ReadLDAPTask() );
+                    executorService.execute( new ReadLDAPTask( false ) );
                 }
             }
             break;
@@ -317,6 +319,62 @@ public class ReportService implements PwmService
     }
 
 
+    /**
+     * Iterate the cached records as column views, for callers that only read some columns of each record.
+     */
+    ClosableIterator<UserCacheRecordCodec.RecordView> recordViewIterator( )
+    {
+        final UserCacheService.UserStatusCacheBeanIterator<UserCacheService.StorageKey> storageKeyIterator = userCacheService.iterator();
+        return new ClosableIterator<UserCacheRecordCodec.RecordView>()
+        {
+            private UserCacheRecordCodec.RecordView nextView = readNext();
+
+            @Override
+            public boolean hasNext( )
+            {
+                return nextView != null;
+            }
+
+            @Override
+            public UserCacheRecordCodec.RecordView next( )
+            {
+                if ( nextView == null )
+                {
+                    throw new NoSuchElementException();
+                }
+                final UserCacheRecordCodec.RecordView returnView = nextView;
+                nextView = readNext();
+                return returnView;
+            }
+
+            @Override
+            public void close( )
+            {
+                storageKeyIterator.close();
+            }
+
+            private UserCacheRecordCodec.RecordView readNext( )
+            {
+                try
+                {
+                    while ( storageKeyIterator.hasNext() )
+                    {
+                        final UserCacheRecordCodec.RecordView recordView = userCacheService.readStorageKeyView( storageKeyIterator.next() );
+                        if ( recordView != null )
+                        {
+                            return recordView;
+                        }
+                    }
+                }
+                catch ( LocalDBException e )
+                {
+                    throw new IllegalStateException( "unexpected iterator traversal error while reading LocalDB: " + e.getMessage() );
+                }
+                return null;
+            }
+        };
+    }
+
     public ReportSummaryData getSummaryData( )
     {
         return summaryData;
@@ -329,11 +387,19 @@ public class ReportService implements PwmService
 
     private class ReadLDAPTask implements Runnable
     {
+        private final boolean incremental;
+
+        ReadLDAPTask( final boolean incremental )
+        {
+            this.incremental = incremental;
+        }
+
         @Override
         public void run( )
         {
             reportStatus.updateAndGet( reportStatusInfo -> reportStatusInfo.toBuilder()
                     .currentProcess( ReportStatusInfo.ReportEngineProcess.SearchLDAP )
+                    .incrementalRun( incremental )
                     .build() );
             try
             {
@@ -350,7 +416,7 @@ public class ReportService implements PwmService
                         if ( executorService != null )
                         {
                             LOGGER.error( SessionLabel.REPORTING_SESSION_LABEL, "directory unavailable error during background SearchLDAP, will retry; error: " + e.getMessage() );
-                            pwmApplication.getPwmScheduler().scheduleJob( new ReadLDAPTask(), executorService, TimeDuration.of( 10, TimeDuration.Unit.MINUTES ) );
+                            pwmApplication.getPwmScheduler().scheduleJob( new ReadLDAPTask( incremental ), executorService, TimeDuration.of( 10, TimeDuration.Unit.MINUTES ) );
                             errorProcessed = true;
                         }
                     }
@@ -368,27 +434,52 @@ public class ReportService implements PwmService
         }
 
         private void readUserListFromLdap( )
-                throws PwmUnrecoverableException, PwmOperationalException
+                throws PwmUnrecoverableException
         {
             final Instant startTime = Instant.now();
-            LOGGER.trace( SessionLabel.REPORTING_SESSION_LABEL, () -> "beginning ldap search process" );
+            LOGGER.trace( SessionLabel.REPORTING_SESSION_LABEL, () -> "beginning " + ( incremental ? "incremental " : "" ) + "ldap search process" );
+
+            final Map<String, ReportStatusInfo.ShardStatus> previousShardStatus = reportStatus.get().getShardStatus();
 
             resetJobStatus();
             clearWorkQueue();
 
-            final Iterator<UserIdentity> memQueue = LdapOperationsHelper.readUsersFromLdapForPermissions(
-                    pwmApplication,
-                    SessionLabel.REPORTING_SESSION_LABEL,
-                    settings.getSearchFilter(),
-                    settings.getMaxSearchSize()
+            final List<ReportCrawlShard> shards = ReportCrawlShard.forPermissions( pwmApplication, settings.getSearchFilter() );
+            final ReportLdapCrawler crawler = new ReportLdapCrawler( pwmApplication, settings, () -> cancelFlag );
+            final Map<String, ReportStatusInfo.ShardStatus> shardStatus = crawler.crawl(
+                    shards,
+                    previousShardStatus,
+                    incremental,
+                    foundUsers -> writeUsersToLocalDBQueue( foundUsers.iterator() ),
+                    this::updateShardStatus
             );
 
+            final boolean crawlComplete = !cancelFlag && shardStatus.values().stream().allMatch( ReportStatusInfo.ShardStatus::isComplete );
+            reportStatus.updateAndGet( reportStatusInfo -> reportStatusInfo.toBuilder()
+                    .shardStatus( shardStatus )
+                    .lastFullCrawlDate( !incremental && crawlComplete ? startTime : reportStatusInfo.getLastFullCrawlDate() )
+                    .build() );
+            writeReportStatus();
+
             LOGGER.trace( SessionLabel.REPORTING_SESSION_LABEL, () -> "completed ldap search process (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
+        }
 
-            writeUsersToLocalDBQueue( memQueue );
+        private void updateShardStatus( final String shardId, final ReportStatusInfo.ShardStatus shardStatus )
+        {
+            reportStatus.updateAndGet( reportStatusInfo ->
+            {
+                final Map<String, ReportStatusInfo.ShardStatus> newShardStatus = new LinkedHashMap<>( reportStatusInfo.getShardStatus() );
+                newShardStatus.put( shardId, shardStatus );
+                return reportStatusInfo.toBuilder()
+                        .shardStatus( Collections.unmodifiableMap( newShardStatus ) )
+                        .build();
+            } );
         }
 
-        private void writeUsersToLocalDBQueue( final Iterator<UserIdentity> identityQueue )
+        /**
+         * Called by concurrently running crawl shards, synchronized so each shard's users are queued together.
+         */
+        private synchronized void writeUsersToLocalDBQueue( final Iterator<UserIdentity> identityQueue )
         {
             final Instant startTime = Instant.now();
             LOGGER.trace( SessionLabel.REPORTING_SESSION_LABEL, () -> "transferring search results to work queue" );
@@ -590,10 +681,7 @@ public class ReportService implements PwmService
                     SessionLabel.REPORTING_SESSION_LABEL,
                     userIdentity
             );
-            final UserCacheRecord newUserCacheRecord = userCacheService.updateUserCache( userInfo );
-
-            userCacheService.store( newUserCacheRecord );
-            summaryData.update( newUserCacheRecord );
+            userCacheService.updateUserCache( userInfo );
             processRateMeter.markEvents( 1 );
 
             LOGGER.trace( SessionLabel.REPORTING_SESSION_LABEL, () -> "stored cache for " + userIdentity );
@@ -605,14 +693,31 @@ public class ReportService implements PwmService
         @Override
         public void run( )
         {
-            checkForOutdatedStoreData();
+            final boolean outdatedDataCleared = checkForOutdatedStoreData();
 
             if ( settings.isDailyJobEnabled() )
             {
-                executorService.execute( new ClearTask() );
-                executorService.execute( new ReadLDAPTask() );
+                if ( !outdatedDataCleared && incrementalCrawlPermitted() )
+                {
+                    executorService.execute( new ReadLDAPTask( true ) );
+                }
+                else
+                {
+                    executorService.execute( new ClearTask() );
+                    executorService.execute( new ReadLDAPTask( false ) );
+                }
             }
         }
+
+        private boolean incrementalCrawlPermitted()
+        {
+            final ReportStatusInfo localReportStatus = reportStatus.get();
+            final Instant lastFullCrawlDate = localReportStatus.getLastFullCrawlDate();
+            return settings.isIncrementalEnabled()
+                    && localReportStatus.isReportComplete()
+                    && lastFullCrawlDate != null
+                    && TimeDuration.fromCurrent( lastFullCrawlDate ).isShorterThan( settings.getFullCrawlInterval() );
+        }
     }
 
     private class InitializationTask implements Runnable
@@ -673,6 +778,10 @@ public class ReportService implements PwmService
                 initReportStatus();
                 executeCommand( ReportCommand.Clear );
             }
+            else
+            {
+                rebuildSummaryData();
+            }
 
             startNextTask();
         }
@@ -742,12 +851,47 @@ public class ReportService implements PwmService
         writeReportStatus();
     }
 
-    private void checkForOutdatedStoreData()
+    private boolean checkForOutdatedStoreData()
     {
         final Instant lastFinishDate = reportStatus.get().getFinishDate();
         if ( lastFinishDate != null && TimeDuration.fromCurrent( lastFinishDate ).isLongerThan( settings.getMaxCacheAge() ) )
         {
             executorService.execute( new ClearTask() );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the summary data current as cache records are stored, so it only needs to be rebuilt from the whole
+     * cache at startup.
+     */
+    private void updateSummaryData( final UserCacheRecord previousRecord, final UserCacheRecord newRecord )
+    {
+        final ReportSummaryData localSummaryData = summaryData;
+        if ( previousRecord != null )
+        {
+            localSummaryData.remove( previousRecord );
+        }
+        localSummaryData.update( newRecord );
+    }
+
+    private void rebuildSummaryData()
+    {
+        final Instant startTime = Instant.now();
+        final ReportSummaryData newSummaryData = ReportSummaryData.newSummaryData( settings.getTrackDays() );
+        try ( ClosableIterator<UserCacheRecord> cacheIterator = iterator() )
+        {
+            while ( cacheIterator.hasNext() )
+            {
+                final UserCacheRecord userCacheRecord = cacheIterator.next();
+                if ( userCacheRecord != null )
+                {
+                    newSummaryData.update( userCacheRecord );
+                }
+            }
         }
+        summaryData = newSummaryData;
+        LOGGER.debug( SessionLabel.REPORTING_SESSION_LABEL, () -> "rebuilt report summary data from cached records in " + TimeDuration.compactFromCurrent( startTime ) );
     }
 }
@@ -67,6 +67,17 @@ class ReportSettings implements Serializable
     @Builder.Default
     private JobIntensity reportJobIntensity = JobIntensity.LOW;
 
+    @Builder.Default
+    private int shardThreads = 1;
+
+    private boolean incrementalEnabled;
+
+    @Builder.Default
+    private String changeMarkerAttribute = "modifyTimestamp";
+
+    @Builder.Default
+    private TimeDuration fullCrawlInterval = TimeDuration.of( 7, TimeDuration.Unit.DAYS );
+
     public enum JobIntensity
     {
         LOW,
@@ -107,6 +118,12 @@ class ReportSettings implements Serializable
 
         builder.reportJobIntensity( config.readSettingAsEnum( PwmSetting.REPORTING_JOB_INTENSITY, JobIntensity.class ) );
 
+        builder.shardThreads( Integer.parseInt( config.readAppProperty( AppProperty.REPORTING_LDAP_SHARD_THREADS ) ) );
+        builder.incrementalEnabled( Boolean.parseBoolean( config.readAppProperty( AppProperty.REPORTING_INCREMENTAL_ENABLE ) ) );
+        builder.changeMarkerAttribute( config.readAppProperty( AppProperty.REPORTING_INCREMENTAL_CHANGE_ATTRIBUTE ) );
+        builder.fullCrawlInterval( TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.REPORTING_INCREMENTAL_FULL_CRAWL_SECONDS ) ), TimeDuration.Unit.SECONDS ) );
+
         return builder.build();
     }
 
@@ -27,6 +27,8 @@ import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
 import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
 
 @Value
 @Builder( toBuilder = true )
@@ -46,6 +48,41 @@ public class ReportStatusInfo implements Serializable
     @Builder.Default
     private ReportEngineProcess currentProcess = ReportEngineProcess.None;
 
+    private boolean incrementalRun;
+    private Instant lastFullCrawlDate;
+
+    /**
+     * Progress of each ldap crawl shard, keyed by {@link ReportCrawlShard#getId()}.
+     */
+    @Builder.Default
+    private Map<String, ShardStatus> shardStatus = Collections.emptyMap();
+
+    public Map<String, ShardStatus> getShardStatus( )
+    {
+        // status records written before shards existed have no map
+        return shardStatus == null ? Collections.emptyMap() : shardStatus;
+    }
+
+    @Value
+    @Builder( toBuilder = true )
+    public static class ShardStatus implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private String ldapProfile;
+        private String context;
+        private boolean complete;
+        private int usersFound;
+        private TimeDuration searchDuration;
+        private ErrorInformation lastError;
+
+        /**
+         * Highest change marker value returned by the shard's last successful search, the next incremental crawl only
+         * searches for users changed since this time.
+         */
+        private Instant changeMarker;
+    }
+
     public enum ReportEngineProcess
     {
         RollOver( "Initializing" ),
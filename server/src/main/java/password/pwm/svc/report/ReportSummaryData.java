@@ -68,37 +68,27 @@ public class ReportSummaryData
     private final Map<DataStorageMethod, AtomicInteger> responseStorage = new ConcurrentHashMap<>();
     private final Map<Answer.FormatType, AtomicInteger> responseFormatType = new ConcurrentHashMap<>();
     private final Map<String, AtomicInteger> ldapProfile = new ConcurrentHashMap<>();
-    private final Map<Integer, AtomicInteger> pwExpireDays = new ConcurrentHashMap<>();
-    private final Map<Integer, AtomicInteger> accountExpireDays = new ConcurrentHashMap<>();
-    private final Map<Integer, AtomicInteger> changePwDays = new ConcurrentHashMap<>();
-    private final Map<Integer, AtomicInteger> responseSetDays = new ConcurrentHashMap<>();
-    private final Map<Integer, AtomicInteger> otpSetDays = new ConcurrentHashMap<>();
-    private final Map<Integer, AtomicInteger> loginDays = new ConcurrentHashMap<>();
-    private final Map<Integer, AtomicInteger> pwExpireNotificationDays = new ConcurrentHashMap<>();
-
-    private ReportSummaryData( )
+    private final List<Integer> trackedDays;
+
+    // event counts per epoch day; the day windows are counted from these when read, so they stay current as time passes
+    private final Map<Long, AtomicInteger> pwExpireDates = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> accountExpireDates = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> changePwDates = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> responseSetDates = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> otpSetDates = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> loginDates = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> pwExpireNotificationDates = new ConcurrentHashMap<>();
+
+    private ReportSummaryData( final List<Integer> trackedDays )
     {
+        this.trackedDays = trackedDays == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList( new ArrayList<>( trackedDays ) );
     }
 
     static ReportSummaryData newSummaryData( final List<Integer> trackedDays )
     {
-        final ReportSummaryData reportSummaryData = new ReportSummaryData();
-
-        if ( trackedDays != null )
-        {
-            for ( final int day : trackedDays )
-            {
-                reportSummaryData.pwExpireDays.put( day, new AtomicInteger( 0 ) );
-                reportSummaryData.accountExpireDays.put( day, new AtomicInteger( 0 ) );
-                reportSummaryData.changePwDays.put( day, new AtomicInteger( 0 ) );
-                reportSummaryData.responseSetDays.put( day, new AtomicInteger( 0 ) );
-                reportSummaryData.otpSetDays.put( day, new AtomicInteger( 0 ) );
-                reportSummaryData.loginDays.put( day, new AtomicInteger( 0 ) );
-                reportSummaryData.pwExpireNotificationDays.put( day, new AtomicInteger( 0 ) );
-            }
-        }
-
-        return reportSummaryData;
+        return new ReportSummaryData( trackedDays );
     }
 
     public Map<DataStorageMethod, Integer> getResponseStorage( )
@@ -117,137 +107,184 @@ public class ReportSummaryData
                         e -> e.getValue().get() ) ) );
     }
 
+    public Map<Integer, Integer> getPwExpireDays( )
+    {
+        return countTrackedDays( pwExpireDates );
+    }
+
+    public Map<Integer, Integer> getAccountExpireDays( )
+    {
+        return countTrackedDays( accountExpireDates );
+    }
+
+    public Map<Integer, Integer> getChangePwDays( )
+    {
+        return countTrackedDays( changePwDates );
+    }
+
+    public Map<Integer, Integer> getResponseSetDays( )
+    {
+        return countTrackedDays( responseSetDates );
+    }
+
+    public Map<Integer, Integer> getOtpSetDays( )
+    {
+        return countTrackedDays( otpSetDates );
+    }
+
+    public Map<Integer, Integer> getLoginDays( )
+    {
+        return countTrackedDays( loginDates );
+    }
+
+    public Map<Integer, Integer> getPwExpireNotificationDays( )
+    {
+        return countTrackedDays( pwExpireNotificationDates );
+    }
+
     void update( final UserCacheRecord userCacheRecord )
     {
-        totalUsers.incrementAndGet();
+        apply( userCacheRecord, 1 );
+    }
+
+    /**
+     * Reverse a previous {@link #update(UserCacheRecord)} for a record that has been replaced or removed.
+     */
+    void remove( final UserCacheRecord userCacheRecord )
+    {
+        apply( userCacheRecord, -1 );
+    }
+
+    private void apply( final UserCacheRecord userCacheRecord, final int delta )
+    {
+        totalUsers.addAndGet( delta );
 
         if ( userCacheRecord.isHasResponses() )
         {
-            hasResponses.incrementAndGet();
+            hasResponses.addAndGet( delta );
         }
 
         if ( userCacheRecord.isHasHelpdeskResponses() )
         {
-            hasHelpdeskResponses.incrementAndGet();
+            hasHelpdeskResponses.addAndGet( delta );
         }
 
         if ( userCacheRecord.getResponseSetTime() != null )
         {
-            hasResponseSetTime.incrementAndGet();
-            incrementIfWithinTimeWindow( userCacheRecord, responseSetDays );
+            hasResponseSetTime.addAndGet( delta );
+            adjustDateCount( userCacheRecord.getResponseSetTime(), responseSetDates, delta );
         }
 
         if ( userCacheRecord.getPasswordExpirationTime() != null )
         {
-            hasPasswordExpirationTime.incrementAndGet();
-            incrementIfWithinTimeWindow( userCacheRecord, pwExpireDays );
+            hasPasswordExpirationTime.addAndGet( delta );
+            adjustDateCount( userCacheRecord.getPasswordExpirationTime(), pwExpireDates, delta );
         }
 
         if ( userCacheRecord.getAccountExpirationTime() != null )
         {
-            hasAccountExpirationTime.incrementAndGet();
-            incrementIfWithinTimeWindow( userCacheRecord, accountExpireDays );
+            hasAccountExpirationTime.addAndGet( delta );
+            adjustDateCount( userCacheRecord.getAccountExpirationTime(), accountExpireDates, delta );
         }
 
         if ( userCacheRecord.getLastLoginTime() != null )
         {
-            hasLoginTime.incrementAndGet();
-            incrementIfWithinTimeWindow( userCacheRecord, loginDays );
+            hasLoginTime.addAndGet( delta );
+            adjustDateCount( userCacheRecord.getLastLoginTime(), loginDates, delta );
         }
 
         if ( userCacheRecord.getPasswordChangeTime() != null )
         {
-            hasChangePwTime.incrementAndGet();
-            incrementIfWithinTimeWindow( userCacheRecord, changePwDays );
+            hasChangePwTime.addAndGet( delta );
+            adjustDateCount( userCacheRecord.getPasswordChangeTime(), changePwDates, delta );
         }
 
         if ( userCacheRecord.getPasswordExpirationNoticeSendTime() != null )
         {
-            hasReceivedPwExpireNotification.incrementAndGet();
-            incrementIfWithinTimeWindow( userCacheRecord, pwExpireNotificationDays );
+            hasReceivedPwExpireNotification.addAndGet( delta );
+            adjustDateCount( userCacheRecord.getPasswordExpirationNoticeSendTime(), pwExpireNotificationDates, delta );
         }
 
         if ( userCacheRecord.getPasswordStatus() != null )
         {
             if ( userCacheRecord.getPasswordStatus().isExpired() )
             {
-                pwExpired.incrementAndGet();
+                pwExpired.addAndGet( delta );
             }
             if ( userCacheRecord.getPasswordStatus().isPreExpired() )
             {
-                pwPreExpired.incrementAndGet();
+                pwPreExpired.addAndGet( delta );
             }
             if ( userCacheRecord.getPasswordStatus().isWarnPeriod() )
             {
-                pwWarnPeriod.incrementAndGet();
+                pwWarnPeriod.addAndGet( delta );
             }
         }
 
         if ( userCacheRecord.getResponseStorageMethod() != null )
         {
-            final DataStorageMethod method = userCacheRecord.getResponseStorageMethod();
-            responseStorage.putIfAbsent( method, new AtomicInteger( 0 ) );
-            responseStorage.get( method ).incrementAndGet();
+            responseStorage.computeIfAbsent( userCacheRecord.getResponseStorageMethod(), k -> new AtomicInteger( 0 ) ).addAndGet( delta );
         }
 
         if ( userCacheRecord.getLdapProfile() != null )
         {
-            final String userProfile = userCacheRecord.getLdapProfile();
-            if ( !ldapProfile.containsKey( userProfile ) )
-            {
-                ldapProfile.put( userProfile, new AtomicInteger( 0 ) );
-            }
-            ldapProfile.get( userProfile ).incrementAndGet();
+            ldapProfile.computeIfAbsent( userCacheRecord.getLdapProfile(), k -> new AtomicInteger( 0 ) ).addAndGet( delta );
         }
 
         if ( userCacheRecord.getResponseFormatType() != null )
         {
-            final Answer.FormatType type = userCacheRecord.getResponseFormatType();
-            responseFormatType.putIfAbsent( type, new AtomicInteger( 0 ) );
-            responseFormatType.get( type ).incrementAndGet();
+            responseFormatType.computeIfAbsent( userCacheRecord.getResponseFormatType(), k -> new AtomicInteger( 0 ) ).addAndGet( delta );
         }
 
         if ( userCacheRecord.isHasOtpSecret() )
         {
-            hasOtpSecret.incrementAndGet();
+            hasOtpSecret.addAndGet( delta );
         }
 
         if ( userCacheRecord.getOtpSecretSetTime() != null )
         {
-            hasOtpSecretSetTime.incrementAndGet();
-            incrementIfWithinTimeWindow( userCacheRecord, otpSetDays );
+            hasOtpSecretSetTime.addAndGet( delta );
+            adjustDateCount( userCacheRecord.getOtpSecretSetTime(), otpSetDates, delta );
         }
     }
 
-    private void incrementIfWithinTimeWindow(
-            final UserCacheRecord userCacheRecord,
-            final Map<Integer, AtomicInteger> map
+    private static void adjustDateCount(
+            final Instant eventDate,
+            final Map<Long, AtomicInteger> dateCounts,
+            final int delta
     )
     {
-        for ( final Map.Entry<Integer, AtomicInteger> entry : map.entrySet() )
+        final long epochDay = Math.floorDiv( eventDate.toEpochMilli(), MS_DAY );
+        dateCounts.computeIfAbsent( epochDay, k -> new AtomicInteger( 0 ) ).addAndGet( delta );
+    }
+
+    /**
+     * Count the events within each tracked day window, relative to the current day.  A negative
+     * window of N days covers the previous N days including today, a positive window covers today and the
+     * following N - 1 days.
+     */
+    private Map<Integer, Integer> countTrackedDays( final Map<Long, AtomicInteger> dateCounts )
+    {
+        final long today = Math.floorDiv( System.currentTimeMillis(), MS_DAY );
+        final Map<Integer, Integer> returnMap = new TreeMap<>();
+        for ( final int day : trackedDays )
         {
-            final int day = entry.getKey();
-            final Instant eventDate = userCacheRecord.getOtpSecretSetTime();
-            final long timeWindow = MS_DAY * day;
-            final AtomicInteger number = entry.getValue();
+            final long firstDay = day < 0 ? today + day + 1 : today;
+            final long lastDay = day < 0 ? today : today + day - 1;
 
-            if ( eventDate != null )
+            int count = 0;
+            for ( final Map.Entry<Long, AtomicInteger> entry : dateCounts.entrySet() )
             {
-                final TimeDuration timeBoundary = TimeDuration.of( timeWindow, TimeDuration.Unit.MILLISECONDS );
-                final TimeDuration eventDifference = TimeDuration.fromCurrent( eventDate );
-
-                if (
-                        ( timeWindow >= 0 && eventDate.isAfter( Instant.now() ) && eventDifference.isShorterThan( timeBoundary ) )
-                                || ( timeWindow < 0 && eventDate.isBefore( Instant.now() ) && eventDifference.isShorterThan( timeBoundary ) )
-                )
+                if ( entry.getKey() >= firstDay && entry.getKey() <= lastDay )
                 {
-                    number.incrementAndGet();
+                    count += entry.getValue().get();
                 }
             }
+            returnMap.put( day, count );
         }
+        return Collections.unmodifiableMap( returnMap );
     }
 
-
     public List<PresentationRow> asPresentableCollection( final Configuration config, final Locale locale )
     {
         final ArrayList<PresentationRow> returnCollection = new ArrayList<>();
@@ -274,36 +311,40 @@ public class ReportSummaryData
         }
 
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveLoginTime", this.hasLoginTime.get() ) );
+        final Map<Integer, Integer> loginDays = getLoginDays();
         for ( final Integer day : new TreeSet<>( loginDays.keySet() ) )
         {
             if ( day < 0 )
             {
-                returnCollection.add( builder.makeRow( "Field_Report_Sum_LoginTimePrevious", this.loginDays.get( day ).get(), String.valueOf( Math.abs( day ) ) ) );
+                returnCollection.add( builder.makeRow( "Field_Report_Sum_LoginTimePrevious", loginDays.get( day ), String.valueOf( Math.abs( day ) ) ) );
             }
         }
 
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveAccountExpirationTime", this.hasAccountExpirationTime.get() ) );
+        final Map<Integer, Integer> accountExpireDays = getAccountExpireDays();
         for ( final Integer day : new TreeSet<>( accountExpireDays.keySet() ) )
         {
             final String key = day < 0 ? "Field_Report_Sum_AccountExpirationPrevious" : "Field_Report_Sum_AccountExpirationNext";
-            returnCollection.add( builder.makeRow( key, this.accountExpireDays.get( day ).get(), String.valueOf( Math.abs( day ) ) ) );
+            returnCollection.add( builder.makeRow( key, accountExpireDays.get( day ), String.valueOf( Math.abs( day ) ) ) );
         }
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HavePwExpirationTime", this.hasPasswordExpirationTime.get() ) );
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveExpiredPw", this.pwExpired.get() ) );
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HavePreExpiredPw", this.pwPreExpired.get() ) );
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveExpiredPwWarn", this.pwWarnPeriod.get() ) );
+        final Map<Integer, Integer> pwExpireDays = getPwExpireDays();
         for ( final Integer day : new TreeSet<>( pwExpireDays.keySet() ) )
         {
             final String key = day < 0 ? "Field_Report_Sum_PwExpirationPrevious" : "Field_Report_Sum_PwExpirationNext";
-            returnCollection.add( builder.makeRow( key, this.pwExpireDays.get( day ).get(), String.valueOf( Math.abs( day ) ) ) );
+            returnCollection.add( builder.makeRow( key, pwExpireDays.get( day ), String.valueOf( Math.abs( day ) ) ) );
         }
 
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveChgPw", this.hasChangePwTime.get() ) );
+        final Map<Integer, Integer> changePwDays = getChangePwDays();
         for ( final Integer day : new TreeSet<>( changePwDays.keySet() ) )
         {
             if ( day < 0 )
             {
-                returnCollection.add( builder.makeRow( "Field_Report_Sum_ChgPwPrevious", this.changePwDays.get( day ).get(), String.valueOf( Math.abs( day ) ) ) );
+                returnCollection.add( builder.makeRow( "Field_Report_Sum_ChgPwPrevious", changePwDays.get( day ), String.valueOf( Math.abs( day ) ) ) );
             }
         }
 
@@ -321,11 +362,12 @@ public class ReportSummaryData
         }
 
         returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveResponseTime", this.hasResponseSetTime.get() ) );
+        final Map<Integer, Integer> responseSetDays = getResponseSetDays();
         for ( final Integer day : new TreeSet<>( responseSetDays.keySet() ) )
         {
             if ( day < 0 )
             {
-                returnCollection.add( builder.makeRow( "Field_Report_Sum_ResponseTimePrevious", this.responseSetDays.get( day ).get(), String.valueOf( Math.abs( day ) ) ) );
+                returnCollection.add( builder.makeRow( "Field_Report_Sum_ResponseTimePrevious", responseSetDays.get( day ), String.valueOf( Math.abs( day ) ) ) );
             }
         }
 
@@ -333,11 +375,12 @@ public class ReportSummaryData
         {
             returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveOtpSecret", this.hasOtpSecret.get() ) );
             returnCollection.add( builder.makeRow( "Field_Report_Sum_HaveOtpSecretSetTime", this.hasOtpSecretSetTime.get() ) );
+            final Map<Integer, Integer> otpSetDays = getOtpSetDays();
             for ( final Integer day : new TreeSet<>( otpSetDays.keySet() ) )
             {
                 if ( day < 0 )
                 {
-                    returnCollection.add( builder.makeRow( "Field_Report_Sum_OtpSecretTimePrevious", this.otpSetDays.get( day ).get(), String.valueOf( Math.abs( day ) ) ) );
+                    returnCollection.add( builder.makeRow( "Field_Report_Sum_OtpSecretTimePrevious", otpSetDays.get( day ), String.valueOf( Math.abs( day ) ) ) );
                 }
             }
         }
@@ -345,11 +388,12 @@ public class ReportSummaryData
         if ( this.hasReceivedPwExpireNotification.get() > 0 )
         {
             returnCollection.add( new PresentationRow( "Has Received PwExpiry Notice", Integer.toString( this.hasReceivedPwExpireNotification.get() ), null ) );
+            final Map<Integer, Integer> pwExpireNotificationDays = getPwExpireNotificationDays();
             for ( final Integer day : new TreeSet<>( pwExpireNotificationDays.keySet() ) )
             {
                 if ( day < 0 )
                 {
-                    returnCollection.add( new PresentationRow( "PwExpireNotice " + day, Integer.toString( this.pwExpireNotificationDays.get( day ).get() ), null ) );
+                    returnCollection.add( new PresentationRow( "PwExpireNotice " + day, Integer.toString( pwExpireNotificationDays.get( day ) ), null ) );
                 }
             }
         }
@@ -0,0 +1,376 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.report;
+
+import com.novell.ldapchai.cr.Answer;
+import password.pwm.bean.PasswordStatus;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.JsonUtil;
+
+import java.time.Instant;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Stored form of {@link UserCacheRecord}.  The compact encoding writes each {@link Column} in declaration order as a
+ * delimited string, so a {@link RecordView} can read single columns without decoding the whole record.  Records
+ * stored as JSON by earlier versions are still readable.
+ *
+ * <p>New columns must only be appended to the end of {@link Column}, values stored before a column existed decode
+ * it as null.  Empty strings decode as null.</p>
+ */
+final class UserCacheRecordCodec
+{
+    private static final String COMPACT_ENCODING_PREFIX = "~u1|";
+    private static final char DELIMITER = '|';
+    private static final char ESCAPE = '\\';
+    private static final char ESCAPED_DELIMITER = 'p';
+    private static final int RADIX = 36;
+
+    private static final Column[] COLUMNS = Column.values();
+
+    private UserCacheRecordCodec( )
+    {
+    }
+
+    enum Encoding
+    {
+        JSON,
+        COMPACT,
+    }
+
+    enum ValueType
+    {
+        STRING,
+        INSTANT,
+        BOOLEAN,
+        PASSWORD_STATUS,
+        STORAGE_METHOD,
+        FORMAT_TYPE,
+    }
+
+    enum Column
+    {
+        USER_DN( ValueType.STRING, UserCacheRecord::getUserDN, ( b, v ) -> b.userDN( ( String ) v ) ),
+        LDAP_PROFILE( ValueType.STRING, UserCacheRecord::getLdapProfile, ( b, v ) -> b.ldapProfile( ( String ) v ) ),
+        USER_GUID( ValueType.STRING, UserCacheRecord::getUserGUID, ( b, v ) -> b.userGUID( ( String ) v ) ),
+        USERNAME( ValueType.STRING, UserCacheRecord::getUsername, ( b, v ) -> b.username( ( String ) v ) ),
+        EMAIL( ValueType.STRING, UserCacheRecord::getEmail, ( b, v ) -> b.email( ( String ) v ) ),
+        PASSWORD_STATUS( ValueType.PASSWORD_STATUS, UserCacheRecord::getPasswordStatus, ( b, v ) -> b.passwordStatus( ( PasswordStatus ) v ) ),
+        PASSWORD_EXPIRATION_TIME( ValueType.INSTANT, UserCacheRecord::getPasswordExpirationTime, ( b, v ) -> b.passwordExpirationTime( ( Instant ) v ) ),
+        PASSWORD_CHANGE_TIME( ValueType.INSTANT, UserCacheRecord::getPasswordChangeTime, ( b, v ) -> b.passwordChangeTime( ( Instant ) v ) ),
+        LAST_LOGIN_TIME( ValueType.INSTANT, UserCacheRecord::getLastLoginTime, ( b, v ) -> b.lastLoginTime( ( Instant ) v ) ),
+        ACCOUNT_EXPIRATION_TIME( ValueType.INSTANT, UserCacheRecord::getAccountExpirationTime, ( b, v ) -> b.accountExpirationTime( ( Instant ) v ) ),
+        PASSWORD_EXPIRATION_NOTICE_SEND_TIME( ValueType.INSTANT, UserCacheRecord::getPasswordExpirationNoticeSendTime,
+                ( b, v ) -> b.passwordExpirationNoticeSendTime( ( Instant ) v ) ),
+        HAS_RESPONSES( ValueType.BOOLEAN, UserCacheRecord::isHasResponses, ( b, v ) -> b.hasResponses( ( Boolean ) v ) ),
+        HAS_HELPDESK_RESPONSES( ValueType.BOOLEAN, UserCacheRecord::isHasHelpdeskResponses, ( b, v ) -> b.hasHelpdeskResponses( ( Boolean ) v ) ),
+        RESPONSE_SET_TIME( ValueType.INSTANT, UserCacheRecord::getResponseSetTime, ( b, v ) -> b.responseSetTime( ( Instant ) v ) ),
+        RESPONSE_STORAGE_METHOD( ValueType.STORAGE_METHOD, UserCacheRecord::getResponseStorageMethod,
+                ( b, v ) -> b.responseStorageMethod( ( DataStorageMethod ) v ) ),
+        RESPONSE_FORMAT_TYPE( ValueType.FORMAT_TYPE, UserCacheRecord::getResponseFormatType, ( b, v ) -> b.responseFormatType( ( Answer.FormatType ) v ) ),
+        HAS_OTP_SECRET( ValueType.BOOLEAN, UserCacheRecord::isHasOtpSecret, ( b, v ) -> b.hasOtpSecret( ( Boolean ) v ) ),
+        OTP_SECRET_SET_TIME( ValueType.INSTANT, UserCacheRecord::getOtpSecretSetTime, ( b, v ) -> b.otpSecretSetTime( ( Instant ) v ) ),
+        REQUIRES_PASSWORD_UPDATE( ValueType.BOOLEAN, UserCacheRecord::isRequiresPasswordUpdate, ( b, v ) -> b.requiresPasswordUpdate( ( Boolean ) v ) ),
+        REQUIRES_RESPONSE_UPDATE( ValueType.BOOLEAN, UserCacheRecord::isRequiresResponseUpdate, ( b, v ) -> b.requiresResponseUpdate( ( Boolean ) v ) ),
+        REQUIRES_PROFILE_UPDATE( ValueType.BOOLEAN, UserCacheRecord::isRequiresProfileUpdate, ( b, v ) -> b.requiresProfileUpdate( ( Boolean ) v ) ),
+        CACHE_TIMESTAMP( ValueType.INSTANT, UserCacheRecord::getCacheTimestamp, ( b, v ) -> b.cacheTimestamp( ( Instant ) v ) ),;
+
+        private final ValueType valueType;
+        private final Function<UserCacheRecord, Object> reader;
+        private final BiConsumer<UserCacheRecord.UserCacheRecordBuilder, Object> writer;
+
+        Column(
+                final ValueType valueType,
+                final Function<UserCacheRecord, Object> reader,
+                final BiConsumer<UserCacheRecord.UserCacheRecordBuilder, Object> writer
+        )
+        {
+            this.valueType = valueType;
+            this.reader = reader;
+            this.writer = writer;
+        }
+
+        ValueType getValueType( )
+        {
+            return valueType;
+        }
+    }
+
+    static String encode( final UserCacheRecord userCacheRecord, final Encoding encoding )
+    {
+        if ( encoding == Encoding.JSON )
+        {
+            return JsonUtil.serialize( userCacheRecord );
+        }
+
+        final StringBuilder sb = new StringBuilder( COMPACT_ENCODING_PREFIX );
+        for ( int i = 0; i < COLUMNS.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                sb.append( DELIMITER );
+            }
+            final Column column = COLUMNS[i];
+            encodeValue( sb, column.valueType, column.reader.apply( userCacheRecord ) );
+        }
+        return sb.toString();
+    }
+
+    static UserCacheRecord decode( final String encodedValue )
+    {
+        return view( encodedValue ).toRecord();
+    }
+
+    static RecordView view( final String encodedValue )
+    {
+        if ( encodedValue.startsWith( COMPACT_ENCODING_PREFIX ) )
+        {
+            return new RecordView( encodedValue, null );
+        }
+
+        return new RecordView( null, JsonUtil.deserialize( encodedValue, UserCacheRecord.class ) );
+    }
+
+    /**
+     * Read-only access to the columns of a stored record.  Compact values are located by a single scan for
+     * delimiters and each column is only parsed when read.
+     */
+    static final class RecordView
+    {
+        private final String encodedValue;
+        private final UserCacheRecord decodedRecord;
+        private final int[] columnStarts;
+
+        private RecordView( final String encodedValue, final UserCacheRecord decodedRecord )
+        {
+            this.encodedValue = encodedValue;
+            this.decodedRecord = decodedRecord;
+            this.columnStarts = encodedValue == null ? null : indexColumns( encodedValue );
+        }
+
+        Object read( final Column column )
+        {
+            if ( decodedRecord != null )
+            {
+                return column.reader.apply( decodedRecord );
+            }
+
+            final int ordinal = column.ordinal();
+            if ( ordinal + 1 >= columnStarts.length )
+            {
+                return column.valueType == ValueType.BOOLEAN ? Boolean.FALSE : null;
+            }
+
+            final int start = columnStarts[ordinal];
+            final int end = columnStarts[ordinal + 1] - 1;
+            return decodeValue( column.valueType, encodedValue, start, end );
+        }
+
+        String readString( final Column column )
+        {
+            return ( String ) read( column );
+        }
+
+        Instant readInstant( final Column column )
+        {
+            return ( Instant ) read( column );
+        }
+
+        boolean readBoolean( final Column column )
+        {
+            return ( Boolean ) read( column );
+        }
+
+        UserCacheRecord toRecord( )
+        {
+            if ( decodedRecord != null )
+            {
+                return decodedRecord;
+            }
+
+            final UserCacheRecord.UserCacheRecordBuilder builder = UserCacheRecord.builder();
+            for ( final Column column : COLUMNS )
+            {
+                final Object value = read( column );
+                if ( value != null )
+                {
+                    column.writer.accept( builder, value );
+                }
+            }
+            return builder.build();
+        }
+
+        /**
+         * Start offset of each column, with one extra entry one past the end of the last column.
+         */
+        private static int[] indexColumns( final String encodedValue )
+        {
+            final int[] starts = new int[COLUMNS.length + 1];
+            int columnCount = 0;
+            starts[columnCount++] = COMPACT_ENCODING_PREFIX.length();
+            int index = encodedValue.indexOf( DELIMITER, COMPACT_ENCODING_PREFIX.length() );
+            while ( index >= 0 && columnCount < COLUMNS.length )
+            {
+                starts[columnCount++] = index + 1;
+                index = encodedValue.indexOf( DELIMITER, index + 1 );
+            }
+            starts[columnCount++] = ( index >= 0 ? index : encodedValue.length() ) + 1;
+
+            final int[] returnValue = new int[columnCount];
+            System.arraycopy( starts, 0, returnValue, 0, columnCount );
+            return returnValue;
+        }
+    }
+
+    private static void encodeValue( final StringBuilder sb, final ValueType valueType, final Object value )
+    {
+        if ( value == null )
+        {
+            return;
+        }
+
+        switch ( valueType )
+        {
+            case STRING:
+                escape( sb, ( String ) value );
+                break;
+
+            case INSTANT:
+                sb.append( Long.toString( ( ( Instant ) value ).toEpochMilli(), RADIX ) );
+                break;
+
+            case BOOLEAN:
+                sb.append( ( Boolean ) value ? '1' : '0' );
+                break;
+
+            case PASSWORD_STATUS:
+            {
+                final PasswordStatus passwordStatus = ( PasswordStatus ) value;
+                final int flags = ( passwordStatus.isExpired() ? 1 : 0 )
+                        | ( passwordStatus.isPreExpired() ? 2 : 0 )
+                        | ( passwordStatus.isViolatesPolicy() ? 4 : 0 )
+                        | ( passwordStatus.isWarnPeriod() ? 8 : 0 );
+                sb.append( flags );
+            }
+            break;
+
+            case STORAGE_METHOD:
+            case FORMAT_TYPE:
+                sb.append( ( ( Enum ) value ).name() );
+                break;
+
+            default:
+                JavaHelper.unhandledSwitchStatement( valueType );
+        }
+    }
+
+    private static Object decodeValue( final ValueType valueType, final String encodedValue, final int start, final int end )
+    {
+        if ( start >= end )
+        {
+            return valueType == ValueType.BOOLEAN ? Boolean.FALSE : null;
+        }
+
+        switch ( valueType )
+        {
+            case STRING:
+                return unescape( encodedValue, start, end );
+
+            case INSTANT:
+                return Instant.ofEpochMilli( Long.parseLong( encodedValue.substring( start, end ), RADIX ) );
+
+            case BOOLEAN:
+                return encodedValue.charAt( start ) == '1';
+
+            case PASSWORD_STATUS:
+            {
+                final int flags = Integer.parseInt( encodedValue.substring( start, end ) );
+                return PasswordStatus.builder()
+                        .expired( ( flags & 1 ) != 0 )
+                        .preExpired( ( flags & 2 ) != 0 )
+                        .violatesPolicy( ( flags & 4 ) != 0 )
+                        .warnPeriod( ( flags & 8 ) != 0 )
+                        .build();
+            }
+
+            case STORAGE_METHOD:
+                return JavaHelper.readEnumFromString( DataStorageMethod.class, null, encodedValue.substring( start, end ) );
+
+            case FORMAT_TYPE:
+                return JavaHelper.readEnumFromString( Answer.FormatType.class, null, encodedValue.substring( start, end ) );
+
+            default:
+                JavaHelper.unhandledSwitchStatement( valueType );
+        }
+        return null;
+    }
+
+    private static void escape( final StringBuilder sb, final String value )
+    {
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            final char c = value.charAt( i );
+            if ( c == ESCAPE )
+            {
+                sb.append( ESCAPE ).append( ESCAPE );
+            }
+            else if ( c == DELIMITER )
+            {
+                sb.append( ESCAPE ).append( ESCAPED_DELIMITER );
+            }
+            else
+            {
+                sb.append( c );
+            }
+        }
+    }
+
+    private static String unescape( final String encodedValue, final int start, final int end )
+    {
+        final int firstEscape = encodedValue.indexOf( ESCAPE, start );
+        if ( firstEscape < 0 || firstEscape >= end )
+        {
+            return encodedValue.substring( start, end );
+        }
+
+        final StringBuilder sb = new StringBuilder( end - start );
+        int index = start;
+        while ( index < end )
+        {
+            final char c = encodedValue.charAt( index );
+            if ( c == ESCAPE && index + 1 < end )
+            {
+                final char escaped = encodedValue.charAt( index + 1 );
+                sb.append( escaped == ESCAPED_DELIMITER ? DELIMITER : escaped );
+                index += 2;
+            }
+            else
+            {
+                sb.append( c );
+                index++;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -22,6 +22,7 @@ package password.pwm.svc.report;
 
 import com.google.gson.JsonSyntaxException;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.bean.UserIdentity;
 import password.pwm.config.option.DataStorageMethod;
@@ -32,7 +33,7 @@ import password.pwm.ldap.LdapOperationsHelper;
 import password.pwm.ldap.UserInfo;
 import password.pwm.svc.PwmService;
 import password.pwm.util.java.ClosableIterator;
-import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.logging.PwmLogger;
@@ -40,14 +41,22 @@ import password.pwm.util.secure.SecureService;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 public class UserCacheService implements PwmService
 {
 
     private static final PwmLogger LOGGER = PwmLogger.forClass( UserCacheService.class );
 
+    private static final int STORE_LOCK_STRIPES = 64;
+
     private CacheStoreWrapper cacheStore;
     private STATUS status;
+    private volatile BiConsumer<UserCacheRecord, UserCacheRecord> storeListener;
+
+    private final Lock[] storeLocks = makeStoreLocks();
 
     private PwmApplication pwmApplication;
 
@@ -82,14 +91,60 @@ public class UserCacheService implements PwmService
 
     UserCacheRecord readStorageKey( final StorageKey storageKey ) throws LocalDBException
     {
-        return cacheStore.read( storageKey );
+        final UserCacheRecordCodec.RecordView recordView = cacheStore.readView( storageKey );
+        if ( recordView == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            return recordView.toRecord();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            LOGGER.error( "error decoding record from cache store for key=" + storageKey.getKey() + ", error: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    UserCacheRecordCodec.RecordView readStorageKeyView( final StorageKey storageKey ) throws LocalDBException
+    {
+        return cacheStore.readView( storageKey );
+    }
+
+    /**
+     * Set a listener that is called with the previously stored record (or null) and the new record each time a
+     * record is stored.  Stores of the same record are serialized so the listener sees each replacement once.
+     */
+    void setStoreListener( final BiConsumer<UserCacheRecord, UserCacheRecord> storeListener )
+    {
+        this.storeListener = storeListener;
     }
 
     public void store( final UserCacheRecord userCacheRecord )
             throws LocalDBException, PwmUnrecoverableException
     {
         final StorageKey storageKey = StorageKey.fromUserGUID( userCacheRecord.getUserGUID(), pwmApplication );
-        cacheStore.write( storageKey, userCacheRecord );
+        final BiConsumer<UserCacheRecord, UserCacheRecord> localListener = storeListener;
+        if ( localListener == null )
+        {
+            cacheStore.write( storageKey, userCacheRecord );
+            return;
+        }
+
+        final Lock lock = storeLocks[Math.floorMod( storageKey.getKey().hashCode(), storeLocks.length )];
+        lock.lock();
+        try
+        {
+            final UserCacheRecord previousRecord = readStorageKey( storageKey );
+            cacheStore.write( storageKey, userCacheRecord );
+            localListener.accept( previousRecord, userCacheRecord );
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     public void clear( )
@@ -147,7 +202,11 @@ public class UserCacheService implements PwmService
     {
         status = STATUS.OPENING;
         this.pwmApplication = pwmApplication;
-        this.cacheStore = new CacheStoreWrapper( pwmApplication.getLocalDB() );
+        final UserCacheRecordCodec.Encoding encoding = JavaHelper.readEnumFromString(
+                UserCacheRecordCodec.Encoding.class,
+                UserCacheRecordCodec.Encoding.COMPACT,
+                pwmApplication.getConfig().readAppProperty( AppProperty.REPORTING_USER_CACHE_ENCODING ) );
+        this.cacheStore = new CacheStoreWrapper( pwmApplication.getLocalDB(), encoding );
         status = STATUS.OPEN;
     }
 
@@ -211,33 +270,45 @@ public class UserCacheService implements PwmService
         }
     }
 
+    private static Lock[] makeStoreLocks( )
+    {
+        final Lock[] locks = new Lock[STORE_LOCK_STRIPES];
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
     private static class CacheStoreWrapper
     {
         private static final LocalDB.DB DB = LocalDB.DB.USER_CACHE;
 
         private final LocalDB localDB;
+        private final UserCacheRecordCodec.Encoding encoding;
 
-        private CacheStoreWrapper( final LocalDB localDB )
+        private CacheStoreWrapper( final LocalDB localDB, final UserCacheRecordCodec.Encoding encoding )
         {
             this.localDB = localDB;
+            this.encoding = encoding;
         }
 
         private void write( final StorageKey key, final UserCacheRecord cacheBean )
                 throws LocalDBException
         {
-            final String jsonValue = JsonUtil.serialize( cacheBean );
-            localDB.put( DB, key.getKey(), jsonValue );
+            final String encodedValue = UserCacheRecordCodec.encode( cacheBean, encoding );
+            localDB.put( DB, key.getKey(), encodedValue );
         }
 
-        private UserCacheRecord read( final StorageKey key )
+        private UserCacheRecordCodec.RecordView readView( final StorageKey key )
                 throws LocalDBException
         {
-            final String jsonValue = localDB.get( DB, key.getKey() );
-            if ( jsonValue != null && !jsonValue.isEmpty() )
+            final String encodedValue = localDB.get( DB, key.getKey() );
+            if ( encodedValue != null && !encodedValue.isEmpty() )
             {
                 try
                 {
-                    return JsonUtil.deserialize( jsonValue, UserCacheRecord.class );
+                    return UserCacheRecordCodec.view( encodedValue );
                 }
                 catch ( JsonSyntaxException e )
                 {
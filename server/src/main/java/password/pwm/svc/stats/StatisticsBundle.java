@@ -20,31 +20,34 @@
 
 package password.pwm.svc.stats;
 
-import password.pwm.util.java.AtomicLoopLongIncrementer;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
 
 import java.io.Serializable;
 import java.math.BigInteger;
-import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Counters and averages for one statistics period.  Updates go to {@link LongAdder} cells so concurrent requests
+ * incrementing the same statistic do not contend on a shared lock or value.
+ */
 public class StatisticsBundle
 {
-    private final Map<Statistic, AtomicLoopLongIncrementer> incrementerMap = new EnumMap<>( Statistic.class );
-    private final Map<AvgStatistic, AverageBean> avgMap = new EnumMap<>( AvgStatistic.class );
+    private final LongAdder[] counters = new LongAdder[Statistic.values().length];
+    private final AverageCell[] averages = new AverageCell[AvgStatistic.values().length];
 
     StatisticsBundle( )
     {
         for ( final Statistic statistic : Statistic.values() )
         {
-            incrementerMap.put( statistic, new AtomicLoopLongIncrementer( 0, Long.MAX_VALUE ) );
+            counters[statistic.ordinal()] = new LongAdder();
         }
         for ( final AvgStatistic avgStatistic : AvgStatistic.values() )
         {
-            avgMap.put( avgStatistic, new AverageBean() );
+            averages[avgStatistic.ordinal()] = new AverageCell();
         }
     }
 
@@ -54,7 +57,7 @@ public class StatisticsBundle
 
         for ( final Statistic statistic : Statistic.values() )
         {
-            final long currentValue = incrementerMap.get( statistic ).get();
+            final long currentValue = counters[statistic.ordinal()].sum();
             if ( currentValue > 0 )
             {
                 outputMap.put( statistic.name(), Long.toString( currentValue ) );
@@ -62,7 +65,7 @@ public class StatisticsBundle
         }
         for ( final AvgStatistic epsStatistic : AvgStatistic.values() )
         {
-            final AverageBean averageBean = avgMap.get( epsStatistic );
+            final AverageBean averageBean = averages[epsStatistic.ordinal()].toBean();
             if ( !averageBean.isZero() )
             {
                 outputMap.put( epsStatistic.name(), JsonUtil.serialize( averageBean ) );
@@ -83,8 +86,7 @@ public class StatisticsBundle
             if ( !StringUtil.isEmpty( value ) )
             {
                 final long longValue = JavaHelper.silentParseLong( value, 0 );
-                final AtomicLoopLongIncrementer incrementer = new AtomicLoopLongIncrementer( longValue, Long.MAX_VALUE );
-                bundle.incrementerMap.put( loopStat, incrementer );
+                bundle.counters[loopStat.ordinal()].add( Math.max( 0, longValue ) );
             }
         }
 
@@ -94,7 +96,7 @@ public class StatisticsBundle
             if ( !StringUtil.isEmpty( value ) )
             {
                 final AverageBean avgBean = JsonUtil.deserialize( value, AverageBean.class );
-                bundle.avgMap.put( loopStat, avgBean );
+                bundle.averages[loopStat.ordinal()].add( avgBean );
             }
         }
 
@@ -103,24 +105,56 @@ public class StatisticsBundle
 
     void incrementValue( final Statistic statistic )
     {
-        incrementerMap.get( statistic ).incrementAndGet();
+        counters[statistic.ordinal()].increment();
     }
 
     void updateAverageValue( final AvgStatistic statistic, final long timeDuration )
     {
-        avgMap.get( statistic ).appendValue( timeDuration );
+        averages[statistic.ordinal()].appendValue( timeDuration );
     }
 
     public String getStatistic( final Statistic statistic )
     {
-        return Long.toString( incrementerMap.get( statistic ).get() );
+        return Long.toString( counters[statistic.ordinal()].sum() );
     }
 
     public String getAvgStatistic( final AvgStatistic statistic )
     {
-        return avgMap.get( statistic ).getAverage().toString();
+        return averages[statistic.ordinal()].toBean().getAverage().toString();
     }
 
+    private static class AverageCell
+    {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        void appendValue( final long value )
+        {
+            total.add( value );
+            count.increment();
+        }
+
+        void add( final AverageBean averageBean )
+        {
+            if ( averageBean != null && averageBean.total != null && averageBean.count != null )
+            {
+                total.add( averageBean.total.longValue() );
+                count.add( averageBean.count.longValue() );
+            }
+        }
+
+        AverageBean toBean( )
+        {
+            // count is read before total, so a concurrent update can only skew the average slightly upward.
+            final long countValue = count.sum();
+            final long totalValue = total.sum();
+            return new AverageBean( BigInteger.valueOf( totalValue ), BigInteger.valueOf( countValue ) );
+        }
+    }
+
+    /**
+     * Stored form of an average, kept for compatibility with previously stored bundles.
+     */
     private static class AverageBean implements Serializable
     {
         BigInteger total = BigInteger.ZERO;
@@ -130,7 +164,13 @@ public class StatisticsBundle
         {
         }
 
-        synchronized BigInteger getAverage( )
+        AverageBean( final BigInteger total, final BigInteger count )
+        {
+            this.total = total;
+            this.count = count;
+        }
+
+        BigInteger getAverage( )
         {
             if ( BigInteger.ZERO.equals( count ) )
             {
@@ -140,13 +180,7 @@ public class StatisticsBundle
             return total.divide( count );
         }
 
-        synchronized void appendValue( final long value )
-        {
-            count = count.add( BigInteger.ONE );
-            total = total.add( BigInteger.valueOf( value ) );
-        }
-
-        synchronized boolean isZero()
+        boolean isZero()
         {
             return total.equals( BigInteger.ZERO );
         }
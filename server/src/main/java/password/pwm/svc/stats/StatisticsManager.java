@@ -21,6 +21,7 @@
 package password.pwm.svc.stats;
 
 import org.apache.commons.csv.CSVPrinter;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.config.option.DataStorageMethod;
@@ -42,8 +43,8 @@ import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -77,9 +78,12 @@ public class StatisticsManager implements PwmService
     private ExecutorService executorService;
 
     private final StatisticsBundle statsCurrent = new StatisticsBundle();
-    private StatisticsBundle statsDaily = new StatisticsBundle();
-    private StatisticsBundle statsCummulative = new StatisticsBundle();
-    private Map<EpsKey, EventRateMeter> epsMeterMap = new HashMap<>();
+    private volatile StatisticsBundle statsDaily = new StatisticsBundle();
+    private volatile StatisticsBundle statsCummulative = new StatisticsBundle();
+    private volatile StatisticsTimeSeries statsTimeSeries;
+
+    // indexed by [EpsStatistic.ordinal()][EpsDuration.ordinal()]
+    private final EventRateMeter[][] epsMeters = new EventRateMeter[EpsStatistic.values().length][Statistic.EpsDuration.values().length];
 
     private PwmApplication pwmApplication;
 
@@ -97,9 +101,12 @@ public class StatisticsManager implements PwmService
 
     public StatisticsManager( )
     {
-        for ( final EpsKey epsKey : EpsKey.allKeys() )
+        for ( final EpsStatistic epsStatistic : EpsStatistic.values() )
         {
-            epsMeterMap.put( epsKey, new EventRateMeter( epsKey.getEpsDuration().getTimeDuration() ) );
+            for ( final Statistic.EpsDuration epsDuration : Statistic.EpsDuration.values() )
+            {
+                epsMeters[epsStatistic.ordinal()][epsDuration.ordinal()] = new EventRateMeter( epsDuration.getTimeDuration() );
+            }
         }
     }
 
@@ -108,6 +115,12 @@ public class StatisticsManager implements PwmService
         statsCurrent.incrementValue( statistic );
         statsDaily.incrementValue( statistic );
         statsCummulative.incrementValue( statistic );
+
+        final StatisticsTimeSeries timeSeries = statsTimeSeries;
+        if ( timeSeries != null )
+        {
+            timeSeries.incrementValue( statistic );
+        }
     }
 
     public void updateAverageValue( final AvgStatistic statistic, final long value )
@@ -115,6 +128,30 @@ public class StatisticsManager implements PwmService
         statsCurrent.updateAverageValue( statistic, value );
         statsDaily.updateAverageValue( statistic, value );
         statsCummulative.updateAverageValue( statistic, value );
+
+        final StatisticsTimeSeries timeSeries = statsTimeSeries;
+        if ( timeSeries != null )
+        {
+            timeSeries.updateAverageValue( statistic, value );
+        }
+    }
+
+    /**
+     * Per-minute values of a statistic for the most recent minutes, oldest first.  Empty if the time series is disabled.
+     */
+    public Map<Instant, Long> getMinuteHistory( final Statistic statistic, final int minutes )
+    {
+        final StatisticsTimeSeries timeSeries = statsTimeSeries;
+        return timeSeries == null ? Collections.emptyMap() : timeSeries.history( statistic, minutes );
+    }
+
+    /**
+     * Per-minute averages of a statistic for the most recent minutes, oldest first.  Empty if the time series is disabled.
+     */
+    public Map<Instant, Long> getMinuteAverageHistory( final AvgStatistic statistic, final int minutes )
+    {
+        final StatisticsTimeSeries timeSeries = statsTimeSeries;
+        return timeSeries == null ? Collections.emptyMap() : timeSeries.averageHistory( statistic, minutes );
     }
 
     public Map<String, String> getStatHistory( final Statistic statistic, final int days )
@@ -288,6 +325,8 @@ public class StatisticsManager implements PwmService
         localDB.put( LocalDB.DB.PWM_STATS, DB_KEY_VERSION, DB_VALUE_VERSION );
         localDB.put( LocalDB.DB.PWM_STATS, DB_KEY_INITIAL_DAILY_KEY, initialDailyKey.toString() );
 
+        initTimeSeries();
+
         {
             // setup a timer to roll over at 0 Zulu and one to write current stats regularly
             executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
@@ -298,6 +337,53 @@ public class StatisticsManager implements PwmService
         status = STATUS.OPEN;
     }
 
+    private void initTimeSeries( )
+            throws LocalDBException
+    {
+        final int minutes = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.STATISTICS_TIME_SERIES_MINUTES ) );
+        if ( minutes <= 0 )
+        {
+            return;
+        }
+
+        final StatisticsTimeSeries timeSeries = new StatisticsTimeSeries( minutes );
+        final List<String> seriesKeys = new ArrayList<>();
+        try ( LocalDB.LocalDBIterator<String> iterator = localDB.iterator( LocalDB.DB.PWM_STATS ) )
+        {
+            while ( iterator.hasNext() )
+            {
+                final String key = iterator.next();
+                if ( timeSeries.isSeriesKey( key ) )
+                {
+                    seriesKeys.add( key );
+                }
+            }
+        }
+
+        final List<String> outdatedKeys = new ArrayList<>();
+        int restoredCount = 0;
+        for ( final String key : seriesKeys )
+        {
+            if ( timeSeries.restore( key, localDB.get( LocalDB.DB.PWM_STATS, key ) ) )
+            {
+                restoredCount++;
+            }
+            else
+            {
+                outdatedKeys.add( key );
+            }
+        }
+
+        if ( !outdatedKeys.isEmpty() )
+        {
+            localDB.removeAll( LocalDB.DB.PWM_STATS, outdatedKeys );
+        }
+
+        final int finalRestoredCount = restoredCount;
+        LOGGER.trace( () -> "restored " + finalRestoredCount + " statistics time series minutes, removed " + outdatedKeys.size() + " outdated minutes" );
+        statsTimeSeries = timeSeries;
+    }
+
     private void writeDbValues( )
     {
         if ( localDB != null && status == STATUS.OPEN )
@@ -307,7 +393,15 @@ public class StatisticsManager implements PwmService
                 final Map<String, String> dbData = new LinkedHashMap<>();
                 dbData.put( DB_KEY_CUMULATIVE, statsCummulative.output() );
                 dbData.put( currentDailyKey.toString(), statsDaily.output() );
-                localDB.putAll( LocalDB.DB.PWM_STATS, dbData );
+
+                final StatisticsTimeSeries timeSeries = statsTimeSeries;
+                final Collection<String> expiredKeys = timeSeries == null ? Collections.emptyList() : timeSeries.takeExpiredKeys();
+                if ( timeSeries != null )
+                {
+                    dbData.putAll( timeSeries.takeModifiedRecords() );
+                }
+
+                localDB.removeAllAndPutAll( LocalDB.DB.PWM_STATS, expiredKeys, dbData );
             }
             catch ( LocalDBException e )
             {
@@ -383,17 +477,15 @@ public class StatisticsManager implements PwmService
 
     public void updateEps( final EpsStatistic type, final int itemCount )
     {
-        for ( final Statistic.EpsDuration duration : Statistic.EpsDuration.values() )
+        for ( final EventRateMeter eventRateMeter : epsMeters[type.ordinal()] )
         {
-            final EpsKey epsKey = new EpsKey( type, duration );
-            epsMeterMap.get( epsKey ).markEvents( itemCount );
+            eventRateMeter.markEvents( itemCount );
         }
     }
 
     public BigDecimal readEps( final EpsStatistic type, final Statistic.EpsDuration duration )
     {
-        final EpsKey epsKey = new EpsKey( type, duration );
-        return epsMeterMap.get( epsKey ).readEventRate();
+        return epsMeters[type.ordinal()][duration.ordinal()].readEventRate();
     }
 
 
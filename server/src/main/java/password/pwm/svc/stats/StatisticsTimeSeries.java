@@ -0,0 +1,374 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.stats;
+
+import lombok.Value;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-minute counters and averages for a fixed number of recent minutes.  Buckets are kept in a ring indexed by
+ * epoch minute; a bucket is replaced the first time its slot is used for a newer minute.  Modified buckets are
+ * handed to {@link StatisticsManager} to be persisted, one LocalDB record per minute.
+ */
+class StatisticsTimeSeries
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( StatisticsTimeSeries.class );
+
+    static final String DB_KEY_PREFIX = "MINUTE_";
+
+    private final int minutes;
+    private final LongSupplier clock;
+    private final AtomicReferenceArray<MinuteBucket> buckets;
+    private final Queue<String> expiredKeys = new ConcurrentLinkedQueue<>();
+
+    StatisticsTimeSeries( final int minutes )
+    {
+        this( minutes, System::currentTimeMillis );
+    }
+
+    StatisticsTimeSeries( final int minutes, final LongSupplier clock )
+    {
+        this.minutes = minutes;
+        this.clock = clock;
+        this.buckets = new AtomicReferenceArray<>( minutes );
+    }
+
+    void incrementValue( final Statistic statistic )
+    {
+        final MinuteBucket bucket = bucketForMinute( currentMinute() );
+        if ( bucket != null )
+        {
+            bucket.counter( statistic.ordinal() ).increment();
+            bucket.markDirty();
+        }
+    }
+
+    void updateAverageValue( final AvgStatistic statistic, final long value )
+    {
+        final MinuteBucket bucket = bucketForMinute( currentMinute() );
+        if ( bucket != null )
+        {
+            bucket.averageTotal( statistic.ordinal() ).add( value );
+            bucket.averageCount( statistic.ordinal() ).increment();
+            bucket.markDirty();
+        }
+    }
+
+    /**
+     * Counter values for the most recent minutes, oldest first.  Minutes without any recorded events are included with a zero value.
+     */
+    Map<Instant, Long> history( final Statistic statistic, final int historyMinutes )
+    {
+        final Map<Instant, Long> returnMap = new LinkedHashMap<>();
+        final long currentMinute = currentMinute();
+        for ( long minute = currentMinute - Math.min( historyMinutes, minutes ) + 1; minute <= currentMinute; minute++ )
+        {
+            final MinuteBucket bucket = existingBucket( minute );
+            returnMap.put( minuteToInstant( minute ), bucket == null ? 0 : bucket.sum( bucket.counters, statistic.ordinal() ) );
+        }
+        return returnMap;
+    }
+
+    /**
+     * Average values for the most recent minutes, oldest first.  Minutes without any recorded values are included with a zero value.
+     */
+    Map<Instant, Long> averageHistory( final AvgStatistic statistic, final int historyMinutes )
+    {
+        final Map<Instant, Long> returnMap = new LinkedHashMap<>();
+        final long currentMinute = currentMinute();
+        for ( long minute = currentMinute - Math.min( historyMinutes, minutes ) + 1; minute <= currentMinute; minute++ )
+        {
+            final MinuteBucket bucket = existingBucket( minute );
+            long average = 0;
+            if ( bucket != null )
+            {
+                final long count = bucket.sum( bucket.averageCounts, statistic.ordinal() );
+                average = count == 0 ? 0 : bucket.sum( bucket.averageTotals, statistic.ordinal() ) / count;
+            }
+            returnMap.put( minuteToInstant( minute ), average );
+        }
+        return returnMap;
+    }
+
+    /**
+     * Collect the records of buckets modified since the previous call.
+     */
+    Map<String, String> takeModifiedRecords( )
+    {
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        for ( int i = 0; i < buckets.length(); i++ )
+        {
+            final MinuteBucket bucket = buckets.get( i );
+            if ( bucket != null && bucket.clearDirty() )
+            {
+                returnMap.put( makeKey( bucket.minute ), JsonUtil.serialize( bucket.toRecord() ) );
+            }
+        }
+        return returnMap;
+    }
+
+    /**
+     * Collect the keys of persisted buckets that have fallen out of the ring since the previous call.
+     */
+    Collection<String> takeExpiredKeys( )
+    {
+        final List<String> returnList = new ArrayList<>();
+        String key = expiredKeys.poll();
+        while ( key != null )
+        {
+            returnList.add( key );
+            key = expiredKeys.poll();
+        }
+        return returnList;
+    }
+
+    boolean isSeriesKey( final String key )
+    {
+        return key != null && key.startsWith( DB_KEY_PREFIX );
+    }
+
+    /**
+     * Restore a persisted bucket.
+     *
+     * @return false if the record is outside the time series window or unreadable, in which case it should be removed.
+     */
+    boolean restore( final String key, final String value )
+    {
+        try
+        {
+            final long minute = Long.parseLong( key.substring( DB_KEY_PREFIX.length() ) );
+            if ( minute <= currentMinute() - minutes || minute > currentMinute() )
+            {
+                return false;
+            }
+
+            final MinuteBucket bucket = bucketForMinute( minute );
+            if ( bucket == null )
+            {
+                return false;
+            }
+
+            final MinuteRecord record = JsonUtil.deserialize( value, MinuteRecord.class );
+            bucket.add( record );
+            return true;
+        }
+        catch ( Exception e )
+        {
+            LOGGER.debug( () -> "discarding unreadable statistics time series record " + key + ": " + JavaHelper.readHostileExceptionMessage( e ) );
+            return false;
+        }
+    }
+
+    private long currentMinute( )
+    {
+        return TimeUnit.MILLISECONDS.toMinutes( clock.getAsLong() );
+    }
+
+    private static Instant minuteToInstant( final long minute )
+    {
+        return Instant.ofEpochMilli( TimeUnit.MINUTES.toMillis( minute ) );
+    }
+
+    private static String makeKey( final long minute )
+    {
+        return DB_KEY_PREFIX + minute;
+    }
+
+    private MinuteBucket existingBucket( final long minute )
+    {
+        final MinuteBucket bucket = buckets.get( ( int ) Math.floorMod( minute, ( long ) minutes ) );
+        return bucket != null && bucket.minute == minute ? bucket : null;
+    }
+
+    private MinuteBucket bucketForMinute( final long minute )
+    {
+        final int index = ( int ) Math.floorMod( minute, ( long ) minutes );
+        while ( true )
+        {
+            final MinuteBucket existingBucket = buckets.get( index );
+            if ( existingBucket != null && existingBucket.minute == minute )
+            {
+                return existingBucket;
+            }
+
+            if ( existingBucket != null && existingBucket.minute > minute )
+            {
+                // slot already holds a newer minute, the value is too old to keep
+                return null;
+            }
+
+            final MinuteBucket newBucket = new MinuteBucket( minute );
+            if ( buckets.compareAndSet( index, existingBucket, newBucket ) )
+            {
+                if ( existingBucket != null )
+                {
+                    expiredKeys.add( makeKey( existingBucket.minute ) );
+                }
+                return newBucket;
+            }
+        }
+    }
+
+    private static class MinuteBucket
+    {
+        private final long minute;
+        private final AtomicReferenceArray<LongAdder> counters = new AtomicReferenceArray<>( Statistic.values().length );
+        private final AtomicReferenceArray<LongAdder> averageTotals = new AtomicReferenceArray<>( AvgStatistic.values().length );
+        private final AtomicReferenceArray<LongAdder> averageCounts = new AtomicReferenceArray<>( AvgStatistic.values().length );
+        private volatile boolean dirty;
+
+        MinuteBucket( final long minute )
+        {
+            this.minute = minute;
+        }
+
+        LongAdder counter( final int index )
+        {
+            return cell( counters, index );
+        }
+
+        LongAdder averageTotal( final int index )
+        {
+            return cell( averageTotals, index );
+        }
+
+        LongAdder averageCount( final int index )
+        {
+            return cell( averageCounts, index );
+        }
+
+        void markDirty( )
+        {
+            if ( !dirty )
+            {
+                dirty = true;
+            }
+        }
+
+        boolean clearDirty( )
+        {
+            if ( dirty )
+            {
+                dirty = false;
+                return true;
+            }
+            return false;
+        }
+
+        long sum( final AtomicReferenceArray<LongAdder> cells, final int index )
+        {
+            final LongAdder cell = cells.get( index );
+            return cell == null ? 0 : cell.sum();
+        }
+
+        MinuteRecord toRecord( )
+        {
+            final Map<String, Long> counterValues = new HashMap<>();
+            for ( final Statistic statistic : Statistic.values() )
+            {
+                final long value = sum( counters, statistic.ordinal() );
+                if ( value != 0 )
+                {
+                    counterValues.put( statistic.name(), value );
+                }
+            }
+
+            final Map<String, long[]> averageValues = new HashMap<>();
+            for ( final AvgStatistic statistic : AvgStatistic.values() )
+            {
+                final long count = sum( averageCounts, statistic.ordinal() );
+                if ( count != 0 )
+                {
+                    averageValues.put( statistic.name(), new long[] { sum( averageTotals, statistic.ordinal() ), count } );
+                }
+            }
+
+            return new MinuteRecord( counterValues, averageValues );
+        }
+
+        void add( final MinuteRecord record )
+        {
+            if ( record.getCounters() != null )
+            {
+                for ( final Map.Entry<String, Long> entry : record.getCounters().entrySet() )
+                {
+                    final Statistic statistic = JavaHelper.readEnumFromString( Statistic.class, null, entry.getKey() );
+                    if ( statistic != null && entry.getValue() != null )
+                    {
+                        counter( statistic.ordinal() ).add( entry.getValue() );
+                    }
+                }
+            }
+
+            if ( record.getAverages() != null )
+            {
+                for ( final Map.Entry<String, long[]> entry : record.getAverages().entrySet() )
+                {
+                    final AvgStatistic statistic = JavaHelper.readEnumFromString( AvgStatistic.class, null, entry.getKey() );
+                    if ( statistic != null && entry.getValue() != null && entry.getValue().length == 2 )
+                    {
+                        averageTotal( statistic.ordinal() ).add( entry.getValue()[0] );
+                        averageCount( statistic.ordinal() ).add( entry.getValue()[1] );
+                    }
+                }
+            }
+        }
+
+        private static LongAdder cell( final AtomicReferenceArray<LongAdder> cells, final int index )
+        {
+            final LongAdder existingCell = cells.get( index );
+            if ( existingCell != null )
+            {
+                return existingCell;
+            }
+
+            cells.compareAndSet( index, null, new LongAdder() );
+            return cells.get( index );
+        }
+    }
+
+    @Value
+    private static class MinuteRecord implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, Long> counters;
+        private final Map<String, long[]> averages;
+    }
+}
@@ -27,7 +27,6 @@ import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.svc.PwmService;
 import password.pwm.util.DataStore;
-import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
@@ -79,21 +78,20 @@ public class DataStoreTokenMachine implements TokenMachine
     private void purgeOutdatedTokens( ) throws
             PwmUnrecoverableException, PwmOperationalException
     {
+        if ( tokenService.status() != PwmService.STATUS.OPEN )
+        {
+            return;
+        }
+
         final Instant startTime = Instant.now();
         {
             final long finalSize = size();
             LOGGER.trace( () -> "beginning purge cycle; database size = " + finalSize );
         }
-        try ( ClosableIterator<String> keyIterator = dataStore.iterator() )
+        try
         {
-            while ( tokenService.status() == PwmService.STATUS.OPEN && keyIterator.hasNext() )
-            {
-                final String storedHash = keyIterator.next();
-                final TokenKey loopKey = keyFromStoredHash( storedHash );
-
-                // retrieving token tests validity and causes purging
-                retrieveToken( loopKey );
-            }
+            final int purgedTokens = dataStore.removeWhere( this::storedValueNeedsPurging, () -> tokenService.status() == PwmService.STATUS.OPEN );
+            LOGGER.trace( () -> "purged " + purgedTokens + " expired or unreadable stored tokens" );
         }
         catch ( Exception e )
         {
@@ -106,6 +104,24 @@ public class DataStoreTokenMachine implements TokenMachine
         }
     }
 
+    private boolean storedValueNeedsPurging( final String storedHash, final String storedRawValue )
+    {
+        if ( storedRawValue == null || storedRawValue.length() < 1 )
+        {
+            return false;
+        }
+
+        try
+        {
+            return testIfTokenNeedsPurging( tokenService.fromEncryptedString( storedRawValue ) );
+        }
+        catch ( PwmException e )
+        {
+            LOGGER.trace( () -> "error while trying to decrypted stored token payload for key '" + storedHash + "', will purge record, error: " + e.getMessage() );
+            return true;
+        }
+    }
+
     private boolean testIfTokenNeedsPurging( final TokenPayload theToken )
     {
         if ( theToken == null )
@@ -20,6 +20,8 @@
 
 package password.pwm.svc.wordlist;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import password.pwm.PwmApplication;
 import password.pwm.PwmApplicationMode;
 import password.pwm.PwmConstants;
@@ -43,13 +45,17 @@ import password.pwm.util.logging.PwmLogger;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BooleanSupplier;
 
 abstract class AbstractWordlist implements Wordlist, PwmService
@@ -62,6 +68,10 @@ abstract class AbstractWordlist implements Wordlist, PwmService
     private ExecutorService executorService;
     private Set<WordType> wordTypesCache = null;
 
+    // results of recent checks, keyed by a fingerprint of the checked value and the cache generation
+    private Cache<Long, Boolean> checkCache;
+    private final AtomicLong checkCacheGeneration = new AtomicLong( 0 );
+
     private volatile STATUS wlStatus = STATUS.NEW;
 
     private volatile ErrorInformation lastError;
@@ -87,6 +97,13 @@ abstract class AbstractWordlist implements Wordlist, PwmService
         this.pwmApplication = pwmApplication;
         this.wordlistConfiguration = WordlistConfiguration.fromConfiguration( pwmApplication.getConfig(), type );
 
+        if ( type == WordlistType.WORDLIST && wordlistConfiguration.getCheckCacheMaxEntries() > 0 )
+        {
+            this.checkCache = Caffeine.newBuilder()
+                    .maximumSize( wordlistConfiguration.getCheckCacheMaxEntries() )
+                    .build();
+        }
+
         if ( this.wordlistConfiguration.isTestMode() )
         {
             startTestInstance( type );
@@ -114,7 +131,10 @@ abstract class AbstractWordlist implements Wordlist, PwmService
                 lastError = new ErrorInformation( PwmError.ERROR_SERVICE_NOT_AVAILABLE, errorMsg );
             }
 
-            this.wordlistBucket = new LocalDBWordlistBucket( pwmApplication, wordlistConfiguration, type );
+            final WordlistBucket localDBWordlistBucket = new LocalDBWordlistBucket( pwmApplication, wordlistConfiguration, type );
+            this.wordlistBucket = type == WordlistType.WORDLIST && wordlistConfiguration.isIndexEnabled()
+                    ? new MappedWordlistBucket( pwmApplication, wordlistConfiguration, localDBWordlistBucket )
+                    : localDBWordlistBucket;
         }
 
         executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
@@ -166,7 +186,7 @@ abstract class AbstractWordlist implements Wordlist, PwmService
             throws PwmUnrecoverableException
     {
         final String hashWord = wordType.convertInputFromUser( pwmApplication, wordlistConfiguration, word );
-        return realBucketCheck( hashWord, wordType );
+        return cachedBucketCheck( hashWord, Collections.singleton( hashWord ), wordType );
     }
 
     private boolean checkRawWords( final String word )
@@ -176,26 +196,53 @@ abstract class AbstractWordlist implements Wordlist, PwmService
         final Set<String> testWords = WordlistUtil.chunkWord( normalizedWord, this.wordlistConfiguration.getCheckSize() );
 
         getStatistics().getChunksPerWordCheck().update( testWords.size() );
-        for ( final String t : testWords )
+
+        // all chunks are checked with a single bucket operation
+        return cachedBucketCheck( normalizedWord, testWords, WordType.RAW );
+    }
+
+    private boolean cachedBucketCheck( final String checkValue, final Collection<String> words, final WordType wordType )
+            throws PwmUnrecoverableException
+    {
+        final Cache<Long, Boolean> cache = checkCache;
+        if ( cache == null )
         {
+            return realBucketCheck( words, wordType );
+        }
 
-            // stop checking once found
-            if ( realBucketCheck( t, WordType.RAW ) )
-            {
-                return true;
-            }
+        // the generation is part of the key so a check that races with an invalidation can never store a stale result
+        final long cacheKey = WordlistBloomFilter.fingerprint( checkValue )
+                ^ ( checkCacheGeneration.get() << 8 | wordType.ordinal() );
+
+        final Boolean cachedResult = cache.getIfPresent( cacheKey );
+        if ( cachedResult != null )
+        {
+            getStatistics().getCheckCacheHits().incrementAndGet();
+            return cachedResult;
         }
 
-        return false;
+        getStatistics().getCheckCacheMisses().incrementAndGet();
+        final boolean result = realBucketCheck( words, wordType );
+        cache.put( cacheKey, result );
+        return result;
     }
 
-    private boolean realBucketCheck( final String word, final WordType wordType )
+    private void invalidateCheckCache()
+    {
+        checkCacheGeneration.incrementAndGet();
+        if ( checkCache != null )
+        {
+            checkCache.invalidateAll();
+        }
+    }
+
+    private boolean realBucketCheck( final Collection<String> words, final WordType wordType )
             throws PwmUnrecoverableException
     {
         getStatistics().getWordChecks().incrementAndGet();
 
         final Instant startTime = Instant.now();
-        final boolean isContainsWord = wordlistBucket.containsWord( word );
+        final boolean isContainsWord = wordlistBucket.containsAny( words );
 
         final TimeDuration timeDuration = TimeDuration.fromCurrent( startTime );
         getStatistics().getWordCheckTimeMS().update( timeDuration.asMillis() );
@@ -269,6 +316,11 @@ abstract class AbstractWordlist implements Wordlist, PwmService
                 getLogger().warn( "background thread still running after waiting " + closeWaitTime.asCompactString() );
             }
         }
+
+        if ( wordlistBucket != null )
+        {
+            wordlistBucket.close();
+        }
     }
 
     public STATUS status( )
@@ -322,6 +374,7 @@ abstract class AbstractWordlist implements Wordlist, PwmService
     {
         wordTypesCache = null;
         wordlistBucket.writeWordlistStatus( wordlistStatus );
+        invalidateCheckCache();
     }
 
     @Override
@@ -346,6 +399,7 @@ abstract class AbstractWordlist implements Wordlist, PwmService
         activity = Wordlist.Activity.Clearing;
         writeWordlistStatus( WordlistStatus.builder().build() );
         getWordlistBucket().clear();
+        invalidateCheckCache();
         getLogger().debug( () -> "cleared stored wordlist (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
         setActivity( postCleanActivity );
     }
@@ -358,6 +412,11 @@ abstract class AbstractWordlist implements Wordlist, PwmService
 
     abstract PwmLogger getLogger();
 
+    PwmApplication getPwmApplication()
+    {
+        return pwmApplication;
+    }
+
     WordlistBucket getWordlistBucket()
     {
         return wordlistBucket;
@@ -472,7 +531,12 @@ abstract class AbstractWordlist implements Wordlist, PwmService
     {
         if ( status() == STATUS.OPEN )
         {
-            return new ServiceInfoBean( Collections.singletonList( DataStorageMethod.LOCALDB ), getStatistics().asDebugMap() );
+            final Map<String, String> debugMap = new TreeMap<>( getStatistics().asDebugMap() );
+            if ( checkCache != null )
+            {
+                debugMap.put( "CheckCacheSize", Long.toString( checkCache.estimatedSize() ) );
+            }
+            return new ServiceInfoBean( Collections.singletonList( DataStorageMethod.LOCALDB ), Collections.unmodifiableMap( debugMap ) );
         }
         else
         {
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
 
 public abstract class AbstractWordlistBucket implements WordlistBucket
 {
@@ -144,12 +145,42 @@ public abstract class AbstractWordlistBucket implements WordlistBucket
         return containsKey( word );
     }
 
+    @Override
+    public boolean containsAny( final Collection<String> words ) throws PwmUnrecoverableException
+    {
+        if ( type == WordlistType.SEEDLIST )
+        {
+            throw new IllegalStateException( "unable to containWord check SEEDLIST wordlist" );
+        }
+
+        if ( words.isEmpty() )
+        {
+            return false;
+        }
+
+        if ( words.size() == 1 )
+        {
+            return containsKey( words.iterator().next() );
+        }
+
+        return containsAnyKey( words );
+    }
+
+    @Override
+    public void populationComplete( final WordlistStatus wordlistStatus, final BooleanSupplier cancelFlag )
+            throws PwmUnrecoverableException
+    {
+    }
+
     abstract void putValues( Map<String, String> values )
             throws PwmUnrecoverableException;
 
     abstract boolean containsKey( String key )
             throws PwmUnrecoverableException;
 
+    abstract boolean containsAnyKey( Collection<String> keys )
+            throws PwmUnrecoverableException;
+
     abstract String getValue( String key )
             throws PwmUnrecoverableException;
 }
@@ -0,0 +1,347 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import password.pwm.PwmApplication;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wordlist bucket that answers {@link #containsWord(String)} from a {@link MappedWordlistIndex} once the
+ * stored wordlist population is complete.  All writes, and all checks while no index is available, are
+ * passed through to the wrapped LocalDB bucket.
+ *
+ * <p>A missing index is built on a background thread, lookups use the LocalDB bucket until the build completes.
+ * Lookups hold a read lock while using the index so it is never unmapped while a lookup is in progress.</p>
+ */
+class MappedWordlistBucket implements WordlistBucket
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( MappedWordlistBucket.class );
+    private static final String INDEX_FILE_SUFFIX = ".idx";
+
+    private final PwmApplication pwmApplication;
+    private final WordlistConfiguration wordlistConfiguration;
+    private final WordlistBucket localDBBucket;
+    private final File indexFile;
+
+    private final ExecutorService buildExecutor;
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final AtomicInteger indexGeneration = new AtomicInteger();
+    private final AtomicBoolean buildRunning = new AtomicBoolean( false );
+
+    private MappedWordlistIndex index;
+
+    MappedWordlistBucket(
+            final PwmApplication pwmApplication,
+            final WordlistConfiguration wordlistConfiguration,
+            final WordlistBucket localDBBucket
+    )
+    {
+        this.pwmApplication = pwmApplication;
+        this.wordlistConfiguration = wordlistConfiguration;
+        this.localDBBucket = localDBBucket;
+
+        final LocalDB.DB db = wordlistConfiguration.getDb();
+        this.indexFile = new File( pwmApplication.getLocalDB().getFileLocation(), db.name().toLowerCase() + INDEX_FILE_SUFFIX );
+        this.buildExecutor = PwmScheduler.makeBackgroundExecutor( pwmApplication, MappedWordlistBucket.class );
+    }
+
+    @Override
+    public boolean containsWord( final String hashWord )
+            throws PwmUnrecoverableException
+    {
+        indexLock.readLock().lock();
+        try
+        {
+            if ( index != null )
+            {
+                return index.containsWord( hashWord );
+            }
+        }
+        finally
+        {
+            indexLock.readLock().unlock();
+        }
+
+        return localDBBucket.containsWord( hashWord );
+    }
+
+    @Override
+    public boolean containsAny( final Collection<String> hashWords )
+            throws PwmUnrecoverableException
+    {
+        indexLock.readLock().lock();
+        try
+        {
+            if ( index != null )
+            {
+                for ( final String hashWord : hashWords )
+                {
+                    if ( index.containsWord( hashWord ) )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        finally
+        {
+            indexLock.readLock().unlock();
+        }
+
+        return localDBBucket.containsAny( hashWords );
+    }
+
+    @Override
+    public String randomSeed()
+            throws PwmUnrecoverableException
+    {
+        return localDBBucket.randomSeed();
+    }
+
+    @Override
+    public void addWords( final Collection<String> words, final AbstractWordlist abstractWordlist )
+            throws PwmUnrecoverableException
+    {
+        discardIndex();
+        localDBBucket.addWords( words, abstractWordlist );
+    }
+
+    @Override
+    public long size()
+            throws PwmUnrecoverableException
+    {
+        return localDBBucket.size();
+    }
+
+    @Override
+    public void clear()
+            throws PwmUnrecoverableException
+    {
+        discardIndex();
+        localDBBucket.clear();
+    }
+
+    @Override
+    public WordlistStatus readWordlistStatus()
+    {
+        return localDBBucket.readWordlistStatus();
+    }
+
+    @Override
+    public void writeWordlistStatus( final WordlistStatus wordlistStatus )
+    {
+        localDBBucket.writeWordlistStatus( wordlistStatus );
+    }
+
+    @Override
+    public long spaceRemaining()
+    {
+        return localDBBucket.spaceRemaining();
+    }
+
+    @Override
+    public void populationComplete( final WordlistStatus wordlistStatus, final BooleanSupplier cancelFlag )
+            throws PwmUnrecoverableException
+    {
+        if ( !wordlistStatus.isCompleted() || hasIndex() )
+        {
+            return;
+        }
+
+        final String statusTag = makeStatusTag( wordlistStatus );
+        final int generation = indexGeneration.get();
+
+        try
+        {
+            final MappedWordlistIndex existingIndex = MappedWordlistIndex.open( indexFile, statusTag );
+            if ( existingIndex != null )
+            {
+                LOGGER.debug( () -> "opened existing wordlist index " + indexFile.getAbsolutePath() + " with " + existingIndex.size() + " entries" );
+                installIndex( existingIndex, generation );
+                return;
+            }
+        }
+        catch ( IOException e )
+        {
+            LOGGER.debug( () -> "unable to open existing wordlist index, will rebuild: " + e.getMessage() );
+        }
+
+        if ( buildRunning.compareAndSet( false, true ) )
+        {
+            buildExecutor.execute( () -> buildIndex( wordlistStatus, statusTag, generation, cancelFlag ) );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        indexGeneration.incrementAndGet();
+        JavaHelper.closeAndWaitExecutor( buildExecutor, TimeDuration.SECONDS_10 );
+
+        indexLock.writeLock().lock();
+        try
+        {
+            if ( index != null )
+            {
+                index.close();
+                index = null;
+            }
+        }
+        finally
+        {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private void buildIndex( final WordlistStatus wordlistStatus, final String statusTag, final int generation, final BooleanSupplier cancelFlag )
+    {
+        final Instant startTime = Instant.now();
+        try
+        {
+            // the build is abandoned if the bucket is cleared or written to while it is running
+            final BooleanSupplier buildCancelFlag = () -> cancelFlag.getAsBoolean() || generation != indexGeneration.get();
+
+            LOGGER.debug( () -> "beginning background build of wordlist index " + indexFile.getAbsolutePath() );
+            final MappedWordlistIndex newIndex = MappedWordlistIndex.build(
+                    indexFile,
+                    statusTag,
+                    pwmApplication.getLocalDB().iterator( wordlistConfiguration.getDb() ),
+                    wordlistStatus.getValueCount(),
+                    wordlistConfiguration.getIndexFalsePositiveRate(),
+                    wordlistConfiguration.getIndexSortBufferEntries(),
+                    buildCancelFlag,
+                    LOGGER );
+
+            if ( newIndex == null )
+            {
+                LOGGER.debug( () -> "wordlist index build cancelled (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
+                return;
+            }
+
+            installIndex( newIndex, generation );
+        }
+        catch ( IOException | LocalDBException e )
+        {
+            LOGGER.error( "error building wordlist index, will continue using LocalDB for wordlist checks: " + e.getMessage() );
+        }
+        catch ( Throwable t )
+        {
+            LOGGER.error( "unexpected error building wordlist index: " + t.getMessage(), t );
+        }
+        finally
+        {
+            buildRunning.set( false );
+        }
+    }
+
+    private void installIndex( final MappedWordlistIndex newIndex, final int generation )
+    {
+        indexLock.writeLock().lock();
+        try
+        {
+            if ( generation == indexGeneration.get() && index == null )
+            {
+                index = newIndex;
+                return;
+            }
+        }
+        finally
+        {
+            indexLock.writeLock().unlock();
+        }
+
+        // the bucket was modified after the index was opened or built, so it is already stale
+        newIndex.close();
+    }
+
+    private boolean hasIndex()
+    {
+        indexLock.readLock().lock();
+        try
+        {
+            return index != null;
+        }
+        finally
+        {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private void discardIndex()
+            throws PwmUnrecoverableException
+    {
+        indexGeneration.incrementAndGet();
+
+        indexLock.writeLock().lock();
+        try
+        {
+            if ( index == null && !indexFile.exists() )
+            {
+                return;
+            }
+
+            if ( index != null )
+            {
+                index.close();
+                index = null;
+            }
+
+            MappedWordlistIndex.delete( indexFile );
+            LOGGER.trace( () -> "discarded wordlist index " + indexFile.getAbsolutePath() );
+        }
+        catch ( IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "unable to remove wordlist index: " + e.getMessage() );
+        }
+        finally
+        {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private static String makeStatusTag( final WordlistStatus wordlistStatus )
+    {
+        final WordlistSourceInfo remoteInfo = wordlistStatus.getRemoteInfo();
+        return wordlistStatus.getConfigHash()
+                + ":" + wordlistStatus.getSourceType()
+                + ":" + wordlistStatus.getValueCount()
+                + ":" + ( remoteInfo == null ? "" : remoteInfo.getHash() );
+    }
+}
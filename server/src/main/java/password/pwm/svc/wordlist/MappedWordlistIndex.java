@@ -0,0 +1,493 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.ConditionalTaskExecutor;
+import password.pwm.util.java.PwmNumberFormat;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Immutable, file-backed index of word fingerprints.  The index consists of two files, a data file containing
+ * the sorted unique 64-bit fingerprints of every stored word, and a meta file containing a header and a
+ * {@link WordlistBloomFilter} over the same fingerprints.  The data file is memory mapped, so a lookup is a
+ * bloom filter test followed (only for probable hits) by a binary search over the mapped file.
+ *
+ * <p>The meta file is always written last, so a data file without a matching meta file is treated as an
+ * incomplete build and ignored.</p>
+ *
+ * <p>Callers must not use an index after {@link #close()}, the mapped segments are released immediately
+ * rather than waiting for garbage collection.</p>
+ */
+class MappedWordlistIndex
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( MappedWordlistIndex.class );
+
+    private static final long MAGIC = 0x70776d57_4c494458L;
+    private static final int VERSION = 1;
+
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_ENTRIES = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_ENTRIES - 1;
+
+    private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+
+    private final WordlistBloomFilter bloomFilter;
+    private final MappedByteBuffer[] segments;
+    private final long entryCount;
+
+    private MappedWordlistIndex( final WordlistBloomFilter bloomFilter, final MappedByteBuffer[] segments, final long entryCount )
+    {
+        this.bloomFilter = bloomFilter;
+        this.segments = segments;
+        this.entryCount = entryCount;
+    }
+
+    boolean containsWord( final String word )
+    {
+        final long fingerprint = WordlistBloomFilter.fingerprint( word );
+        return bloomFilter.mightContain( fingerprint ) && binarySearch( fingerprint );
+    }
+
+    long size()
+    {
+        return entryCount;
+    }
+
+    long bloomFilterBytes()
+    {
+        return bloomFilter.byteSize();
+    }
+
+    /**
+     * Unmap the index data file.  The data file can only be deleted (on Windows) or have its disk space
+     * released (elsewhere) once it is no longer mapped.
+     */
+    void close()
+    {
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            if ( segments[ i ] != null )
+            {
+                unmap( segments[ i ] );
+                segments[ i ] = null;
+            }
+        }
+    }
+
+    private boolean binarySearch( final long fingerprint )
+    {
+        long low = 0;
+        long high = entryCount - 1;
+        while ( low <= high )
+        {
+            final long mid = ( low + high ) >>> 1;
+            final long value = readEntry( mid );
+            if ( value < fingerprint )
+            {
+                low = mid + 1;
+            }
+            else if ( value > fingerprint )
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long readEntry( final long index )
+    {
+        final MappedByteBuffer segment = segments[ (int) ( index >>> SEGMENT_SHIFT ) ];
+        return segment.getLong( (int) ( index & SEGMENT_MASK ) * Long.BYTES );
+    }
+
+    static File metaFile( final File dataFile )
+    {
+        return new File( dataFile.getAbsolutePath() + ".meta" );
+    }
+
+    static void delete( final File dataFile )
+            throws IOException
+    {
+        Files.deleteIfExists( metaFile( dataFile ).toPath() );
+        Files.deleteIfExists( dataFile.toPath() );
+    }
+
+    /**
+     * Open an existing index.
+     *
+     * @param dataFile  index data file
+     * @param statusTag tag identifying the stored wordlist the index must have been built from
+     * @return an open index, or null if there is no complete index matching {@code statusTag}
+     * @throws IOException if the index files can not be read
+     */
+    static MappedWordlistIndex open( final File dataFile, final String statusTag )
+            throws IOException
+    {
+        final File metaFile = metaFile( dataFile );
+        if ( !dataFile.exists() || !metaFile.exists() )
+        {
+            return null;
+        }
+
+        final long entryCount;
+        final WordlistBloomFilter bloomFilter;
+        try ( DataInputStream inputStream = new DataInputStream( new BufferedInputStream( new FileInputStream( metaFile ), STREAM_BUFFER_SIZE ) ) )
+        {
+            if ( inputStream.readLong() != MAGIC || inputStream.readInt() != VERSION )
+            {
+                return null;
+            }
+
+            if ( !statusTag.equals( inputStream.readUTF() ) )
+            {
+                return null;
+            }
+
+            entryCount = inputStream.readLong();
+            if ( entryCount * Long.BYTES != dataFile.length() )
+            {
+                return null;
+            }
+
+            bloomFilter = WordlistBloomFilter.readFrom( inputStream );
+        }
+        catch ( EOFException e )
+        {
+            return null;
+        }
+
+        final int segmentCount = (int) ( ( entryCount + SEGMENT_ENTRIES - 1 ) / SEGMENT_ENTRIES );
+        final MappedByteBuffer[] segments = new MappedByteBuffer[ segmentCount ];
+        try ( RandomAccessFile randomAccessFile = new RandomAccessFile( dataFile, "r" ) )
+        {
+            final FileChannel fileChannel = randomAccessFile.getChannel();
+            for ( int i = 0; i < segmentCount; i++ )
+            {
+                final long start = i * SEGMENT_ENTRIES * Long.BYTES;
+                final long length = Math.min( SEGMENT_ENTRIES, entryCount - ( i * SEGMENT_ENTRIES ) ) * Long.BYTES;
+                segments[ i ] = fileChannel.map( FileChannel.MapMode.READ_ONLY, start, length );
+            }
+        }
+
+        return new MappedWordlistIndex( bloomFilter, segments, entryCount );
+    }
+
+    /**
+     * Build a new index from the supplied words.  Fingerprints are sorted in memory in runs of
+     * {@code sortBufferEntries} which are spilled to disk and then merged into the final data file.
+     *
+     * @param dataFile          index data file to (re-)create
+     * @param statusTag         tag identifying the stored wordlist the index is built from
+     * @param words             iterator over all stored words, closed by this method
+     * @param expectedEntries   expected number of words, used to size the bloom filter
+     * @param falsePositiveRate target bloom filter false positive rate
+     * @param sortBufferEntries number of fingerprints sorted in memory per run
+     * @param cancelFlag        build is abandoned when the flag is raised
+     * @param logger            logger for progress output
+     * @return the opened index, or null if the build was cancelled
+     * @throws IOException if the index files can not be written
+     */
+    static MappedWordlistIndex build(
+            final File dataFile,
+            final String statusTag,
+            final ClosableIterator<String> words,
+            final long expectedEntries,
+            final double falsePositiveRate,
+            final int sortBufferEntries,
+            final BooleanSupplier cancelFlag,
+            final PwmLogger logger
+    )
+            throws IOException
+    {
+        final Instant startTime = Instant.now();
+        final WordlistBloomFilter bloomFilter = WordlistBloomFilter.create( expectedEntries, falsePositiveRate );
+        final long[] sortBuffer = new long[ (int) Math.max( 1, Math.min( sortBufferEntries, expectedEntries ) ) ];
+        final List<File> runFiles = new ArrayList<>();
+        final File tempDataFile = new File( dataFile.getAbsolutePath() + ".tmp" );
+        final long[] readCount = new long[ 1 ];
+
+        final ConditionalTaskExecutor debugOutputter = ConditionalTaskExecutor.forPeriodicTask(
+                () -> logger.debug( () -> "building wordlist index, read "
+                        + PwmNumberFormat.forDefaultLocale().format( readCount[ 0 ] ) + " words ("
+                        + TimeDuration.compactFromCurrent( startTime ) + ")" ),
+                AbstractWordlist.DEBUG_OUTPUT_FREQUENCY );
+
+        try
+        {
+            delete( dataFile );
+
+            int bufferPosition = 0;
+            try
+            {
+                while ( words.hasNext() )
+                {
+                    if ( cancelFlag.getAsBoolean() )
+                    {
+                        return null;
+                    }
+
+                    final long fingerprint = WordlistBloomFilter.fingerprint( words.next() );
+                    bloomFilter.put( fingerprint );
+                    sortBuffer[ bufferPosition++ ] = fingerprint;
+                    readCount[ 0 ]++;
+
+                    if ( bufferPosition == sortBuffer.length )
+                    {
+                        runFiles.add( writeRun( dataFile, runFiles.size(), sortBuffer, bufferPosition ) );
+                        bufferPosition = 0;
+                    }
+
+                    debugOutputter.conditionallyExecuteTask();
+                }
+            }
+            finally
+            {
+                words.close();
+            }
+
+            if ( bufferPosition > 0 )
+            {
+                runFiles.add( writeRun( dataFile, runFiles.size(), sortBuffer, bufferPosition ) );
+            }
+
+            final long entryCount = mergeRuns( runFiles, tempDataFile );
+
+            if ( cancelFlag.getAsBoolean() )
+            {
+                return null;
+            }
+
+            Files.move( tempDataFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            writeMetaFile( dataFile, statusTag, entryCount, bloomFilter );
+
+            logger.debug( () -> "completed wordlist index build with "
+                    + PwmNumberFormat.forDefaultLocale().format( entryCount ) + " unique entries, "
+                    + StringUtil.formatDiskSizeforDebug( entryCount * Long.BYTES ) + " index, "
+                    + StringUtil.formatDiskSizeforDebug( bloomFilter.byteSize() ) + " bloom filter ("
+                    + TimeDuration.compactFromCurrent( startTime ) + ")" );
+        }
+        finally
+        {
+            for ( final File runFile : runFiles )
+            {
+                Files.deleteIfExists( runFile.toPath() );
+            }
+            Files.deleteIfExists( tempDataFile.toPath() );
+        }
+
+        return open( dataFile, statusTag );
+    }
+
+    private static File writeRun( final File dataFile, final int runNumber, final long[] buffer, final int length )
+            throws IOException
+    {
+        Arrays.sort( buffer, 0, length );
+        final File runFile = new File( dataFile.getAbsolutePath() + ".run" + runNumber );
+        try ( DataOutputStream outputStream = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( runFile ), STREAM_BUFFER_SIZE ) ) )
+        {
+            for ( int i = 0; i < length; i++ )
+            {
+                outputStream.writeLong( buffer[ i ] );
+            }
+        }
+        return runFile;
+    }
+
+    private static long mergeRuns( final List<File> runFiles, final File outputFile )
+            throws IOException
+    {
+        final List<RunReader> runReaders = new ArrayList<>( runFiles.size() );
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>( Math.max( 1, runFiles.size() ), Comparator.comparingLong( RunReader::current ) );
+        long entryCount = 0;
+
+        try ( DataOutputStream outputStream = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( outputFile ), STREAM_BUFFER_SIZE ) ) )
+        {
+            for ( final File runFile : runFiles )
+            {
+                final RunReader runReader = new RunReader( runFile );
+                runReaders.add( runReader );
+                if ( runReader.advance() )
+                {
+                    queue.add( runReader );
+                }
+            }
+
+            boolean first = true;
+            long lastValue = 0;
+            while ( !queue.isEmpty() )
+            {
+                final RunReader runReader = queue.poll();
+                final long value = runReader.current();
+                if ( first || value != lastValue )
+                {
+                    outputStream.writeLong( value );
+                    entryCount++;
+                    lastValue = value;
+                    first = false;
+                }
+
+                if ( runReader.advance() )
+                {
+                    queue.add( runReader );
+                }
+            }
+        }
+        finally
+        {
+            // every reader opened so far is closed, including those already exhausted or opened before a later run failed
+            for ( final RunReader runReader : runReaders )
+            {
+                runReader.close();
+            }
+        }
+
+        return entryCount;
+    }
+
+    private static void writeMetaFile( final File dataFile, final String statusTag, final long entryCount, final WordlistBloomFilter bloomFilter )
+            throws IOException
+    {
+        final File metaFile = metaFile( dataFile );
+        final File tempMetaFile = new File( metaFile.getAbsolutePath() + ".tmp" );
+        try ( DataOutputStream outputStream = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempMetaFile ), STREAM_BUFFER_SIZE ) ) )
+        {
+            outputStream.writeLong( MAGIC );
+            outputStream.writeInt( VERSION );
+            outputStream.writeUTF( statusTag );
+            outputStream.writeLong( entryCount );
+            bloomFilter.writeTo( outputStream );
+        }
+        Files.move( tempMetaFile.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    private static void unmap( final MappedByteBuffer buffer )
+    {
+        try
+        {
+            final Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+            Method invokeCleaner = null;
+            try
+            {
+                invokeCleaner = unsafeClass.getMethod( "invokeCleaner", ByteBuffer.class );
+            }
+            catch ( NoSuchMethodException e )
+            {
+                // java 8, use the buffer's cleaner directly
+            }
+
+            if ( invokeCleaner != null )
+            {
+                final Field theUnsafe = unsafeClass.getDeclaredField( "theUnsafe" );
+                theUnsafe.setAccessible( true );
+                invokeCleaner.invoke( theUnsafe.get( null ), buffer );
+                return;
+            }
+
+            final Method cleanerMethod = buffer.getClass().getMethod( "cleaner" );
+            cleanerMethod.setAccessible( true );
+            final Object cleaner = cleanerMethod.invoke( buffer );
+            if ( cleaner != null )
+            {
+                cleaner.getClass().getMethod( "clean" ).invoke( cleaner );
+            }
+        }
+        catch ( ReflectiveOperationException | RuntimeException e )
+        {
+            LOGGER.trace( () -> "unable to unmap wordlist index segment, mapping will be released by garbage collection: " + e.getMessage() );
+        }
+    }
+
+    private static class RunReader
+    {
+        private final DataInputStream inputStream;
+        private long current;
+
+        RunReader( final File runFile )
+                throws IOException
+        {
+            inputStream = new DataInputStream( new BufferedInputStream( new FileInputStream( runFile ), STREAM_BUFFER_SIZE / 16 ) );
+        }
+
+        long current()
+        {
+            return current;
+        }
+
+        boolean advance()
+                throws IOException
+        {
+            try
+            {
+                current = inputStream.readLong();
+                return true;
+            }
+            catch ( EOFException e )
+            {
+                close();
+                return false;
+            }
+        }
+
+        void close()
+        {
+            try
+            {
+                inputStream.close();
+            }
+            catch ( IOException e )
+            {
+                LOGGER.trace( () -> "error closing wordlist index run file: " + e.getMessage() );
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ package password.pwm.svc.wordlist;
 import password.pwm.PwmApplication;
 import password.pwm.error.PwmUnrecoverableException;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -50,6 +51,20 @@ public class MemoryWordlistBucket extends AbstractWordlistBucket
         return map.containsKey( key );
     }
 
+    @Override
+    boolean containsAnyKey( final Collection<String> keys )
+            throws PwmUnrecoverableException
+    {
+        for ( final String key : keys )
+        {
+            if ( map.containsKey( key ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     String getValue( final String key )
             throws PwmUnrecoverableException
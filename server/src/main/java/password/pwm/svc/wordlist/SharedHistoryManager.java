@@ -108,10 +108,10 @@ public class SharedHistoryManager implements PwmService
         try
         {
             final String hashedWord = hashWord( testWord );
-            final boolean inDB = localDB.contains( WORDS_DB, hashedWord );
-            if ( inDB )
+            final String storedValue = localDB.get( WORDS_DB, hashedWord );
+            if ( storedValue != null )
             {
-                final long timeStamp = Long.parseLong( localDB.get( WORDS_DB, hashedWord ) );
+                final long timeStamp = Long.parseLong( storedValue );
                 final long entryAge = System.currentTimeMillis() - timeStamp;
                 if ( entryAge < settings.maxAgeMs )
                 {
@@ -0,0 +1,140 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Bloom filter over 64-bit word fingerprints (see {@link #fingerprint(String)}).  Bit positions are derived
+ * from the fingerprint using double hashing, so a word only needs to be hashed once for both the filter
+ * and the sorted index lookup.
+ */
+class WordlistBloomFilter
+{
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    private WordlistBloomFilter( final long[] bits, final int hashCount )
+    {
+        this.bits = bits;
+        this.bitCount = (long) bits.length * Long.SIZE;
+        this.hashCount = hashCount;
+    }
+
+    static WordlistBloomFilter create( final long expectedEntries, final double falsePositiveRate )
+    {
+        final long entries = Math.max( 1, expectedEntries );
+        final double rate = Math.min( 0.5, Math.max( 0.000_001, falsePositiveRate ) );
+
+        final long optimalBits = (long) Math.ceil( -entries * Math.log( rate ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+        final int words = (int) Math.min( MAX_WORDS, Math.max( 1, ( optimalBits + Long.SIZE - 1 ) / Long.SIZE ) );
+        final long actualBits = (long) words * Long.SIZE;
+        final int hashCount = (int) Math.max( 1, Math.min( 16, Math.round( (double) actualBits / entries * Math.log( 2 ) ) ) );
+
+        return new WordlistBloomFilter( new long[ words ], hashCount );
+    }
+
+    static long fingerprint( final String word )
+    {
+        // 64-bit FNV-1a over the chars, followed by the murmur3 finalizer to spread the low bits
+        long hash = 0xcbf29ce484222325L;
+        for ( int i = 0; i < word.length(); i++ )
+        {
+            hash ^= word.charAt( i );
+            hash *= 0x100000001b3L;
+        }
+        return mix( hash );
+    }
+
+    void put( final long fingerprint )
+    {
+        final long hash2 = mix( fingerprint ^ 0x9e3779b97f4a7c15L );
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            final long position = Math.floorMod( fingerprint + i * hash2, bitCount );
+            bits[ (int) ( position >>> 6 ) ] |= 1L << position;
+        }
+    }
+
+    boolean mightContain( final long fingerprint )
+    {
+        final long hash2 = mix( fingerprint ^ 0x9e3779b97f4a7c15L );
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            final long position = Math.floorMod( fingerprint + i * hash2, bitCount );
+            if ( ( bits[ (int) ( position >>> 6 ) ] & ( 1L << position ) ) == 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long byteSize()
+    {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    void writeTo( final DataOutputStream outputStream )
+            throws IOException
+    {
+        outputStream.writeInt( hashCount );
+        outputStream.writeInt( bits.length );
+        for ( final long word : bits )
+        {
+            outputStream.writeLong( word );
+        }
+    }
+
+    static WordlistBloomFilter readFrom( final DataInputStream inputStream )
+            throws IOException
+    {
+        final int hashCount = inputStream.readInt();
+        final int words = inputStream.readInt();
+        if ( hashCount < 1 || words < 1 )
+        {
+            throw new IOException( "invalid bloom filter header" );
+        }
+
+        final long[] bits = new long[ words ];
+        for ( int i = 0; i < words; i++ )
+        {
+            bits[ i ] = inputStream.readLong();
+        }
+        return new WordlistBloomFilter( bits, hashCount );
+    }
+
+    private static long mix( final long input )
+    {
+        long value = input;
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
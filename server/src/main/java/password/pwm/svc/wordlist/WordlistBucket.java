@@ -23,12 +23,23 @@ package password.pwm.svc.wordlist;
 import password.pwm.error.PwmUnrecoverableException;
 
 import java.util.Collection;
+import java.util.function.BooleanSupplier;
 
 public interface WordlistBucket
 {
     boolean containsWord( String hashWord )
             throws PwmUnrecoverableException;
 
+    /**
+     * Check a set of words using a single store operation.
+     *
+     * @param hashWords words to check
+     * @return true if any of the words are present in the bucket
+     * @throws PwmUnrecoverableException if the backing store is unavailable
+     */
+    boolean containsAny( Collection<String> hashWords )
+            throws PwmUnrecoverableException;
+
     String randomSeed() throws PwmUnrecoverableException;
 
     void addWords( Collection<String> words, AbstractWordlist abstractWordlist )
@@ -43,4 +54,14 @@ public interface WordlistBucket
     void writeWordlistStatus( WordlistStatus wordlistStatus );
 
     long spaceRemaining();
+
+    void populationComplete( WordlistStatus wordlistStatus, BooleanSupplier cancelFlag )
+            throws PwmUnrecoverableException;
+
+    /**
+     * Release any resources held by the bucket, called when the wordlist is closed.
+     */
+    default void close()
+    {
+    }
 }
@@ -73,6 +73,15 @@ public class WordlistConfiguration implements Serializable
 
     private final TimeDuration inspectorFrequency;
 
+    // tuning settings are transient so they are excluded from the config hash and changing them does not force a re-import
+    private final transient int importThreads;
+    private final transient int importQueueSize;
+    private final transient int importBatchLines;
+    private final transient boolean indexEnabled;
+    private final transient double indexFalsePositiveRate;
+    private final transient int indexSortBufferEntries;
+    private final transient int checkCacheMaxEntries;
+
     static WordlistConfiguration fromConfiguration(
             final Configuration configuration,
             final WordlistType type
@@ -134,9 +143,24 @@ public class WordlistConfiguration implements Serializable
                         Long.parseLong( configuration.readAppProperty( AppProperty.WORDLIST_INSPECTOR_FREQUENCY_SECONDS ) ),
                         TimeDuration.Unit.SECONDS ) )
                 .importMinFreeSpace( JavaHelper.silentParseLong( configuration.readAppProperty( AppProperty.WORDLIST_IMPORT_MIN_FREE_SPACE ), 100_000_000 ) )
+                .importThreads( readImportThreads( configuration ) )
+                .importQueueSize( Integer.parseInt( configuration.readAppProperty( AppProperty.WORDLIST_IMPORT_QUEUE_SIZE ) ) )
+                .importBatchLines( Integer.parseInt( configuration.readAppProperty( AppProperty.WORDLIST_IMPORT_BATCH_LINES ) ) )
+                .indexEnabled( Boolean.parseBoolean( configuration.readAppProperty( AppProperty.WORDLIST_INDEX_ENABLE ) ) )
+                .indexFalsePositiveRate( Double.parseDouble( configuration.readAppProperty( AppProperty.WORDLIST_INDEX_FALSE_POSITIVE_RATE ) ) )
+                .indexSortBufferEntries( Integer.parseInt( configuration.readAppProperty( AppProperty.WORDLIST_INDEX_SORT_BUFFER_ENTRIES ) ) )
+                .checkCacheMaxEntries( Integer.parseInt( configuration.readAppProperty( AppProperty.WORDLIST_CHECK_CACHE_MAX_ENTRIES ) ) )
                 .build();
     }
 
+    private static int readImportThreads( final Configuration configuration )
+    {
+        final int configuredThreads = Integer.parseInt( configuration.readAppProperty( AppProperty.WORDLIST_IMPORT_THREADS ) );
+        return configuredThreads > 0
+                ? configuredThreads
+                : Math.max( 1, Runtime.getRuntime().availableProcessors() - 1 );
+    }
+
     private static String readAutoImportUrl(
             final Configuration configuration,
             final PwmSetting wordlistFileSetting
@@ -0,0 +1,303 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import lombok.Value;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Staged reader for {@link WordlistImporter}.  A reader thread reads lines from the zip stream into batches, each
+ * batch is normalized on a fork-join pool, and the normalized batches are handed to the caller of {@link #next()}
+ * in the same order they were read.  The stages are connected by a bounded queue, so the reader blocks when
+ * normalization or the LocalDB writer falls behind.
+ */
+class WordlistImportPipeline implements AutoCloseable
+{
+    private static final NormalizedBatch END_OF_INPUT = new NormalizedBatch(
+            Collections.emptyList(), 0, Collections.emptyMap(), 0, 0, 0, 0, 0 );
+
+    private static final TimeDuration POLL_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
+
+    private final WordlistZipReader zipFileReader;
+    private final WordlistConfiguration wordlistConfiguration;
+    private final WordlistStatistics statistics;
+    private final BooleanSupplier cancelFlag;
+
+    private final BlockingQueue<CompletableFuture<NormalizedBatch>> batchQueue;
+    private final ForkJoinPool normalizePool;
+    private final ExecutorService readerExecutor;
+    private final AtomicBoolean stopFlag = new AtomicBoolean( false );
+
+    WordlistImportPipeline(
+            final AbstractWordlist rootWordlist,
+            final WordlistZipReader zipFileReader,
+            final BooleanSupplier cancelFlag
+    )
+    {
+        this.zipFileReader = zipFileReader;
+        this.wordlistConfiguration = rootWordlist.getConfiguration();
+        this.statistics = rootWordlist.getStatistics();
+        this.cancelFlag = cancelFlag;
+
+        this.batchQueue = new ArrayBlockingQueue<>( Math.max( 1, wordlistConfiguration.getImportQueueSize() ) );
+
+        final String threadNamePrefix = PwmScheduler.makeThreadName( rootWordlist.getPwmApplication(), WordlistImportPipeline.class );
+        this.readerExecutor = PwmScheduler.makeBackgroundExecutor( rootWordlist.getPwmApplication(), WordlistImportPipeline.class );
+        this.normalizePool = new ForkJoinPool(
+                Math.max( 1, wordlistConfiguration.getImportThreads() ),
+                pool ->
+                {
+                    final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( pool );
+                    thread.setName( threadNamePrefix + "-normalize-" + thread.getPoolIndex() );
+                    return thread;
+                },
+                null,
+                false );
+    }
+
+    void start()
+    {
+        readerExecutor.execute( this::readLines );
+    }
+
+    /**
+     * Wait for the next normalized batch.
+     *
+     * @return the next batch in read order, or null if the input is exhausted or the import has been cancelled
+     * @throws PwmUnrecoverableException if reading or normalizing the input failed
+     */
+    NormalizedBatch next()
+            throws PwmUnrecoverableException
+    {
+        final Instant waitStart = Instant.now();
+
+        try
+        {
+            while ( !isStopped() )
+            {
+                final CompletableFuture<NormalizedBatch> future = batchQueue.poll( POLL_INTERVAL.asMillis(), TimeUnit.MILLISECONDS );
+                if ( future != null )
+                {
+                    final NormalizedBatch batch = future.get();
+                    statistics.getImportWriteWaitMS().update( TimeDuration.fromCurrent( waitStart ).asMillis() );
+                    return batch == END_OF_INPUT ? null : batch;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof PwmUnrecoverableException )
+            {
+                throw ( PwmUnrecoverableException ) e.getCause();
+            }
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR,
+                    "error during wordlist import: " + JavaHelper.readHostileExceptionMessage( e.getCause() ) );
+        }
+
+        return null;
+    }
+
+    int queuedBatches()
+    {
+        return batchQueue.size();
+    }
+
+    @Override
+    public void close()
+    {
+        stopFlag.set( true );
+        normalizePool.shutdownNow();
+        JavaHelper.closeAndWaitExecutor( readerExecutor, TimeDuration.SECONDS_10 );
+    }
+
+    private boolean isStopped()
+    {
+        return stopFlag.get() || cancelFlag.getAsBoolean();
+    }
+
+    private void readLines()
+    {
+        final int batchLines = Math.max( 1, wordlistConfiguration.getImportBatchLines() );
+
+        try
+        {
+            List<String> lines = new ArrayList<>( batchLines );
+            String line = zipFileReader.nextLine();
+            while ( line != null && !isStopped() )
+            {
+                lines.add( line );
+                if ( lines.size() >= batchLines )
+                {
+                    submitBatch( lines );
+                    lines = new ArrayList<>( batchLines );
+                }
+                line = zipFileReader.nextLine();
+            }
+
+            if ( !isStopped() )
+            {
+                if ( !lines.isEmpty() )
+                {
+                    submitBatch( lines );
+                }
+                enqueue( CompletableFuture.completedFuture( END_OF_INPUT ) );
+            }
+        }
+        catch ( Throwable t )
+        {
+            final CompletableFuture<NormalizedBatch> failedFuture = new CompletableFuture<>();
+            failedFuture.completeExceptionally( t );
+            enqueue( failedFuture );
+        }
+    }
+
+    private void submitBatch( final List<String> lines )
+    {
+        final long byteCount = zipFileReader.getByteCount();
+        statistics.getImportReadRate().markEvents( lines.size() );
+        enqueue( CompletableFuture.supplyAsync( () -> normalize( lines, byteCount ), normalizePool ) );
+    }
+
+    private void enqueue( final CompletableFuture<NormalizedBatch> future )
+    {
+        final Instant startTime = Instant.now();
+        try
+        {
+            while ( !isStopped() )
+            {
+                if ( batchQueue.offer( future, POLL_INTERVAL.asMillis(), TimeUnit.MILLISECONDS ) )
+                {
+                    statistics.getImportReadBlockedMS().update( TimeDuration.fromCurrent( startTime ).asMillis() );
+                    return;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private NormalizedBatch normalize( final List<String> lines, final long byteCount )
+    {
+        final List<String> words = new ArrayList<>( lines.size() );
+        final Map<WordType, Long> wordTypes = new EnumMap<>( WordType.class );
+        long chars = 0;
+        long rawWords = 0;
+        long rawWordChars = 0;
+        long rawChunks = 0;
+
+        for ( final String input : lines )
+        {
+            if ( StringUtil.isEmpty( input ) || isComment( input ) )
+            {
+                continue;
+            }
+
+            final WordType wordType = WordType.determineWordType( input );
+            wordTypes.merge( wordType, 1L, Long::sum );
+
+            if ( wordType == WordType.RAW )
+            {
+                final Optional<String> word = WordlistUtil.normalizeWordLength( input, wordlistConfiguration );
+                if ( word.isPresent() )
+                {
+                    final String normalizedWord = wordType.convertInputFromWordlist( wordlistConfiguration, word.get() );
+                    final Set<String> chunks = WordlistUtil.chunkWord( normalizedWord, wordlistConfiguration.getCheckSize() );
+                    rawWords++;
+                    rawWordChars += normalizedWord.length();
+                    rawChunks += chunks.size();
+                    for ( final String chunk : chunks )
+                    {
+                        chars += chunk.length();
+                        words.add( chunk );
+                    }
+                }
+            }
+            else
+            {
+                final String normalizedWord = wordType.convertInputFromWordlist( wordlistConfiguration, input );
+                chars += normalizedWord.length();
+                words.add( normalizedWord );
+            }
+        }
+
+        statistics.getImportNormalizeRate().markEvents( words.size() );
+        return new NormalizedBatch( words, chars, wordTypes, rawWords, rawWordChars, rawChunks, byteCount, lines.size() );
+    }
+
+    private boolean isComment( final String input )
+    {
+        for ( final String commentPrefix : wordlistConfiguration.getCommentPrefixes() )
+        {
+            if ( input.startsWith( commentPrefix ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Value
+    static class NormalizedBatch
+    {
+        private final List<String> words;
+        private final long chars;
+        private final Map<WordType, Long> wordTypes;
+        private final long rawWords;
+        private final long rawWordChars;
+        private final long rawChunks;
+
+        /**
+         * Zip stream byte count after the last line of this batch was read, used as the resume point once the batch is committed.
+         */
+        private final long byteCount;
+        private final int lineCount;
+    }
+}
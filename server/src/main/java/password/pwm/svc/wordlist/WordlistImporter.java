@@ -37,11 +37,9 @@ import password.pwm.util.logging.PwmLogger;
 
 import java.text.DecimalFormat;
 import java.time.Instant;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -64,6 +62,8 @@ class WordlistImporter implements Runnable
     private final ImportStatistics importStatistics = new ImportStatistics();
 
     private long charsInBuffer;
+    private long bufferedBytes;
+    private long committedBytes;
     private ErrorInformation exitError;
     private Instant startTime = Instant.now();
     private long bytesSkipped;
@@ -88,6 +88,9 @@ class WordlistImporter implements Runnable
         CharsPerTxn,
         ChunksPerWord,
         AvgWordLength,
+        ReadLinesPerSecond,
+        NormalizeWordsPerSecond,
+        WriteWordsPerSecond,
     }
 
     WordlistImporter(
@@ -196,16 +199,19 @@ class WordlistImporter implements Runnable
             initImportProcess();
 
             startTime = Instant.now();
+            committedBytes = zipFileReader.getByteCount();
+            bufferedBytes = committedBytes;
 
             getLogger().debug( () -> "beginning import: " + JsonUtil.serialize( rootWordlist.readWordlistStatus() ) );
 
-            String line;
-            do
+            try ( WordlistImportPipeline pipeline = new WordlistImportPipeline( rootWordlist, zipFileReader, cancelFlag ) )
             {
-                line = zipFileReader.nextLine();
-                if ( line != null )
+                pipeline.start();
+
+                WordlistImportPipeline.NormalizedBatch batch = pipeline.next();
+                while ( batch != null )
                 {
-                    addLine( line );
+                    addBatch( batch );
 
                     debugOutputter.conditionallyExecuteTask();
 
@@ -218,10 +224,10 @@ class WordlistImporter implements Runnable
                         metaUpdater.conditionallyExecuteTask();
                         checkWordlistSpaceRemaining();
                     }
+
+                    batch = cancelFlag.getAsBoolean() ? null : pipeline.next();
                 }
             }
-            while ( !cancelFlag.getAsBoolean() && line != null );
-
 
             if ( cancelFlag.getAsBoolean() )
             {
@@ -238,52 +244,22 @@ class WordlistImporter implements Runnable
         }
     }
 
-    private void addLine( final String input )
+    private void addBatch( final WordlistImportPipeline.NormalizedBatch batch )
     {
-        if ( StringUtil.isEmpty( input ) )
-        {
-            return;
-        }
-
-        for ( final String commentPrefix : rootWordlist.getConfiguration().getCommentPrefixes() )
+        for ( final Map.Entry<WordType, Long> entry : batch.getWordTypes().entrySet() )
         {
-            if ( input.startsWith( commentPrefix ) )
-            {
-                return;
-            }
+            seenWordTypes.merge( entry.getKey(), entry.getValue(), Long::sum );
         }
 
-        final WordType wordType = WordType.determineWordType( input );
-        seenWordTypes.computeIfAbsent( wordType, wordType1 -> 0L );
-        seenWordTypes.put( wordType, seenWordTypes.get( wordType ) + 1L );
-
-        if ( wordType == WordType.RAW )
+        if ( batch.getRawWords() > 0 )
         {
-            final Optional<String> word = WordlistUtil.normalizeWordLength( input, rootWordlist.getConfiguration() );
-            if ( word.isPresent() )
-            {
-                final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), word.get() );
-                final Set<String> words = WordlistUtil.chunkWord( normalizedWord, rootWordlist.getConfiguration().getCheckSize() );
-                importStatistics.getAverageWordLength().update( normalizedWord.length() );
-                importStatistics.getChunksPerWord().update( words.size() );
-                incrementCharBufferCounter( words );
-                bufferedWords.addAll( words );
-            }
+            importStatistics.getAverageWordLength().update( (double) batch.getRawWordChars() / batch.getRawWords() );
+            importStatistics.getChunksPerWord().update( (double) batch.getRawChunks() / batch.getRawWords() );
         }
-        else
-        {
-            final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), input );
-            incrementCharBufferCounter( Collections.singleton( normalizedWord ) );
-            bufferedWords.add( normalizedWord );
-        }
-    }
 
-    private void incrementCharBufferCounter( final Collection<String> words )
-    {
-        for ( final String word : words )
-        {
-            charsInBuffer += word.length();
-        }
+        bufferedWords.addAll( batch.getWords() );
+        charsInBuffer += batch.getChars();
+        bufferedBytes = batch.getByteCount();
     }
 
     private void flushBuffer( )
@@ -305,6 +281,8 @@ class WordlistImporter implements Runnable
 
         importStatistics.getWordsPerTransaction().update( bufferedWords.size() );
         importStatistics.getCharsPerTransaction().update( charsInBuffer );
+        rootWordlist.getStatistics().getImportWriteRate().markEvents( bufferedWords.size() );
+        committedBytes = bufferedBytes;
 
         //clear the buffers.
         bufferedWords.clear();
@@ -315,6 +293,7 @@ class WordlistImporter implements Runnable
             throws PwmUnrecoverableException
     {
         flushBuffer();
+        committedBytes = zipFileReader.getByteCount();
         getLogger().info( this::makeStatString );
         final long wordlistSize = wordlistBucket.size();
 
@@ -325,6 +304,8 @@ class WordlistImporter implements Runnable
         writeCurrentWordlistStatus();
 
         getLogger().debug( () -> "final post-population status: " + JsonUtil.serialize( rootWordlist.readWordlistStatus() ) );
+
+        wordlistBucket.populationComplete( rootWordlist.readWordlistStatus(), cancelFlag );
     }
 
     private PwmLogger getLogger()
@@ -416,6 +397,11 @@ class WordlistImporter implements Runnable
         stats.put( DebugKey.WordsPerTxn, PwmNumberFormat.forDefaultLocale().format( (long) importStatistics.getWordsPerTransaction().getAverage() ) );
         stats.put( DebugKey.CharsPerTxn, PwmNumberFormat.forDefaultLocale().format( (long) importStatistics.getCharsPerTransaction().getAverage() ) );
 
+        final WordlistStatistics wordlistStatistics = rootWordlist.getStatistics();
+        stats.put( DebugKey.ReadLinesPerSecond, PwmNumberFormat.forDefaultLocale().format( wordlistStatistics.getImportReadRate().readEventRate().longValue() ) );
+        stats.put( DebugKey.NormalizeWordsPerSecond, PwmNumberFormat.forDefaultLocale().format( wordlistStatistics.getImportNormalizeRate().readEventRate().longValue() ) );
+        stats.put( DebugKey.WriteWordsPerSecond, PwmNumberFormat.forDefaultLocale().format( wordlistStatistics.getImportWriteRate().readEventRate().longValue() ) );
+
         stats.put( DebugKey.DiskFreeSpace, StringUtil.formatDiskSize( wordlistBucket.spaceRemaining() ) );
 
         if ( bytesSkipped > 0 )
@@ -462,7 +448,7 @@ class WordlistImporter implements Runnable
                 .sourceType( sourceType )
                 .completed( completed )
                 .wordTypes( new HashMap<>( seenWordTypes ) )
-                .bytes( zipFileReader.getByteCount() )
+                .bytes( committedBytes )
                 .build() );
     }
 
@@ -82,6 +82,7 @@ class WordlistInspector implements Runnable
 
         if ( checkIfExistingOkay( existingStatus, autoImportUrlConfigured ) )
         {
+            rootWordlist.getWordlistBucket().populationComplete( existingStatus, cancelFlag );
             return;
         }
 
@@ -21,10 +21,13 @@
 package password.pwm.svc.wordlist;
 
 import lombok.Value;
+import password.pwm.util.EventRateMeter;
 import password.pwm.util.java.AtomicLoopLongIncrementer;
 import password.pwm.util.java.MovingAverage;
+import password.pwm.util.java.Percent;
 import password.pwm.util.java.TimeDuration;
 
+import java.math.RoundingMode;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -38,6 +41,14 @@ class WordlistStatistics
     private AtomicLoopLongIncrementer wordChecks = new AtomicLoopLongIncrementer( 0, Long.MAX_VALUE );
     private Map<WordType, AtomicLoopLongIncrementer> wordTypeHits = new HashMap<>(  );
     private AtomicLoopLongIncrementer misses = new AtomicLoopLongIncrementer( 0, Long.MAX_VALUE );
+    private AtomicLoopLongIncrementer checkCacheHits = new AtomicLoopLongIncrementer( 0, Long.MAX_VALUE );
+    private AtomicLoopLongIncrementer checkCacheMisses = new AtomicLoopLongIncrementer( 0, Long.MAX_VALUE );
+
+    private EventRateMeter importReadRate = new EventRateMeter( TimeDuration.MINUTE );
+    private EventRateMeter importNormalizeRate = new EventRateMeter( TimeDuration.MINUTE );
+    private EventRateMeter importWriteRate = new EventRateMeter( TimeDuration.MINUTE );
+    private MovingAverage importReadBlockedMS = new MovingAverage( TimeDuration.MINUTE );
+    private MovingAverage importWriteWaitMS = new MovingAverage( TimeDuration.MINUTE );
 
     WordlistStatistics()
     {
@@ -58,6 +69,17 @@ class WordlistStatistics
         {
             outputMap.put( "Hits-" + entry.getKey().name(), Long.toString( entry.getValue().get() ) );
         }
+        outputMap.put( "CheckCacheHits", Long.toString( checkCacheHits.get() ) );
+        outputMap.put( "CheckCacheMisses", Long.toString( checkCacheMisses.get() ) );
+        final long checkCacheRequests = checkCacheHits.get() + checkCacheMisses.get();
+        outputMap.put( "CheckCacheHitRate", checkCacheRequests > 0
+                ? new Percent( checkCacheHits.get(), checkCacheRequests ).pretty( 2 )
+                : Percent.ZERO.pretty( 2 ) );
+        outputMap.put( "ImportReadLinesPerSecond", importReadRate.readEventRate().setScale( 2, RoundingMode.DOWN ).toString() );
+        outputMap.put( "ImportNormalizeWordsPerSecond", importNormalizeRate.readEventRate().setScale( 2, RoundingMode.DOWN ).toString() );
+        outputMap.put( "ImportWriteWordsPerSecond", importWriteRate.readEventRate().setScale( 2, RoundingMode.DOWN ).toString() );
+        outputMap.put( "ImportAvgReadBlockedMS", Double.toString( importReadBlockedMS.getAverage() ) );
+        outputMap.put( "ImportAvgWriteWaitMS", Double.toString( importWriteWaitMS.getAverage() ) );
         return Collections.unmodifiableMap( outputMap );
     }
 }
@@ -24,6 +24,11 @@ import password.pwm.error.PwmDataStoreException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.ClosableIterator;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+
 public interface DataStore
 {
     enum Status
@@ -56,4 +61,23 @@ public interface DataStore
 
     long size( )
             throws PwmDataStoreException, PwmUnrecoverableException;
+
+    void putAll( Map<String, String> keyValueMap )
+            throws PwmDataStoreException, PwmUnrecoverableException;
+
+    Map<String, String> getAll( Collection<String> keys )
+            throws PwmDataStoreException, PwmUnrecoverableException;
+
+    void removeAll( Collection<String> keys )
+            throws PwmDataStoreException, PwmUnrecoverableException;
+
+    /**
+     * Remove every record whose key and value match the predicate.
+     *
+     * @param predicate tested with the key and value of each record
+     * @param continueCondition checked before each record is tested, the removal stops once it returns false
+     * @return number of removed records
+     */
+    int removeWhere( BiPredicate<String, String> predicate, BooleanSupplier continueCondition )
+            throws PwmDataStoreException, PwmUnrecoverableException;
 }
@@ -20,18 +20,27 @@
 
 package password.pwm.util;
 
+import lombok.Value;
 import password.pwm.util.java.MovingAverage;
 import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Exponential moving average of an event rate.  Events are accumulated in a cumulative {@link LongAdder}; whichever
+ * thread first observes that the clock has moved on folds the events counted since the previous sample into the
+ * average, so marking events never waits on another thread and no event is lost to a concurrent sample.
+ */
 public class EventRateMeter implements Serializable
 {
     private final TimeDuration maxDuration;
 
-    private MovingAverage movingAverage;
-    private double remainder;
+    private volatile MovingAverage movingAverage;
+    private final LongAdder totalEvents = new LongAdder();
+    private final AtomicReference<SamplePoint> lastSample = new AtomicReference<>( new SamplePoint( 0, 0 ) );
 
     public EventRateMeter( final TimeDuration maxDuration )
     {
@@ -43,30 +52,48 @@ public class EventRateMeter implements Serializable
         reset();
     }
 
-    public synchronized void reset( )
+    public void reset( )
     {
         movingAverage = new MovingAverage( maxDuration.asMillis() );
-        remainder = 0;
+        totalEvents.reset();
+        lastSample.set( new SamplePoint( 0, 0 ) );
     }
 
-    public synchronized void markEvents( final int eventCount )
+    public void markEvents( final int eventCount )
     {
-        final long timeSinceLastUpdate = System.currentTimeMillis() - movingAverage.getLastMillis();
-        if ( timeSinceLastUpdate != 0 )
-        {
-            final double eventRate = ( eventCount + remainder ) / timeSinceLastUpdate;
-            movingAverage.update( eventRate * 1000 );
-            remainder = 0;
-        }
-        else
-        {
-            remainder += eventCount;
-        }
+        totalEvents.add( eventCount );
+        sample();
     }
 
-    public synchronized BigDecimal readEventRate( )
+    public BigDecimal readEventRate( )
     {
+        sample();
         return new BigDecimal( this.movingAverage.getAverage() );
     }
 
+    private void sample( )
+    {
+        final long now = System.currentTimeMillis();
+        final SamplePoint previous = lastSample.get();
+        final long timeSinceLastUpdate = now - previous.getMillis();
+        if ( timeSinceLastUpdate > 0 )
+        {
+            final SamplePoint current = new SamplePoint( now, totalEvents.sum() );
+            if ( lastSample.compareAndSet( previous, current ) )
+            {
+                final long events = Math.max( 0, current.getTotalEvents() - previous.getTotalEvents() );
+                final double eventRate = ( double ) events / timeSinceLastUpdate;
+                movingAverage.update( eventRate * 1000 );
+            }
+        }
+    }
+
+    @Value
+    private static class SamplePoint implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long millis;
+        private final long totalEvents;
+    }
 }
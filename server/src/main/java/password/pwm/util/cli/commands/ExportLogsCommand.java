@@ -23,7 +23,9 @@ package password.pwm.util.cli.commands;
 import password.pwm.PwmConstants;
 import password.pwm.util.cli.CliParameters;
 import password.pwm.util.localdb.LocalDB;
-import password.pwm.util.localdb.LocalDBStoredQueue;
+import password.pwm.util.logging.LocalDBLogger;
+import password.pwm.util.logging.LocalDBSearchQuery;
+import password.pwm.util.logging.LocalDBSearchResults;
 import password.pwm.util.logging.PwmLogEvent;
 
 import java.io.File;
@@ -31,7 +33,6 @@ import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Collections;
-import java.util.Iterator;
 
 public class ExportLogsCommand extends AbstractCliCommand
 {
@@ -41,33 +42,31 @@ public class ExportLogsCommand extends AbstractCliCommand
             throws Exception
     {
         final LocalDB localDB = this.cliEnvironment.getLocalDB();
-        final LocalDBStoredQueue logQueue = LocalDBStoredQueue.createLocalDBStoredQueue( null, localDB,
-                LocalDB.DB.EVENTLOG_EVENTS );
+        final LocalDBSearchQuery searchQuery = LocalDBSearchQuery.builder()
+                .oldestFirst( true )
+                .build();
+        final LocalDBSearchResults searchResults = LocalDBLogger.readStoredEvents( localDB, searchQuery );
 
-        if ( logQueue.isEmpty() )
+        if ( !searchResults.hasNext() )
         {
             out( "no logs present" );
             return;
         }
 
         final File outputFile = ( File ) cliEnvironment.getOptions().get( CliParameters.REQUIRED_NEW_OUTPUT_FILE.getName() );
-        out( "outputting " + logQueue.size() + " log events to " + outputFile.getAbsolutePath() + "...." );
+        out( "outputting log events to " + outputFile.getAbsolutePath() + "...." );
 
         try ( Writer outputWriter = new OutputStreamWriter( new FileOutputStream( outputFile ), PwmConstants.DEFAULT_CHARSET ) )
         {
-            for ( final Iterator<String> iter = logQueue.descendingIterator(); iter.hasNext(); )
+            while ( searchResults.hasNext() )
             {
-                final String loopString = iter.next();
-                final PwmLogEvent logEvent = PwmLogEvent.fromEncodedString( loopString );
-                if ( logEvent != null )
-                {
-                    outputWriter.write( logEvent.toLogString() );
-                    outputWriter.write( "\n" );
-                }
+                final PwmLogEvent logEvent = searchResults.next();
+                outputWriter.write( logEvent.toLogString() );
+                outputWriter.write( "\n" );
             }
         }
 
-        out( "output complete" );
+        out( "output complete, " + searchResults.getReturnedEvents() + " events" );
 
     }
 
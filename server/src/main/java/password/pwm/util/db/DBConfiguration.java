@@ -30,6 +30,7 @@ import password.pwm.config.value.FileValue;
 import password.pwm.util.PasswordData;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -50,6 +51,11 @@ public class DBConfiguration implements Serializable
     private final List<JDBCDriverLoader.ClassLoaderStrategy> classLoaderStrategies;
     private final int maxConnections;
     private final int connectionTimeout;
+    private final TimeDuration idleTimeout;
+    private final TimeDuration validateIdleAfter;
+    private final int statementCacheSize;
+    private final String vendorOverride;
+    private final int batchSize;
     private final int keyColumnLength;
     private final boolean failOnIndexCreation;
 
@@ -90,6 +96,12 @@ public class DBConfiguration implements Serializable
 
         final int maxConnections = Integer.parseInt( config.readAppProperty( AppProperty.DB_CONNECTIONS_MAX ) );
         final int connectionTimeout = Integer.parseInt( config.readAppProperty( AppProperty.DB_CONNECTIONS_TIMEOUT_MS ) );
+        final TimeDuration idleTimeout = TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.DB_CONNECTIONS_IDLE_TIMEOUT_SECONDS ) ), TimeDuration.Unit.SECONDS );
+        final TimeDuration validateIdleAfter = TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.DB_CONNECTIONS_VALIDATE_IDLE_SECONDS ) ), TimeDuration.Unit.SECONDS );
+        final int statementCacheSize = Integer.parseInt( config.readAppProperty( AppProperty.DB_STATEMENT_CACHE_SIZE ) );
+        final int batchSize = Integer.parseInt( config.readAppProperty( AppProperty.DB_BATCH_SIZE ) );
 
         final int keyColumnLength = Integer.parseInt( config.readAppProperty( AppProperty.DB_SCHEMA_KEY_LENGTH ) );
 
@@ -106,6 +118,11 @@ public class DBConfiguration implements Serializable
                 strategies,
                 maxConnections,
                 connectionTimeout,
+                idleTimeout,
+                validateIdleAfter,
+                statementCacheSize,
+                config.readAppProperty( AppProperty.DB_VENDOR ),
+                batchSize,
                 keyColumnLength,
                 haltOnIndexCreateError
         );
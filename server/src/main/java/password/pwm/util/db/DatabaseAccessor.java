@@ -24,6 +24,10 @@ import password.pwm.util.java.ClosableIterator;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
 
 public interface DatabaseAccessor
 {
@@ -44,6 +48,11 @@ public interface DatabaseAccessor
     }
 
 
+    /**
+     * Insert or replace the value for a key.
+     *
+     * @return true if the value was written
+     */
     @DbOperation
     @DbModifyOperation
     boolean put(
@@ -62,6 +71,17 @@ public interface DatabaseAccessor
     )
             throws DatabaseException;
 
+    /**
+     * Insert or replace all of the key/values using batched statements in a single transaction.
+     */
+    @DbOperation
+    @DbModifyOperation
+    void putAll(
+            DatabaseTable table,
+            Map<String, String> keyValueMap
+    )
+            throws DatabaseException;
+
     @DbOperation
     boolean contains(
             DatabaseTable table,
@@ -76,6 +96,18 @@ public interface DatabaseAccessor
     )
             throws DatabaseException;
 
+    /**
+     * Read the values of several keys with as few queries as possible.
+     *
+     * @return map of the keys that are present to their values
+     */
+    @DbOperation
+    Map<String, String> getAll(
+            DatabaseTable table,
+            Collection<String> keys
+    )
+            throws DatabaseException;
+
     ClosableIterator<String> iterator( DatabaseTable table )
             throws DatabaseException;
 
@@ -87,6 +119,37 @@ public interface DatabaseAccessor
     )
             throws DatabaseException;
 
+    /**
+     * Remove all of the keys using batched statements in a single transaction.
+     *
+     * @return number of removed records
+     */
+    @DbOperation
+    @DbModifyOperation
+    int removeAll(
+            DatabaseTable table,
+            Collection<String> keys
+    )
+            throws DatabaseException;
+
+    /**
+     * Remove every record matching the predicate.  The table is read in key order, one page of at most the batch size
+     * records at a time, and the matching records of each page are removed in a transaction of their own, so neither the
+     * transaction nor the buffered keys grow with the table size.
+     *
+     * @param predicate tested with the key and value of each record
+     * @param continueCondition checked before each record is tested, the removal stops once it returns false
+     * @return number of removed records
+     */
+    @DbOperation
+    @DbModifyOperation
+    int removeWhere(
+            DatabaseTable table,
+            BiPredicate<String, String> predicate,
+            BooleanSupplier continueCondition
+    )
+            throws DatabaseException;
+
     @DbOperation
     int size( DatabaseTable table ) throws
             DatabaseException;
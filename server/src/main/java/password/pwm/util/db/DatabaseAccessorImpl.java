@@ -20,25 +20,37 @@
 
 package password.pwm.util.db;
 
+import lombok.Value;
 import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 /**
+ * Each operation checks out a connection from the {@link DatabaseConnectionPool}, runs in its own transaction and returns
+ * the connection, so concurrent operations no longer serialize on a single connection.
+ *
  * @author Jason D. Rivard
  */
 class DatabaseAccessorImpl implements DatabaseAccessor
@@ -46,9 +58,13 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
     private static final PwmLogger LOGGER = PwmLogger.forClass( DatabaseAccessorImpl.class, true );
 
-    private final Connection connection;
+    // oracle limits IN lists to 1000 expressions
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
     private final DatabaseService databaseService;
-    private final DBConfiguration dbConfiguration;
+    private final DatabaseConnectionPool connectionPool;
+    private final DatabaseVendor vendor;
+    private final int batchSize;
 
     private final boolean traceLogEnabled;
 
@@ -60,32 +76,19 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
     private final AtomicBoolean closed = new AtomicBoolean( false );
 
-    private final ReentrantLock lock = new ReentrantLock();
-
     DatabaseAccessorImpl(
             final DatabaseService databaseService,
-            final DBConfiguration dbConfiguration,
-            final Connection connection,
+            final DatabaseConnectionPool connectionPool,
+            final DatabaseVendor vendor,
+            final int batchSize,
             final boolean traceLogEnabled
     )
     {
-        this.connection = connection;
-        this.dbConfiguration = dbConfiguration;
-        this.traceLogEnabled = traceLogEnabled;
+        this.batchSize = Math.max( 1, batchSize );
         this.databaseService = databaseService;
-    }
-
-
-    private void processSqlException(
-            final DatabaseUtil.DebugInfo debugInfo,
-            final SQLException e
-    )
-            throws DatabaseException
-    {
-        DatabaseUtil.rollbackTransaction( connection );
-        final DatabaseException databaseException = DatabaseUtil.convertSqlException( debugInfo, e );
-        databaseService.setLastError( databaseException.getErrorInformation() );
-        throw databaseException;
+        this.connectionPool = connectionPool;
+        this.vendor = vendor;
+        this.traceLogEnabled = traceLogEnabled;
     }
 
     @Override
@@ -100,36 +103,70 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "put", table, key, value );
 
-        return execute( debugInfo, ( ) ->
+        return execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
         {
-            boolean exists = false;
-            try
+            final String upsertSql = vendor.upsertSql( table.name() );
+            if ( upsertSql != null )
             {
-                exists = containsImpl( table, key );
+                // the update count is not reliable, mysql reports no affected rows when the stored value is unchanged
+                executeUpdate( connection, upsertSql, key, value );
+                return true;
             }
-            catch ( SQLException e )
+
+            // note the value/key are reversed for this statement
+            if ( executeUpdate( connection, updateSql( table ), value, key ) > 0 )
             {
-                processSqlException( debugInfo, e );
+                return true;
             }
 
-            if ( exists )
-            {
-                final String sqlText = "UPDATE " + table.toString()
-                        + " SET " + DatabaseService.VALUE_COLUMN + "=? WHERE "
-                        + DatabaseService.KEY_COLUMN + "=?";
+            return executeUpdate( connection, insertSql( table ), key, value ) > 0;
+        } );
+    }
+
+    @Override
+    public void putAll(
+            final DatabaseTable table,
+            final Map<String, String> keyValueMap
+    )
+            throws DatabaseException
+    {
+        preCheck();
+
+        if ( keyValueMap == null || keyValueMap.isEmpty() )
+        {
+            return;
+        }
+
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "putAll", table, null, keyValueMap.size() + " values" );
+
+        execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
+        {
+            final List<Map.Entry<String, String>> entries = new ArrayList<>( keyValueMap.entrySet() );
 
-                // note the value/key are reversed for this statement
-                executeUpdate( sqlText, debugInfo, value, key );
+            final String upsertSql = vendor.upsertSql( table.name() );
+            if ( upsertSql != null )
+            {
+                executeBatch( connection, upsertSql, entries, entry -> new String[] { entry.getKey(), entry.getValue() } );
+                return null;
             }
-            else
+
+            // note the value/key are reversed for the update statement
+            final int[] updateCounts = executeBatch( connection, updateSql( table ), entries, entry -> new String[] { entry.getValue(), entry.getKey() } );
+
+            final List<Map.Entry<String, String>> insertEntries = new ArrayList<>();
+            for ( int i = 0; i < entries.size(); i++ )
             {
-                final String sqlText = "INSERT INTO " + table.toString()
-                        + "(" + DatabaseService.KEY_COLUMN + ", "
-                        + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
-                executeUpdate( sqlText, debugInfo, key, value );
+                final boolean updated = updateCounts[ i ] == Statement.SUCCESS_NO_INFO
+                        ? containsImpl( connection, table, entries.get( i ).getKey() )
+                        : updateCounts[ i ] > 0;
+                if ( !updated )
+                {
+                    insertEntries.add( entries.get( i ) );
+                }
             }
 
-            return !exists;
+            executeBatch( connection, insertSql( table ), insertEntries, entry -> new String[] { entry.getKey(), entry.getValue() } );
+            return null;
         } );
     }
 
@@ -145,25 +182,21 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "putIfAbsent", table, key, value );
 
-        return execute( debugInfo, ( ) ->
+        return execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
         {
-            boolean valueExists = false;
-            try
-            {
-                valueExists = DatabaseAccessorImpl.this.containsImpl( table, key );
-            }
-            catch ( final SQLException e )
+            final String insertIfAbsentSql = vendor.insertIfAbsentSql( table.name() );
+            if ( insertIfAbsentSql != null )
             {
-                DatabaseAccessorImpl.this.processSqlException( debugInfo, e );
+                return executeUpdate( connection, insertIfAbsentSql, key, value ) > 0;
             }
 
-            if ( !valueExists )
+            if ( containsImpl( connection, table, key ) )
             {
-                final String insertSql = "INSERT INTO " + table.name() + "(" + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
-                DatabaseAccessorImpl.this.executeUpdate( insertSql, debugInfo, key, value );
+                return false;
             }
 
-            return !valueExists;
+            executeUpdate( connection, insertSql( table ), key, value );
+            return true;
         } );
     }
 
@@ -179,19 +212,7 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "contains", table, key, null );
 
-        return execute( debugInfo, ( ) ->
-        {
-            boolean valueExists = false;
-            try
-            {
-                valueExists = containsImpl( table, key );
-            }
-            catch ( final SQLException e )
-            {
-                processSqlException( debugInfo, e );
-            }
-            return valueExists;
-        } );
+        return execute( debugInfo, DatabaseService.OperationType.READ, connection -> containsImpl( connection, table, key ) );
     }
 
     @Override
@@ -205,11 +226,12 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "get", table, key, null );
 
-        return execute( debugInfo, ( ) ->
+        return execute( debugInfo, DatabaseService.OperationType.READ, connection ->
         {
-            final String sqlStatement = "SELECT * FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
+            final String sqlStatement = "SELECT " + DatabaseService.VALUE_COLUMN + " FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
 
-            try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
+            final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+            try
             {
                 statement.setString( 1, key );
                 statement.setMaxRows( 1 );
@@ -221,28 +243,80 @@ class DatabaseAccessorImpl implements DatabaseAccessor
                         return resultSet.getString( DatabaseService.VALUE_COLUMN );
                     }
                 }
+                return null;
             }
-            catch ( SQLException e )
+            finally
             {
-                processSqlException( debugInfo, e );
+                connection.releaseStatement( statement );
             }
-            return null;
         } );
     }
 
     @Override
-    public ClosableIterator<String> iterator( final DatabaseTable table )
+    public Map<String, String> getAll(
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
             throws DatabaseException
     {
-        try
+        preCheck();
+
+        if ( keys == null || keys.isEmpty() )
         {
-            lock.lock();
-            return new DBIterator( table );
+            return Collections.emptyMap();
         }
-        finally
+
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "getAll", table, keys.size() + " keys", null );
+
+        return execute( debugInfo, DatabaseService.OperationType.READ, connection ->
         {
-            lock.unlock();
-        }
+            final Map<String, String> returnMap = new LinkedHashMap<>();
+            final List<String> distinctKeys = new ArrayList<>( new LinkedHashSet<>( keys ) );
+            final int chunkSize = Math.min( batchSize, MAX_IN_LIST_SIZE );
+
+            for ( int chunkStart = 0; chunkStart < distinctKeys.size(); chunkStart += chunkSize )
+            {
+                final List<String> chunk = distinctKeys.subList( chunkStart, Math.min( chunkStart + chunkSize, distinctKeys.size() ) );
+                final StringBuilder sqlText = new StringBuilder();
+                sqlText.append( "SELECT " ).append( DatabaseService.KEY_COLUMN ).append( ", " ).append( DatabaseService.VALUE_COLUMN );
+                sqlText.append( " FROM " ).append( table.name() ).append( " WHERE " ).append( DatabaseService.KEY_COLUMN ).append( " IN (" );
+                for ( int i = 0; i < chunk.size(); i++ )
+                {
+                    sqlText.append( i == 0 ? "?" : ",?" );
+                }
+                sqlText.append( ")" );
+
+                final PreparedStatement statement = connection.prepareStatement( sqlText.toString() );
+                try
+                {
+                    for ( int i = 0; i < chunk.size(); i++ )
+                    {
+                        statement.setString( i + 1, chunk.get( i ) );
+                    }
+
+                    try ( ResultSet resultSet = statement.executeQuery() )
+                    {
+                        while ( resultSet.next() )
+                        {
+                            returnMap.put( resultSet.getString( DatabaseService.KEY_COLUMN ), resultSet.getString( DatabaseService.VALUE_COLUMN ) );
+                        }
+                    }
+                }
+                finally
+                {
+                    connection.releaseStatement( statement );
+                }
+            }
+            return returnMap;
+        } );
+    }
+
+    @Override
+    public ClosableIterator<String> iterator( final DatabaseTable table )
+            throws DatabaseException
+    {
+        preCheck();
+        return new DBIterator( table );
     }
 
     @Override
@@ -256,88 +330,158 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "remove", table, key, null );
 
-        execute( debugInfo, ( ) ->
+        execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
         {
-
-
             final String sqlText = "DELETE FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + "=?";
-            executeUpdate( sqlText, debugInfo, key );
-
+            executeUpdate( connection, sqlText, key );
             return null;
         } );
     }
 
     @Override
-    public int size( final DatabaseTable table )
+    public int removeAll(
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
             throws DatabaseException
     {
         preCheck();
 
-        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "size", table, null, null );
-
-        return execute( debugInfo, ( ) ->
+        if ( keys == null || keys.isEmpty() )
         {
-            final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name();
+            return 0;
+        }
 
-            try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
-            {
-                try ( ResultSet resultSet = statement.executeQuery() )
-                {
-                    if ( resultSet.next() )
-                    {
-                        return resultSet.getInt( 1 );
-                    }
-                }
-            }
-            catch ( SQLException e )
-            {
-                processSqlException( debugInfo, e );
-            }
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "removeAll", table, keys.size() + " keys", null );
 
-            return 0;
-        } );
+        return execute( debugInfo, DatabaseService.OperationType.WRITE, connection -> removeAllImpl( connection, table, keys ) );
     }
 
-    boolean isValid( )
+    @Override
+    public int removeWhere(
+            final DatabaseTable table,
+            final BiPredicate<String, String> predicate,
+            final BooleanSupplier continueCondition
+    )
+            throws DatabaseException
     {
         preCheck();
 
-        if ( connection == null )
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "removeWhere", table, null, null );
+
+        int removed = 0;
+        String lastKey = null;
+        boolean complete = false;
+        while ( !complete && !closed.get() )
         {
-            return false;
+            final String pageStartKey = lastKey;
+            final RemovalPage removalPage = execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
+                    removeWherePage( connection, table, pageStartKey, predicate, continueCondition ) );
+            removed += removalPage.getRemoved();
+            lastKey = removalPage.getLastKey();
+            complete = removalPage.isComplete();
         }
+        return removed;
+    }
 
+    /**
+     * Read one page of records following {@code pageStartKey} in key order and remove the records matching the predicate.
+     */
+    private RemovalPage removeWherePage(
+            final DatabaseConnectionPool.PooledConnection connection,
+            final DatabaseTable table,
+            final String pageStartKey,
+            final BiPredicate<String, String> predicate,
+            final BooleanSupplier continueCondition
+    )
+            throws SQLException
+    {
+        final String sqlText = "SELECT " + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN + " FROM " + table.name()
+                + ( pageStartKey == null ? "" : " WHERE " + DatabaseService.KEY_COLUMN + " > ?" )
+                + " ORDER BY " + DatabaseService.KEY_COLUMN;
+        final List<String> matchingKeys = new ArrayList<>();
+        String lastKey = pageStartKey;
+        int rowsRead = 0;
+        boolean stopped = false;
+
+        // matching keys are collected before removal, not every driver allows statements while a result set is open
+        final PreparedStatement statement = connection.prepareStatement( sqlText );
         try
         {
-            if ( connection.isClosed() )
+            if ( pageStartKey != null )
             {
-                return false;
+                statement.setString( 1, pageStartKey );
             }
-
-            final int connectionTimeout = dbConfiguration.getConnectionTimeout();
-
-            if ( !connection.isValid( connectionTimeout ) )
+            statement.setMaxRows( batchSize );
+            statement.setFetchSize( batchSize );
+            try ( ResultSet resultSet = statement.executeQuery() )
             {
-                return false;
+                while ( !stopped && resultSet.next() )
+                {
+                    if ( continueCondition.getAsBoolean() )
+                    {
+                        final String key = resultSet.getString( DatabaseService.KEY_COLUMN );
+                        if ( predicate.test( key, resultSet.getString( DatabaseService.VALUE_COLUMN ) ) )
+                        {
+                            matchingKeys.add( key );
+                        }
+                        lastKey = key;
+                        rowsRead++;
+                    }
+                    else
+                    {
+                        stopped = true;
+                    }
+                }
             }
-
         }
-        catch ( SQLException e )
+        finally
         {
-            LOGGER.debug( () -> "error while checking connection validity: " + e.getMessage() );
+            connection.releaseStatement( statement );
         }
 
-        return true;
+        final int removed = removeAllImpl( connection, table, matchingKeys );
+        return new RemovalPage( lastKey, removed, stopped || rowsRead < batchSize );
     }
 
+    @Override
+    public int size( final DatabaseTable table )
+            throws DatabaseException
+    {
+        preCheck();
+
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "size", table, null, null );
+
+        return execute( debugInfo, DatabaseService.OperationType.READ, connection ->
+        {
+            final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name();
+
+            final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+            try ( ResultSet resultSet = statement.executeQuery() )
+            {
+                if ( resultSet.next() )
+                {
+                    return resultSet.getInt( 1 );
+                }
+            }
+            finally
+            {
+                connection.releaseStatement( statement );
+            }
+
+            return 0;
+        } );
+    }
 
     public class DBIterator implements ClosableIterator<String>
     {
         private final DatabaseTable table;
+        private DatabaseConnectionPool.PooledConnection connection;
         private ResultSet resultSet;
         private PreparedStatement statement;
         private String nextValue;
         private boolean finished;
+        private boolean failed;
         private int counter = ITERATOR_COUNTER.getAndIncrement();
 
         DBIterator( final DatabaseTable table )
@@ -348,6 +492,9 @@ class DatabaseAccessorImpl implements DatabaseAccessor
             getNextItem();
         }
 
+        /**
+         * The iterator keeps its pooled connection until it is closed, so the result set stays open across calls.
+         */
         private void init( ) throws DatabaseException
         {
             final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create(
@@ -355,16 +502,18 @@ class DatabaseAccessorImpl implements DatabaseAccessor
             traceBegin( debugInfo );
 
             final String sqlText = "SELECT " + DatabaseService.KEY_COLUMN + " FROM " + table.name();
+            connection = connectionPool.checkout();
             try
             {
                 outstandingIterators.add( this );
-                statement = connection.prepareStatement( sqlText );
+                statement = connection.getConnection().prepareStatement( sqlText );
                 resultSet = statement.executeQuery();
-                connection.commit();
             }
             catch ( SQLException e )
             {
-                processSqlException( null, e );
+                failed = true;
+                close();
+                throw processSqlException( null, e );
             }
 
             traceResult( debugInfo, null );
@@ -406,56 +555,67 @@ class DatabaseAccessorImpl implements DatabaseAccessor
             }
             catch ( SQLException e )
             {
-                finished = true;
+                failed = true;
                 LOGGER.warn( "unexpected error during result set iteration: " + e.getMessage() );
+                close();
             }
             databaseService.updateStats( DatabaseService.OperationType.READ );
         }
 
-        public void close( )
+        public synchronized void close( )
         {
+            if ( connection == null )
+            {
+                finished = true;
+                return;
+            }
+
             final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create(
                     "iterator #" + counter + " close", table, null, null );
             traceBegin( debugInfo );
 
-            try
-            {
-                lock.lock();
-                outstandingIterators.remove( this );
+            outstandingIterators.remove( this );
 
-                if ( resultSet != null )
+            if ( resultSet != null )
+            {
+                try
                 {
-                    try
-                    {
-                        resultSet.close();
-                        resultSet = null;
-                    }
-                    catch ( SQLException e )
-                    {
-                        LOGGER.error( "error closing inner resultSet in iterator: " + e.getMessage() );
-                    }
+                    resultSet.close();
+                    resultSet = null;
                 }
+                catch ( SQLException e )
+                {
+                    LOGGER.error( "error closing inner resultSet in iterator: " + e.getMessage() );
+                }
+            }
 
-                if ( statement != null )
+            if ( statement != null )
+            {
+                try
                 {
-                    try
-                    {
-                        statement.close();
-                        statement = null;
-                    }
-                    catch ( SQLException e )
-                    {
-                        LOGGER.error( "error closing inner statement in iterator: " + e.getMessage() );
-                    }
+                    statement.close();
+                    statement = null;
                 }
+                catch ( SQLException e )
+                {
+                    LOGGER.error( "error closing inner statement in iterator: " + e.getMessage() );
+                }
+            }
 
-                finished = true;
+            try
+            {
+                connection.getConnection().commit();
             }
-            finally
+            catch ( SQLException e )
             {
-                lock.unlock();
+                failed = true;
+                LOGGER.debug( () -> "error ending iterator transaction: " + e.getMessage() );
             }
 
+            connectionPool.release( connection, failed );
+            connection = null;
+            finished = true;
+
             traceResult( debugInfo, "outstandingIterators=" + outstandingIterators.size() );
         }
     }
@@ -489,92 +649,189 @@ class DatabaseAccessorImpl implements DatabaseAccessor
         LOGGER.trace( () -> "accessor #" + accessorNumber + " operation result: " + StringUtil.mapToString( map ) );
     }
 
+    @Value
+    private static class RemovalPage
+    {
+        private final String lastKey;
+        private final int removed;
+        private final boolean complete;
+    }
+
     private interface SqlFunction<T>
     {
-        T execute( ) throws DatabaseException;
+        T execute( DatabaseConnectionPool.PooledConnection connection ) throws SQLException;
     }
 
-    private <T> T execute( final DatabaseUtil.DebugInfo debugInfo, final SqlFunction<T> sqlFunction )
+    private <T> T execute(
+            final DatabaseUtil.DebugInfo debugInfo,
+            final DatabaseService.OperationType operationType,
+            final SqlFunction<T> sqlFunction
+    )
             throws DatabaseException
     {
         traceBegin( debugInfo );
 
+        final DatabaseConnectionPool.PooledConnection connection = connectionPool.checkout();
+        boolean failed = false;
         try
         {
-            lock.lock();
-
-            try
-            {
-                final T result = sqlFunction.execute();
-                traceResult( debugInfo, result );
-                databaseService.updateStats( DatabaseService.OperationType.WRITE );
-                return result;
-            }
-            finally
-            {
-                DatabaseUtil.commit( connection );
-            }
-
+            final T result = sqlFunction.execute( connection );
+            connection.getConnection().commit();
+            traceResult( debugInfo, result );
+            databaseService.updateStats( operationType );
+            return result;
+        }
+        catch ( SQLException e )
+        {
+            failed = true;
+            rollback( connection );
+            throw processSqlException( debugInfo, e );
+        }
+        catch ( RuntimeException e )
+        {
+            rollback( connection );
+            throw e;
         }
         finally
         {
-            lock.unlock();
+            connectionPool.release( connection, failed );
         }
+    }
 
+    private DatabaseException processSqlException(
+            final DatabaseUtil.DebugInfo debugInfo,
+            final SQLException e
+    )
+    {
+        final DatabaseException databaseException = DatabaseUtil.convertSqlException( debugInfo, e );
+        databaseService.setLastError( databaseException.getErrorInformation() );
+        return databaseException;
     }
 
-    Connection getConnection( )
+    private static void rollback( final DatabaseConnectionPool.PooledConnection connection )
     {
-        return connection;
+        try
+        {
+            DatabaseUtil.rollbackTransaction( connection.getConnection() );
+        }
+        catch ( DatabaseException e )
+        {
+            LOGGER.debug( () -> e.getErrorInformation().toDebugStr() );
+        }
     }
 
     void close( )
     {
         closed.set( true );
 
+        if ( !outstandingIterators.isEmpty() )
+        {
+            LOGGER.warn( "closing outstanding " + outstandingIterators.size() + " iterators" );
+        }
+        for ( final DBIterator iterator : new HashSet<>( outstandingIterators ) )
+        {
+            iterator.close();
+        }
+
+        LOGGER.trace( () -> "closed accessor #" + accessorNumber );
+    }
+
+    private static String insertSql( final DatabaseTable table )
+    {
+        return "INSERT INTO " + table.name()
+                + "(" + DatabaseService.KEY_COLUMN + ", "
+                + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
+    }
+
+    private static String updateSql( final DatabaseTable table )
+    {
+        return "UPDATE " + table.name()
+                + " SET " + DatabaseService.VALUE_COLUMN + "=? WHERE "
+                + DatabaseService.KEY_COLUMN + "=?";
+    }
+
+    private int removeAllImpl( final DatabaseConnectionPool.PooledConnection connection, final DatabaseTable table, final Collection<String> keys )
+            throws SQLException
+    {
+        final String sqlText = "DELETE FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + "=?";
+        final int[] updateCounts = executeBatch( connection, sqlText, keys, key -> new String[] { key } );
+
+        int removed = 0;
+        for ( final int updateCount : updateCounts )
+        {
+            removed += updateCount == Statement.SUCCESS_NO_INFO ? 1 : Math.max( 0, updateCount );
+        }
+        return removed;
+    }
+
+    /**
+     * Run the statement once per item, sending the parameters to the database in batches of {@code batchSize}.
+     *
+     * @return update count of each item, in item order
+     */
+    private <T> int[] executeBatch(
+            final DatabaseConnectionPool.PooledConnection connection,
+            final String sqlText,
+            final Collection<T> items,
+            final Function<T, String[]> parameterFunction
+    )
+            throws SQLException
+    {
+        final int[] updateCounts = new int[ items.size() ];
+        if ( items.isEmpty() )
+        {
+            return updateCounts;
+        }
+
+        final PreparedStatement statement = connection.prepareStatement( sqlText );
         try
         {
-            lock.lock();
-            try
+            int batchStart = 0;
+            int batchItems = 0;
+            for ( final T item : items )
             {
-                if ( !outstandingIterators.isEmpty() )
+                final String[] params = parameterFunction.apply( item );
+                for ( int i = 0; i < params.length; i++ )
                 {
-                    LOGGER.warn( "closing outstanding " + outstandingIterators.size() + " iterators" );
+                    statement.setString( i + 1, params[ i ] );
                 }
-                for ( final DBIterator iterator : new HashSet<>( outstandingIterators ) )
+                statement.addBatch();
+                batchItems++;
+
+                if ( batchItems >= batchSize )
                 {
-                    iterator.close();
+                    copyUpdateCounts( statement.executeBatch(), updateCounts, batchStart );
+                    batchStart += batchItems;
+                    batchItems = 0;
                 }
             }
-            catch ( Exception e )
-            {
-                LOGGER.warn( "error while closing connection: " + e.getMessage() );
-            }
 
-            try
-            {
-                connection.close();
-            }
-            catch ( SQLException e )
+            if ( batchItems > 0 )
             {
-                LOGGER.warn( "error while closing connection: " + e.getMessage() );
+                copyUpdateCounts( statement.executeBatch(), updateCounts, batchStart );
             }
         }
         finally
         {
-            lock.unlock();
+            connection.releaseStatement( statement );
         }
 
-        LOGGER.trace( () -> "closed accessor #" + accessorNumber );
+        return updateCounts;
+    }
+
+    private static void copyUpdateCounts( final int[] batchCounts, final int[] updateCounts, final int offset )
+    {
+        System.arraycopy( batchCounts, 0, updateCounts, offset, Math.min( batchCounts.length, updateCounts.length - offset ) );
     }
 
-    private boolean containsImpl( final DatabaseTable table, final String key )
+    private static boolean containsImpl( final DatabaseConnectionPool.PooledConnection connection, final DatabaseTable table, final String key )
             throws SQLException
     {
         final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name()
                 + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
 
-        try ( PreparedStatement selectStatement = connection.prepareStatement( sqlStatement ); )
+        final PreparedStatement selectStatement = connection.prepareStatement( sqlStatement );
+        try
         {
             selectStatement.setString( 1, key );
             selectStatement.setMaxRows( 1 );
@@ -587,24 +844,29 @@ class DatabaseAccessorImpl implements DatabaseAccessor
                 }
             }
         }
+        finally
+        {
+            connection.releaseStatement( selectStatement );
+        }
 
         return false;
     }
 
-    private void executeUpdate( final String sqlStatement, final DatabaseUtil.DebugInfo debugInfo, final String... params )
-            throws DatabaseException
+    private static int executeUpdate( final DatabaseConnectionPool.PooledConnection connection, final String sqlStatement, final String... params )
+            throws SQLException
     {
-        try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
+        final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+        try
         {
             for ( int i = 0; i < params.length; i++ )
             {
                 statement.setString( i + 1, params[ i ] );
             }
-            statement.executeUpdate();
+            return statement.executeUpdate();
         }
-        catch ( SQLException e )
+        finally
         {
-            processSqlException( debugInfo, e );
+            connection.releaseStatement( statement );
         }
     }
 
@@ -620,9 +882,19 @@ class DatabaseAccessorImpl implements DatabaseAccessor
     {
         try
         {
-            return connection.isValid( 5000 );
+            final DatabaseConnectionPool.PooledConnection connection = connectionPool.checkout();
+            boolean valid = false;
+            try
+            {
+                valid = connection.isValid( TimeDuration.SECONDS_10 );
+                return valid;
+            }
+            finally
+            {
+                connectionPool.release( connection, !valid );
+            }
         }
-        catch ( SQLException e )
+        catch ( DatabaseException e )
         {
             LOGGER.error( "error while checking database connection: " + e.getMessage() );
         }
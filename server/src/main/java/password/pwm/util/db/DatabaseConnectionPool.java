@@ -0,0 +1,384 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.db;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checkout pool of JDBC connections for {@link DatabaseAccessorImpl}.  At most {@code maxConnections} connections are
+ * checked out at once, callers beyond that wait up to the checkout timeout.  Idle connections are reused most recently
+ * used first, validated before reuse once they have been idle for a while, and closed after the idle timeout.  Each
+ * connection keeps its own cache of prepared statements.
+ */
+class DatabaseConnectionPool
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( DatabaseConnectionPool.class );
+
+    interface ConnectionFactory
+    {
+        Connection openConnection( ) throws DatabaseException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxConnections;
+    private final TimeDuration checkoutTimeout;
+    private final TimeDuration validateAfterIdle;
+    private final TimeDuration idleTimeout;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean( false );
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder checkoutWaitNanos = new LongAdder();
+    private final AtomicLong maxCheckoutWaitNanos = new AtomicLong();
+    private final LongAdder checkoutTimeouts = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    DatabaseConnectionPool(
+            final ConnectionFactory connectionFactory,
+            final int maxConnections,
+            final TimeDuration checkoutTimeout,
+            final TimeDuration validateAfterIdle,
+            final TimeDuration idleTimeout,
+            final int statementCacheSize
+    )
+    {
+        this.connectionFactory = connectionFactory;
+        this.maxConnections = Math.max( 1, maxConnections );
+        this.checkoutTimeout = checkoutTimeout;
+        this.validateAfterIdle = validateAfterIdle;
+        this.idleTimeout = idleTimeout;
+        this.statementCacheSize = Math.max( 0, statementCacheSize );
+        this.permits = new Semaphore( this.maxConnections, true );
+    }
+
+    PooledConnection checkout( )
+            throws DatabaseException
+    {
+        checkOpen();
+
+        final long startNanos = System.nanoTime();
+        try
+        {
+            if ( !permits.tryAcquire( checkoutTimeout.asMillis(), TimeUnit.MILLISECONDS ) )
+            {
+                checkoutTimeouts.increment();
+                throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE,
+                        "timed out after " + checkoutTimeout.asCompactString() + " waiting for a database connection" ) );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, "interrupted while waiting for a database connection" ) );
+        }
+
+        final long waitNanos = System.nanoTime() - startNanos;
+        checkouts.increment();
+        checkoutWaitNanos.add( waitNanos );
+        maxCheckoutWaitNanos.accumulateAndGet( waitNanos, Math::max );
+
+        try
+        {
+            PooledConnection pooledConnection = idleConnections.pollFirst();
+            while ( pooledConnection != null )
+            {
+                if ( !pooledConnection.idleFor( validateAfterIdle ) || pooledConnection.isValid( checkoutTimeout ) )
+                {
+                    return pooledConnection;
+                }
+                LOGGER.debug( () -> "discarding invalid idle database connection" );
+                closeConnection( pooledConnection );
+                pooledConnection = idleConnections.pollFirst();
+            }
+
+            final PooledConnection newConnection = new PooledConnection( connectionFactory.openConnection() );
+            openConnections.incrementAndGet();
+            return newConnection;
+        }
+        catch ( DatabaseException | RuntimeException e )
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a checked out connection to the pool.
+     *
+     * @param suspect true if an operation on the connection failed, the connection is then only kept if it is still valid
+     */
+    void release( final PooledConnection pooledConnection, final boolean suspect )
+    {
+        try
+        {
+            if ( closed.get() || ( suspect && !pooledConnection.isValid( checkoutTimeout ) ) )
+            {
+                closeConnection( pooledConnection );
+            }
+            else
+            {
+                pooledConnection.markIdle();
+                idleConnections.offerFirst( pooledConnection );
+            }
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close connections that have been idle longer than the idle timeout, keeping the most recently used one.
+     */
+    int evictIdle( )
+    {
+        int evicted = 0;
+        final Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+        while ( iterator.hasNext() && idleConnections.size() > 1 )
+        {
+            final PooledConnection pooledConnection = iterator.next();
+            if ( pooledConnection.idleFor( idleTimeout ) && idleConnections.remove( pooledConnection ) )
+            {
+                closeConnection( pooledConnection );
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    void close( )
+    {
+        closed.set( true );
+        PooledConnection pooledConnection = idleConnections.pollFirst();
+        while ( pooledConnection != null )
+        {
+            closeConnection( pooledConnection );
+            pooledConnection = idleConnections.pollFirst();
+        }
+    }
+
+    Map<DatabaseService.DatabaseAboutProperty, String> debugProperties( )
+    {
+        final Map<DatabaseService.DatabaseAboutProperty, String> returnMap = new LinkedHashMap<>();
+        final long checkoutCount = checkouts.sum();
+        final long statementRequests = statementCacheHits.sum() + statementCacheMisses.sum();
+        returnMap.put( DatabaseService.DatabaseAboutProperty.poolOpenConnections, openConnections.get() + " / " + maxConnections );
+        returnMap.put( DatabaseService.DatabaseAboutProperty.poolActiveConnections, String.valueOf( maxConnections - permits.availablePermits() ) );
+        returnMap.put( DatabaseService.DatabaseAboutProperty.poolIdleConnections, String.valueOf( idleConnections.size() ) );
+        returnMap.put( DatabaseService.DatabaseAboutProperty.poolCheckouts, String.valueOf( checkoutCount ) );
+        returnMap.put( DatabaseService.DatabaseAboutProperty.poolAverageWaitTime, nanosToString( checkoutCount == 0 ? 0 : checkoutWaitNanos.sum() / checkoutCount ) );
+        returnMap.put( DatabaseService.DatabaseAboutProperty.poolMaxWaitTime, nanosToString( maxCheckoutWaitNanos.get() ) );
+        returnMap.put( DatabaseService.DatabaseAboutProperty.poolCheckoutTimeouts, String.valueOf( checkoutTimeouts.sum() ) );
+        returnMap.put( DatabaseService.DatabaseAboutProperty.statementCacheHitRate, statementRequests == 0
+                ? "n/a"
+                : ( statementCacheHits.sum() * 100 / statementRequests ) + "%" );
+        return returnMap;
+    }
+
+    int openConnectionCount( )
+    {
+        return openConnections.get();
+    }
+
+    int idleConnectionCount( )
+    {
+        return idleConnections.size();
+    }
+
+    long statementCacheHits( )
+    {
+        return statementCacheHits.sum();
+    }
+
+    private static String nanosToString( final long nanos )
+    {
+        return TimeDuration.of( TimeUnit.NANOSECONDS.toMillis( nanos ), TimeDuration.Unit.MILLISECONDS ).asCompactString();
+    }
+
+    private void checkOpen( )
+            throws DatabaseException
+    {
+        if ( closed.get() )
+        {
+            throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, "database connection pool is closed" ) );
+        }
+    }
+
+    private void closeConnection( final PooledConnection pooledConnection )
+    {
+        openConnections.decrementAndGet();
+        pooledConnection.close();
+    }
+
+    class PooledConnection
+    {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statementCache;
+        private volatile long idleSinceMillis = System.currentTimeMillis();
+
+        PooledConnection( final Connection connection )
+        {
+            this.connection = connection;
+            this.statementCache = new LinkedHashMap<String, PreparedStatement>( 16, 0.75f, true )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( final Map.Entry<String, PreparedStatement> eldest )
+                {
+                    if ( size() > statementCacheSize )
+                    {
+                        closeStatement( eldest.getValue() );
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection getConnection( )
+        {
+            return connection;
+        }
+
+        /**
+         * Prepared statement for the sql text, reused across calls on this connection when the statement cache is
+         * enabled.  Callers must pass the returned statement to {@link #releaseStatement(PreparedStatement)} instead
+         * of closing it.
+         */
+        PreparedStatement prepareStatement( final String sqlText )
+                throws SQLException
+        {
+            final PreparedStatement cachedStatement = statementCache.get( sqlText );
+            if ( cachedStatement != null )
+            {
+                statementCacheHits.increment();
+                cachedStatement.clearParameters();
+                cachedStatement.clearBatch();
+                return cachedStatement;
+            }
+
+            statementCacheMisses.increment();
+            final PreparedStatement statement = connection.prepareStatement( sqlText );
+            if ( statementCacheSize > 0 )
+            {
+                statementCache.put( sqlText, statement );
+            }
+            return statement;
+        }
+
+        /**
+         * True if the statement was handed out by {@link #prepareStatement(String)} and will be closed by the cache.
+         */
+        boolean isCached( final PreparedStatement statement )
+        {
+            return statementCache.containsValue( statement );
+        }
+
+        /**
+         * Release a statement returned by {@link #prepareStatement(String)}, closing it unless it is kept in the cache.
+         */
+        void releaseStatement( final PreparedStatement statement )
+        {
+            if ( statement != null && !isCached( statement ) )
+            {
+                closeStatement( statement );
+            }
+        }
+
+        boolean isValid( final TimeDuration timeout )
+        {
+            try
+            {
+                return !connection.isClosed() && connection.isValid( ( int ) Math.max( 1, timeout.as( TimeDuration.Unit.SECONDS ) ) );
+            }
+            catch ( SQLException e )
+            {
+                LOGGER.debug( () -> "error while checking connection validity: " + e.getMessage() );
+                return false;
+            }
+        }
+
+        private void markIdle( )
+        {
+            idleSinceMillis = System.currentTimeMillis();
+        }
+
+        private boolean idleFor( final TimeDuration timeDuration )
+        {
+            return System.currentTimeMillis() - idleSinceMillis > timeDuration.asMillis();
+        }
+
+        private void close( )
+        {
+            for ( final PreparedStatement statement : new ArrayList<>( statementCache.values() ) )
+            {
+                closeStatement( statement );
+            }
+            statementCache.clear();
+
+            try
+            {
+                connection.close();
+            }
+            catch ( SQLException e )
+            {
+                LOGGER.warn( "error while closing connection: " + e.getMessage() );
+            }
+        }
+
+        private void closeStatement( final PreparedStatement statement )
+        {
+            try
+            {
+                statement.close();
+            }
+            catch ( SQLException e )
+            {
+                LOGGER.debug( () -> "error closing statement: " + e.getMessage() );
+            }
+        }
+    }
+}
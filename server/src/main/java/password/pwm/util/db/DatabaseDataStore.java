@@ -25,6 +25,11 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.DataStore;
 import password.pwm.util.java.ClosableIterator;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+
 public class DatabaseDataStore implements DataStore
 {
     private final DatabaseService databaseService;
@@ -84,4 +89,25 @@ public class DatabaseDataStore implements DataStore
     {
         return databaseService.getAccessor().size( table );
     }
+
+    public void putAll( final Map<String, String> keyValueMap ) throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        databaseService.getAccessor().putAll( table, keyValueMap );
+    }
+
+    public Map<String, String> getAll( final Collection<String> keys ) throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        return databaseService.getAccessor().getAll( table, keys );
+    }
+
+    public void removeAll( final Collection<String> keys ) throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        databaseService.getAccessor().removeAll( table, keys );
+    }
+
+    public int removeWhere( final BiPredicate<String, String> predicate, final BooleanSupplier continueCondition )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        return databaseService.getAccessor().removeWhere( table, predicate, continueCondition );
+    }
 }
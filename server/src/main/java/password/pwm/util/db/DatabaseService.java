@@ -38,9 +38,9 @@ import password.pwm.svc.PwmService;
 import password.pwm.svc.stats.EpsStatistic;
 import password.pwm.svc.stats.StatisticsManager;
 import password.pwm.util.PwmScheduler;
-import password.pwm.util.java.AtomicLoopIntIncrementer;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
@@ -56,7 +56,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 
@@ -79,12 +78,13 @@ public class DatabaseService implements PwmService
 
     private STATUS status = STATUS.NEW;
 
-    private AtomicLoopIntIncrementer slotIncrementer;
-    private final Map<Integer, DatabaseAccessorImpl> accessors = new ConcurrentHashMap<>();
+    private volatile DatabaseConnectionPool connectionPool;
+    private volatile DatabaseAccessorImpl accessor;
 
     private ExecutorService executorService;
 
     private final Map<DatabaseAboutProperty, String> debugInfo = new LinkedHashMap<>();
+    private DatabaseVendor vendor = DatabaseVendor.GENERIC;
 
     private volatile boolean initialized = false;
 
@@ -94,6 +94,15 @@ public class DatabaseService implements PwmService
         driverVersion,
         databaseProductName,
         databaseProductVersion,
+        vendor,
+        poolOpenConnections,
+        poolActiveConnections,
+        poolIdleConnections,
+        poolCheckouts,
+        poolAverageWaitTime,
+        poolMaxWaitTime,
+        poolCheckoutTimeouts,
+        statementCacheHitRate,
     }
 
 
@@ -141,14 +150,14 @@ public class DatabaseService implements PwmService
             }
 
             LOGGER.debug( () -> "opening connection to database " + this.dbConfiguration.getConnectionString() );
-            slotIncrementer = new AtomicLoopIntIncrementer( dbConfiguration.getMaxConnections() );
-
             {
                 // make initial connection and establish schema
                 clearCurrentAccessors();
 
                 final Connection connection = openConnection( dbConfiguration );
                 updateDebugProperties( connection );
+                vendor = detectVendor( dbConfiguration, debugInfo.get( DatabaseAboutProperty.databaseProductName ) );
+                debugInfo.put( DatabaseAboutProperty.vendor, vendor.name() );
                 LOGGER.debug( () -> "established initial connection to " + dbConfiguration.getConnectionString() + ", properties: " + JsonUtil.serializeMap( this.debugInfo ) );
 
                 for ( final DatabaseTable table : DatabaseTable.values() )
@@ -159,16 +168,18 @@ public class DatabaseService implements PwmService
                 connection.close();
             }
 
-            accessors.clear();
             {
-                // set up connection pool
+                // set up connection pool, connections are opened on demand
                 final boolean traceLogging = config.readSettingAsBoolean( PwmSetting.DATABASE_DEBUG_TRACE );
-                for ( int i = 0; i < dbConfiguration.getMaxConnections(); i++ )
-                {
-                    final Connection connection = openConnection( dbConfiguration );
-                    final DatabaseAccessorImpl accessor = new DatabaseAccessorImpl( this, this.dbConfiguration, connection, traceLogging );
-                    accessors.put( i, accessor );
-                }
+                final DBConfiguration poolConfiguration = this.dbConfiguration;
+                connectionPool = new DatabaseConnectionPool(
+                        () -> openConnection( poolConfiguration ),
+                        dbConfiguration.getMaxConnections(),
+                        TimeDuration.of( dbConfiguration.getConnectionTimeout(), TimeDuration.Unit.MILLISECONDS ),
+                        dbConfiguration.getValidateIdleAfter(),
+                        dbConfiguration.getIdleTimeout(),
+                        dbConfiguration.getStatementCacheSize() );
+                accessor = new DatabaseAccessorImpl( this, connectionPool, vendor, dbConfiguration.getBatchSize(), traceLogging );
             }
 
             LOGGER.debug( () -> "successfully connected to remote database (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
@@ -216,11 +227,26 @@ public class DatabaseService implements PwmService
 
     private void clearCurrentAccessors( )
     {
-        for ( DatabaseAccessorImpl accessor : accessors.values() )
+        if ( accessor != null )
         {
             accessor.close();
+            accessor = null;
+        }
+        if ( connectionPool != null )
+        {
+            connectionPool.close();
+            connectionPool = null;
+        }
+    }
+
+    private static DatabaseVendor detectVendor( final DBConfiguration dbConfiguration, final String databaseProductName )
+    {
+        final String vendorOverride = dbConfiguration.getVendorOverride();
+        if ( !StringUtil.isEmpty( vendorOverride ) )
+        {
+            return JavaHelper.readEnumFromString( DatabaseVendor.class, DatabaseVendor.GENERIC, vendorOverride.trim().toUpperCase() );
         }
-        accessors.clear();
+        return DatabaseVendor.forProductName( databaseProductName );
     }
 
     public List<HealthRecord> healthCheck( )
@@ -299,7 +325,7 @@ public class DatabaseService implements PwmService
     public ServiceInfoBean serviceInfo( )
     {
         final Map<String, String> debugProperties = new LinkedHashMap<>();
-        for ( final Map.Entry<DatabaseAboutProperty, String> entry : debugInfo.entrySet() )
+        for ( final Map.Entry<DatabaseAboutProperty, String> entry : getConnectionDebugProperties().entrySet() )
         {
             final DatabaseAboutProperty databaseAboutProperty = entry.getKey();
             debugProperties.put( databaseAboutProperty.name(), entry.getValue() );
@@ -327,7 +353,7 @@ public class DatabaseService implements PwmService
             throw new PwmUnrecoverableException( makeUninitializedError() );
         }
 
-        return accessors.get( slotIncrementer.next() );
+        return accessor;
     }
 
     private Connection openConnection( final DBConfiguration dbConfiguration )
@@ -395,7 +421,15 @@ public class DatabaseService implements PwmService
 
     public Map<DatabaseAboutProperty, String> getConnectionDebugProperties( )
     {
-        return Collections.unmodifiableMap( debugInfo );
+        final DatabaseConnectionPool pool = connectionPool;
+        if ( pool == null )
+        {
+            return Collections.unmodifiableMap( debugInfo );
+        }
+
+        final Map<DatabaseAboutProperty, String> returnMap = new LinkedHashMap<>( debugInfo );
+        returnMap.putAll( pool.debugProperties() );
+        return Collections.unmodifiableMap( returnMap );
     }
 
     private void updateDebugProperties( final Connection connection )
@@ -411,7 +445,7 @@ public class DatabaseService implements PwmService
                 returnObj.put( DatabaseAboutProperty.databaseProductName, databaseMetaData.getDatabaseProductName() );
                 returnObj.put( DatabaseAboutProperty.databaseProductVersion, databaseMetaData.getDatabaseProductVersion() );
                 debugInfo.clear();
-                debugInfo.putAll( Collections.unmodifiableMap( returnObj ) );
+                debugInfo.putAll( returnObj );
             }
             catch ( SQLException e )
             {
@@ -432,16 +466,14 @@ public class DatabaseService implements PwmService
         {
             if ( initialized )
             {
-                boolean valid = true;
-                for ( final DatabaseAccessorImpl databaseAccessor : accessors.values() )
+                final DatabaseConnectionPool pool = connectionPool;
+                if ( pool != null )
                 {
-                    if ( !databaseAccessor.isValid() )
-                    {
-                        valid = false;
-                        break;
-                    }
+                    pool.evictIdle();
                 }
-                if ( !valid )
+
+                final DatabaseAccessorImpl databaseAccessor = accessor;
+                if ( databaseAccessor == null || !databaseAccessor.isConnected() )
                 {
                     LOGGER.warn( "database connection lost; will retry connect periodically" );
                     initialized = false;
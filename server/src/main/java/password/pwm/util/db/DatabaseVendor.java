@@ -0,0 +1,167 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.db;
+
+import password.pwm.util.java.StringUtil;
+
+/**
+ * Database vendors with a native single statement upsert.  Every statement takes the key and then the value as its
+ * two parameters, and must accept values of any size the value column holds, including large CLOB values.  Vendors
+ * without an entry here use the {@link #GENERIC} update-then-insert sequence.
+ */
+enum DatabaseVendor
+{
+    POSTGRESQL( "PostgreSQL" )
+            {
+                @Override
+                String upsertSql( final String table )
+                {
+                    return insertSql( table ) + " ON CONFLICT (" + DatabaseService.KEY_COLUMN + ") DO UPDATE SET "
+                            + DatabaseService.VALUE_COLUMN + " = EXCLUDED." + DatabaseService.VALUE_COLUMN;
+                }
+
+                @Override
+                String insertIfAbsentSql( final String table )
+                {
+                    return insertSql( table ) + " ON CONFLICT (" + DatabaseService.KEY_COLUMN + ") DO NOTHING";
+                }
+            },
+
+    MYSQL( "MySQL", "MariaDB" )
+            {
+                @Override
+                String upsertSql( final String table )
+                {
+                    return insertSql( table ) + " ON DUPLICATE KEY UPDATE "
+                            + DatabaseService.VALUE_COLUMN + " = VALUES(" + DatabaseService.VALUE_COLUMN + ")";
+                }
+
+                @Override
+                String insertIfAbsentSql( final String table )
+                {
+                    // a no-op ON DUPLICATE KEY UPDATE would report a matched row when the driver counts found rows
+                    return insertSql( table ).replaceFirst( "INSERT INTO", "INSERT IGNORE INTO" );
+                }
+            },
+
+    ORACLE( "Oracle" )
+            {
+                // no native upsert: a MERGE reading its values from DUAL binds the value in a SQL expression, which is
+                // limited to 4000 bytes and fails for larger CLOB values, so the update-then-insert sequence is used.
+
+                @Override
+                String insertIfAbsentSql( final String table )
+                {
+                    return insertSql( table ).replaceFirst( "INSERT INTO",
+                            "INSERT /*+ IGNORE_ROW_ON_DUPKEY_INDEX(" + table + " (" + DatabaseService.KEY_COLUMN + ")) */ INTO" );
+                }
+            },
+
+    MSSQL( "Microsoft SQL Server" )
+            {
+                @Override
+                String upsertSql( final String table )
+                {
+                    return mergeSql( table + " WITH (HOLDLOCK)", mssqlSource(), true ) + ";";
+                }
+
+                @Override
+                String insertIfAbsentSql( final String table )
+                {
+                    return mergeSql( table + " WITH (HOLDLOCK)", mssqlSource(), false ) + ";";
+                }
+
+                private String mssqlSource( )
+                {
+                    return "(VALUES (?, ?)) AS src (" + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN + ")";
+                }
+            },
+
+    H2( "H2" )
+            {
+                @Override
+                String upsertSql( final String table )
+                {
+                    return "MERGE INTO " + table + " (" + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN + ")"
+                            + " KEY (" + DatabaseService.KEY_COLUMN + ") VALUES (?, ?)";
+                }
+            },
+
+    GENERIC(),;
+
+    private final String[] productNames;
+
+    DatabaseVendor( final String... productNames )
+    {
+        this.productNames = productNames;
+    }
+
+    /**
+     * Statement that inserts or replaces the value for a key, or null if the vendor has no native upsert.
+     */
+    String upsertSql( final String table )
+    {
+        return null;
+    }
+
+    /**
+     * Statement that inserts the value only if the key is not present and reports one updated row if it inserted, or null if
+     * the vendor has no native form.
+     */
+    String insertIfAbsentSql( final String table )
+    {
+        return null;
+    }
+
+    static DatabaseVendor forProductName( final String productName )
+    {
+        if ( !StringUtil.isEmpty( productName ) )
+        {
+            for ( final DatabaseVendor vendor : values() )
+            {
+                for ( final String vendorProductName : vendor.productNames )
+                {
+                    if ( productName.toLowerCase().startsWith( vendorProductName.toLowerCase() ) )
+                    {
+                        return vendor;
+                    }
+                }
+            }
+        }
+        return GENERIC;
+    }
+
+    private static String insertSql( final String table )
+    {
+        return "INSERT INTO " + table + " (" + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN + ") VALUES (?, ?)";
+    }
+
+    private static String mergeSql( final String target, final String source, final boolean updateExisting )
+    {
+        final String key = DatabaseService.KEY_COLUMN;
+        final String value = DatabaseService.VALUE_COLUMN;
+        return "MERGE INTO " + target + " tgt USING " + source
+                + " ON (tgt." + key + " = src." + key + ")"
+                + ( updateExisting ? " WHEN MATCHED THEN UPDATE SET tgt." + value + " = src." + value : "" )
+                + " WHEN NOT MATCHED THEN INSERT (" + key + ", " + value + ") VALUES (src." + key + ", src." + value + ")";
+    }
+}
@@ -137,6 +137,11 @@ public class JsonUtil
         return JsonUtil.getGson( flags ).toJson( object );
     }
 
+    public static String serialize( final Object object, final Type type )
+    {
+        return JsonUtil.getGson().toJson( object, type );
+    }
+
     public static String serializeMap( final Map object, final Flag... flags )
     {
         return JsonUtil.getGson( flags ).toJson( object );
@@ -20,7 +20,10 @@
 
 package password.pwm.util.java;
 
+import lombok.Value;
+
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * <p>MovingAverage.java</p>
@@ -43,12 +46,13 @@ import java.io.Serializable;
  * algorithm described at <a href="http://en.wikipedia.org/wiki/Moving_average">http://en.wikipedia.org/wiki/Moving_average</a>. The average does not
  * sample itself; it merely computes the new average when updated with
  * a sample by an external mechanism.</p>
+ *
+ * <p>Updates replace an immutable sample with a compare-and-set, so concurrent callers never block.</p>
  **/
 public class MovingAverage implements Serializable
 {
-    private long windowMillis;
-    private long lastMillis;
-    private double average;
+    private final long windowMillis;
+    private final AtomicReference<Sample> lastSample = new AtomicReference<>( new Sample( 0, 0 ) );
 
     /**
      * Construct a {@link MovingAverage}, providing the time window
@@ -73,22 +77,31 @@ public class MovingAverage implements Serializable
      *
      * @param sample the latest measurement in the rolling average
      */
-    public synchronized void update( final double sample )
+    public void update( final double sample )
     {
         final long now = System.currentTimeMillis();
 
-        if ( lastMillis == 0 )
+        while ( true )
         {
-            // first sample
-            average = sample;
-            lastMillis = now;
-            return;
-        }
-        final long deltaTime = now - lastMillis;
-        final double coeff = Math.exp( -1.0 * ( ( double ) deltaTime / windowMillis ) );
-        average = ( 1.0 - coeff ) * sample + coeff * average;
+            final Sample previous = lastSample.get();
+            final Sample next;
+            if ( previous.getMillis() == 0 )
+            {
+                // first sample
+                next = new Sample( now, sample );
+            }
+            else
+            {
+                final long deltaTime = now - previous.getMillis();
+                final double coeff = Math.exp( -1.0 * ( ( double ) deltaTime / windowMillis ) );
+                next = new Sample( now, ( 1.0 - coeff ) * sample + coeff * previous.getAverage() );
+            }
 
-        lastMillis = now;
+            if ( lastSample.compareAndSet( previous, next ) )
+            {
+                return;
+            }
+        }
     }
 
     /**
@@ -99,11 +112,20 @@ public class MovingAverage implements Serializable
     public double getAverage( )
     {
         update( 0 );
-        return average;
+        return lastSample.get().getAverage();
     }
 
     public long getLastMillis( )
     {
-        return lastMillis;
+        return lastSample.get().getMillis();
+    }
+
+    @Value
+    private static class Sample implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long millis;
+        private final double average;
     }
 }
@@ -239,6 +239,51 @@ public abstract class AbstractJDBCLocalDB implements LocalDBProvider
         return get( db, key ) != null;
     }
 
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys )
+            throws LocalDBException
+    {
+        preCheck( false );
+        if ( keys.isEmpty() )
+        {
+            return false;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append( "SELECT " + KEY_COLUMN + " FROM " ).append( db.toString() ).append( " WHERE " + KEY_COLUMN + " IN (" );
+        for ( int i = 0; i < keys.size(); i++ )
+        {
+            sb.append( i == 0 ? "?" : ",?" );
+        }
+        sb.append( ")" );
+
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try
+        {
+            lock.readLock().lock();
+            statement = dbConnection.prepareStatement( sb.toString() );
+            int index = 1;
+            for ( final String key : keys )
+            {
+                statement.setString( index, key );
+                index++;
+            }
+            statement.setMaxRows( 1 );
+            resultSet = statement.executeQuery();
+            return resultSet.next();
+        }
+        catch ( final SQLException ex )
+        {
+            throw new LocalDBException( new ErrorInformation( PwmError.ERROR_LOCALDB_UNAVAILABLE, ex.getMessage() ) );
+        }
+        finally
+        {
+            close( statement );
+            close( resultSet );
+            lock.readLock().unlock();
+        }
+    }
+
     public String get( final LocalDB.DB db, final String key )
             throws LocalDBException
     {
@@ -588,6 +633,56 @@ public abstract class AbstractJDBCLocalDB implements LocalDBProvider
         }
     }
 
+    @LocalDB.WriteOperation
+    public void removeAllAndPutAll( final LocalDB.DB db, final Collection<String> removeKeys, final Map<String, String> keyValueMap )
+            throws LocalDBException
+    {
+        preCheck( true );
+        final String removeSqlString = "DELETE FROM " + db.toString() + " WHERE " + KEY_COLUMN + "=?";
+        final String insertSqlString = "INSERT INTO " + db.toString() + "(" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES(?,?)";
+        PreparedStatement removeStatement = null;
+        PreparedStatement insertStatement = null;
+        try
+        {
+            lock.writeLock().lock();
+            removeStatement = dbConnection.prepareStatement( removeSqlString );
+            insertStatement = dbConnection.prepareStatement( insertSqlString );
+
+            for ( final String loopKey : removeKeys )
+            {
+                removeStatement.clearParameters();
+                removeStatement.setString( 1, loopKey );
+                removeStatement.addBatch();
+            }
+
+            for ( final Map.Entry<String, String> entry : keyValueMap.entrySet() )
+            {
+                removeStatement.clearParameters();
+                removeStatement.setString( 1, entry.getKey() );
+                removeStatement.addBatch();
+
+                insertStatement.clearParameters();
+                insertStatement.setString( 1, entry.getKey() );
+                insertStatement.setString( 2, entry.getValue() );
+                insertStatement.addBatch();
+            }
+
+            removeStatement.executeBatch();
+            insertStatement.executeBatch();
+            dbConnection.commit();
+        }
+        catch ( final SQLException ex )
+        {
+            throw new LocalDBException( new ErrorInformation( PwmError.ERROR_LOCALDB_UNAVAILABLE, ex.getMessage() ) );
+        }
+        finally
+        {
+            close( removeStatement );
+            close( insertStatement );
+            lock.writeLock().unlock();
+        }
+    }
+
     abstract Connection openConnection(
             File databaseDirectory,
             String driverClasspath,
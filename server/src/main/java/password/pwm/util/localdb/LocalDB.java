@@ -57,6 +57,19 @@ public interface LocalDB
     boolean contains( DB db, String key )
             throws LocalDBException;
 
+    /**
+     * Test if any of the supplied keys are present.  All keys are checked within a single read operation, so
+     * this is considerably cheaper than calling {@link #contains(DB, String)} once per key.
+     *
+     * @param db   database to perform the operation on
+     * @param keys keys to check
+     * @return true if at least one of the keys exists in the database
+     * @throws LocalDBException if there is an error reading the store
+     */
+    @ReadOperation
+    boolean containsAny( DB db, Collection<String> keys )
+            throws LocalDBException;
+
     @ReadOperation
     String get( DB db, String key )
             throws LocalDBException;
@@ -99,6 +112,19 @@ public interface LocalDB
     void removeAll( DB db, Collection<String> key )
             throws LocalDBException;
 
+    /**
+     * Remove a set of keys and then put a set of key/values as a single write operation, so either all or none
+     * of the changes are applied.
+     *
+     * @param db          database to perform the operation on
+     * @param removeKeys  keys to remove
+     * @param keyValueMap key/values to put after the keys have been removed
+     * @throws LocalDBException if there is an error writing to the store
+     */
+    @WriteOperation
+    void removeAllAndPutAll( DB db, Collection<String> removeKeys, Map<String, String> keyValueMap )
+            throws LocalDBException;
+
     @ReadOperation
     long size( DB db )
             throws LocalDBException;
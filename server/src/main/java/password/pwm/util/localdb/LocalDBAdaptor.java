@@ -69,6 +69,23 @@ public class LocalDBAdaptor implements LocalDB
         return value;
     }
 
+    public boolean containsAny( final DB db, final Collection<String> keys ) throws LocalDBException
+    {
+        ParameterValidator.validateDBValue( db );
+        for ( final String key : keys )
+        {
+            ParameterValidator.validateKeyValue( key );
+        }
+
+        if ( keys.isEmpty() )
+        {
+            return false;
+        }
+
+        final boolean value = innerDB.containsAny( db, keys );
+        markRead();
+        return value;
+    }
 
     public String get( final DB db, final String key ) throws LocalDBException
     {
@@ -196,6 +213,25 @@ public class LocalDBAdaptor implements LocalDB
         markWrite( keys.size() );
     }
 
+    @WriteOperation
+    public void removeAllAndPutAll( final DB db, final Collection<String> removeKeys, final Map<String, String> keyValueMap ) throws LocalDBException
+    {
+        ParameterValidator.validateDBValue( db );
+        for ( final String loopKey : removeKeys )
+        {
+            ParameterValidator.validateKeyValue( loopKey );
+        }
+        for ( final Map.Entry<String, String> entry : keyValueMap.entrySet() )
+        {
+            ParameterValidator.validateKeyValue( entry.getKey() );
+            ParameterValidator.validateValueValue( entry.getValue() );
+        }
+
+        innerDB.removeAllAndPutAll( db, removeKeys, keyValueMap );
+
+        markWrite( removeKeys.size() + keyValueMap.size() );
+    }
+
     public long size( final DB db ) throws LocalDBException
     {
         ParameterValidator.validateDBValue( db );
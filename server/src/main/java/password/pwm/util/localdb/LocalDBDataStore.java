@@ -24,7 +24,13 @@ import password.pwm.error.PwmDataStoreException;
 import password.pwm.util.DataStore;
 import password.pwm.util.java.ClosableIterator;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
 
 public class LocalDBDataStore implements DataStore
 {
@@ -62,6 +68,44 @@ public class LocalDBDataStore implements DataStore
         localDB.putAll( db, keyValueMap );
     }
 
+    public Map<String, String> getAll( final Collection<String> keys ) throws PwmDataStoreException
+    {
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        for ( final String key : keys )
+        {
+            final String value = localDB.get( db, key );
+            if ( value != null )
+            {
+                returnMap.put( key, value );
+            }
+        }
+        return returnMap;
+    }
+
+    public void removeAll( final Collection<String> keys ) throws PwmDataStoreException
+    {
+        localDB.removeAll( db, keys );
+    }
+
+    public int removeWhere( final BiPredicate<String, String> predicate, final BooleanSupplier continueCondition ) throws PwmDataStoreException
+    {
+        final List<String> matchingKeys = new ArrayList<>();
+        try ( LocalDB.LocalDBIterator<String> iterator = localDB.iterator( db ) )
+        {
+            while ( iterator.hasNext() && continueCondition.getAsBoolean() )
+            {
+                final String key = iterator.next();
+                if ( predicate.test( key, localDB.get( db, key ) ) )
+                {
+                    matchingKeys.add( key );
+                }
+            }
+        }
+
+        localDB.removeAll( db, matchingKeys );
+        return matchingKeys.size();
+    }
+
     public Status status( )
     {
         final LocalDB.Status dbStatus = localDB.status();
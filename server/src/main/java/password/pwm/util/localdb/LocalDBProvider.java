@@ -48,6 +48,10 @@ public interface LocalDBProvider
     boolean contains( LocalDB.DB db, String key )
             throws LocalDBException;
 
+    @LocalDB.ReadOperation
+    boolean containsAny( LocalDB.DB db, Collection<String> keys )
+            throws LocalDBException;
+
     @LocalDB.ReadOperation
     String get( LocalDB.DB db, String key )
             throws LocalDBException;
@@ -79,6 +83,10 @@ public interface LocalDBProvider
     void removeAll( LocalDB.DB db, Collection<String> key )
             throws LocalDBException;
 
+    @LocalDB.WriteOperation
+    void removeAllAndPutAll( LocalDB.DB db, Collection<String> removeKeys, Map<String, String> keyValueMap )
+            throws LocalDBException;
+
     @LocalDB.ReadOperation
     long size( LocalDB.DB db )
             throws LocalDBException;
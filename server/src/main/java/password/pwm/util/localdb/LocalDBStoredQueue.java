@@ -127,6 +127,37 @@ LocalDBStoredQueue implements Queue<String>, Deque<String>
         }
     }
 
+    /**
+     * Remove up to {@code count} values from the head of the queue.  The values and the new head position are
+     * removed and written in a single LocalDB operation.
+     *
+     * @param count maximum number of values to remove
+     * @return the removed values, in queue order
+     */
+    public List<String> pollFirst( final int count )
+    {
+        try
+        {
+            return internalQueue.removeFirst( count, true );
+        }
+        catch ( LocalDBException e )
+        {
+            throw new IllegalStateException( "unexpected localDB error while modifying queue: " + e.getMessage(), e );
+        }
+    }
+
+    public List<String> peekFirst( final int count )
+    {
+        try
+        {
+            return internalQueue.getFirst( count );
+        }
+        catch ( LocalDBException e )
+        {
+            throw new IllegalStateException( "unexpected localDB error while reading queue: " + e.getMessage(), e );
+        }
+    }
+
     public boolean isEmpty( )
     {
         try
@@ -780,11 +811,17 @@ LocalDBStoredQueue implements Queue<String>, Deque<String>
                     return Collections.emptyList();
                 }
 
+                final int removalSize = Math.min( removalCount, internalSize() );
+                if ( removalSize < 1 )
+                {
+                    return Collections.emptyList();
+                }
+
                 final List<String> removalKeys = new ArrayList<>();
                 final List<String> removedValues = new ArrayList<>();
                 Position previousHead = headPosition;
                 int removedPositions = 0;
-                while ( removedPositions < removalCount )
+                while ( removedPositions < removalSize )
                 {
                     removalKeys.add( previousHead.toString() );
                     if ( returnValues )
@@ -798,8 +835,7 @@ LocalDBStoredQueue implements Queue<String>, Deque<String>
                     previousHead = previousHead.equals( tailPosition ) ? previousHead : previousHead.previous();
                     removedPositions++;
                 }
-                localDB.removeAll( db, removalKeys );
-                localDB.put( db, KEY_HEAD_POSITION, previousHead.toString() );
+                localDB.removeAllAndPutAll( db, removalKeys, Collections.singletonMap( KEY_HEAD_POSITION, previousHead.toString() ) );
                 headPosition = previousHead;
 
                 debugOutput( "post removeFirst()" );
@@ -824,11 +860,17 @@ LocalDBStoredQueue implements Queue<String>, Deque<String>
                     return Collections.emptyList();
                 }
 
+                final int removalSize = Math.min( removalCount, internalSize() );
+                if ( removalSize < 1 )
+                {
+                    return Collections.emptyList();
+                }
+
                 final List<String> removalKeys = new ArrayList<>();
                 final List<String> removedValues = new ArrayList<>();
                 Position nextTail = tailPosition;
                 int removedPositions = 0;
-                while ( removedPositions < removalCount )
+                while ( removedPositions < removalSize )
                 {
                     removalKeys.add( nextTail.toString() );
                     if ( returnValues )
@@ -842,8 +884,7 @@ LocalDBStoredQueue implements Queue<String>, Deque<String>
                     nextTail = nextTail.equals( headPosition ) ? nextTail : nextTail.next();
                     removedPositions++;
                 }
-                localDB.removeAll( db, removalKeys );
-                localDB.put( db, KEY_TAIL_POSITION, nextTail.toString() );
+                localDB.removeAllAndPutAll( db, removalKeys, Collections.singletonMap( KEY_TAIL_POSITION, nextTail.toString() ) );
                 tailPosition = nextTail;
 
                 debugOutput( "post removeLast()" );
@@ -75,6 +75,22 @@ public class MemoryLocalDB implements LocalDBProvider
         return map.containsKey( key );
     }
 
+    @Override
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys )
+            throws LocalDBException
+    {
+        opertationPreCheck();
+        final Map<String, String> map = maps.get( db );
+        for ( final String key : keys )
+        {
+            if ( map.containsKey( key ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String get( final LocalDB.DB db, final String key )
             throws LocalDBException
     {
@@ -182,6 +198,17 @@ public class MemoryLocalDB implements LocalDBProvider
         maps.get( db ).keySet().removeAll( keys );
     }
 
+    @LocalDB.WriteOperation
+    public void removeAllAndPutAll( final LocalDB.DB db, final Collection<String> removeKeys, final Map<String, String> keyValueMap )
+            throws LocalDBException
+    {
+        opertationPreCheck();
+
+        final Map<String, String> map = maps.get( db );
+        map.keySet().removeAll( removeKeys );
+        map.putAll( keyValueMap );
+    }
+
     public LocalDB.Status getStatus( )
     {
         return state;
@@ -0,0 +1,125 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.localdb;
+
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Completion keys of {@link WorkQueueProcessor} items that have been processed but are still in the queue behind
+ * an item that is not yet complete.  The keys are persisted in {@link LocalDB.DB#PWM_META} when a LocalDB is
+ * available, so items already delivered out of order are not processed again after a restart.  Only used by
+ * the work queue's worker thread.
+ */
+class WorkQueueCompletionMarkers
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( WorkQueueCompletionMarkers.class );
+
+    private final LocalDB localDB;
+    private final String storageKey;
+
+    private final Set<String> completionKeys = new HashSet<>();
+
+    WorkQueueCompletionMarkers( final LocalDB localDB, final String storageKey )
+    {
+        this.localDB = localDB;
+        this.storageKey = storageKey;
+        readStoredKeys();
+    }
+
+    boolean contains( final String completionKey )
+    {
+        return completionKey != null && completionKeys.contains( completionKey );
+    }
+
+    int size()
+    {
+        return completionKeys.size();
+    }
+
+    /**
+     * Replace the stored markers, keys no longer present in the queue are dropped.
+     *
+     * @param newKeys completion keys of items processed behind the incomplete head of the queue
+     */
+    void replace( final Set<String> newKeys )
+    {
+        if ( completionKeys.equals( newKeys ) )
+        {
+            return;
+        }
+
+        completionKeys.retainAll( newKeys );
+        completionKeys.addAll( newKeys );
+        writeStoredKeys();
+    }
+
+    private void readStoredKeys()
+    {
+        if ( localDB == null )
+        {
+            return;
+        }
+
+        try
+        {
+            final String storedValue = localDB.get( LocalDB.DB.PWM_META, storageKey );
+            if ( !StringUtil.isEmpty( storedValue ) )
+            {
+                completionKeys.addAll( JsonUtil.deserializeStringList( storedValue ) );
+            }
+        }
+        catch ( Exception e )
+        {
+            LOGGER.error( "error reading stored work queue completion markers: " + e.getMessage() );
+        }
+    }
+
+    private void writeStoredKeys()
+    {
+        if ( localDB == null )
+        {
+            return;
+        }
+
+        try
+        {
+            if ( completionKeys.isEmpty() )
+            {
+                localDB.remove( LocalDB.DB.PWM_META, storageKey );
+            }
+            else
+            {
+                localDB.put( LocalDB.DB.PWM_META, storageKey, JsonUtil.serializeCollection( new ArrayList<>( new TreeSet<>( completionKeys ) ) ) );
+            }
+        }
+        catch ( LocalDBException e )
+        {
+            LOGGER.error( "error writing work queue completion markers: " + e.getMessage() );
+        }
+    }
+}
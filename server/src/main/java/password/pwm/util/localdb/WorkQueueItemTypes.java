@@ -0,0 +1,164 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.localdb;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmOperationalException;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned type ids for {@link WorkQueueProcessor} items, so a compact encoded item only needs to carry a small id
+ * instead of the item class name.  Ids are persisted in {@link LocalDB.DB#PWM_META} when a LocalDB is available so
+ * items queued before a restart can still be decoded.
+ */
+class WorkQueueItemTypes
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( WorkQueueItemTypes.class );
+
+    private final LocalDB localDB;
+    private final String storageKey;
+
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private final Map<String, Class<?>> classesByName = new ConcurrentHashMap<>();
+
+    WorkQueueItemTypes( final LocalDB localDB, final String storageKey )
+    {
+        this.localDB = localDB;
+        this.storageKey = storageKey;
+        readStoredTypes();
+    }
+
+    int idForClassName( final String className )
+    {
+        final Integer existingId = idsByName.get( className );
+        if ( existingId != null )
+        {
+            return existingId;
+        }
+
+        return registerClassName( className );
+    }
+
+    String classNameForId( final int id )
+            throws PwmOperationalException
+    {
+        final String className = namesById.get( id );
+        if ( className == null )
+        {
+            throw new PwmOperationalException( new ErrorInformation( PwmError.ERROR_INTERNAL, "unknown work queue item type id " + id ) );
+        }
+        return className;
+    }
+
+    Class<?> classForName( final String className )
+            throws PwmOperationalException
+    {
+        final Class<?> existingClass = classesByName.get( className );
+        if ( existingClass != null )
+        {
+            return existingClass;
+        }
+
+        try
+        {
+            final Class<?> loadedClass = Class.forName( className );
+            classesByName.put( className, loadedClass );
+            return loadedClass;
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new PwmOperationalException( new ErrorInformation( PwmError.ERROR_INTERNAL, "unknown work queue item class " + className ) );
+        }
+    }
+
+    private synchronized int registerClassName( final String className )
+    {
+        final Integer existingId = idsByName.get( className );
+        if ( existingId != null )
+        {
+            return existingId;
+        }
+
+        final int newId = namesById.keySet().stream().mapToInt( Integer::intValue ).max().orElse( 0 ) + 1;
+        namesById.put( newId, className );
+        idsByName.put( className, newId );
+        writeStoredTypes();
+        return newId;
+    }
+
+    private void readStoredTypes()
+    {
+        if ( localDB == null )
+        {
+            return;
+        }
+
+        try
+        {
+            final String storedValue = localDB.get( LocalDB.DB.PWM_META, storageKey );
+            if ( !StringUtil.isEmpty( storedValue ) )
+            {
+                final Map<String, String> storedTypes = JsonUtil.deserializeStringMap( storedValue );
+                for ( final Map.Entry<String, String> entry : storedTypes.entrySet() )
+                {
+                    final int id = Integer.parseInt( entry.getValue() );
+                    idsByName.put( entry.getKey(), id );
+                    namesById.put( id, entry.getKey() );
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            LOGGER.error( "error reading stored work queue item types: " + e.getMessage() );
+        }
+    }
+
+    private void writeStoredTypes()
+    {
+        if ( localDB == null )
+        {
+            return;
+        }
+
+        final Map<String, String> storedTypes = new TreeMap<>();
+        for ( final Map.Entry<String, Integer> entry : idsByName.entrySet() )
+        {
+            storedTypes.put( entry.getKey(), String.valueOf( entry.getValue() ) );
+        }
+
+        try
+        {
+            localDB.put( LocalDB.DB.PWM_META, storageKey, JsonUtil.serializeMap( storedTypes ) );
+        }
+        catch ( LocalDBException e )
+        {
+            LOGGER.error( "error writing work queue item types: " + e.getMessage() );
+        }
+    }
+}
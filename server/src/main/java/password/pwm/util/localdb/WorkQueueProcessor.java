@@ -40,12 +40,21 @@ import password.pwm.util.logging.PwmLogger;
 import java.io.Serializable;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -56,24 +65,40 @@ import java.util.concurrent.locks.LockSupport;
 
 /**
  * A work item queue manager.   Items submitted to the queue will eventually be worked on by the client side @code {@link ItemProcessor}.
+ *
+ * <p>Queued items are read from the head of the queue in batches.  Items in a batch are split into stripes using
+ * {@link ItemProcessor#orderingKey(Serializable)}, and each stripe is worked on by one of the worker threads, so items
+ * with the same key are always processed in submission order.  Completed items are removed from the head of the queue
+ * with a single queue operation per batch.</p>
  */
 public final class WorkQueueProcessor<W extends Serializable>
 {
     private static final TimeDuration SUBMIT_QUEUE_FULL_RETRY_CYCLE_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
     private static final TimeDuration CLOSE_RETRY_CYCLE_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
 
+    private static final String COMPACT_ENCODING_PREFIX = "~1|";
+    private static final char COMPACT_ENCODING_DELIMITER = '|';
+    private static final int COMPACT_RADIX = 36;
+
+    // limit on how far past an incomplete head item the queue is read, as a multiple of the batch size
+    private static final int MAX_COMPLETED_BEHIND_HEAD_BATCHES = 10;
+
     private final Deque<String> queue;
     private final Settings settings;
     private final ItemProcessor<W> itemProcessor;
+    private final WorkQueueItemTypes itemTypes;
+    private final WorkQueueCompletionMarkers completionMarkers;
 
     private final PwmLogger logger;
 
     private volatile WorkerThread workerThread;
 
     private final AtomicLoopIntIncrementer idGenerator = new AtomicLoopIntIncrementer();
-    private Instant eldestItem = null;
+    private volatile Instant eldestItem = null;
 
     private ThreadPoolExecutor executorService;
+    private ThreadPoolExecutor workerExecutorService;
+    private final List<WorkerStats> workerStats;
 
     private final MovingAverage avgLagTime = new MovingAverage( TimeDuration.HOUR );
     private final EventRateMeter sendRate = new EventRateMeter( TimeDuration.HOUR );
@@ -91,6 +116,22 @@ public final class WorkQueueProcessor<W extends Serializable>
         NOOP,
     }
 
+    /**
+     * Storage format for queued items.  Either format can always be read, so the setting may be changed while items are queued.
+     */
+    public enum ItemEncoding
+    {
+        /**
+         * Gson serialized item wrapper including the item class name.
+         */
+        JSON,
+
+        /**
+         * Delimited fields with an interned item type id in place of the class name.
+         */
+        COMPACT,
+    }
+
     public WorkQueueProcessor(
             final PwmApplication pwmApplication,
             final Deque<String> queue,
@@ -103,6 +144,9 @@ public final class WorkQueueProcessor<W extends Serializable>
         this.queue = queue;
         this.itemProcessor = itemProcessor;
         this.logger = PwmLogger.getLogger( sourceClass.getName() + "_" + this.getClass().getSimpleName() );
+        final LocalDB queueLocalDB = queue instanceof LocalDBStoredQueue ? ( ( LocalDBStoredQueue ) queue ).getLocalDB() : null;
+        this.itemTypes = new WorkQueueItemTypes( queueLocalDB, "WorkQueueItemTypes_" + sourceClass.getSimpleName() );
+        this.completionMarkers = new WorkQueueCompletionMarkers( queueLocalDB, "WorkQueueCompleted_" + sourceClass.getSimpleName() );
 
         if ( !queue.isEmpty() )
         {
@@ -110,6 +154,28 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
         logger.trace( () -> "initializing worker thread with settings " + JsonUtil.serialize( settings ) );
 
+        final int workerThreads = Math.max( 1, settings.getWorkerThreads() );
+        final List<WorkerStats> workerStatsList = new ArrayList<>( workerThreads );
+        for ( int i = 0; i < workerThreads; i++ )
+        {
+            workerStatsList.add( new WorkerStats() );
+        }
+        this.workerStats = Collections.unmodifiableList( workerStatsList );
+
+        if ( workerThreads > 1 )
+        {
+            // worker threads do not time out, item processors may hold per-thread resources such as an smtp connection
+            final ThreadFactory threadFactory = PwmScheduler.makePwmThreadFactory( PwmScheduler.makeThreadName( pwmApplication, sourceClass ) + "-worker-", true );
+            workerExecutorService = new ThreadPoolExecutor(
+                    workerThreads,
+                    workerThreads,
+                    0,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    threadFactory
+            );
+        }
+
         this.workerThread = new WorkerThread();
         workerThread.setDaemon( true );
         workerThread.setName( PwmScheduler.makeThreadName( pwmApplication, sourceClass ) + "-worker-" );
@@ -155,6 +221,11 @@ public final class WorkQueueProcessor<W extends Serializable>
             settings.getMaxShutdownWaitTime().pause( CLOSE_RETRY_CYCLE_INTERVAL, () -> !localWorkerThread.isRunning() );
         }
 
+        if ( workerExecutorService != null )
+        {
+            JavaHelper.closeAndWaitExecutor( workerExecutorService, CLOSE_RETRY_CYCLE_INTERVAL );
+        }
+
         final TimeDuration timeDuration = TimeDuration.fromCurrent( startTime );
         final String msg = "shutting down with " + queue.size() + " items remaining in work queue (" + timeDuration.asCompactString() + ")";
         if ( !queue.isEmpty() )
@@ -231,15 +302,16 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
     }
 
-    private synchronized void submitToQueue( final ItemWrapper<W> itemWrapper ) throws PwmOperationalException
+    private void submitToQueue( final ItemWrapper<W> itemWrapper ) throws PwmOperationalException
     {
-        if ( workerThread == null )
+        final WorkerThread localWorkerThread = workerThread;
+        if ( localWorkerThread == null )
         {
             final String errorMsg = this.getClass().getName() + " has been closed, unable to submit new item";
             throw new PwmOperationalException( new ErrorInformation( PwmError.ERROR_INTERNAL, errorMsg ) );
         }
 
-        final String asString = JsonUtil.serialize( itemWrapper );
+        final String asString = encodeItem( itemWrapper );
 
         if ( settings.getMaxEvents() > 0 )
         {
@@ -256,7 +328,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             }
 
             eldestItem = itemWrapper.getDate();
-            workerThread.notifyWorkPending();
+            localWorkerThread.notifyWorkPending();
 
             logger.trace( () -> "item submitted: " + makeDebugText( itemWrapper ) );
         }
@@ -301,7 +373,10 @@ public final class WorkQueueProcessor<W extends Serializable>
         private final AtomicBoolean shutdownFlag = new AtomicBoolean( false );
         private final AtomicBoolean notifyWorkFlag = new AtomicBoolean( true );
 
-        private Instant retryWakeupTime;
+        private volatile Instant retryWakeupTime;
+
+        // next attempt time of items that returned RETRY, only the item's own stripe waits for it
+        private final Map<String, Instant> retryTimes = new ConcurrentHashMap<>();
 
         @Override
         public void run( )
@@ -311,7 +386,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             {
                 while ( !shutdownFlag.get() )
                 {
-                    processNextItem();
+                    processNextBatch();
                     waitForWork();
                 }
             }
@@ -331,7 +406,7 @@ public final class WorkQueueProcessor<W extends Serializable>
                     final Instant shutdownStartTime = Instant.now();
                     while ( retryWakeupTime == null && !queue.isEmpty() && TimeDuration.fromCurrent( shutdownStartTime ).isLongerThan( settings.getMaxShutdownWaitTime() ) )
                     {
-                        processNextItem();
+                        processNextBatch();
                     }
                 }
                 catch ( Throwable t )
@@ -369,7 +444,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             {
                 if ( retryWakeupTime != null )
                 {
-                    while ( retryWakeupTime.isAfter( Instant.now() ) && !shutdownFlag.get() )
+                    while ( retryWakeupTime.isAfter( Instant.now() ) && !shutdownFlag.get() && !notifyWorkFlag.get() )
                     {
                         LockSupport.parkUntil( this, retryWakeupTime.toEpochMilli() );
                     }
@@ -393,40 +468,196 @@ public final class WorkQueueProcessor<W extends Serializable>
             return running.get();
         }
 
-        void processNextItem( )
+        void processNextBatch( )
         {
-            final String nextStrValue = queue.peekFirst();
-            if ( nextStrValue == null )
+            // items already completed behind an incomplete head item are re-read, so the window is widened by their
+            // count to let items with other ordering keys keep moving while the head item waits for a retry.
+            final int batchSize = Math.max( 1, settings.getBatchSize() );
+            final int completedBehindHead = Math.min( completionMarkers.size(), batchSize * MAX_COMPLETED_BEHIND_HEAD_BATCHES );
+            final List<String> nextValues = peekQueue( batchSize + completedBehindHead );
+            if ( nextValues.isEmpty() )
             {
                 return;
             }
 
-            final ItemWrapper<W> itemWrapper;
-            try
+            final List<QueuedItem<W>> batch = new ArrayList<>( nextValues.size() );
+            for ( final String nextValue : nextValues )
             {
-                itemWrapper = JsonUtil.<ItemWrapper<W>>deserialize( nextStrValue, ItemWrapper.class );
-                if ( TimeDuration.fromCurrent( itemWrapper.getDate() ).isLongerThan( settings.getRetryDiscardAge() ) )
+                batch.add( readQueuedItem( nextValue ) );
+            }
+
+            final List<QueuedItem<W>> pendingItems = new ArrayList<>();
+            final Map<Integer, List<QueuedItem<W>>> stripes = new HashMap<>();
+            for ( final QueuedItem<W> queuedItem : batch )
+            {
+                if ( !queuedItem.isComplete() )
                 {
-                    removeQueueTop();
-                    logger.warn( "discarding queued item due to age, item=" + makeDebugText( itemWrapper ) );
-                    return;
+                    final int stripe = stripeForItem( queuedItem );
+                    stripes.computeIfAbsent( stripe, k -> new ArrayList<>() ).add( queuedItem );
+                    pendingItems.add( queuedItem );
                 }
             }
+
+            processStripes( stripes );
+
+            // completed items are removed from the head of the queue in one operation, items completed behind
+            // an incomplete item are recorded as completion markers so they are not processed again, even after a restart.
+            int completedHeadItems = 0;
+            while ( completedHeadItems < batch.size() && batch.get( completedHeadItems ).isComplete() )
+            {
+                completedHeadItems++;
+            }
+
+            final Set<String> completedBehindHeadKeys = new HashSet<>();
+            final Set<String> incompleteKeys = new HashSet<>();
+            for ( int i = completedHeadItems; i < batch.size(); i++ )
+            {
+                final QueuedItem<W> queuedItem = batch.get( i );
+                if ( queuedItem.getCompletionKey() != null && queuedItem.isComplete() )
+                {
+                    completedBehindHeadKeys.add( queuedItem.getCompletionKey() );
+                }
+                else if ( queuedItem.getCompletionKey() != null )
+                {
+                    incompleteKeys.add( queuedItem.getCompletionKey() );
+                }
+            }
+
+            if ( completedHeadItems > 0 )
+            {
+                removeQueueHead( completedHeadItems );
+            }
+            completionMarkers.replace( completedBehindHeadKeys );
+            retryTimes.keySet().retainAll( incompleteKeys );
+
+            final boolean madeProgress = pendingItems.stream().anyMatch( QueuedItem::isComplete );
+            retryWakeupTime = madeProgress || retryTimes.isEmpty()
+                    ? null
+                    : retryTimes.values().stream().min( Instant::compareTo ).orElse( null );
+        }
+
+        private QueuedItem<W> readQueuedItem( final String nextStrValue )
+        {
+            final ItemWrapper<W> itemWrapper;
+            try
+            {
+                itemWrapper = decodeItem( nextStrValue );
+            }
             catch ( Throwable e )
             {
-                removeQueueTop();
                 logger.warn( "discarding stored record due to parsing error: " + e.getMessage() + ", record=" + nextStrValue );
+                final QueuedItem<W> queuedItem = new QueuedItem<>( null );
+                queuedItem.setComplete( true );
+                return queuedItem;
+            }
+
+            final QueuedItem<W> queuedItem = new QueuedItem<>( itemWrapper );
+            if ( completionMarkers.contains( queuedItem.getCompletionKey() ) )
+            {
+                queuedItem.setComplete( true );
+            }
+            else if ( TimeDuration.fromCurrent( itemWrapper.getDate() ).isLongerThan( settings.getRetryDiscardAge() ) )
+            {
+                logger.warn( "discarding queued item due to age, item=" + makeDebugText( itemWrapper ) );
+                queuedItem.setComplete( true );
+            }
+            return queuedItem;
+        }
+
+        private int stripeForItem( final QueuedItem<W> queuedItem )
+        {
+            final int stripeCount = workerStats.size();
+            if ( stripeCount < 2 )
+            {
+                return 0;
+            }
+
+            String orderingKey = null;
+            try
+            {
+                orderingKey = itemProcessor.orderingKey( queuedItem.getItemWrapper().getWorkItem() );
+            }
+            catch ( PwmOperationalException e )
+            {
+                logger.trace( () -> "unable to read ordering key for queued item: " + e.getMessage() );
+            }
+
+            final String stripeKey = orderingKey == null ? queuedItem.getItemWrapper().getId() : orderingKey;
+            return Math.floorMod( stripeKey == null ? 0 : stripeKey.hashCode(), stripeCount );
+        }
+
+        private void processStripes( final Map<Integer, List<QueuedItem<W>>> stripes )
+        {
+            if ( workerExecutorService == null || stripes.size() < 2 )
+            {
+                for ( final Map.Entry<Integer, List<QueuedItem<W>>> entry : stripes.entrySet() )
+                {
+                    processStripe( entry.getValue(), workerStats.get( entry.getKey() ) );
+                }
                 return;
             }
 
-            final ProcessResult processResult;
+            final List<Future<?>> futures = new ArrayList<>( stripes.size() );
+            for ( final Map.Entry<Integer, List<QueuedItem<W>>> entry : stripes.entrySet() )
+            {
+                futures.add( workerExecutorService.submit( () -> processStripe( entry.getValue(), workerStats.get( entry.getKey() ) ) ) );
+            }
+
+            for ( final Future<?> future : futures )
+            {
+                try
+                {
+                    future.get();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                catch ( ExecutionException e )
+                {
+                    logger.error( "unexpected error processing work item queue: " + JavaHelper.readHostileExceptionMessage( e.getCause() ), e.getCause() );
+                }
+            }
+        }
+
+        /**
+         * Process the items of a stripe in order, stopping at the first item that is not complete so later items
+         * with the same ordering key are not processed ahead of it.
+         */
+        private void processStripe( final List<QueuedItem<W>> stripeItems, final WorkerStats stats )
+        {
+            for ( final QueuedItem<W> queuedItem : stripeItems )
+            {
+                final Instant retryTime = retryTimes.get( queuedItem.getCompletionKey() );
+                if ( retryTime != null && retryTime.isAfter( Instant.now() ) )
+                {
+                    return;
+                }
+
+                processItem( queuedItem, stats );
+                if ( queuedItem.getProcessResult() == ProcessResult.RETRY )
+                {
+                    retryTimes.put( queuedItem.getCompletionKey(), Instant.now().plusMillis( settings.getRetryInterval().asMillis() ) );
+                }
+
+                if ( !queuedItem.isComplete() )
+                {
+                    return;
+                }
+            }
+        }
+
+        private void processItem( final QueuedItem<W> queuedItem, final WorkerStats stats )
+        {
+            final ItemWrapper<W> itemWrapper = queuedItem.getItemWrapper();
             try
             {
                 queueProcessItems.incrementAndGet();
-                processResult = itemProcessor.process( itemWrapper.getWorkItem() );
+                final ProcessResult processResult = itemProcessor.process( itemWrapper.getWorkItem() );
+                queuedItem.setProcessResult( processResult );
                 if ( processResult == null )
                 {
-                    removeQueueTop();
+                    queuedItem.setComplete( true );
                     logger.warn( "itemProcessor.process() returned null, removing; item=" + makeDebugText( itemWrapper ) );
                 }
                 else
@@ -435,21 +666,21 @@ public final class WorkQueueProcessor<W extends Serializable>
                     {
                         case FAILED:
                         {
-                            removeQueueTop();
+                            queuedItem.setComplete( true );
                             logger.error( "discarding item after process failure, item=" + makeDebugText( itemWrapper ) );
                         }
                         break;
 
                         case RETRY:
                         {
-                            retryWakeupTime = Instant.ofEpochMilli( System.currentTimeMillis() + settings.getRetryInterval().asMillis() );
                             logger.debug( () -> "will retry item after failure, item=" + makeDebugText( itemWrapper ) );
                         }
                         break;
 
                         case SUCCESS:
                         {
-                            removeQueueTop();
+                            queuedItem.setComplete( true );
+                            stats.update( itemWrapper );
                             logAndStatUpdateForSuccess( itemWrapper );
                         }
                         break;
@@ -467,20 +698,101 @@ public final class WorkQueueProcessor<W extends Serializable>
             {
                 if ( !shutdownFlag.get() )
                 {
-                    removeQueueTop();
+                    queuedItem.setComplete( true );
                     logger.error( "unexpected error while processing work queue: " + e.getMessage() );
                 }
             }
+        }
 
+        private List<String> peekQueue( final int count )
+        {
+            if ( queue instanceof LocalDBStoredQueue )
+            {
+                return ( ( LocalDBStoredQueue ) queue ).peekFirst( count );
+            }
+
+            final List<String> returnList = new ArrayList<>( count );
+            final Iterator<String> iterator = queue.iterator();
+            while ( iterator.hasNext() && returnList.size() < count )
+            {
+                returnList.add( iterator.next() );
+            }
+            return returnList;
         }
 
-        private void removeQueueTop( )
+        private void removeQueueHead( final int count )
         {
-            queue.removeFirst();
+            if ( queue instanceof LocalDBStoredQueue )
+            {
+                ( ( LocalDBStoredQueue ) queue ).removeFirst( count );
+            }
+            else
+            {
+                for ( int i = 0; i < count; i++ )
+                {
+                    queue.removeFirst();
+                }
+            }
             retryWakeupTime = null;
         }
     }
 
+    private static class QueuedItem<W extends Serializable>
+    {
+        private final ItemWrapper<W> itemWrapper;
+        private volatile boolean complete;
+        private volatile ProcessResult processResult;
+
+        QueuedItem( final ItemWrapper<W> itemWrapper )
+        {
+            this.itemWrapper = itemWrapper;
+        }
+
+        ItemWrapper<W> getItemWrapper( )
+        {
+            return itemWrapper;
+        }
+
+        String getCompletionKey( )
+        {
+            return itemWrapper == null ? null : itemWrapper.getId() + "-" + itemWrapper.getDate();
+        }
+
+        boolean isComplete( )
+        {
+            return complete;
+        }
+
+        void setComplete( final boolean complete )
+        {
+            this.complete = complete;
+        }
+
+        ProcessResult getProcessResult( )
+        {
+            return processResult;
+        }
+
+        void setProcessResult( final ProcessResult processResult )
+        {
+            this.processResult = processResult;
+        }
+    }
+
+    private static class WorkerStats
+    {
+        private final MovingAverage avgLagTime = new MovingAverage( TimeDuration.HOUR );
+        private final EventRateMeter sendRate = new EventRateMeter( TimeDuration.HOUR );
+        private final AtomicInteger processedItems = new AtomicInteger( 0 );
+
+        void update( final ItemWrapper<?> itemWrapper )
+        {
+            avgLagTime.update( TimeDuration.fromCurrent( itemWrapper.getDate() ).asMillis() );
+            sendRate.markEvents( 1 );
+            processedItems.incrementAndGet();
+        }
+    }
+
     private static class ItemWrapper<W extends Serializable> implements Serializable
     {
         @SerializedName( "t" )
@@ -495,12 +807,26 @@ public final class WorkQueueProcessor<W extends Serializable>
         @SerializedName( "i" )
         private final String id;
 
+        private transient Class<?> itemClass;
+        private transient W workItem;
+
         ItemWrapper( final Instant submitDate, final W workItem, final String itemId )
         {
             this.timestamp = submitDate;
             this.item = JsonUtil.serialize( workItem );
             this.className = workItem.getClass().getName();
             this.id = itemId;
+            this.itemClass = workItem.getClass();
+            this.workItem = workItem;
+        }
+
+        ItemWrapper( final Instant submitDate, final String item, final Class<?> itemClass, final String itemId )
+        {
+            this.timestamp = submitDate;
+            this.item = item;
+            this.className = itemClass.getName();
+            this.id = itemId;
+            this.itemClass = itemClass;
         }
 
         Instant getDate( )
@@ -510,11 +836,17 @@ public final class WorkQueueProcessor<W extends Serializable>
 
         W getWorkItem( ) throws PwmOperationalException
         {
+            if ( workItem != null )
+            {
+                return workItem;
+            }
+
             try
             {
-                final Class clazz = Class.forName( className );
+                final Class clazz = itemClass == null ? Class.forName( className ) : itemClass;
                 final Object o = JsonUtil.deserialize( item, clazz );
-                return ( W ) o;
+                workItem = ( W ) o;
+                return workItem;
             }
             catch ( Exception e )
             {
@@ -537,6 +869,49 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
     }
 
+    private String encodeItem( final ItemWrapper<W> itemWrapper )
+    {
+        if ( settings.getItemEncoding() == ItemEncoding.JSON )
+        {
+            return JsonUtil.serialize( itemWrapper );
+        }
+
+        return COMPACT_ENCODING_PREFIX
+                + Long.toString( itemWrapper.getDate().toEpochMilli(), COMPACT_RADIX )
+                + COMPACT_ENCODING_DELIMITER
+                + Integer.toString( itemTypes.idForClassName( itemWrapper.className ), COMPACT_RADIX )
+                + COMPACT_ENCODING_DELIMITER
+                + itemWrapper.getId()
+                + COMPACT_ENCODING_DELIMITER
+                + itemWrapper.item;
+    }
+
+    private ItemWrapper<W> decodeItem( final String encodedValue )
+            throws PwmOperationalException
+    {
+        if ( encodedValue.startsWith( COMPACT_ENCODING_PREFIX ) )
+        {
+            final int timestampEnd = encodedValue.indexOf( COMPACT_ENCODING_DELIMITER, COMPACT_ENCODING_PREFIX.length() );
+            final int typeEnd = encodedValue.indexOf( COMPACT_ENCODING_DELIMITER, timestampEnd + 1 );
+            final int idEnd = encodedValue.indexOf( COMPACT_ENCODING_DELIMITER, typeEnd + 1 );
+            if ( timestampEnd < 0 || typeEnd < 0 || idEnd < 0 )
+            {
+                throw new PwmOperationalException( new ErrorInformation( PwmError.ERROR_INTERNAL, "malformed compact work queue item" ) );
+            }
+
+            final Instant timestamp = Instant.ofEpochMilli( Long.parseLong( encodedValue.substring( COMPACT_ENCODING_PREFIX.length(), timestampEnd ), COMPACT_RADIX ) );
+            final int typeId = Integer.parseInt( encodedValue.substring( timestampEnd + 1, typeEnd ), COMPACT_RADIX );
+            final String id = encodedValue.substring( typeEnd + 1, idEnd );
+            final String item = encodedValue.substring( idEnd + 1 );
+            final Class<?> itemClass = itemTypes.classForName( itemTypes.classNameForId( typeId ) );
+            return new ItemWrapper<>( timestamp, item, itemClass, id );
+        }
+
+        final ItemWrapper<W> itemWrapper = JsonUtil.<ItemWrapper<W>>deserialize( encodedValue, ItemWrapper.class );
+        itemWrapper.itemClass = itemTypes.classForName( itemWrapper.className );
+        return itemWrapper;
+    }
+
     /**
      * Implementation of {@link ItemProcessor} must be included with the construction of a {@link WorkQueueProcessor}.
      */
@@ -545,6 +920,15 @@ public final class WorkQueueProcessor<W extends Serializable>
         ProcessResult process( W workItem );
 
         String convertToDebugString( W workItem );
+
+        /**
+         * Items with the same ordering key are processed in submission order by the same worker.  Items without
+         * a key may be processed by any worker.
+         */
+        default String orderingKey( final W workItem )
+        {
+            return null;
+        }
     }
 
     @Getter
@@ -557,6 +941,15 @@ public final class WorkQueueProcessor<W extends Serializable>
         @Builder.Default
         private int preThreads = 0;
 
+        @Builder.Default
+        private int workerThreads = 1;
+
+        @Builder.Default
+        private int batchSize = 100;
+
+        @Builder.Default
+        private ItemEncoding itemEncoding = ItemEncoding.COMPACT;
+
         @Builder.Default
         private TimeDuration maxSubmitWaitTime = TimeDuration.of( 5, TimeDuration.Unit.SECONDS );
 
@@ -593,6 +986,16 @@ public final class WorkQueueProcessor<W extends Serializable>
         {
             output.put( "activeThreads", String.valueOf( executorService.getActiveCount() ) );
         }
+        if ( workerStats.size() > 1 )
+        {
+            for ( int i = 0; i < workerStats.size(); i++ )
+            {
+                final WorkerStats stats = workerStats.get( i );
+                output.put( "worker" + i + "AvgLagTime", TimeDuration.of( ( long ) stats.avgLagTime.getAverage(), TimeDuration.Unit.MILLISECONDS ).asCompactString() );
+                output.put( "worker" + i + "SendRate", stats.sendRate.readEventRate().setScale( 2, RoundingMode.DOWN ) + "/s" );
+                output.put( "worker" + i + "ProcessedItems", String.valueOf( stats.processedItems.get() ) );
+            }
+        }
         return Collections.unmodifiableMap( output );
     }
 }
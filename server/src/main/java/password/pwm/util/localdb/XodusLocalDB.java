@@ -57,6 +57,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -215,6 +216,33 @@ public class XodusLocalDB implements LocalDBProvider
         return get( db, key ) != null;
     }
 
+    @Override
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys ) throws LocalDBException
+    {
+        checkStatus( false );
+        final Set<String> sortedKeys = new TreeSet<>( keys );
+        return environment.computeInReadonlyTransaction( transaction ->
+        {
+            final Store store = getStore( db );
+            final Cursor cursor = store.openCursor( transaction );
+            try
+            {
+                for ( final String key : sortedKeys )
+                {
+                    if ( cursor.getSearchKey( bindMachine.keyToEntry( key ) ) != null )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            finally
+            {
+                cursor.close();
+            }
+        } );
+    }
+
     @Override
     public String get( final LocalDB.DB db, final String key ) throws LocalDBException
     {
@@ -407,6 +435,25 @@ public class XodusLocalDB implements LocalDBProvider
         } );
     }
 
+    @Override
+    public void removeAllAndPutAll( final LocalDB.DB db, final Collection<String> removeKeys, final Map<String, String> keyValueMap ) throws LocalDBException
+    {
+        checkStatus( true );
+        environment.executeInTransaction( transaction ->
+        {
+            final Store store = getStore( db );
+            for ( final String key : removeKeys )
+            {
+                store.delete( transaction, bindMachine.keyToEntry( key ) );
+            }
+            for ( final Map.Entry<String, String> entry : keyValueMap.entrySet() )
+            {
+                store.put( transaction, bindMachine.keyToEntry( entry.getKey() ), bindMachine.valueToEntry( entry.getValue() ) );
+            }
+        } );
+        outputLogExecutor.conditionallyExecuteTask();
+    }
+
     @Override
     public void truncate( final LocalDB.DB db ) throws LocalDBException
     {
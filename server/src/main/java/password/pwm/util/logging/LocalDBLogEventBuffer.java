@@ -0,0 +1,202 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.logging;
+
+import password.pwm.util.java.TimeDuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, pre-allocated ring buffer between the threads writing log events and the {@link LocalDBLogger} flush thread.
+ * Each slot carries a sequence number so producers and the consumer claim slots with a single CAS and never lock.
+ * When the buffer is full the configured {@link LocalDBLoggerSettings.OverflowPolicy} decides whether the new event waits, is dropped, or
+ * replaces the oldest buffered event.
+ */
+class LocalDBLogEventBuffer
+{
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<PwmLogEvent> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LocalDBLoggerSettings.OverflowPolicy overflowPolicy;
+    private final TimeDuration maxWaitTime;
+    private final LongAdder droppedEvents = new LongAdder();
+
+    LocalDBLogEventBuffer( final int requestedCapacity, final LocalDBLoggerSettings.OverflowPolicy overflowPolicy, final TimeDuration maxWaitTime )
+    {
+        this.capacity = Integer.highestOneBit( Math.max( 2, requestedCapacity - 1 ) ) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>( capacity );
+        this.sequences = new AtomicLongArray( capacity );
+        for ( int i = 0; i < capacity; i++ )
+        {
+            sequences.set( i, i );
+        }
+        this.overflowPolicy = overflowPolicy == null ? LocalDBLoggerSettings.OverflowPolicy.BLOCK : overflowPolicy;
+        this.maxWaitTime = maxWaitTime == null ? TimeDuration.ZERO : maxWaitTime;
+    }
+
+    /**
+     * Add an event, applying the overflow policy if the buffer is full.
+     *
+     * @return false if the event was discarded
+     */
+    boolean add( final PwmLogEvent event )
+    {
+        if ( tryOffer( event ) )
+        {
+            return true;
+        }
+
+        if ( overflowPolicy == LocalDBLoggerSettings.OverflowPolicy.DROP_OLDEST )
+        {
+            while ( !tryOffer( event ) )
+            {
+                if ( tryPoll() != null )
+                {
+                    droppedEvents.increment();
+                }
+            }
+            return true;
+        }
+
+        if ( overflowPolicy == LocalDBLoggerSettings.OverflowPolicy.DROP_TRACE && event.getLevel() == PwmLogLevel.TRACE )
+        {
+            droppedEvents.increment();
+            return false;
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( maxWaitTime.asMillis() );
+        while ( System.nanoTime() < deadline )
+        {
+            LockSupport.parkNanos( BLOCKED_PARK_NANOS );
+            if ( tryOffer( event ) )
+            {
+                return true;
+            }
+        }
+
+        droppedEvents.increment();
+        return false;
+    }
+
+    /**
+     * Move up to {@code maxEvents} buffered events, oldest first, into {@code output}.
+     *
+     * @return number of events moved
+     */
+    int drainTo( final List<PwmLogEvent> output, final int maxEvents )
+    {
+        int count = 0;
+        while ( count < maxEvents )
+        {
+            final PwmLogEvent event = tryPoll();
+            if ( event == null )
+            {
+                break;
+            }
+            output.add( event );
+            count++;
+        }
+        return count;
+    }
+
+    int size( )
+    {
+        return ( int ) Math.max( 0, Math.min( capacity, tail.get() - head.get() ) );
+    }
+
+    boolean isEmpty( )
+    {
+        return size() == 0;
+    }
+
+    int capacity( )
+    {
+        return capacity;
+    }
+
+    long droppedEvents( )
+    {
+        return droppedEvents.sum();
+    }
+
+    private boolean tryOffer( final PwmLogEvent event )
+    {
+        while ( true )
+        {
+            final long position = tail.get();
+            final int index = ( int ) ( position & mask );
+            final long difference = sequences.get( index ) - position;
+            if ( difference == 0 )
+            {
+                if ( tail.compareAndSet( position, position + 1 ) )
+                {
+                    slots.lazySet( index, event );
+                    sequences.set( index, position + 1 );
+                    return true;
+                }
+            }
+            else if ( difference < 0 )
+            {
+                // slot still holds an event from the previous lap, buffer is full
+                return false;
+            }
+        }
+    }
+
+    private PwmLogEvent tryPoll( )
+    {
+        while ( true )
+        {
+            final long position = head.get();
+            final int index = ( int ) ( position & mask );
+            final long difference = sequences.get( index ) - ( position + 1 );
+            if ( difference == 0 )
+            {
+                if ( head.compareAndSet( position, position + 1 ) )
+                {
+                    final PwmLogEvent event = slots.get( index );
+                    slots.lazySet( index, null );
+                    sequences.set( index, position + capacity );
+                    return event;
+                }
+            }
+            else if ( difference < 0 )
+            {
+                // slot not yet published, buffer is empty
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.logging;
+
+import password.pwm.util.java.JsonUtil;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact encoding of {@link PwmLogEvent}s for {@link LocalDBLogSegmentStore}.  Fields are written length-prefixed
+ * after the timestamp and level instead of as a JSON object, and a batch of events is encoded with one reused buffer
+ * on the flush thread.  Values without the compact prefix are read as JSON so earlier stored events remain readable.
+ *
+ * <p>Format: {@code ~1|<epoch millis>|<level ordinal>|} followed by the topic, message, source, actor, label and
+ * serialized throwable, each as {@code <length>:<value>} or {@code -} for null.  Numbers are base 36.</p>
+ */
+final class LocalDBLogEventCodec
+{
+    private static final String PREFIX = "~1|";
+    private static final char DELIMITER = '|';
+    private static final char LENGTH_DELIMITER = ':';
+    private static final char NULL_VALUE = '-';
+    private static final int RADIX = 36;
+
+    private LocalDBLogEventCodec( )
+    {
+    }
+
+    static List<String> encode( final List<PwmLogEvent> events )
+    {
+        final List<String> output = new ArrayList<>( events.size() );
+        final StringBuilder sb = new StringBuilder( 256 );
+        for ( final PwmLogEvent event : events )
+        {
+            sb.setLength( 0 );
+            sb.append( PREFIX );
+            sb.append( Long.toString( event.getDate().toEpochMilli(), RADIX ) ).append( DELIMITER );
+            sb.append( Integer.toString( event.getLevel().ordinal(), RADIX ) ).append( DELIMITER );
+            appendValue( sb, event.getTopic() );
+            appendValue( sb, event.getMessage() );
+            appendValue( sb, event.getSource() );
+            appendValue( sb, event.getActor() );
+            appendValue( sb, event.getLabel() );
+            appendValue( sb, event.getThrowable() == null ? null : JsonUtil.serialize( event.getThrowable() ) );
+            output.add( sb.toString() );
+        }
+        return output;
+    }
+
+    static PwmLogEvent decode( final String encodedValue )
+            throws ClassNotFoundException, IOException
+    {
+        if ( encodedValue == null || !encodedValue.startsWith( PREFIX ) )
+        {
+            return PwmLogEvent.fromEncodedString( encodedValue );
+        }
+
+        final Reader reader = new Reader( encodedValue, PREFIX.length() );
+        final Instant date = Instant.ofEpochMilli( Long.parseLong( reader.readToken(), RADIX ) );
+        final PwmLogLevel level = PwmLogLevel.values()[Integer.parseInt( reader.readToken(), RADIX )];
+        final String topic = reader.readValue();
+        final String message = reader.readValue();
+        final String source = reader.readValue();
+        final String actor = reader.readValue();
+        final String label = reader.readValue();
+        final String throwableValue = reader.readValue();
+        final Throwable throwable = throwableValue == null ? null : JsonUtil.deserialize( throwableValue, Throwable.class );
+        return PwmLogEvent.createPwmLogEvent( date, topic, message, source, actor, label, throwable, level );
+    }
+
+    private static void appendValue( final StringBuilder sb, final String value )
+    {
+        if ( value == null )
+        {
+            sb.append( NULL_VALUE );
+        }
+        else
+        {
+            sb.append( Integer.toString( value.length(), RADIX ) ).append( LENGTH_DELIMITER ).append( value );
+        }
+    }
+
+    private static class Reader
+    {
+        private final String input;
+        private int position;
+
+        Reader( final String input, final int position )
+        {
+            this.input = input;
+            this.position = position;
+        }
+
+        String readToken( )
+        {
+            final int end = input.indexOf( DELIMITER, position );
+            if ( end < 0 )
+            {
+                throw new IllegalArgumentException( "malformed compact log event" );
+            }
+            final String token = input.substring( position, end );
+            position = end + 1;
+            return token;
+        }
+
+        String readValue( )
+        {
+            if ( input.charAt( position ) == NULL_VALUE )
+            {
+                position++;
+                return null;
+            }
+
+            final int lengthEnd = input.indexOf( LENGTH_DELIMITER, position );
+            if ( lengthEnd < 0 )
+            {
+                throw new IllegalArgumentException( "malformed compact log event" );
+            }
+            final int length = Integer.parseInt( input.substring( position, lengthEnd ), RADIX );
+            final int valueStart = lengthEnd + 1;
+            position = valueStart + length;
+            return input.substring( valueStart, position );
+        }
+    }
+}
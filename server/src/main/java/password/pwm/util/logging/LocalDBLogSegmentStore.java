@@ -0,0 +1,606 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.logging;
+
+import lombok.Value;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Stores {@link PwmLogEvent}s in {@link LocalDB.DB#EVENTLOG_EVENTS} as a sequence of segments.  A segment holds the
+ * events of one time bucket, up to a maximum event count.  Each segment has an index record with the level of every
+ * event and the positions of the events of each actor, so searches by level, username or event type only read the
+ * matching events.  Retention removes whole segments, oldest first.
+ *
+ * <p>Keys: {@code SEGMENTS} holds the segment directory, {@code I<segment>} the index of a segment and
+ * {@code E<segment>.<position>} an encoded event.  The directory is only written when a segment is started or removed.
+ * The index of the segment being written is stored incrementally as {@code I<segment>.<n>} records, one per append,
+ * which are combined into the segment index when the segment is closed or when the store is next opened.</p>
+ */
+class LocalDBLogSegmentStore
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( LocalDBLogSegmentStore.class );
+
+    private static final LocalDB.DB DB = LocalDB.DB.EVENTLOG_EVENTS;
+    private static final String KEY_DIRECTORY = "SEGMENTS";
+    private static final String KEY_PREFIX_INDEX = "I";
+    private static final String KEY_PREFIX_EVENT = "E";
+
+    private final LocalDB localDB;
+    private final long segmentDurationMs;
+    private final int segmentMaxEvents;
+
+    private final NavigableMap<Long, SegmentInfo> segments = new ConcurrentSkipListMap<>();
+    private volatile int storedEvents;
+
+    // index of the segment currently being written, guarded by this
+    private OpenSegment openSegment;
+
+    private LocalDBLogSegmentStore( final LocalDB localDB, final TimeDuration segmentDuration, final int segmentMaxEvents )
+    {
+        this.localDB = localDB;
+        this.segmentDurationMs = Math.max( 1, segmentDuration.asMillis() );
+        this.segmentMaxEvents = Math.max( 1, segmentMaxEvents );
+    }
+
+    static LocalDBLogSegmentStore open( final LocalDB localDB, final TimeDuration segmentDuration, final int segmentMaxEvents )
+            throws LocalDBException
+    {
+        final LocalDBLogSegmentStore store = new LocalDBLogSegmentStore( localDB, segmentDuration, segmentMaxEvents );
+        store.readDirectory();
+        store.closeRecoveredSegment();
+        return store;
+    }
+
+    int size( )
+    {
+        return storedEvents;
+    }
+
+    int segmentCount( )
+    {
+        return segments.size();
+    }
+
+    SegmentInfo oldestSegment( )
+    {
+        final Map.Entry<Long, SegmentInfo> entry = segments.firstEntry();
+        return entry == null ? null : entry.getValue();
+    }
+
+    Instant getTailDate( )
+    {
+        final SegmentInfo segmentInfo = oldestSegment();
+        return segmentInfo == null ? null : segmentInfo.getFirstEventTime();
+    }
+
+    synchronized void clear( )
+            throws LocalDBException
+    {
+        localDB.truncate( DB );
+        segments.clear();
+        openSegment = null;
+        storedEvents = 0;
+    }
+
+    /**
+     * Append events to the newest segment, starting new segments as the time bucket changes or a segment is full.
+     * The events, the index changes and, if a segment was started, the directory are written in a single LocalDB operation.
+     */
+    synchronized void append( final List<PwmLogEvent> events )
+            throws LocalDBException
+    {
+        if ( events == null || events.isEmpty() )
+        {
+            return;
+        }
+
+        final List<String> encodedEvents = LocalDBLogEventCodec.encode( events );
+        final Map<String, String> writeData = new LinkedHashMap<>();
+        final List<String> removeKeys = new ArrayList<>();
+        boolean directoryModified = false;
+        for ( int i = 0; i < events.size(); i++ )
+        {
+            final PwmLogEvent event = events.get( i );
+            final String encodedEvent = encodedEvents.get( i );
+
+            final long bucket = Math.floorDiv( event.getDate().toEpochMilli(), segmentDurationMs );
+            if ( openSegment == null || openSegment.eventCount() >= segmentMaxEvents || bucket > openSegment.bucket )
+            {
+                if ( openSegment != null )
+                {
+                    writeData.put( indexKey( openSegment.id ), JsonUtil.serialize( openSegment.toRecord() ) );
+                    for ( int n = 0; n < openSegment.deltaCount; n++ )
+                    {
+                        removeKeys.add( indexDeltaKey( openSegment.id, n ) );
+                    }
+                }
+                final long nextId = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+                openSegment = new OpenSegment( nextId, bucket );
+                directoryModified = true;
+            }
+
+            final int position = openSegment.add( event );
+            writeData.put( eventKey( openSegment.id, position ), encodedEvent );
+            segments.put( openSegment.id, openSegment.toSegmentInfo() );
+        }
+
+        final int deltaNumber = openSegment.deltaCount;
+        final IndexDelta indexDelta = openSegment.takeDelta();
+        if ( indexDelta != null )
+        {
+            writeData.put( indexDeltaKey( openSegment.id, deltaNumber ), JsonUtil.serialize( indexDelta ) );
+        }
+        if ( directoryModified )
+        {
+            writeData.put( KEY_DIRECTORY, JsonUtil.serialize( new Directory( new ArrayList<>( segments.values() ) ) ) );
+        }
+
+        if ( removeKeys.isEmpty() )
+        {
+            localDB.putAll( DB, writeData );
+        }
+        else
+        {
+            localDB.removeAllAndPutAll( DB, removeKeys, writeData );
+        }
+        updateStoredEvents();
+    }
+
+    /**
+     * Remove the oldest segment.  The newest segment is never removed.
+     *
+     * @return the number of events removed
+     */
+    synchronized int removeOldestSegment( )
+            throws LocalDBException
+    {
+        if ( segments.size() < 2 )
+        {
+            return 0;
+        }
+
+        final SegmentInfo segmentInfo = segments.pollFirstEntry().getValue();
+        final List<String> removeKeys = new ArrayList<>( segmentInfo.getEventCount() + 1 );
+        removeKeys.add( indexKey( segmentInfo.getId() ) );
+        for ( int i = 0; i < segmentInfo.getEventCount(); i++ )
+        {
+            removeKeys.add( eventKey( segmentInfo.getId(), i ) );
+        }
+
+        final Map<String, String> writeData = Collections.singletonMap(
+                KEY_DIRECTORY, JsonUtil.serialize( new Directory( new ArrayList<>( segments.values() ) ) ) );
+        localDB.removeAllAndPutAll( DB, removeKeys, writeData );
+        updateStoredEvents();
+        return segmentInfo.getEventCount();
+    }
+
+    /**
+     * Encoded values of the events that may match the search, newest first unless the query asks for oldest first.  Only
+     * the level, username and event type are resolved using the segment indexes; callers still check each event.
+     */
+    Iterator<String> search( final LocalDBSearchQuery searchQuery )
+    {
+        final List<SegmentInfo> searchSegments = new ArrayList<>( searchQuery.isOldestFirst()
+                ? segments.values()
+                : segments.descendingMap().values() );
+        return new SearchIterator( searchSegments, searchQuery );
+    }
+
+    private void readDirectory( )
+            throws LocalDBException
+    {
+        final String storedDirectory = localDB.get( DB, KEY_DIRECTORY );
+        if ( !StringUtil.isEmpty( storedDirectory ) )
+        {
+            try
+            {
+                final Directory directory = JsonUtil.deserialize( storedDirectory, Directory.class );
+                for ( final SegmentInfo segmentInfo : directory.getSegments() )
+                {
+                    segments.put( segmentInfo.getId(), segmentInfo );
+                }
+            }
+            catch ( Exception e )
+            {
+                LOGGER.error( "unable to read localDB log segment directory, clearing stored events: " + JavaHelper.readHostileExceptionMessage( e ) );
+                clear();
+            }
+        }
+        updateStoredEvents();
+    }
+
+    /**
+     * The newest segment of the directory may have been open when the store was last used, in which case its index is
+     * only stored as incremental records.  Combine them into the segment index and correct the directory entry, new
+     * events are then written to a new segment.
+     */
+    private void closeRecoveredSegment( )
+            throws LocalDBException
+    {
+        final Map.Entry<Long, SegmentInfo> lastEntry = segments.lastEntry();
+        if ( lastEntry == null || localDB.contains( DB, indexKey( lastEntry.getKey() ) ) )
+        {
+            return;
+        }
+
+        final long segmentId = lastEntry.getKey();
+        final StringBuilder levels = new StringBuilder();
+        final Map<String, List<Integer>> actors = new HashMap<>();
+        final List<String> removeKeys = new ArrayList<>();
+        Instant firstEventTime = null;
+        Instant lastEventTime = null;
+        int deltaNumber = 0;
+        String storedDelta = localDB.get( DB, indexDeltaKey( segmentId, deltaNumber ) );
+        while ( !StringUtil.isEmpty( storedDelta ) )
+        {
+            removeKeys.add( indexDeltaKey( segmentId, deltaNumber ) );
+
+            final IndexDelta indexDelta = JsonUtil.deserialize( storedDelta, IndexDelta.class );
+            if ( indexDelta.getFirstPosition() == levels.length() )
+            {
+                levels.append( indexDelta.getLevels() );
+                if ( indexDelta.getActors() != null )
+                {
+                    for ( final Map.Entry<String, List<Integer>> entry : indexDelta.getActors().entrySet() )
+                    {
+                        actors.computeIfAbsent( entry.getKey(), k -> new ArrayList<>() ).addAll( entry.getValue() );
+                    }
+                }
+                firstEventTime = indexDelta.getFirstEventTime();
+                lastEventTime = indexDelta.getLastEventTime();
+            }
+            else
+            {
+                LOGGER.warn( "ignoring out of sequence index record " + deltaNumber + " of localDB log segment " + segmentId );
+            }
+
+            deltaNumber++;
+            storedDelta = localDB.get( DB, indexDeltaKey( segmentId, deltaNumber ) );
+        }
+
+        final Map<String, String> writeData = new LinkedHashMap<>();
+        if ( levels.length() == 0 )
+        {
+            segments.remove( segmentId );
+        }
+        else
+        {
+            writeData.put( indexKey( segmentId ), JsonUtil.serialize( new IndexRecord( levels.toString(), actors ) ) );
+            segments.put( segmentId, new SegmentInfo( segmentId, firstEventTime, lastEventTime, levels.length() ) );
+        }
+        writeData.put( KEY_DIRECTORY, JsonUtil.serialize( new Directory( new ArrayList<>( segments.values() ) ) ) );
+        localDB.removeAllAndPutAll( DB, removeKeys, writeData );
+        updateStoredEvents();
+    }
+
+    private void updateStoredEvents( )
+    {
+        int total = 0;
+        for ( final SegmentInfo segmentInfo : segments.values() )
+        {
+            total += segmentInfo.getEventCount();
+        }
+        storedEvents = total;
+    }
+
+    private IndexRecord readIndex( final long segmentId )
+            throws LocalDBException
+    {
+        synchronized ( this )
+        {
+            if ( openSegment != null && openSegment.id == segmentId )
+            {
+                return openSegment.toRecord();
+            }
+        }
+
+        final String storedIndex = localDB.get( DB, indexKey( segmentId ) );
+        return StringUtil.isEmpty( storedIndex ) ? null : JsonUtil.deserialize( storedIndex, IndexRecord.class );
+    }
+
+    private static String indexKey( final long segmentId )
+    {
+        return KEY_PREFIX_INDEX + segmentId;
+    }
+
+    private static String indexDeltaKey( final long segmentId, final int deltaNumber )
+    {
+        return KEY_PREFIX_INDEX + segmentId + "." + deltaNumber;
+    }
+
+    private static String eventKey( final long segmentId, final int position )
+    {
+        return KEY_PREFIX_EVENT + segmentId + "." + position;
+    }
+
+    private static char levelChar( final PwmLogLevel level )
+    {
+        return ( char ) ( '0' + level.ordinal() );
+    }
+
+    /**
+     * Positions within a segment of the events that pass the level, username and event type filters.
+     */
+    static List<Integer> candidatePositions( final IndexRecord index, final LocalDBSearchQuery searchQuery, final boolean ascending )
+    {
+        final String levels = index.getLevels() == null ? "" : index.getLevels();
+        final BitSet userEvents = new BitSet( levels.length() );
+        final BitSet matchingUserEvents = new BitSet( levels.length() );
+        if ( index.getActors() != null )
+        {
+            for ( final Map.Entry<String, List<Integer>> entry : index.getActors().entrySet() )
+            {
+                final boolean actorMatches = LocalDBLogger.checkUsername( entry.getKey(), searchQuery );
+                for ( final Integer position : entry.getValue() )
+                {
+                    userEvents.set( position );
+                    if ( actorMatches )
+                    {
+                        matchingUserEvents.set( position );
+                    }
+                }
+            }
+        }
+
+        final boolean systemMatches = LocalDBLogger.checkUsername( "", searchQuery );
+        final char minimumLevel = searchQuery.getMinimumLevel() == null ? '0' : levelChar( searchQuery.getMinimumLevel() );
+        final LocalDBLogger.EventType eventType = searchQuery.getEventType();
+
+        final List<Integer> positions = new ArrayList<>();
+        for ( int i = 0; i < levels.length(); i++ )
+        {
+            final int position = ascending ? i : levels.length() - 1 - i;
+            final boolean userEvent = userEvents.get( position );
+            if ( levels.charAt( position ) >= minimumLevel
+                    && ( userEvent ? matchingUserEvents.get( position ) : systemMatches )
+                    && ( eventType != LocalDBLogger.EventType.User || userEvent )
+                    && ( eventType != LocalDBLogger.EventType.System || !userEvent ) )
+            {
+                positions.add( position );
+            }
+        }
+        return positions;
+    }
+
+    private class SearchIterator implements Iterator<String>
+    {
+        private final Iterator<SegmentInfo> segmentIterator;
+        private final LocalDBSearchQuery searchQuery;
+
+        private long currentSegment;
+        private Iterator<Integer> positionIterator = Collections.emptyIterator();
+        private String nextValue;
+
+        SearchIterator( final List<SegmentInfo> searchSegments, final LocalDBSearchQuery searchQuery )
+        {
+            this.segmentIterator = searchSegments.iterator();
+            this.searchQuery = searchQuery;
+            nextValue = readNext();
+        }
+
+        @Override
+        public boolean hasNext( )
+        {
+            return nextValue != null;
+        }
+
+        @Override
+        public String next( )
+        {
+            if ( nextValue == null )
+            {
+                throw new NoSuchElementException();
+            }
+            final String returnValue = nextValue;
+            nextValue = readNext();
+            return returnValue;
+        }
+
+        private String readNext( )
+        {
+            try
+            {
+                while ( true )
+                {
+                    while ( positionIterator.hasNext() )
+                    {
+                        final String value = localDB.get( DB, eventKey( currentSegment, positionIterator.next() ) );
+                        if ( value != null )
+                        {
+                            return value;
+                        }
+                    }
+
+                    if ( !segmentIterator.hasNext() )
+                    {
+                        return null;
+                    }
+
+                    currentSegment = segmentIterator.next().getId();
+                    final IndexRecord index = readIndex( currentSegment );
+                    positionIterator = index == null
+                            ? Collections.emptyIterator()
+                            : candidatePositions( index, searchQuery, searchQuery.isOldestFirst() ).iterator();
+                }
+            }
+            catch ( LocalDBException e )
+            {
+                LOGGER.error( "error reading localDB log events: " + e.getMessage() );
+                return null;
+            }
+        }
+    }
+
+    private static class OpenSegment
+    {
+        private final long id;
+        private final long bucket;
+        private final StringBuilder levels = new StringBuilder();
+        private final Map<String, List<Integer>> actors = new HashMap<>();
+        private Map<String, List<Integer>> pendingActors = new HashMap<>();
+        private Instant firstEventTime;
+        private Instant lastEventTime;
+        private int flushedEvents;
+        private int deltaCount;
+
+        OpenSegment( final long id, final long bucket )
+        {
+            this.id = id;
+            this.bucket = bucket;
+        }
+
+        int eventCount( )
+        {
+            return levels.length();
+        }
+
+        int add( final PwmLogEvent event )
+        {
+            final int position = levels.length();
+            levels.append( levelChar( event.getLevel() ) );
+            if ( !StringUtil.isEmpty( event.getActor() ) )
+            {
+                actors.computeIfAbsent( event.getActor(), k -> new ArrayList<>() ).add( position );
+                pendingActors.computeIfAbsent( event.getActor(), k -> new ArrayList<>() ).add( position );
+            }
+            if ( firstEventTime == null || event.getDate().isBefore( firstEventTime ) )
+            {
+                firstEventTime = event.getDate();
+            }
+            if ( lastEventTime == null || event.getDate().isAfter( lastEventTime ) )
+            {
+                lastEventTime = event.getDate();
+            }
+            return position;
+        }
+
+        /**
+         * Index changes since the previous call, or null if no events were added.
+         */
+        IndexDelta takeDelta( )
+        {
+            if ( levels.length() == flushedEvents )
+            {
+                return null;
+            }
+
+            final IndexDelta indexDelta = new IndexDelta(
+                    flushedEvents,
+                    levels.substring( flushedEvents ),
+                    pendingActors,
+                    firstEventTime,
+                    lastEventTime );
+            pendingActors = new HashMap<>();
+            flushedEvents = levels.length();
+            deltaCount++;
+            return indexDelta;
+        }
+
+        SegmentInfo toSegmentInfo( )
+        {
+            return new SegmentInfo( id, firstEventTime, lastEventTime, levels.length() );
+        }
+
+        IndexRecord toRecord( )
+        {
+            final Map<String, List<Integer>> actorsCopy = new HashMap<>( actors.size() );
+            for ( final Map.Entry<String, List<Integer>> entry : actors.entrySet() )
+            {
+                actorsCopy.put( entry.getKey(), new ArrayList<>( entry.getValue() ) );
+            }
+            return new IndexRecord( levels.toString(), actorsCopy );
+        }
+    }
+
+    @Value
+    static class SegmentInfo implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long id;
+        private final Instant firstEventTime;
+        private final Instant lastEventTime;
+        private final int eventCount;
+    }
+
+    @Value
+    static class IndexRecord implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * One character per event position, the {@link PwmLogLevel} ordinal offset from '0'.
+         */
+        private final String levels;
+
+        /**
+         * Event positions for each non-empty actor.
+         */
+        private final Map<String, List<Integer>> actors;
+    }
+
+    /**
+     * Index changes of an open segment written by one {@link #append(List)}.
+     */
+    @Value
+    static class IndexDelta implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int firstPosition;
+        private final String levels;
+        private final Map<String, List<Integer>> actors;
+
+        /**
+         * Event time range of the whole segment up to and including this record.
+         */
+        private final Instant firstEventTime;
+        private final Instant lastEventTime;
+    }
+
+    @Value
+    private static class Directory implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<SegmentInfo> segments;
+    }
+}
@@ -29,32 +29,34 @@ import password.pwm.svc.PwmService;
 import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.FileSystemUtility;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.MovingAverage;
 import password.pwm.util.java.PwmNumberFormat;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
-import password.pwm.util.localdb.LocalDBStoredQueue;
 
-import java.io.IOException;
 import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
- * Saves a recent copy of PWM events in the pwmDB.
+ * Saves a recent copy of PWM events in the pwmDB.  Events are kept in time bucketed segments, see {@link LocalDBLogSegmentStore}.
  *
  * @author Jason D. Rivard
  */
@@ -64,16 +66,20 @@ public class LocalDBLogger implements PwmService
 
     private final LocalDB localDB;
     private final LocalDBLoggerSettings settings;
-    private final LocalDBStoredQueue localDBListQueue;
-    private final Queue<PwmLogEvent> eventQueue;
+    private final LocalDBLogSegmentStore eventStore;
+    private final LocalDBLogEventBuffer eventBuffer;
     private final ScheduledExecutorService cleanerService;
     private final ScheduledExecutorService writerService;
-    private final AtomicBoolean cleanOnWriteFlag = new AtomicBoolean( false );
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean( false );
+    private final LongAdder flushedEvents = new LongAdder();
+    private final AtomicLong lastFlushMs = new AtomicLong();
+    private final MovingAverage avgFlushMs = new MovingAverage( TimeDuration.MINUTE );
 
     private volatile STATUS status = STATUS.NEW;
-    private boolean hasShownReadError = false;
+    private static volatile boolean hasShownReadError = false;
 
-    private static final String STORAGE_FORMAT_VERSION = "3";
+    private static final String STORAGE_FORMAT_VERSION = "4";
 
     public LocalDBLogger(
             final PwmApplication pwmApplication,
@@ -92,20 +98,24 @@ public class LocalDBLogger implements PwmService
                 : settings.applyValueChecks();
 
         this.localDB = localDB;
-        this.localDBListQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
-                pwmApplication,
+        this.eventStore = LocalDBLogSegmentStore.open(
                 localDB,
-                LocalDB.DB.EVENTLOG_EVENTS
+                this.settings.getSegmentDuration(),
+                this.settings.getSegmentMaxEvents()
         );
 
         if ( this.settings.getMaxEvents() == 0 )
         {
             LOGGER.info( () -> "maxEvents set to zero, clearing LocalDBLogger history and LocalDBLogger will remain closed" );
-            localDBListQueue.clear();
+            eventStore.clear();
             throw new IllegalArgumentException( "maxEvents=0, will remain closed" );
         }
 
-        eventQueue = new ArrayBlockingQueue<>( this.settings.getMaxBufferSize(), true );
+        eventBuffer = new LocalDBLogEventBuffer(
+                this.settings.getMaxBufferSize(),
+                this.settings.getOverflowPolicy(),
+                this.settings.getMaxBufferWaitTime()
+        );
 
         if ( pwmApplication != null )
         {
@@ -115,7 +125,7 @@ public class LocalDBLogger implements PwmService
                 LOGGER.warn( "localdb logger is using outdated format, clearing existing records (existing='"
                         + currentFormat + "', current='" + STORAGE_FORMAT_VERSION + "')" );
 
-                localDBListQueue.clear();
+                eventStore.clear();
                 pwmApplication.writeAppAttribute( PwmApplication.AppAttribute.LOCALDB_LOGGER_STORAGE_FORMAT, STORAGE_FORMAT_VERSION );
             }
         }
@@ -137,8 +147,6 @@ public class LocalDBLogger implements PwmService
         cleanerService.scheduleAtFixedRate( new CleanupTask(), 0, 1, TimeUnit.MINUTES );
         writerService.scheduleWithFixedDelay( new FlushTask(), 0, 103, TimeUnit.MILLISECONDS );
 
-        cleanOnWriteFlag.set( eventQueue.size() >= this.settings.getMaxEvents() );
-
         final TimeDuration timeDuration = TimeDuration.fromCurrent( startTime );
         LOGGER.info( () -> "open in " + timeDuration.asCompactString() + ", " + debugStats() );
     }
@@ -146,36 +154,15 @@ public class LocalDBLogger implements PwmService
 
     public Instant getTailDate( )
     {
-        final PwmLogEvent loopEvent;
-        if ( localDBListQueue.isEmpty() )
-        {
-            return null;
-        }
-        try
-        {
-            loopEvent = readEvent( localDBListQueue.getLast() );
-            if ( loopEvent != null )
-            {
-                final Instant tailDate = loopEvent.getDate();
-                if ( tailDate != null )
-                {
-                    return tailDate;
-                }
-            }
-        }
-        catch ( Exception e )
-        {
-            LOGGER.error( "unexpected error attempting to determine tail event timestamp: " + e.getMessage() );
-        }
-
-        return null;
+        return eventStore.getTailDate();
     }
 
 
     private String debugStats( )
     {
         final StringBuilder sb = new StringBuilder();
-        sb.append( "events=" ).append( localDBListQueue.size() );
+        sb.append( "events=" ).append( eventStore.size() );
+        sb.append( ", segments=" ).append( eventStore.segmentCount() );
         final Instant tailAge = getTailDate();
         sb.append( ", tailAge=" ).append( tailAge == null ? "n/a" : TimeDuration.fromCurrent( tailAge ).asCompactString() );
         sb.append( ", maxEvents=" ).append( settings.getMaxEvents() );
@@ -203,49 +190,27 @@ public class LocalDBLogger implements PwmService
 
     public int getStoredEventCount( )
     {
-        return localDBListQueue.size();
+        return eventStore.size();
     }
 
-    private int determineTailRemovalCount( )
+    private boolean isOldestSegmentExpired( )
     {
-        final int maxTrailSize = settings.getMaxTrimSize();
-
-        final int currentItemCount = localDBListQueue.size();
-
-        // must keep at least one position populated
-        if ( currentItemCount <= LocalDBLoggerSettings.MINIMUM_MAXIMUM_EVENTS )
+        // the newest segment is always kept
+        final LocalDBLogSegmentStore.SegmentInfo oldestSegment = eventStore.oldestSegment();
+        if ( oldestSegment == null || eventStore.segmentCount() < 2 )
         {
-            return 0;
+            return false;
         }
 
         // purge excess events by count
-        if ( currentItemCount > settings.getMaxEvents() )
-        {
-            return Math.min( maxTrailSize, currentItemCount - settings.getMaxEvents() );
-        }
-
-        // purge the tail if it is missing or has invalid timestamp
-        final Instant tailTimestamp = getTailDate();
-        if ( tailTimestamp == null )
+        if ( eventStore.size() > settings.getMaxEvents() )
         {
-            return 1;
+            return true;
         }
 
-        // purge excess events by age;
-        final TimeDuration tailAge = TimeDuration.fromCurrent( tailTimestamp );
-        if ( tailAge.isLongerThan( settings.getMaxAge() ) )
-        {
-            final long maxRemovalPercentageOfSize = getStoredEventCount() / maxTrailSize;
-            if ( maxRemovalPercentageOfSize > 100 )
-            {
-                return maxTrailSize;
-            }
-            else
-            {
-                return 1;
-            }
-        }
-        return 0;
+        // purge segments with missing timestamps or where every event is older than the max age
+        final Instant lastEventTime = oldestSegment.getLastEventTime();
+        return lastEventTime == null || TimeDuration.fromCurrent( lastEventTime ).isLongerThan( settings.getMaxAge() );
     }
 
 
@@ -258,14 +223,28 @@ public class LocalDBLogger implements PwmService
             final LocalDBSearchQuery searchParameters
     )
     {
-        return new LocalDBSearchResults( this, localDBListQueue.iterator(), searchParameters );
+        return new LocalDBSearchResults( eventStore.search( searchParameters ), searchParameters );
+    }
+
+    /**
+     * Search the events stored in a LocalDB without opening a logger, for use when the application is not running.
+     */
+    public static LocalDBSearchResults readStoredEvents(
+            final LocalDB localDB,
+            final LocalDBSearchQuery searchParameters
+    )
+            throws LocalDBException
+    {
+        final LocalDBLoggerSettings defaultSettings = LocalDBLoggerSettings.builder().build();
+        final LocalDBLogSegmentStore eventStore = LocalDBLogSegmentStore.open( localDB, defaultSettings.getSegmentDuration(), defaultSettings.getSegmentMaxEvents() );
+        return new LocalDBSearchResults( eventStore.search( searchParameters ), searchParameters );
     }
 
-    PwmLogEvent readEvent( final String value )
+    static PwmLogEvent readEvent( final String value )
     {
         try
         {
-            return PwmLogEvent.fromEncodedString( value );
+            return LocalDBLogEventCodec.decode( value );
         }
         catch ( Throwable e )
         {
@@ -278,7 +257,7 @@ public class LocalDBLogger implements PwmService
         return null;
     }
 
-    boolean checkEventForParams(
+    static boolean checkEventForParams(
             final PwmLogEvent event,
             final LocalDBSearchQuery searchParameters
     )
@@ -298,33 +277,9 @@ public class LocalDBLogger implements PwmService
             }
         }
 
-        Pattern pattern = null;
-        try
+        if ( !checkUsername( event.getActor(), searchParameters ) )
         {
-            if ( searchParameters.getUsername() != null && searchParameters.getUsername().length() > 0 )
-            {
-                pattern = Pattern.compile( searchParameters.getUsername() );
-            }
-        }
-        catch ( PatternSyntaxException e )
-        {
-            LOGGER.trace( () -> "invalid regex syntax for " + searchParameters.getUsername() + ", reverting to plaintext search" );
-        }
-        if ( pattern != null )
-        {
-            final Matcher matcher = pattern.matcher( event.getActor() == null ? "" : event.getActor() );
-            if ( !matcher.find() )
-            {
-                eventMatchesParams = false;
-            }
-        }
-        else if ( eventMatchesParams && ( searchParameters.getUsername() != null && searchParameters.getUsername().length() > 1 ) )
-        {
-            final String eventUsername = event.getActor();
-            if ( eventUsername == null || !eventUsername.equalsIgnoreCase( searchParameters.getUsername() ) )
-            {
-                eventMatchesParams = false;
-            }
+            eventMatchesParams = false;
         }
 
         if ( eventMatchesParams && ( searchParameters.getText() != null && searchParameters.getText().length() > 0 ) )
@@ -373,21 +328,56 @@ public class LocalDBLogger implements PwmService
         return eventMatchesParams;
     }
 
+    static boolean checkUsername(
+            final String actor,
+            final LocalDBSearchQuery searchParameters
+    )
+    {
+        Pattern pattern = null;
+        try
+        {
+            if ( searchParameters.getUsername() != null && searchParameters.getUsername().length() > 0 )
+            {
+                pattern = Pattern.compile( searchParameters.getUsername() );
+            }
+        }
+        catch ( PatternSyntaxException e )
+        {
+            LOGGER.trace( () -> "invalid regex syntax for " + searchParameters.getUsername() + ", reverting to plaintext search" );
+        }
+        if ( pattern != null )
+        {
+            final Matcher matcher = pattern.matcher( actor == null ? "" : actor );
+            return matcher.find();
+        }
+        else if ( searchParameters.getUsername() != null && searchParameters.getUsername().length() > 1 )
+        {
+            return actor != null && actor.equalsIgnoreCase( searchParameters.getUsername() );
+        }
+        return true;
+    }
+
     public void writeEvent( final PwmLogEvent event )
     {
         if ( status == STATUS.OPEN )
         {
             if ( settings.getMaxEvents() > 0 )
             {
-                final Instant startTime = Instant.now();
-                while ( !eventQueue.offer( event ) )
+                // discarded events are counted by the buffer, logging them here would only add to the backlog
+                eventBuffer.add( event );
+
+                // wake the writer early once the buffer is half full instead of waiting for the next scheduled flush
+                if ( eventBuffer.size() >= eventBuffer.capacity() / 2 && flushScheduled.compareAndSet( false, true ) )
                 {
-                    if ( TimeDuration.fromCurrent( startTime ).isLongerThan( settings.getMaxBufferWaitTime() ) )
+                    try
+                    {
+                        writerService.execute( new FlushTask() );
+                    }
+                    catch ( RejectedExecutionException e )
                     {
-                        LOGGER.warn( "discarded event after waiting max buffer wait time of " + settings.getMaxBufferWaitTime().asCompactString() );
-                        return;
+                        // writer is closing, the final flush will pick up the buffered events
+                        flushScheduled.set( false );
                     }
-                    TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ).pause();
                 }
             }
         }
@@ -395,27 +385,17 @@ public class LocalDBLogger implements PwmService
 
     private void flushEvents( )
     {
-        final List<String> localBuffer = new ArrayList<>();
-        while ( localBuffer.size() < ( settings.getMaxBufferSize() ) - 1 && !eventQueue.isEmpty() )
-        {
-            final PwmLogEvent pwmLogEvent = eventQueue.poll();
-            try
-            {
-                localBuffer.add( pwmLogEvent.toEncodedString() );
-            }
-            catch ( IOException e )
-            {
-                LOGGER.warn( "error flushing events to localDB: " + e.getMessage(), e );
-            }
-        }
+        final List<PwmLogEvent> localBuffer = new ArrayList<>( eventBuffer.capacity() );
+        eventBuffer.drainTo( localBuffer, eventBuffer.capacity() );
 
         try
         {
-            if ( cleanOnWriteFlag.get() )
-            {
-                localDBListQueue.removeLast( localBuffer.size() );
-            }
-            localDBListQueue.addAll( localBuffer );
+            final long startTime = System.nanoTime();
+            eventStore.append( localBuffer );
+            final long flushMs = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startTime );
+            lastFlushMs.set( flushMs );
+            avgFlushMs.update( flushMs );
+            flushedEvents.add( localBuffer.size() );
         }
         catch ( Exception e )
         {
@@ -428,9 +408,10 @@ public class LocalDBLogger implements PwmService
         @Override
         public void run( )
         {
+            flushScheduled.set( false );
             try
             {
-                while ( !eventQueue.isEmpty() && status == STATUS.OPEN )
+                while ( !eventBuffer.isEmpty() && status == STATUS.OPEN )
                 {
                     flushEvents();
                 }
@@ -448,26 +429,20 @@ public class LocalDBLogger implements PwmService
         {
             try
             {
-                int cleanupCount = 1;
-                while ( cleanupCount > 0 && ( status == STATUS.OPEN && localDBListQueue.getLocalDB().status() == LocalDB.Status.OPEN ) )
+                while ( status == STATUS.OPEN && localDB.status() == LocalDB.Status.OPEN && isOldestSegmentExpired() )
                 {
-                    cleanupCount = determineTailRemovalCount();
-                    if ( cleanupCount > 0 )
-                    {
-                        cleanOnWriteFlag.set( true );
-                        final Instant startTime = Instant.now();
-                        localDBListQueue.removeLast( cleanupCount );
-                        final TimeDuration purgeTime = TimeDuration.fromCurrent( startTime );
-                        final TimeDuration pauseTime = TimeDuration.of( JavaHelper.rangeCheck( 20, 2000, ( int ) purgeTime.asMillis() ), TimeDuration.Unit.MILLISECONDS );
-                        pauseTime.pause();
-                    }
+                    final Instant startTime = Instant.now();
+                    final int removedEvents = eventStore.removeOldestSegment();
+                    final TimeDuration purgeTime = TimeDuration.fromCurrent( startTime );
+                    LOGGER.trace( () -> "removed log segment with " + removedEvents + " events in " + purgeTime.asCompactString() );
+                    final TimeDuration pauseTime = TimeDuration.of( JavaHelper.rangeCheck( 20, 2000, ( int ) purgeTime.asMillis() ), TimeDuration.Unit.MILLISECONDS );
+                    pauseTime.pause();
                 }
             }
             catch ( Exception e )
             {
                 LOGGER.fatal( "unexpected error during LocalDBLogger log event cleanup: " + e.getMessage(), e );
             }
-            cleanOnWriteFlag.set( localDBListQueue.size() >= settings.getMaxEvents() );
         }
     }
 
@@ -531,7 +506,16 @@ public class LocalDBLogger implements PwmService
 
     public ServiceInfoBean serviceInfo( )
     {
-        return new ServiceInfoBean( Collections.singletonList( DataStorageMethod.LOCALDB ) );
+        final Map<String, String> debugProperties = new LinkedHashMap<>();
+        debugProperties.put( "storedEvents", String.valueOf( getStoredEventCount() ) );
+        debugProperties.put( "bufferedEvents", String.valueOf( eventBuffer.size() ) );
+        debugProperties.put( "bufferCapacity", String.valueOf( eventBuffer.capacity() ) );
+        debugProperties.put( "overflowPolicy", settings.getOverflowPolicy().name() );
+        debugProperties.put( "droppedEvents", String.valueOf( eventBuffer.droppedEvents() ) );
+        debugProperties.put( "flushedEvents", String.valueOf( flushedEvents.sum() ) );
+        debugProperties.put( "lastFlushTime", TimeDuration.of( lastFlushMs.get(), TimeDuration.Unit.MILLISECONDS ).asCompactString() );
+        debugProperties.put( "avgFlushTime", TimeDuration.of( ( long ) avgFlushMs.getAverage(), TimeDuration.Unit.MILLISECONDS ).asCompactString() );
+        return new ServiceInfoBean( Collections.singletonList( DataStorageMethod.LOCALDB ), Collections.unmodifiableMap( debugProperties ) );
     }
 
 }
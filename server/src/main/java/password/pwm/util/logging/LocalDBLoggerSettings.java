@@ -25,6 +25,7 @@ import lombok.Data;
 import password.pwm.AppProperty;
 import password.pwm.config.Configuration;
 import password.pwm.config.PwmSetting;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
@@ -58,7 +59,13 @@ public class LocalDBLoggerSettings implements Serializable
     private TimeDuration maxBufferWaitTime = TimeDuration.of( 1, TimeDuration.Unit.MINUTES );
 
     @Builder.Default
-    private int maxTrimSize = 501;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_TRACE;
+
+    @Builder.Default
+    private TimeDuration segmentDuration = TimeDuration.of( 30, TimeDuration.Unit.MINUTES );
+
+    @Builder.Default
+    private int segmentMaxEvents = 5000;
 
 
     public enum Flag
@@ -66,11 +73,47 @@ public class LocalDBLoggerSettings implements Serializable
         DevDebug,
     }
 
+    /**
+     * Handling of new events when the write buffer is full.
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * Discard the oldest buffered event to make room.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Discard new {@link PwmLogLevel#TRACE} events immediately, other levels wait like {@link #BLOCK}.
+         */
+        DROP_TRACE,
+
+        /**
+         * Wait up to the maximum buffer wait time for room, then discard the new event.
+         */
+        BLOCK,
+    }
+
     LocalDBLoggerSettings applyValueChecks()
     {
         return toBuilder()
                 .maxEvents( maxEvents < 1 ? 0 : Math.max( MINIMUM_MAXIMUM_EVENTS, maxEvents ) )
                 .maxAge( maxAge == null || maxAge.isShorterThan( MINIMUM_MAX_AGE ) ? MINIMUM_MAX_AGE : maxAge )
+                .build()
+                .applySegmentChecks();
+    }
+
+    /**
+     * Keep segments small relative to the retention limits, since retention removes whole segments.
+     */
+    private LocalDBLoggerSettings applySegmentChecks()
+    {
+        final long maxSegmentDurationMs = Math.max( TimeDuration.MINUTE.asMillis(), maxAge.asMillis() / 4 );
+        return toBuilder()
+                .segmentDuration( segmentDuration == null || segmentDuration.asMillis() > maxSegmentDurationMs
+                        ? TimeDuration.of( maxSegmentDurationMs, TimeDuration.Unit.MILLISECONDS )
+                        : segmentDuration )
+                .segmentMaxEvents( Math.max( 1, Math.min( segmentMaxEvents, maxEvents / 10 ) ) )
                 .build();
     }
 
@@ -89,7 +132,16 @@ public class LocalDBLoggerSettings implements Serializable
                 Long.parseLong( configuration.readAppProperty( AppProperty.LOCALDB_LOGWRITER_MAX_BUFFER_WAIT_MS ) ),
                 TimeDuration.Unit.MILLISECONDS
         );
-        final int maxTrimSize = Integer.parseInt( configuration.readAppProperty( AppProperty.LOCALDB_LOGWRITER_MAX_TRIM_SIZE ) );
+        final TimeDuration segmentDuration = TimeDuration.of(
+                Long.parseLong( configuration.readAppProperty( AppProperty.LOCALDB_LOGWRITER_SEGMENT_DURATION_SECONDS ) ),
+                TimeDuration.Unit.SECONDS
+        );
+        final OverflowPolicy overflowPolicy = JavaHelper.readEnumFromString(
+                OverflowPolicy.class,
+                OverflowPolicy.DROP_TRACE,
+                configuration.readAppProperty( AppProperty.LOCALDB_LOGWRITER_OVERFLOW_POLICY )
+        );
+        final int segmentMaxEvents = Integer.parseInt( configuration.readAppProperty( AppProperty.LOCALDB_LOGWRITER_SEGMENT_MAX_EVENTS ) );
 
         return LocalDBLoggerSettings.builder()
                 .maxEvents( maxEvents )
@@ -97,7 +149,9 @@ public class LocalDBLoggerSettings implements Serializable
                 .flags( flags )
                 .maxBufferSize( maxBufferSize )
                 .maxBufferWaitTime( maxBufferWaitTime )
-                .maxTrimSize( maxTrimSize )
+                .overflowPolicy( overflowPolicy )
+                .segmentDuration( segmentDuration )
+                .segmentMaxEvents( segmentMaxEvents )
                 .build().applyValueChecks();
     }
 }
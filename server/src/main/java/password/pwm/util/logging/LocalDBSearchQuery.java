@@ -34,4 +34,9 @@ public class LocalDBSearchQuery
     private String text;
     private TimeDuration maxQueryTime;
     private LocalDBLogger.EventType eventType;
+
+    /**
+     * Return events in the order they were written instead of newest first.
+     */
+    private boolean oldestFirst;
 }
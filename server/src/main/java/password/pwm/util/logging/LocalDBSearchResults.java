@@ -28,7 +28,6 @@ import java.util.NoSuchElementException;
 
 public class LocalDBSearchResults implements Iterator<PwmLogEvent>
 {
-    private transient LocalDBLogger localDBLogger;
     private final Iterator<String> localDBIterator;
     private final LocalDBSearchQuery searchParameters;
 
@@ -38,12 +37,10 @@ public class LocalDBSearchResults implements Iterator<PwmLogEvent>
     private int eventCount = 0;
     private Instant finishTime;
 
-    LocalDBSearchResults( final LocalDBLogger localDBLogger,
-                          final Iterator<String> localDBIterator,
+    LocalDBSearchResults( final Iterator<String> localDBIterator,
                           final LocalDBSearchQuery searchParameters
     )
     {
-        this.localDBLogger = localDBLogger;
         startTime = Instant.now();
         this.localDBIterator = localDBIterator;
         this.searchParameters = searchParameters;
@@ -103,8 +100,8 @@ public class LocalDBSearchResults implements Iterator<PwmLogEvent>
                 return null;
             }
 
-            final PwmLogEvent logEvent = localDBLogger.readEvent( nextDbValue );
-            if ( logEvent != null && localDBLogger.checkEventForParams( logEvent, searchParameters ) )
+            final PwmLogEvent logEvent = LocalDBLogger.readEvent( nextDbValue );
+            if ( logEvent != null && LocalDBLogger.checkEventForParams( logEvent, searchParameters ) )
             {
                 eventCount++;
                 return logEvent;
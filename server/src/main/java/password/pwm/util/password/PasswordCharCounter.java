@@ -18,22 +18,32 @@
  * limitations under the License.
  */
 
+
 package password.pwm.util.password;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character statistics of a password.  All counts are computed in a single pass over the password when the counter
+ * is created; the {@code getXxxChars()} methods that return the matching characters are computed on demand.
+ */
 public class PasswordCharCounter
 {
+    private static final int ASCII_LIMIT = 128;
+
     private final String password;
-    private final int passwordLength;
+    private final CharStats stats;
 
     public PasswordCharCounter( final String password )
     {
         this.password = password;
-        this.passwordLength = password.length();
+        this.stats = CharStats.compute( password );
     }
 
     public int getNumericCharCount( )
     {
-        return getNumericChars().length();
+        return stats.numericCount;
     }
 
     public String getNumericChars( )
@@ -43,7 +53,7 @@ public class PasswordCharCounter
 
     public int getUpperCharCount( )
     {
-        return getUpperChars().length();
+        return stats.upperCount;
     }
 
     public String getUpperChars( )
@@ -53,7 +63,7 @@ public class PasswordCharCounter
 
     public int getAlphaCharCount( )
     {
-        return getAlphaChars().length();
+        return stats.alphaCount;
     }
 
     public String getAlphaChars( )
@@ -63,7 +73,7 @@ public class PasswordCharCounter
 
     public int getNonAlphaCharCount( )
     {
-        return getNonAlphaChars().length();
+        return password.length() - stats.alphaCount;
     }
 
     public String getNonAlphaChars( )
@@ -73,7 +83,7 @@ public class PasswordCharCounter
 
     public int getLowerCharCount( )
     {
-        return getLowerChars().length();
+        return stats.lowerCount;
     }
 
     public String getLowerChars( )
@@ -83,7 +93,7 @@ public class PasswordCharCounter
 
     public int getSpecialCharsCount( )
     {
-        return getSpecialChars().length();
+        return stats.specialCount;
     }
 
     public String getSpecialChars( )
@@ -93,128 +103,32 @@ public class PasswordCharCounter
 
     public int getRepeatedChars( )
     {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toString().toLowerCase();
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt( i );
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( loopChar == passwordL.charAt( j ) )
-                {
-                    loopRepeats++;
-                }
-            }
-
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return stats.repeatedChars;
     }
 
     public int getSequentialRepeatedChars( )
     {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toString().toLowerCase();
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt( i );
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( loopChar == passwordL.charAt( j ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return stats.sequentialRepeatedChars;
     }
 
     public int getSequentialNumericChars( )
     {
-        int numberOfRepeats = 0;
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( Character.isDigit( password.charAt( j ) ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return stats.sequentialNumericChars;
     }
 
     public int getSequentialAlphaChars( )
     {
-        int numberOfRepeats = 0;
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( Character.isLetter( password.charAt( j ) ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return stats.sequentialAlphaChars;
     }
 
     public int getUniqueChars( )
     {
-        final StringBuilder sb = new StringBuilder();
-        final String passwordL = password.toString().toLowerCase();
-        for ( int i = 0; i < passwordLength; i++ )
-        {
-            final char loopChar = passwordL.charAt( i );
-            if ( sb.indexOf( String.valueOf( loopChar ) ) == -1 )
-            {
-                sb.append( loopChar );
-            }
-        }
-        return sb.length();
+        return stats.uniqueChars;
     }
 
     public int getOtherLetterCharCount( )
     {
-        return getOtherLetterChars().length();
+        return stats.otherLetterCount;
     }
 
     public String getOtherLetterChars( )
@@ -257,6 +171,118 @@ public class PasswordCharCounter
         return sb.toString();
     }
 
+    /**
+     * Counts collected in one pass.  Repeat and run values ignore case, and as with the previous per-statistic scans, runs
+     * and repeats are only counted for passwords of at least two characters, and a run that starts on the last character
+     * is not counted.
+     */
+    private static final class CharStats
+    {
+        private int numericCount;
+        private int upperCount;
+        private int lowerCount;
+        private int alphaCount;
+        private int specialCount;
+        private int otherLetterCount;
+        private int uniqueChars;
+        private int repeatedChars;
+        private int sequentialRepeatedChars;
+        private int sequentialNumericChars;
+        private int sequentialAlphaChars;
+
+        static CharStats compute( final String password )
+        {
+            final CharStats stats = new CharStats();
+            final int length = password.length();
+            final boolean countRuns = length > 1;
+
+            final int[] asciiOccurrences = new int[ASCII_LIMIT];
+            Map<Character, Integer> otherOccurrences = null;
+
+            char previousLower = 0;
+            int repeatRun = 0;
+            int numericRun = 0;
+            int alphaRun = 0;
+
+            for ( int i = 0; i < length; i++ )
+            {
+                final char c = password.charAt( i );
+                final boolean digit = Character.isDigit( c );
+                final boolean letter = Character.isLetter( c );
+
+                if ( digit )
+                {
+                    stats.numericCount++;
+                }
+                if ( letter )
+                {
+                    stats.alphaCount++;
+                    if ( Character.getType( c ) == Character.OTHER_LETTER )
+                    {
+                        stats.otherLetterCount++;
+                    }
+                }
+                if ( Character.isUpperCase( c ) )
+                {
+                    stats.upperCount++;
+                }
+                if ( Character.isLowerCase( c ) )
+                {
+                    stats.lowerCount++;
+                }
+                if ( !Character.isLetterOrDigit( c ) )
+                {
+                    stats.specialCount++;
+                }
+
+                final char lowerChar = Character.toLowerCase( c );
+                final int occurrences;
+                if ( lowerChar < ASCII_LIMIT )
+                {
+                    asciiOccurrences[lowerChar]++;
+                    occurrences = asciiOccurrences[lowerChar];
+                }
+                else
+                {
+                    if ( otherOccurrences == null )
+                    {
+                        otherOccurrences = new HashMap<>();
+                    }
+                    occurrences = otherOccurrences.merge( lowerChar, 1, Integer::sum );
+                }
+                if ( occurrences == 1 )
+                {
+                    stats.uniqueChars++;
+                }
+
+                final boolean lastChar = i == length - 1;
+                repeatRun = i > 0 && lowerChar == previousLower ? repeatRun + 1 : 1;
+                numericRun = nextRunLength( numericRun, digit, lastChar );
+                alphaRun = nextRunLength( alphaRun, letter, lastChar );
+                previousLower = lowerChar;
+
+                if ( countRuns )
+                {
+                    stats.repeatedChars = Math.max( stats.repeatedChars, occurrences );
+                    stats.sequentialRepeatedChars = Math.max( stats.sequentialRepeatedChars, repeatRun );
+                    stats.sequentialNumericChars = Math.max( stats.sequentialNumericChars, numericRun );
+                    stats.sequentialAlphaChars = Math.max( stats.sequentialAlphaChars, alphaRun );
+                }
+            }
+
+            return stats;
+        }
+
+        private static int nextRunLength( final int currentRun, final boolean matches, final boolean lastChar )
+        {
+            if ( !matches || ( currentRun == 0 && lastChar ) )
+            {
+                return 0;
+            }
+            return currentRun + 1;
+        }
+    }
+
     private enum CharType
     {
         UPPERCASE( Character::isUpperCase ),
@@ -0,0 +1,423 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.novell.ldapchai.ChaiUser;
+import com.novell.ldapchai.exception.ChaiUnavailableException;
+import lombok.Builder;
+import lombok.Value;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.bean.LoginInfoBean;
+import password.pwm.config.Configuration;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmDataValidationException;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.health.HealthRecord;
+import password.pwm.i18n.Display;
+import password.pwm.ldap.UserInfo;
+import password.pwm.svc.PwmService;
+import password.pwm.util.PasswordData;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.i18n.LocaleHelper;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Async password checks for the check-as-you-type requests of the change password page and the check password rest
+ * service.  The inexpensive local rules are checked in the request, while the strength, wordlist, shared history,
+ * external rule method and ldap policy checks run in the background.  Each session has at most one pending background
+ * check; a check for a different password supersedes it, and a short debounce delay before a background check starts
+ * lets quickly typed passwords be cancelled before any work is done.  A superseded check that has already started is
+ * not interrupted, it runs to completion and its result is cached.  Results are cached per session and
+ * password hash, so polling for a pending result or typing the confirmation password do not repeat the checks.
+ */
+public class PasswordCheckService implements PwmService
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PasswordCheckService.class );
+
+    private static final int MAX_CACHED_RESULTS = 10_000;
+
+    private PwmApplication pwmApplication;
+    private STATUS status = STATUS.NEW;
+
+    private boolean asyncEnabled;
+    private TimeDuration debounceDelay;
+    private TimeDuration responseWait;
+    private Cache<String, CheckResult> checkResults;
+    private Cache<String, PendingCheck> pendingChecks;
+    private ScheduledThreadPoolExecutor executorService;
+
+    private final AtomicLong localFailures = new AtomicLong( 0 );
+    private final AtomicLong cachedResults = new AtomicLong( 0 );
+    private final AtomicLong deferredChecks = new AtomicLong( 0 );
+    private final AtomicLong supersededChecks = new AtomicLong( 0 );
+    private final AtomicLong pendingResponses = new AtomicLong( 0 );
+
+    @Override
+    public STATUS status( )
+    {
+        return status;
+    }
+
+    @Override
+    public void init( final PwmApplication pwmApplication ) throws PwmException
+    {
+        this.pwmApplication = pwmApplication;
+        final Configuration config = pwmApplication.getConfig();
+
+        asyncEnabled = Boolean.parseBoolean( config.readAppProperty( AppProperty.PASSWORD_CHECK_ASYNC_ENABLE ) );
+        if ( !asyncEnabled )
+        {
+            status = STATUS.CLOSED;
+            return;
+        }
+
+        debounceDelay = TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.PASSWORD_CHECK_ASYNC_DEBOUNCE_MS ) ), TimeDuration.Unit.MILLISECONDS );
+        responseWait = TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.PASSWORD_CHECK_ASYNC_RESPONSE_WAIT_MS ) ), TimeDuration.Unit.MILLISECONDS );
+
+        final long resultLifetimeMs = Long.parseLong( config.readAppProperty( AppProperty.CACHE_PWRULECHECK_LIFETIME_MS ) );
+        checkResults = Caffeine.newBuilder()
+                .maximumSize( MAX_CACHED_RESULTS )
+                .expireAfterWrite( resultLifetimeMs, TimeUnit.MILLISECONDS )
+                .build();
+        pendingChecks = Caffeine.newBuilder()
+                .maximumSize( MAX_CACHED_RESULTS )
+                .expireAfterWrite( resultLifetimeMs, TimeUnit.MILLISECONDS )
+                .build();
+
+        final int threads = Math.max( 1, Integer.parseInt( config.readAppProperty( AppProperty.PASSWORD_CHECK_ASYNC_THREADS ) ) );
+        executorService = new ScheduledThreadPoolExecutor(
+                threads,
+                PwmScheduler.makePwmThreadFactory( PwmScheduler.makeThreadName( pwmApplication, PasswordCheckService.class ) + "-", true ) );
+        executorService.setRemoveOnCancelPolicy( true );
+
+        status = STATUS.OPEN;
+    }
+
+    @Override
+    public void close( )
+    {
+        status = STATUS.CLOSED;
+        if ( executorService != null )
+        {
+            JavaHelper.closeAndWaitExecutor( executorService, TimeDuration.SECONDS_10 );
+            executorService = null;
+        }
+        if ( pendingChecks != null )
+        {
+            pendingChecks.invalidateAll();
+        }
+        if ( checkResults != null )
+        {
+            checkResults.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<HealthRecord> healthCheck( )
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ServiceInfoBean serviceInfo( )
+    {
+        final Map<String, String> debugInfo = new LinkedHashMap<>();
+        debugInfo.put( "asyncEnabled", String.valueOf( asyncEnabled ) );
+        if ( status == STATUS.OPEN )
+        {
+            debugInfo.put( "cachedResults", String.valueOf( checkResults.estimatedSize() ) );
+            debugInfo.put( "pendingChecks", String.valueOf( pendingChecks.estimatedSize() ) );
+            debugInfo.put( "localFailures", String.valueOf( localFailures.get() ) );
+            debugInfo.put( "cacheHits", String.valueOf( cachedResults.get() ) );
+            debugInfo.put( "deferredChecks", String.valueOf( deferredChecks.get() ) );
+            debugInfo.put( "supersededChecks", String.valueOf( supersededChecks.get() ) );
+            debugInfo.put( "pendingResponses", String.valueOf( pendingResponses.get() ) );
+        }
+        return new ServiceInfoBean( Collections.emptyList(), Collections.unmodifiableMap( debugInfo ) );
+    }
+
+    /**
+     * Check an entered password.  If async checks are disabled this is the same as
+     * {@link PasswordUtility#checkEnteredPassword(PwmApplication, Locale, ChaiUser, UserInfo, LoginInfoBean, PasswordData, PasswordData)}.
+     *
+     * @param checkRequest the password and the user and session it is checked for
+     * @return the check result, which is marked as pending if the deferred checks have not completed yet
+     * @throws PwmUnrecoverableException if the check can not be performed
+     * @throws ChaiUnavailableException if the directory is unavailable
+     */
+    public PasswordUtility.PasswordCheckInfo checkEnteredPassword( final AsyncCheckRequest checkRequest )
+            throws PwmUnrecoverableException, ChaiUnavailableException
+    {
+        if ( status != STATUS.OPEN || checkRequest.getPassword() == null || checkRequest.getSessionKey() == null )
+        {
+            return PasswordUtility.checkEnteredPassword(
+                    pwmApplication,
+                    checkRequest.getLocale(),
+                    checkRequest.getChaiUser(),
+                    checkRequest.getUserInfo(),
+                    checkRequest.getLoginInfoBean(),
+                    checkRequest.getPassword(),
+                    checkRequest.getConfirmPassword() );
+        }
+
+        final UserInfo userInfo = checkRequest.getUserInfo();
+        final String sessionKey = checkRequest.getSessionKey();
+        final String checkKey = sessionKey
+                + "|" + ( userInfo.getUserIdentity() == null ? "" : userInfo.getUserIdentity().toDelimitedKey() )
+                + "|" + checkRequest.getPassword().hash();
+
+        final CheckResult cachedResult = checkResults.getIfPresent( checkKey );
+        if ( cachedResult != null )
+        {
+            cachedResults.incrementAndGet();
+            return makeCheckInfo( checkRequest, cachedResult );
+        }
+
+        final ErrorInformation localError = checkLocalRules( checkRequest );
+        if ( localError != null )
+        {
+            localFailures.incrementAndGet();
+            cancelPendingCheck( sessionKey );
+            final CheckResult localResult = new CheckResult( localError, judgeStrength( checkRequest ) );
+            checkResults.put( checkKey, localResult );
+            return makeCheckInfo( checkRequest, localResult );
+        }
+
+        final PendingCheck pendingCheck = pendingChecks.asMap().compute( sessionKey, ( key, existingCheck ) ->
+        {
+            if ( existingCheck != null && existingCheck.getCheckKey().equals( checkKey ) && !existingCheck.getFuture().isCancelled() )
+            {
+                return existingCheck;
+            }
+            if ( existingCheck != null && existingCheck.cancelIfNotStarted() )
+            {
+                supersededChecks.incrementAndGet();
+            }
+            final AtomicBoolean started = new AtomicBoolean( false );
+            final ScheduledFuture<CheckResult> future = executorService.schedule(
+                    () ->
+                    {
+                        if ( !started.compareAndSet( false, true ) )
+                        {
+                            throw new CancellationException();
+                        }
+                        return checkDeferredRules( checkRequest, checkKey );
+                    },
+                    debounceDelay.asMillis(),
+                    TimeUnit.MILLISECONDS );
+            return new PendingCheck( checkKey, future, started );
+        } );
+
+        try
+        {
+            final CheckResult deferredResult = pendingCheck.getFuture().get( responseWait.asMillis(), TimeUnit.MILLISECONDS );
+            pendingChecks.asMap().remove( sessionKey, pendingCheck );
+            return makeCheckInfo( checkRequest, deferredResult );
+        }
+        catch ( TimeoutException | CancellationException e )
+        {
+            pendingResponses.incrementAndGet();
+            return makePendingCheckInfo( checkRequest );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return makePendingCheckInfo( checkRequest );
+        }
+        catch ( ExecutionException e )
+        {
+            pendingChecks.asMap().remove( sessionKey, pendingCheck );
+            final Throwable cause = e.getCause();
+            if ( cause instanceof PwmUnrecoverableException )
+            {
+                throw ( PwmUnrecoverableException ) cause;
+            }
+            if ( cause instanceof ChaiUnavailableException )
+            {
+                throw ( ChaiUnavailableException ) cause;
+            }
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL,
+                    "unexpected error during password check: " + JavaHelper.readHostileExceptionMessage( cause ) );
+        }
+    }
+
+    private ErrorInformation checkLocalRules( final AsyncCheckRequest checkRequest )
+            throws PwmUnrecoverableException, ChaiUnavailableException
+    {
+        final PwmPasswordRuleValidator validator = new PwmPasswordRuleValidator(
+                pwmApplication,
+                checkRequest.getUserInfo().getPasswordPolicy(),
+                checkRequest.getLocale(),
+                PwmPasswordRuleValidator.Flag.FailFast,
+                PwmPasswordRuleValidator.Flag.LocalRulesOnly );
+        try
+        {
+            validator.testPassword( checkRequest.getPassword(), readOldPassword( checkRequest ), checkRequest.getUserInfo(), checkRequest.getChaiUser() );
+            return null;
+        }
+        catch ( PwmDataValidationException e )
+        {
+            return e.getErrorInformation();
+        }
+    }
+
+    private CheckResult checkDeferredRules( final AsyncCheckRequest checkRequest, final String checkKey )
+            throws PwmUnrecoverableException, ChaiUnavailableException
+    {
+        deferredChecks.incrementAndGet();
+        final PwmPasswordRuleValidator validator = new PwmPasswordRuleValidator(
+                pwmApplication,
+                checkRequest.getUserInfo().getPasswordPolicy(),
+                checkRequest.getLocale(),
+                PwmPasswordRuleValidator.Flag.DeferredRulesOnly );
+
+        ErrorInformation deferredError = null;
+        try
+        {
+            validator.testPassword( checkRequest.getPassword(), readOldPassword( checkRequest ), checkRequest.getUserInfo(), checkRequest.getChaiUser() );
+        }
+        catch ( PwmDataValidationException e )
+        {
+            deferredError = e.getErrorInformation();
+        }
+
+        final CheckResult checkResult = new CheckResult( deferredError, judgeStrength( checkRequest ) );
+        checkResults.put( checkKey, checkResult );
+        return checkResult;
+    }
+
+    private void cancelPendingCheck( final String sessionKey )
+    {
+        final PendingCheck pendingCheck = pendingChecks.asMap().remove( sessionKey );
+        if ( pendingCheck != null && pendingCheck.cancelIfNotStarted() )
+        {
+            supersededChecks.incrementAndGet();
+        }
+    }
+
+    private int judgeStrength( final AsyncCheckRequest checkRequest )
+            throws PwmUnrecoverableException
+    {
+        return PasswordUtility.judgePasswordStrength( pwmApplication.getConfig(), checkRequest.getPassword().getStringValue() );
+    }
+
+    private PasswordUtility.PasswordCheckInfo makeCheckInfo( final AsyncCheckRequest checkRequest, final CheckResult checkResult )
+            throws PwmUnrecoverableException
+    {
+        final PasswordUtility.PasswordCheckInfo.MatchStatus matchStatus = readMatchStatus( checkRequest );
+        final ErrorInformation errorInformation = checkResult.getErrorInformation();
+        if ( errorInformation != null )
+        {
+            final String message = errorInformation.toUserStr( checkRequest.getLocale(), pwmApplication.getConfig() );
+            return new PasswordUtility.PasswordCheckInfo( message, false, checkResult.getStrength(), matchStatus, errorInformation.getError().getErrorCode() );
+        }
+
+        final String message = PasswordUtility.passedCheckMessage( pwmApplication.getConfig(), checkRequest.getLocale(), matchStatus );
+        return new PasswordUtility.PasswordCheckInfo( message, true, checkResult.getStrength(), matchStatus, 0 );
+    }
+
+    private PasswordUtility.PasswordCheckInfo makePendingCheckInfo( final AsyncCheckRequest checkRequest )
+            throws PwmUnrecoverableException
+    {
+        final String message = LocaleHelper.getLocalizedMessage( checkRequest.getLocale(), Display.Display_CheckingPassword, pwmApplication.getConfig() );
+        return new PasswordUtility.PasswordCheckInfo( message, false, 0, readMatchStatus( checkRequest ), 0, true );
+    }
+
+    private static PasswordUtility.PasswordCheckInfo.MatchStatus readMatchStatus( final AsyncCheckRequest checkRequest )
+            throws PwmUnrecoverableException
+    {
+        return PasswordUtility.figureMatchStatus(
+                PasswordUtility.isPasswordCaseSensitive( checkRequest.getUserInfo() ),
+                checkRequest.getPassword(),
+                checkRequest.getConfirmPassword() );
+    }
+
+    private static PasswordData readOldPassword( final AsyncCheckRequest checkRequest )
+    {
+        return checkRequest.getLoginInfoBean() == null ? null : checkRequest.getLoginInfoBean().getUserCurrentPassword();
+    }
+
+    @Value
+    @Builder
+    public static class AsyncCheckRequest
+    {
+        /**
+         * Identifies the session (or rest client and target user) the check is made for, checks with the same key supersede each other.
+         */
+        private final String sessionKey;
+        private final Locale locale;
+        private final ChaiUser chaiUser;
+        private final UserInfo userInfo;
+        private final LoginInfoBean loginInfoBean;
+        private final PasswordData password;
+        private final PasswordData confirmPassword;
+    }
+
+    @Value
+    private static class CheckResult
+    {
+        private final ErrorInformation errorInformation;
+        private final int strength;
+    }
+
+    @Value
+    private static class PendingCheck
+    {
+        private final String checkKey;
+        private final ScheduledFuture<CheckResult> future;
+        private final AtomicBoolean started;
+
+        /**
+         * Cancels the check if it is still waiting out the debounce delay, a check that has already started is left
+         * to complete so its result is cached.
+         */
+        boolean cancelIfNotStarted()
+        {
+            if ( started.compareAndSet( false, true ) )
+            {
+                future.cancel( false );
+                return true;
+            }
+            return false;
+        }
+    }
+}
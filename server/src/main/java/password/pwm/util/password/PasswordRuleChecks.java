@@ -20,8 +20,11 @@
 
 package password.pwm.util.password;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
+import lombok.Value;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import password.pwm.AppProperty;
@@ -50,9 +53,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Contains validation logic for the most of the "internal" {@link PwmPasswordRule} rules.
+ *
+ * <p>Each policy is compiled once into a {@link RulePlan}: the ordered list of rule checkers that are active for the policy,
+ * cheapest first so the dictionary and shared history lookups run last, along with the policy's regular expressions
+ * compiled ahead of time where they do not depend on macros.</p>
  */
 public class PasswordRuleChecks
 {
@@ -60,7 +68,9 @@ public class PasswordRuleChecks
 
     private static final boolean EXTRA_LOGGING = false;
 
-    @Data
+    private static final int MAX_CACHED_PLANS = 1000;
+
+    @Getter
     @Builder
     private static class RuleCheckData
     {
@@ -69,7 +79,22 @@ public class PasswordRuleChecks
         private UserInfo userInfo;
         private PasswordRuleReaderHelper ruleHelper;
         private PasswordCharCounter charCounter;
+        private RulePlan rulePlan;
+
+        /**
+         * Created on first use, most policies have no rules that need macro expansion.
+         */
         private MacroMachine macroMachine;
+
+        MacroMachine getMacroMachine( )
+                throws PwmUnrecoverableException
+        {
+            if ( macroMachine == null )
+            {
+                macroMachine = makeMacroMachine( pwmApplication, userInfo );
+            }
+            return macroMachine;
+        }
     }
 
     private interface RuleChecker
@@ -80,8 +105,28 @@ public class PasswordRuleChecks
                 RuleCheckData ruleCheckData
         )
                 throws PwmUnrecoverableException;
+
+        /**
+         * Indicates if the checker can report an error for the policy, checkers that can not are left out of the compiled plan.
+         */
+        default boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return true;
+        }
+
+        /**
+         * Indicates if the checker is expensive enough to be deferred to a background check when validating while the user types.
+         */
+        default boolean isDeferred( )
+        {
+            return false;
+        }
     }
 
+    /**
+     * All rule checkers in evaluation order: counting checks first, then pattern and macro based checks, then the strength
+     * meter, and finally the checks that read the wordlist and shared history.
+     */
     private static final List<RuleChecker> RULE_CHECKS = Collections.unmodifiableList( Arrays.asList(
             new OldPasswordRuleChecker(),
             new MinimumLengthRuleChecker(),
@@ -93,15 +138,75 @@ public class PasswordRuleChecks
             new UniqueCharRuleChecker(),
             new CharSequenceRuleChecker(),
             new ActiveDirectoryRuleChecker(),
-            new DisallowedValueRuleChecker(),
+            new CharGroupRuleChecker(),
+            new RegexPatternsRuleChecker(),
             new DisallowedAttributeRuleChecker(),
+            new DisallowedValueRuleChecker(),
             new PasswordStrengthRuleChecker(),
-            new RegexPatternsRuleChecker(),
-            new CharGroupRuleChecker(),
             new DictionaryRuleChecker(),
             new SharedHistoryRuleChecker()
     ) );
 
+    private static final Cache<Map<String, String>, RulePlan> RULE_PLANS = Caffeine.newBuilder()
+            .maximumSize( MAX_CACHED_PLANS )
+            .build();
+
+    @Value
+    private static class RulePlan
+    {
+        private final PasswordRuleReaderHelper ruleHelper;
+        private final List<RuleChecker> ruleCheckers;
+
+        /**
+         * Pre-compiled patterns, or null if the patterns contain macros and must be compiled for each check.
+         */
+        private final List<Pattern> regExMatch;
+        private final List<Pattern> regExNoMatch;
+        private final List<Pattern> charGroups;
+
+        static RulePlan compile( final PwmPasswordPolicy policy )
+        {
+            final PasswordRuleReaderHelper ruleHelper = policy.getRuleHelper();
+            final List<RuleChecker> activeCheckers = RULE_CHECKS.stream()
+                    .filter( ruleChecker -> ruleChecker.isActive( ruleHelper ) )
+                    .collect( Collectors.toList() );
+
+            return new RulePlan(
+                    ruleHelper,
+                    Collections.unmodifiableList( activeCheckers ),
+                    precompileRegex( policy, ruleHelper, PwmPasswordRule.RegExMatch ),
+                    precompileRegex( policy, ruleHelper, PwmPasswordRule.RegExNoMatch ),
+                    Collections.unmodifiableList( ruleHelper.getCharGroupValues() ) );
+        }
+
+        List<Pattern> readRegExMatch( final RuleCheckData ruleCheckData )
+                throws PwmUnrecoverableException
+        {
+            return regExMatch == null ? ruleHelper.getRegExMatch( ruleCheckData.getMacroMachine() ) : regExMatch;
+        }
+
+        List<Pattern> readRegExNoMatch( final RuleCheckData ruleCheckData )
+                throws PwmUnrecoverableException
+        {
+            return regExNoMatch == null ? ruleHelper.getRegExNoMatch( ruleCheckData.getMacroMachine() ) : regExNoMatch;
+        }
+
+        private static List<Pattern> precompileRegex( final PwmPasswordPolicy policy, final PasswordRuleReaderHelper ruleHelper, final PwmPasswordRule rule )
+        {
+            final String value = policy.getValue( rule );
+            if ( value != null && value.indexOf( '@' ) >= 0 && ruleHelper.readBooleanValue( PwmPasswordRule.AllowMacroInRegExSetting ) )
+            {
+                return null;
+            }
+            return Collections.unmodifiableList( ruleHelper.readRegExSetting( rule, null, value ) );
+        }
+    }
+
+    private static RulePlan readRulePlan( final PwmPasswordPolicy policy )
+    {
+        return RULE_PLANS.get( policy.getPolicyMap(), k -> RulePlan.compile( policy ) );
+    }
+
 
     public static List<ErrorInformation> extendedPolicyRuleChecker(
             final PwmApplication pwmApplication,
@@ -115,6 +220,8 @@ public class PasswordRuleChecks
             throws PwmUnrecoverableException
     {
         final boolean failFast = JavaHelper.enumArrayContainsValue( flags, PwmPasswordRuleValidator.Flag.FailFast );
+        final boolean localRulesOnly = JavaHelper.enumArrayContainsValue( flags, PwmPasswordRuleValidator.Flag.LocalRulesOnly );
+        final boolean deferredRulesOnly = JavaHelper.enumArrayContainsValue( flags, PwmPasswordRuleValidator.Flag.DeferredRulesOnly );
 
         // null check
         if ( password == null )
@@ -125,26 +232,24 @@ public class PasswordRuleChecks
         }
 
         final List<ErrorInformation> errorList = new ArrayList<>();
-        final MacroMachine macroMachine = userInfo == null || userInfo.getUserIdentity() == null
-                ? MacroMachine.forNonUserSpecific( pwmApplication, SessionLabel.SYSTEM_LABEL )
-                : MacroMachine.forUser(
-                pwmApplication,
-                PwmConstants.DEFAULT_LOCALE,
-                SessionLabel.SYSTEM_LABEL,
-                userInfo.getUserIdentity()
-        );
+        final RulePlan rulePlan = readRulePlan( policy );
 
         final RuleCheckData ruleCheckData = RuleCheckData.builder()
                 .pwmApplication( pwmApplication )
                 .policy( policy )
                 .userInfo( userInfo )
-                .ruleHelper( policy.getRuleHelper() )
-                .macroMachine( macroMachine )
+                .ruleHelper( rulePlan.getRuleHelper() )
+                .rulePlan( rulePlan )
                 .charCounter( new PasswordCharCounter( password ) )
                 .build();
 
-        for ( final RuleChecker ruleChecker : RULE_CHECKS )
+        for ( final RuleChecker ruleChecker : rulePlan.getRuleCheckers() )
         {
+            if ( ( localRulesOnly && ruleChecker.isDeferred() ) || ( deferredRulesOnly && !ruleChecker.isDeferred() ) )
+            {
+                continue;
+            }
+
             errorList.addAll( ruleChecker.test( password, oldPassword, ruleCheckData ) );
 
             if ( failFast && !errorList.isEmpty() )
@@ -156,8 +261,27 @@ public class PasswordRuleChecks
         return errorList;
     }
 
+    private static MacroMachine makeMacroMachine( final PwmApplication pwmApplication, final UserInfo userInfo )
+            throws PwmUnrecoverableException
+    {
+        return userInfo == null || userInfo.getUserIdentity() == null
+                ? MacroMachine.forNonUserSpecific( pwmApplication, SessionLabel.SYSTEM_LABEL )
+                : MacroMachine.forUser(
+                pwmApplication,
+                PwmConstants.DEFAULT_LOCALE,
+                SessionLabel.SYSTEM_LABEL,
+                userInfo.getUserIdentity()
+        );
+    }
+
     private static class OldPasswordRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return ruleHelper.readBooleanValue( PwmPasswordRule.DisallowCurrent );
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -434,6 +558,14 @@ public class PasswordRuleChecks
 
     private static class CharSequenceRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return ruleHelper.readIntValue( PwmPasswordRule.MaximumSequentialRepeat ) > 0
+                    || ruleHelper.readIntValue( PwmPasswordRule.MaximumRepeat ) > 0
+                    || ruleHelper.readIntValue( PwmPasswordRule.MaximumConsecutive ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -473,6 +605,12 @@ public class PasswordRuleChecks
 
     private static class UniqueCharRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return ruleHelper.readIntValue( PwmPasswordRule.MinimumUnique ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -496,6 +634,13 @@ public class PasswordRuleChecks
 
     private static class ActiveDirectoryRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            final ADPolicyComplexity complexityLevel = ruleHelper.getADComplexityLevel();
+            return complexityLevel == ADPolicyComplexity.AD2003 || complexityLevel == ADPolicyComplexity.AD2008;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -525,6 +670,12 @@ public class PasswordRuleChecks
 
     private static class DisallowedValueRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return !ruleHelper.getDisallowedValues().isEmpty();
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -562,18 +713,24 @@ public class PasswordRuleChecks
 
     private static class DisallowedAttributeRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return !ruleHelper.getDisallowedAttributes().isEmpty();
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
         {
             final List<ErrorInformation> errorList = new ArrayList<>();
             final UserInfo userInfo = ruleCheckData.getUserInfo();
-            final PwmPasswordPolicy policy = ruleCheckData.getPolicy();
+            final PasswordRuleReaderHelper ruleHelper = ruleCheckData.getRuleHelper();
 
             // check disallowed attributes.
-            if ( !policy.getRuleHelper().getDisallowedAttributes().isEmpty() )
+            if ( !ruleHelper.getDisallowedAttributes().isEmpty() )
             {
-                final List<String> paramConfigs = policy.getRuleHelper().getDisallowedAttributes( PasswordRuleReaderHelper.Flag.KeepThresholds );
+                final List<String> paramConfigs = ruleHelper.getDisallowedAttributes( PasswordRuleReaderHelper.Flag.KeepThresholds );
                 if ( userInfo != null )
                 {
                     final Map<String, String> userValues = userInfo.getCachedPasswordRuleAttributes();
@@ -601,6 +758,18 @@ public class PasswordRuleChecks
 
     private static class PasswordStrengthRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isDeferred( )
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return ruleHelper.readIntValue( PwmPasswordRule.MinimumStrength ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -642,11 +811,10 @@ public class PasswordRuleChecks
                 throws PwmUnrecoverableException
         {
             final List<ErrorInformation> errorList = new ArrayList<>();
-            final MacroMachine macroMachine = ruleCheckData.getMacroMachine();
-            final PasswordRuleReaderHelper ruleHelper = ruleCheckData.getRuleHelper();
+            final RulePlan rulePlan = ruleCheckData.getRulePlan();
 
             // check regex matches.
-            for ( final Pattern pattern : ruleHelper.getRegExMatch( macroMachine ) )
+            for ( final Pattern pattern : rulePlan.readRegExMatch( ruleCheckData ) )
             {
                 if ( !pattern.matcher( password ).matches() )
                 {
@@ -659,7 +827,7 @@ public class PasswordRuleChecks
             }
 
             // check no-regex matches.
-            for ( final Pattern pattern : ruleHelper.getRegExNoMatch( macroMachine ) )
+            for ( final Pattern pattern : rulePlan.readRegExNoMatch( ruleCheckData ) )
             {
                 if ( pattern.matcher( password ).matches() )
                 {
@@ -677,6 +845,12 @@ public class PasswordRuleChecks
 
     private static class CharGroupRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return ruleHelper.readIntValue( PwmPasswordRule.CharGroupsMinMatch ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -687,7 +861,7 @@ public class PasswordRuleChecks
             // check char group matches
             if ( ruleHelper.readIntValue( PwmPasswordRule.CharGroupsMinMatch ) > 0 )
             {
-                final List<Pattern> ruleGroups = ruleHelper.getCharGroupValues();
+                final List<Pattern> ruleGroups = ruleCheckData.getRulePlan().getCharGroups();
                 if ( ruleGroups != null && !ruleGroups.isEmpty() )
                 {
                     final int requiredMatches = ruleHelper.readIntValue( PwmPasswordRule.CharGroupsMinMatch );
@@ -712,6 +886,18 @@ public class PasswordRuleChecks
 
     private static class DictionaryRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isDeferred( )
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isActive( final PasswordRuleReaderHelper ruleHelper )
+        {
+            return ruleHelper.readBooleanValue( PwmPasswordRule.EnableWordlist );
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -752,6 +938,12 @@ public class PasswordRuleChecks
 
     private static class SharedHistoryRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isDeferred( )
+        {
+            return true;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -873,8 +873,8 @@ public class PasswordUtility
         }
 
         // mixed case
-        if ( ( charCounter.getAlphaChars().length() != charCounter.getUpperChars().length() )
-                && ( charCounter.getAlphaChars().length() != charCounter.getLowerChars().length() ) )
+        if ( ( charCounter.getAlphaCharCount() != charCounter.getUpperCharCount() )
+                && ( charCounter.getAlphaCharCount() != charCounter.getLowerCharCount() ) )
         {
             score = score + 10;
         }
@@ -1036,8 +1036,7 @@ public class PasswordUtility
         String userMessage = "";
         int errorCode = 0;
 
-        final boolean passwordIsCaseSensitive = userInfo.getPasswordPolicy() == null
-                || userInfo.getPasswordPolicy().getRuleHelper().readBooleanValue( PwmPasswordRule.CaseSensitive );
+        final boolean passwordIsCaseSensitive = isPasswordCaseSensitive( userInfo );
 
         final CachePolicy cachePolicy;
         {
@@ -1109,26 +1108,35 @@ public class PasswordUtility
         final PasswordCheckInfo.MatchStatus matchStatus = figureMatchStatus( passwordIsCaseSensitive, password, confirmPassword );
         if ( pass )
         {
-            switch ( matchStatus )
-            {
-                case EMPTY:
-                    userMessage = new ErrorInformation( PwmError.PASSWORD_MISSING_CONFIRM ).toUserStr( locale, pwmApplication.getConfig() );
-                    break;
-                case MATCH:
-                    userMessage = new ErrorInformation( PwmError.PASSWORD_MEETS_RULES ).toUserStr( locale, pwmApplication.getConfig() );
-                    break;
-                case NO_MATCH:
-                    userMessage = new ErrorInformation( PwmError.PASSWORD_DOESNOTMATCH ).toUserStr( locale, pwmApplication.getConfig() );
-                    break;
-                default:
-                    userMessage = "";
-            }
+            userMessage = passedCheckMessage( pwmApplication.getConfig(), locale, matchStatus );
         }
 
         final int strength = judgePasswordStrength( pwmApplication.getConfig(), password == null ? null : password.getStringValue() );
         return new PasswordCheckInfo( userMessage, pass, strength, matchStatus, errorCode );
     }
 
+    static boolean isPasswordCaseSensitive( final UserInfo userInfo )
+            throws PwmUnrecoverableException
+    {
+        return userInfo.getPasswordPolicy() == null
+                || userInfo.getPasswordPolicy().getRuleHelper().readBooleanValue( PwmPasswordRule.CaseSensitive );
+    }
+
+    static String passedCheckMessage( final Configuration config, final Locale locale, final PasswordCheckInfo.MatchStatus matchStatus )
+    {
+        switch ( matchStatus )
+        {
+            case EMPTY:
+                return new ErrorInformation( PwmError.PASSWORD_MISSING_CONFIRM ).toUserStr( locale, config );
+            case MATCH:
+                return new ErrorInformation( PwmError.PASSWORD_MEETS_RULES ).toUserStr( locale, config );
+            case NO_MATCH:
+                return new ErrorInformation( PwmError.PASSWORD_DOESNOTMATCH ).toUserStr( locale, config );
+            default:
+                return "";
+        }
+    }
+
 
     public static PasswordCheckInfo.MatchStatus figureMatchStatus(
             final boolean caseSensitive,
@@ -1168,6 +1176,7 @@ public class PasswordUtility
         private final int strength;
         private final MatchStatus match;
         private final int errorCode;
+        private final boolean pending;
 
         public enum MatchStatus
         {
@@ -1175,12 +1184,25 @@ public class PasswordUtility
         }
 
         public PasswordCheckInfo( final String message, final boolean passed, final int strength, final MatchStatus match, final int errorCode )
+        {
+            this( message, passed, strength, match, errorCode, false );
+        }
+
+        public PasswordCheckInfo(
+                final String message,
+                final boolean passed,
+                final int strength,
+                final MatchStatus match,
+                final int errorCode,
+                final boolean pending
+        )
         {
             this.message = message;
             this.passed = passed;
             this.strength = strength;
             this.match = match;
             this.errorCode = errorCode;
+            this.pending = pending;
         }
 
         public String getMessage( )
@@ -1207,6 +1229,15 @@ public class PasswordUtility
         {
             return errorCode;
         }
+
+        /**
+         * Indicates the local rules were met but the deferred checks of an async check have not finished yet, the check
+         * should be repeated to read the final result.
+         */
+        public boolean isPending( )
+        {
+            return pending;
+        }
     }
 
     private static void sendChangePasswordHelpdeskEmailNotice(
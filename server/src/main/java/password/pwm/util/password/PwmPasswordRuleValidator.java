@@ -70,6 +70,17 @@ public class PwmPasswordRuleValidator
     {
         FailFast,
         BypassLdapRuleCheck,
+
+        /**
+         * Only check the inexpensive local rules, skipping the strength, wordlist and shared history rules, external rule
+         * methods and the ldap policy check.
+         */
+        LocalRulesOnly,
+
+        /**
+         * Only check the rules skipped by {@link #LocalRulesOnly}.
+         */
+        DeferredRulesOnly,
     }
 
     public PwmPasswordRuleValidator(
@@ -112,7 +123,8 @@ public class PwmPasswordRuleValidator
             throw new PwmDataValidationException( errorResults.iterator().next() );
         }
 
-        if ( user != null && !JavaHelper.enumArrayContainsValue( flags, Flag.BypassLdapRuleCheck ) )
+        final boolean localRulesOnly = JavaHelper.enumArrayContainsValue( flags, Flag.LocalRulesOnly );
+        if ( user != null && !localRulesOnly && !JavaHelper.enumArrayContainsValue( flags, Flag.BypassLdapRuleCheck ) )
         {
             try
             {
@@ -163,7 +175,7 @@ public class PwmPasswordRuleValidator
             throws PwmUnrecoverableException
     {
         final List<ErrorInformation> internalResults = internalPwmPolicyValidator( password, oldPassword, userInfo );
-        if ( pwmApplication != null )
+        if ( pwmApplication != null && !JavaHelper.enumArrayContainsValue( flags, Flag.LocalRulesOnly ) )
         {
             final List<ErrorInformation> externalResults = invokeExternalRuleMethods(
                     pwmApplication.getConfig(),
@@ -0,0 +1,546 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.util.password.RandomPasswordGenerator.SeedMachine;
+import password.pwm.util.secure.PwmRandom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Character class and length constraints compiled from a {@link PwmPasswordPolicy} for {@link RandomPasswordGenerator}.
+ * A password built by {@link #generate(PwmRandom, int, SeedMachine)} satisfies the length, character class, first/last character and
+ * repeat rules of the policy by construction, so the remaining validation only has to reject candidates for rules that can
+ * not be expressed as constraints, such as the wordlist, shared history, strength and regex rules.
+ *
+ * <p>The constraints do not hold the seed words.  The seeds are drawn for each password and passed to
+ * {@link #generate(PwmRandom, int, SeedMachine)}; when they include words (from the seedlist or the configured seedlist
+ * phrases), runs of letter positions are filled from the letters of those words, with the case set by the character class
+ * of each position.</p>
+ *
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+class RandomPasswordConstraints
+{
+    private static final int UPPER = 0;
+    private static final int LOWER = 1;
+    private static final int NUMERIC = 2;
+    private static final int SPECIAL = 3;
+
+    /**
+     * Relative weight of each character class when filling positions beyond the policy minimums, roughly matching the mix
+     * of the default seed phrases.
+     */
+    private static final int[] CLASS_WEIGHTS = {
+            2, 5, 2, 1,
+    };
+
+    private static final int LENGTH_JITTER = 2;
+    private static final int CHAR_PICK_ATTEMPTS = 20;
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final PwmPasswordPolicy policy;
+    private final int initialLength;
+
+    private final String[] classChars = new String[4];
+    private final int[] classMinimums = new int[4];
+    private final int[] classMaximums = new int[4];
+
+    private final int minimumLength;
+    private final int maximumLength;
+    private final int requiredLength;
+    private final int minimumAlpha;
+    private final int maximumAlpha;
+    private final int minimumNonAlpha;
+    private final int maximumNonAlpha;
+
+    private final boolean firstNumericAllowed;
+    private final boolean lastNumericAllowed;
+    private final boolean firstSpecialAllowed;
+    private final boolean lastSpecialAllowed;
+
+    private final int maximumSequentialRepeat;
+    private final int maximumRepeat;
+    private final int maximumConsecutive;
+
+    private final boolean constructible;
+
+    private RandomPasswordConstraints( final PwmPasswordPolicy policy, final SeedMachine charSeedMachine, final int initialLength )
+    {
+        this.policy = policy;
+        this.initialLength = initialLength;
+
+        final PasswordRuleReaderHelper ruleHelper = policy.getRuleHelper();
+        final boolean allowNumeric = ruleHelper.readBooleanValue( PwmPasswordRule.AllowNumeric );
+        final boolean allowSpecial = ruleHelper.readBooleanValue( PwmPasswordRule.AllowSpecial );
+        final boolean allowNonAlpha = ruleHelper.readBooleanValue( PwmPasswordRule.AllowNonAlpha );
+
+        classChars[UPPER] = charSeedMachine.getUpperChars();
+        classChars[LOWER] = charSeedMachine.getLowerChars();
+        classChars[NUMERIC] = allowNumeric && allowNonAlpha ? charSeedMachine.getNumChars() : "";
+        classChars[SPECIAL] = allowSpecial && allowNonAlpha ? charSeedMachine.getSpecialChars() : "";
+
+        classMinimums[UPPER] = ruleHelper.readIntValue( PwmPasswordRule.MinimumUpperCase );
+        classMinimums[LOWER] = ruleHelper.readIntValue( PwmPasswordRule.MinimumLowerCase );
+        classMinimums[NUMERIC] = classChars[NUMERIC].isEmpty() ? 0 : ruleHelper.readIntValue( PwmPasswordRule.MinimumNumeric );
+        classMinimums[SPECIAL] = classChars[SPECIAL].isEmpty() ? 0 : ruleHelper.readIntValue( PwmPasswordRule.MinimumSpecial );
+
+        classMaximums[UPPER] = readMaximum( ruleHelper, PwmPasswordRule.MaximumUpperCase, true );
+        classMaximums[LOWER] = readMaximum( ruleHelper, PwmPasswordRule.MaximumLowerCase, true );
+        classMaximums[NUMERIC] = readMaximum( ruleHelper, PwmPasswordRule.MaximumNumeric, !classChars[NUMERIC].isEmpty() );
+        classMaximums[SPECIAL] = readMaximum( ruleHelper, PwmPasswordRule.MaximumSpecial, !classChars[SPECIAL].isEmpty() );
+
+        minimumAlpha = ruleHelper.readIntValue( PwmPasswordRule.MinimumAlpha );
+        maximumAlpha = readMaximum( ruleHelper, PwmPasswordRule.MaximumAlpha, true );
+        minimumNonAlpha = allowNonAlpha ? ruleHelper.readIntValue( PwmPasswordRule.MinimumNonAlpha ) : 0;
+        maximumNonAlpha = readMaximum( ruleHelper, PwmPasswordRule.MaximumNonAlpha, allowNonAlpha );
+
+        firstNumericAllowed = ruleHelper.readBooleanValue( PwmPasswordRule.AllowFirstCharNumeric );
+        lastNumericAllowed = ruleHelper.readBooleanValue( PwmPasswordRule.AllowLastCharNumeric );
+        firstSpecialAllowed = ruleHelper.readBooleanValue( PwmPasswordRule.AllowFirstCharSpecial );
+        lastSpecialAllowed = ruleHelper.readBooleanValue( PwmPasswordRule.AllowLastCharSpecial );
+
+        maximumSequentialRepeat = ruleHelper.readIntValue( PwmPasswordRule.MaximumSequentialRepeat );
+        maximumRepeat = ruleHelper.readIntValue( PwmPasswordRule.MaximumRepeat );
+        maximumConsecutive = ruleHelper.readIntValue( PwmPasswordRule.MaximumConsecutive );
+
+        minimumLength = Math.max( 1, ruleHelper.readIntValue( PwmPasswordRule.MinimumLength ) );
+        maximumLength = readMaximum( ruleHelper, PwmPasswordRule.MaximumLength, true );
+
+        final int[] minimumCounts = assignMinimumCounts( null );
+        requiredLength = minimumCounts == null ? UNLIMITED : sum( minimumCounts );
+        constructible = minimumCounts != null
+                && requiredLength <= maximumLength
+                && minimumLength <= maximumLength
+                && classMinimums[UPPER] <= classMaximums[UPPER]
+                && classMinimums[LOWER] <= classMaximums[LOWER]
+                && classMinimums[NUMERIC] <= classMaximums[NUMERIC]
+                && classMinimums[SPECIAL] <= classMaximums[SPECIAL];
+    }
+
+    /**
+     * Compile the constraints of a policy.
+     *
+     * @param policy the password policy
+     * @param charSeedMachine source of the characters allowed for each character class
+     * @param initialLength length of the initial candidate when falling back to generate-and-modify
+     * @return the compiled constraints
+     */
+    static RandomPasswordConstraints compile( final PwmPasswordPolicy policy, final SeedMachine charSeedMachine, final int initialLength )
+    {
+        return new RandomPasswordConstraints( policy, charSeedMachine, initialLength );
+    }
+
+    PwmPasswordPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Length of the initial candidate when falling back to generate-and-modify.
+     *
+     * @return the configured minimum length of the generator
+     */
+    int getInitialLength()
+    {
+        return initialLength;
+    }
+
+    /**
+     * Indicates if the policy could be compiled into constraints that have at least one solution.  When false, callers should
+     * fall back to generate-and-modify.
+     *
+     * @return true if {@link #generate(PwmRandom, int, SeedMachine)} can be used
+     */
+    boolean isConstructible()
+    {
+        return constructible;
+    }
+
+    /**
+     * Build a password that satisfies the compiled constraints.
+     *
+     * @param pwmRandom random source
+     * @param extraLength number of characters to add beyond the policy minimum, used to strengthen retried candidates
+     * @param seedMachine seeds drawn for this password
+     * @return a new password, or null if no compliant password could be built for this attempt
+     */
+    String generate( final PwmRandom pwmRandom, final int extraLength, final SeedMachine seedMachine )
+    {
+        final int baseLength = Math.max( minimumLength, requiredLength ) + extraLength + pwmRandom.nextInt( LENGTH_JITTER + 1 );
+        final int targetLength = Math.min( maximumLength, baseLength );
+
+        final int[] counts = assignCounts( pwmRandom, targetLength );
+        if ( counts == null )
+        {
+            return null;
+        }
+
+        final int[] classSequence = arrangeClasses( pwmRandom, counts );
+        if ( classSequence == null )
+        {
+            return null;
+        }
+
+        return pickChars( pwmRandom, classSequence, readSeedFragments( seedMachine ) );
+    }
+
+    private int[] assignCounts( final PwmRandom pwmRandom, final int targetLength )
+    {
+        final int[] counts = assignMinimumCounts( pwmRandom );
+        if ( counts == null )
+        {
+            return null;
+        }
+
+        int total = sum( counts );
+        while ( total < targetLength )
+        {
+            final int nextClass = pickClass( pwmRandom, counts, UPPER, SPECIAL );
+            if ( nextClass < 0 )
+            {
+                break;
+            }
+            counts[nextClass]++;
+            total++;
+        }
+
+        return total >= minimumLength && total <= maximumLength ? counts : null;
+    }
+
+    /**
+     * Count the characters of each class needed to satisfy the class and alpha/non-alpha minimums.
+     *
+     * @param pwmRandom random source used to choose between classes, or null to choose the first class with capacity
+     * @return the count of each character class, or null if the minimums can not be satisfied
+     */
+    private int[] assignMinimumCounts( final PwmRandom pwmRandom )
+    {
+        final int[] counts = classMinimums.clone();
+
+        while ( counts[UPPER] + counts[LOWER] < minimumAlpha )
+        {
+            final int nextClass = pickClass( pwmRandom, counts, UPPER, LOWER );
+            if ( nextClass < 0 )
+            {
+                return null;
+            }
+            counts[nextClass]++;
+        }
+
+        while ( counts[NUMERIC] + counts[SPECIAL] < minimumNonAlpha )
+        {
+            final int nextClass = pickClass( pwmRandom, counts, NUMERIC, SPECIAL );
+            if ( nextClass < 0 )
+            {
+                return null;
+            }
+            counts[nextClass]++;
+        }
+
+        if ( counts[UPPER] + counts[LOWER] > maximumAlpha || counts[NUMERIC] + counts[SPECIAL] > maximumNonAlpha )
+        {
+            return null;
+        }
+
+        return counts;
+    }
+
+    private int pickClass( final PwmRandom pwmRandom, final int[] counts, final int firstClass, final int lastClass )
+    {
+        int totalWeight = 0;
+        final int[] weights = new int[4];
+        for ( int charClass = firstClass; charClass <= lastClass; charClass++ )
+        {
+            if ( hasCapacity( counts, charClass ) )
+            {
+                weights[charClass] = CLASS_WEIGHTS[charClass];
+                totalWeight += weights[charClass];
+            }
+        }
+
+        if ( totalWeight == 0 )
+        {
+            return -1;
+        }
+
+        int choice = pwmRandom == null ? 0 : pwmRandom.nextInt( totalWeight );
+        for ( int charClass = firstClass; charClass <= lastClass; charClass++ )
+        {
+            if ( choice < weights[charClass] )
+            {
+                return charClass;
+            }
+            choice -= weights[charClass];
+        }
+        return -1;
+    }
+
+    private boolean hasCapacity( final int[] counts, final int charClass )
+    {
+        if ( classChars[charClass].isEmpty() || counts[charClass] >= classMaximums[charClass] )
+        {
+            return false;
+        }
+
+        return charClass == UPPER || charClass == LOWER
+                ? counts[UPPER] + counts[LOWER] < maximumAlpha
+                : counts[NUMERIC] + counts[SPECIAL] < maximumNonAlpha;
+    }
+
+    /**
+     * Shuffle the class of each position, then swap classes into the first and last positions where the policy
+     * does not allow a numeric or special character.
+     */
+    private int[] arrangeClasses( final PwmRandom pwmRandom, final int[] counts )
+    {
+        final int length = sum( counts );
+        final int[] sequence = new int[length];
+        {
+            int position = 0;
+            for ( int charClass = UPPER; charClass <= SPECIAL; charClass++ )
+            {
+                for ( int i = 0; i < counts[charClass]; i++ )
+                {
+                    sequence[position] = charClass;
+                    position++;
+                }
+            }
+        }
+
+        for ( int i = length - 1; i > 0; i-- )
+        {
+            swap( sequence, i, pwmRandom.nextInt( i + 1 ) );
+        }
+
+        if ( !allowedAtEdge( sequence[0], true ) && !swapIntoEdge( pwmRandom, sequence, 0, 1, length - 1 ) )
+        {
+            return null;
+        }
+
+        if ( length > 1 && !allowedAtEdge( sequence[length - 1], false ) && !swapIntoEdge( pwmRandom, sequence, length - 1, 1, length - 2 ) )
+        {
+            return null;
+        }
+
+        return sequence;
+    }
+
+    private boolean swapIntoEdge( final PwmRandom pwmRandom, final int[] sequence, final int edge, final int fromIndex, final int toIndex )
+    {
+        final boolean first = edge == 0;
+        final int candidates = toIndex - fromIndex + 1;
+        if ( candidates < 1 )
+        {
+            return false;
+        }
+
+        final int offset = pwmRandom.nextInt( candidates );
+        for ( int i = 0; i < candidates; i++ )
+        {
+            final int index = fromIndex + ( ( offset + i ) % candidates );
+            final boolean displacedToLast = index == sequence.length - 1;
+            if ( allowedAtEdge( sequence[index], first ) && ( !displacedToLast || allowedAtEdge( sequence[edge], false ) ) )
+            {
+                swap( sequence, edge, index );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean allowedAtEdge( final int charClass, final boolean first )
+    {
+        switch ( charClass )
+        {
+            case NUMERIC:
+                return first ? firstNumericAllowed : lastNumericAllowed;
+
+            case SPECIAL:
+                return first ? firstSpecialAllowed : lastSpecialAllowed;
+
+            default:
+                return true;
+        }
+    }
+
+    private String pickChars( final PwmRandom pwmRandom, final int[] classSequence, final List<String> seedFragments )
+    {
+        final StringBuilder password = new StringBuilder( classSequence.length );
+        final Map<Character, Integer> occurrences = new HashMap<>();
+        String fragment = "";
+
+        for ( final int charClass : classSequence )
+        {
+            final String chars = classChars[charClass];
+            boolean added = false;
+
+            if ( charClass == UPPER || charClass == LOWER )
+            {
+                if ( fragment.isEmpty() )
+                {
+                    fragment = seedFragments.isEmpty() ? "" : seedFragments.get( pwmRandom.nextInt( seedFragments.size() ) );
+                }
+                if ( !fragment.isEmpty() )
+                {
+                    final char seedChar = fragment.charAt( 0 );
+                    final char candidate = charClass == UPPER ? Character.toUpperCase( seedChar ) : Character.toLowerCase( seedChar );
+                    if ( chars.indexOf( candidate ) >= 0 && charAllowed( password, occurrences, candidate ) )
+                    {
+                        password.append( candidate );
+                        occurrences.merge( Character.toLowerCase( candidate ), 1, Integer::sum );
+                        added = true;
+                        fragment = fragment.substring( 1 );
+                    }
+                    else
+                    {
+                        fragment = "";
+                    }
+                }
+            }
+            else
+            {
+                // non-alpha characters separate the seed fragments
+                fragment = "";
+            }
+
+            int attempts = 0;
+            while ( !added && attempts < CHAR_PICK_ATTEMPTS )
+            {
+                attempts++;
+                final char candidate = chars.charAt( pwmRandom.nextInt( chars.length() ) );
+                if ( charAllowed( password, occurrences, candidate ) )
+                {
+                    password.append( candidate );
+                    occurrences.merge( Character.toLowerCase( candidate ), 1, Integer::sum );
+                    added = true;
+                }
+            }
+
+            if ( !added )
+            {
+                return null;
+            }
+        }
+
+        return password.toString();
+    }
+
+    private static List<String> readSeedFragments( final SeedMachine seedMachine )
+    {
+        final List<String> fragments = new ArrayList<>();
+        for ( final String seed : seedMachine.getSeeds() )
+        {
+            final String letters = lettersOf( seed );
+            if ( letters.length() > 1 )
+            {
+                fragments.add( letters );
+            }
+        }
+        return fragments;
+    }
+
+    private boolean charAllowed( final CharSequence password, final Map<Character, Integer> occurrences, final char candidate )
+    {
+        final char lowerCandidate = Character.toLowerCase( candidate );
+
+        if ( maximumRepeat > 0 && occurrences.getOrDefault( lowerCandidate, 0 ) + 1 > maximumRepeat )
+        {
+            return false;
+        }
+
+        if ( maximumSequentialRepeat > 0 )
+        {
+            int run = 1;
+            for ( int i = password.length() - 1; i >= 0 && Character.toLowerCase( password.charAt( i ) ) == lowerCandidate; i-- )
+            {
+                run++;
+            }
+            if ( run > maximumSequentialRepeat )
+            {
+                return false;
+            }
+        }
+
+        if ( maximumConsecutive > 1 )
+        {
+            int run = 1;
+            char next = lowerCandidate;
+            for ( int i = password.length() - 1; i >= 0 && Character.toLowerCase( password.charAt( i ) ) + 1 == next; i-- )
+            {
+                run++;
+                next = Character.toLowerCase( password.charAt( i ) );
+            }
+            if ( run >= maximumConsecutive )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int readMaximum( final PasswordRuleReaderHelper ruleHelper, final PwmPasswordRule rule, final boolean allowed )
+    {
+        if ( !allowed )
+        {
+            return 0;
+        }
+        final int value = ruleHelper.readIntValue( rule );
+        return value > 0 ? value : UNLIMITED;
+    }
+
+    private static String lettersOf( final String seed )
+    {
+        final StringBuilder letters = new StringBuilder();
+        for ( final char c : seed.toCharArray() )
+        {
+            if ( Character.isLetter( c ) )
+            {
+                letters.append( c );
+            }
+        }
+        return letters.toString();
+    }
+
+    private static int sum( final int[] counts )
+    {
+        int total = 0;
+        for ( final int count : counts )
+        {
+            total += count;
+        }
+        return total;
+    }
+
+    private static void swap( final int[] values, final int index1, final int index2 )
+    {
+        final int temp = values[index1];
+        values[index1] = values[index2];
+        values[index2] = temp;
+    }
+}
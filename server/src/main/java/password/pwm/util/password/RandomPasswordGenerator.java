@@ -51,6 +51,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -117,79 +118,172 @@ public class RandomPasswordGenerator
             throws PwmUnrecoverableException
     {
         final Instant startTime = Instant.now();
-        final PwmRandom pwmRandom = pwmApplication.getSecureService().pwmRandom();
 
         randomGeneratorConfig.validateSettings( pwmApplication );
 
-        final RandomGeneratorConfig effectiveConfig;
-        {
-            if ( randomGeneratorConfig.getSeedlistPhrases() == null || randomGeneratorConfig.getSeedlistPhrases().isEmpty() )
-            {
-                Set<String> seeds = DEFAULT_SEED_PHRASES;
+        final RandomPasswordService randomPasswordService = pwmApplication.getRandomPasswordService();
+        final boolean serviceAvailable = randomPasswordService != null && randomPasswordService.status() == PwmService.STATUS.OPEN;
 
-                final SeedlistService seedlistManager = pwmApplication.getSeedlistManager();
-                if ( seedlistManager != null && seedlistManager.status() == PwmService.STATUS.OPEN && seedlistManager.size() > 0 )
-                {
-                    seeds = new HashSet<>();
-                    int safetyCounter = 0;
-                    while ( seeds.size() < 10 && safetyCounter < 100 )
-                    {
-                        safetyCounter++;
-                        final String randomWord = seedlistManager.randomSeed();
-                        if ( randomWord != null )
-                        {
-                            seeds.add( randomWord );
-                        }
-                    }
-                }
-                effectiveConfig = randomGeneratorConfig.toBuilder()
-                        .seedlistPhrases( seeds )
-                        .build();
-            }
-            else
-            {
-                effectiveConfig = randomGeneratorConfig;
-            }
+        final Optional<PasswordData> pooledPassword = serviceAvailable
+                ? randomPasswordService.takePooledPassword( randomGeneratorConfig )
+                : Optional.empty();
+
+        final PasswordData password;
+        if ( pooledPassword.isPresent() )
+        {
+            password = pooledPassword.get();
+        }
+        else
+        {
+            final RandomPasswordConstraints constraints = serviceAvailable
+                    ? randomPasswordService.readConstraints( randomGeneratorConfig )
+                    : compileConstraints( pwmApplication, randomGeneratorConfig );
+            password = generatePassword( sessionLabel, randomGeneratorConfig, constraints, pwmApplication );
         }
 
-        final SeedMachine seedMachine = new SeedMachine( pwmRandom, normalizeSeeds( effectiveConfig.getSeedlistPhrases() ) );
+        StatisticsManager.incrementStat( pwmApplication, Statistic.GENERATED_PASSWORDS );
 
-        int tryCount = 0;
-        final StringBuilder password = new StringBuilder();
+        final String logText = "real-time random password generator called"
+                + " (" + TimeDuration.compactFromCurrent( startTime ) + ( pooledPassword.isPresent() ? ", pooled" : "" ) + ")";
+        LOGGER.trace( sessionLabel, () -> logText );
+
+        return password;
+    }
+
+    /**
+     * Compile a generator configuration into {@link RandomPasswordConstraints}.  The constraints do not depend on the
+     * seedlist, so they may be cached and shared; the character classes are read from the configured seedlist phrases,
+     * or from the default seed phrases if the configuration does not specify any.
+     */
+    static RandomPasswordConstraints compileConstraints(
+            final PwmApplication pwmApplication,
+            final RandomGeneratorConfig randomGeneratorConfig
+    )
+    {
+        final PwmRandom pwmRandom = pwmApplication.getSecureService().pwmRandom();
+        final SeedMachine charSeedMachine = new SeedMachine( pwmRandom, normalizeSeeds( randomGeneratorConfig.getSeedlistPhrases() ) );
 
         // determine the password policy to use for random generation
         final PwmPasswordPolicy randomGenPolicy;
         {
             final Map<String, String> newPolicyMap = new HashMap<>();
-            newPolicyMap.putAll( effectiveConfig.getPasswordPolicy().getPolicyMap() );
+            newPolicyMap.putAll( randomGeneratorConfig.getPasswordPolicy().getPolicyMap() );
 
-            final String max = newPolicyMap.put( PwmPasswordRule.MaximumLength.getKey(), String.valueOf( effectiveConfig.getMaximumLength() ) );
+            newPolicyMap.put( PwmPasswordRule.MaximumLength.getKey(), String.valueOf( randomGeneratorConfig.getMaximumLength() ) );
 
-            if ( effectiveConfig.getMinimumLength() > effectiveConfig.getPasswordPolicy().getRuleHelper().readIntValue( PwmPasswordRule.MinimumLength ) )
+            if ( randomGeneratorConfig.getMinimumLength() > randomGeneratorConfig.getPasswordPolicy().getRuleHelper().readIntValue( PwmPasswordRule.MinimumLength ) )
             {
-                newPolicyMap.put( PwmPasswordRule.MinimumLength.getKey(), String.valueOf( effectiveConfig.getMinimumLength() ) );
+                newPolicyMap.put( PwmPasswordRule.MinimumLength.getKey(), String.valueOf( randomGeneratorConfig.getMinimumLength() ) );
             }
-            if ( effectiveConfig.getMaximumLength() < effectiveConfig.getPasswordPolicy().getRuleHelper().readIntValue( PwmPasswordRule.MaximumLength ) )
+            if ( randomGeneratorConfig.getMaximumLength() < randomGeneratorConfig.getPasswordPolicy().getRuleHelper().readIntValue( PwmPasswordRule.MaximumLength ) )
             {
-                newPolicyMap.put( PwmPasswordRule.MaximumLength.getKey(), String.valueOf( effectiveConfig.getMaximumLength() ) );
+                newPolicyMap.put( PwmPasswordRule.MaximumLength.getKey(), String.valueOf( randomGeneratorConfig.getMaximumLength() ) );
             }
-            if ( effectiveConfig.getMinimumStrength() > effectiveConfig.getPasswordPolicy().getRuleHelper().readIntValue( PwmPasswordRule.MinimumStrength ) )
+            if ( randomGeneratorConfig.getMinimumStrength() > randomGeneratorConfig.getPasswordPolicy().getRuleHelper().readIntValue( PwmPasswordRule.MinimumStrength ) )
             {
-                newPolicyMap.put( PwmPasswordRule.MinimumStrength.getKey(), String.valueOf( effectiveConfig.getMinimumStrength() ) );
+                newPolicyMap.put( PwmPasswordRule.MinimumStrength.getKey(), String.valueOf( randomGeneratorConfig.getMinimumStrength() ) );
             }
             randomGenPolicy = PwmPasswordPolicy.createPwmPasswordPolicy( newPolicyMap );
         }
 
-        // initial creation
-        password.append( generateNewPassword( pwmRandom, seedMachine, effectiveConfig.getMinimumLength() ) );
+        return RandomPasswordConstraints.compile( randomGenPolicy, charSeedMachine, randomGeneratorConfig.getMinimumLength() );
+    }
 
-        // read a rule validator
+    /**
+     * Draw the seeds for a single password.  If the configuration does not specify seedlist phrases, a new sample of the
+     * seedlist is read, or the default seed phrases are used if there is no seedlist.
+     */
+    private static SeedMachine readSeedMachine(
+            final PwmApplication pwmApplication,
+            final RandomGeneratorConfig randomGeneratorConfig,
+            final PwmRandom pwmRandom
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( randomGeneratorConfig.getSeedlistPhrases() != null && !randomGeneratorConfig.getSeedlistPhrases().isEmpty() )
+        {
+            return new SeedMachine( pwmRandom, normalizeSeeds( randomGeneratorConfig.getSeedlistPhrases() ) );
+        }
 
+        Set<String> seeds = DEFAULT_SEED_PHRASES;
+
+        final SeedlistService seedlistManager = pwmApplication.getSeedlistManager();
+        if ( seedlistManager != null && seedlistManager.status() == PwmService.STATUS.OPEN && seedlistManager.size() > 0 )
+        {
+            seeds = new HashSet<>();
+            int safetyCounter = 0;
+            while ( seeds.size() < 10 && safetyCounter < 100 )
+            {
+                safetyCounter++;
+                final String randomWord = seedlistManager.randomSeed();
+                if ( randomWord != null )
+                {
+                    seeds.add( randomWord );
+                }
+            }
+        }
+
+        return new SeedMachine( pwmRandom, normalizeSeeds( seeds ) );
+    }
+
+    /**
+     * Generate a password for compiled constraints.  Candidates are built directly from the constraints, so validation
+     * only rejects candidates for rules that can not be compiled (wordlist, shared history, strength and regex rules).
+     * If the constraints have no solution or no valid candidate is found, the candidate is instead modified until it
+     * passes all the rules.  The seeds are drawn for each password, so passwords do not share seedlist words.
+     */
+    static PasswordData generatePassword(
+            final SessionLabel sessionLabel,
+            final RandomGeneratorConfig randomGeneratorConfig,
+            final RandomPasswordConstraints constraints,
+            final PwmApplication pwmApplication
+    )
+            throws PwmUnrecoverableException
+    {
+        final Instant startTime = Instant.now();
+        final PwmRandom pwmRandom = pwmApplication.getSecureService().pwmRandom();
+        final SeedMachine seedMachine = readSeedMachine( pwmApplication, randomGeneratorConfig, pwmRandom );
+        final PwmPasswordPolicy randomGenPolicy = constraints.getPolicy();
+        final PwmPasswordRuleValidator pwmPasswordRuleValidator = new PwmPasswordRuleValidator( pwmApplication, randomGenPolicy, PwmPasswordRuleValidator.Flag.FailFast );
+
+        int tryCount = 0;
+        final StringBuilder password = new StringBuilder();
+        boolean validPassword = false;
+
+        // build candidates that meet the compiled constraints
+        if ( constraints.isConstructible() )
+        {
+            final int maxConstructCount = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_CONSTRUCT_ATTEMPTS ) );
+            int extraLength = 0;
+            while ( !validPassword && tryCount < maxConstructCount )
+            {
+                tryCount++;
+                final String candidate = constraints.generate( pwmRandom, extraLength, seedMachine );
+                if ( candidate != null )
+                {
+                    final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator( candidate, null, null );
+                    if ( ( errors == null || errors.isEmpty() ) && !checkPasswordAgainstDisallowedHttpValues( pwmApplication.getConfig(), candidate ) )
+                    {
+                        validPassword = true;
+                        password.append( candidate );
+                    }
+                    else if ( errors != null && errors.stream().anyMatch( errorInformation -> errorInformation.getError() == PwmError.PASSWORD_TOO_WEAK ) )
+                    {
+                        extraLength++;
+                    }
+                }
+            }
+        }
+
+        // initial creation
+        if ( !validPassword )
+        {
+            password.append( generateNewPassword( pwmRandom, seedMachine, constraints.getInitialLength() ) );
+        }
 
         // modify until it passes all the rules
-        final int maxTryCount = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_MAX_ATTEMPTS ) );
+        final int maxTryCount = tryCount + Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_MAX_ATTEMPTS ) );
         final int jitterCount = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_JITTER_COUNT ) );
-        boolean validPassword = false;
         while ( !validPassword && tryCount < maxTryCount )
         {
             tryCount++;
@@ -198,10 +292,9 @@ public class RandomPasswordGenerator
             if ( tryCount % jitterCount == 0 )
             {
                 password.delete( 0, password.length() );
-                password.append( generateNewPassword( pwmRandom, seedMachine, effectiveConfig.getMinimumLength() ) );
+                password.append( generateNewPassword( pwmRandom, seedMachine, constraints.getInitialLength() ) );
             }
 
-            final PwmPasswordRuleValidator pwmPasswordRuleValidator = new PwmPasswordRuleValidator( pwmApplication, randomGenPolicy, PwmPasswordRuleValidator.Flag.FailFast );
             final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator(
                     password.toString(), null, null );
             if ( errors != null && !errors.isEmpty() )
@@ -213,14 +306,13 @@ public class RandomPasswordGenerator
             {
                 validPassword = false;
                 password.delete( 0, password.length() );
-                password.append( generateNewPassword( pwmRandom, seedMachine, effectiveConfig.getMinimumLength() ) );
+                password.append( generateNewPassword( pwmRandom, seedMachine, constraints.getInitialLength() ) );
             }
         }
 
         // report outcome
         {
             final TimeDuration td = TimeDuration.fromCurrent( startTime );
-            final PwmPasswordRuleValidator pwmPasswordRuleValidator = new PwmPasswordRuleValidator( pwmApplication, randomGenPolicy );
             if ( validPassword )
             {
                 final int finalTryCount = tryCount;
@@ -229,7 +321,8 @@ public class RandomPasswordGenerator
             }
             else
             {
-                final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator( password.toString(), null, null );
+                final PwmPasswordRuleValidator reportValidator = new PwmPasswordRuleValidator( pwmApplication, randomGenPolicy );
+                final List<ErrorInformation> errors = reportValidator.internalPwmPolicyValidator( password.toString(), null, null );
                 final int judgeLevel = PasswordUtility.judgePasswordStrength( pwmApplication.getConfig(), password.toString() );
                 final StringBuilder sb = new StringBuilder();
                 sb.append( "failed random password generation after " ).append( td.asCompactString() ).append( " after " ).append( tryCount ).append( " tries. " );
@@ -238,12 +331,6 @@ public class RandomPasswordGenerator
             }
         }
 
-        StatisticsManager.incrementStat( pwmApplication, Statistic.GENERATED_PASSWORDS );
-
-        final String logText = "real-time random password generator called"
-                + " (" + TimeDuration.compactFromCurrent( startTime ) + ")";
-        LOGGER.trace( sessionLabel, () -> logText );
-
         return new PasswordData( password.toString() );
     }
 
@@ -472,7 +559,7 @@ public class RandomPasswordGenerator
 
     protected static class SeedMachine
     {
-        private final Collection<String> seeds;
+        private final List<String> seeds;
         private final PwmRandom pwmRandom;
 
         private String allChars;
@@ -484,12 +571,17 @@ public class RandomPasswordGenerator
         public SeedMachine( final PwmRandom pwmRandom, final Collection<String> seeds )
         {
             this.pwmRandom = pwmRandom;
-            this.seeds = seeds;
+            this.seeds = new ArrayList<>( seeds );
         }
 
         public String getRandomSeed( )
         {
-            return new ArrayList<>( seeds ).get( pwmRandom.nextInt( seeds.size() ) );
+            return seeds.get( pwmRandom.nextInt( seeds.size() ) );
+        }
+
+        List<String> getSeeds( )
+        {
+            return Collections.unmodifiableList( seeds );
         }
 
         public String getAllChars( )
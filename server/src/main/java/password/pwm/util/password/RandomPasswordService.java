@@ -0,0 +1,279 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.Configuration;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.health.HealthRecord;
+import password.pwm.svc.PwmService;
+import password.pwm.util.PasswordData;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Supports {@link RandomPasswordGenerator} by caching the compiled constraints of each generator configuration, and
+ * optionally by keeping a pool of pre-generated passwords for each configuration so bursts of requests (such as bulk
+ * helpdesk resets) do not have to wait on generation.  A pool is created the first time a configuration is used and
+ * refilled in the background after each password it serves.
+ */
+public class RandomPasswordService implements PwmService
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( RandomPasswordService.class );
+
+    private static final int MAX_CACHED_CONFIGURATIONS = 100;
+
+    private PwmApplication pwmApplication;
+    private STATUS status = STATUS.NEW;
+
+    private int poolSize;
+    private TimeDuration poolMaxAge;
+    private Cache<String, RandomPasswordConstraints> constraintsCache;
+    private Cache<String, PasswordPool> passwordPools;
+    private ExecutorService executorService;
+
+    private final AtomicLong poolHits = new AtomicLong( 0 );
+    private final AtomicLong poolMisses = new AtomicLong( 0 );
+
+    @Override
+    public STATUS status( )
+    {
+        return status;
+    }
+
+    @Override
+    public void init( final PwmApplication pwmApplication ) throws PwmException
+    {
+        this.pwmApplication = pwmApplication;
+        final Configuration config = pwmApplication.getConfig();
+
+        constraintsCache = Caffeine.newBuilder()
+                .maximumSize( MAX_CACHED_CONFIGURATIONS )
+                .build();
+
+        poolSize = Integer.parseInt( config.readAppProperty( AppProperty.PASSWORD_RANDOMGEN_POOL_SIZE ) );
+        poolMaxAge = TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.PASSWORD_RANDOMGEN_POOL_MAX_AGE_SECONDS ) ), TimeDuration.Unit.SECONDS );
+        if ( poolSize > 0 )
+        {
+            passwordPools = Caffeine.newBuilder()
+                    .maximumSize( MAX_CACHED_CONFIGURATIONS )
+                    .expireAfterAccess( poolMaxAge.asMillis(), TimeUnit.MILLISECONDS )
+                    .build();
+            executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, RandomPasswordService.class );
+        }
+
+        status = STATUS.OPEN;
+    }
+
+    @Override
+    public void close( )
+    {
+        status = STATUS.CLOSED;
+        if ( executorService != null )
+        {
+            JavaHelper.closeAndWaitExecutor( executorService, TimeDuration.SECONDS_10 );
+            executorService = null;
+        }
+        if ( passwordPools != null )
+        {
+            passwordPools.invalidateAll();
+        }
+        if ( constraintsCache != null )
+        {
+            constraintsCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<HealthRecord> healthCheck( )
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ServiceInfoBean serviceInfo( )
+    {
+        final Map<String, String> debugInfo = new LinkedHashMap<>();
+        debugInfo.put( "cachedConstraints", String.valueOf( constraintsCache == null ? 0 : constraintsCache.estimatedSize() ) );
+        debugInfo.put( "poolSize", String.valueOf( poolSize ) );
+        if ( passwordPools != null )
+        {
+            long pooledPasswords = 0;
+            for ( final PasswordPool passwordPool : passwordPools.asMap().values() )
+            {
+                pooledPasswords += passwordPool.getPasswords().size();
+            }
+            debugInfo.put( "pooledConfigurations", String.valueOf( passwordPools.estimatedSize() ) );
+            debugInfo.put( "pooledPasswords", String.valueOf( pooledPasswords ) );
+            debugInfo.put( "poolHits", String.valueOf( poolHits.get() ) );
+            debugInfo.put( "poolMisses", String.valueOf( poolMisses.get() ) );
+        }
+        return new ServiceInfoBean( Collections.emptyList(), Collections.unmodifiableMap( debugInfo ) );
+    }
+
+    /**
+     * Read the compiled constraints for a generator configuration, compiling and caching them if needed.  The constraints
+     * do not include any seedlist words, those are still drawn for each generated password.
+     *
+     * @param randomGeneratorConfig generator configuration
+     * @return the compiled constraints
+     */
+    RandomPasswordConstraints readConstraints( final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig )
+    {
+        return constraintsCache.get( cacheKey( randomGeneratorConfig ), k -> RandomPasswordGenerator.compileConstraints( pwmApplication, randomGeneratorConfig ) );
+    }
+
+    /**
+     * Take a pre-generated password for the configuration, if the pool is enabled and has one available.  The pool for the
+     * configuration is refilled in the background after every call.
+     *
+     * @param randomGeneratorConfig generator configuration
+     * @return a pre-generated password, or empty if the pool is disabled or has no current password
+     */
+    Optional<PasswordData> takePooledPassword( final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig )
+    {
+        if ( poolSize < 1 || status != STATUS.OPEN )
+        {
+            return Optional.empty();
+        }
+
+        final PasswordPool passwordPool = passwordPools.get( cacheKey( randomGeneratorConfig ), k -> new PasswordPool( randomGeneratorConfig ) );
+
+        PooledPassword pooledPassword = passwordPool.getPasswords().pollFirst();
+        while ( pooledPassword != null && TimeDuration.fromCurrent( pooledPassword.getCreated() ).isLongerThan( poolMaxAge ) )
+        {
+            pooledPassword = passwordPool.getPasswords().pollFirst();
+        }
+
+        scheduleRefill( passwordPool );
+
+        if ( pooledPassword == null )
+        {
+            poolMisses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        poolHits.incrementAndGet();
+        return Optional.of( pooledPassword.getPassword() );
+    }
+
+    private void scheduleRefill( final PasswordPool passwordPool )
+    {
+        if ( passwordPool.getPasswords().size() >= poolSize || !passwordPool.getRefillPending().compareAndSet( false, true ) )
+        {
+            return;
+        }
+
+        executorService.execute( () ->
+        {
+            try
+            {
+                refill( passwordPool );
+            }
+            finally
+            {
+                passwordPool.getRefillPending().set( false );
+            }
+        } );
+    }
+
+    private void refill( final PasswordPool passwordPool )
+    {
+        final Instant startTime = Instant.now();
+        int generated = 0;
+        try
+        {
+            while ( status == STATUS.OPEN && passwordPool.getPasswords().size() < poolSize )
+            {
+                final RandomPasswordConstraints constraints = readConstraints( passwordPool.getRandomGeneratorConfig() );
+                final PasswordData password = RandomPasswordGenerator.generatePassword(
+                        SessionLabel.SYSTEM_LABEL, passwordPool.getRandomGeneratorConfig(), constraints, pwmApplication );
+                passwordPool.getPasswords().addLast( new PooledPassword( password, Instant.now() ) );
+                generated++;
+            }
+        }
+        catch ( PwmUnrecoverableException e )
+        {
+            LOGGER.error( "error pre-generating random passwords: " + e.getMessage() );
+        }
+
+        final int finalGenerated = generated;
+        LOGGER.trace( () -> "pre-generated " + finalGenerated + " random passwords in " + TimeDuration.compactFromCurrent( startTime ) );
+    }
+
+    private static String cacheKey( final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig )
+    {
+        final Map<String, String> keyValues = new TreeMap<>( randomGeneratorConfig.getPasswordPolicy().getPolicyMap() );
+        keyValues.put( "randomGen.minimumLength", String.valueOf( randomGeneratorConfig.getMinimumLength() ) );
+        keyValues.put( "randomGen.maximumLength", String.valueOf( randomGeneratorConfig.getMaximumLength() ) );
+        keyValues.put( "randomGen.minimumStrength", String.valueOf( randomGeneratorConfig.getMinimumStrength() ) );
+        if ( randomGeneratorConfig.getSeedlistPhrases() != null && !randomGeneratorConfig.getSeedlistPhrases().isEmpty() )
+        {
+            keyValues.put( "randomGen.seedlistPhrases", JsonUtil.serializeCollection( randomGeneratorConfig.getSeedlistPhrases().stream()
+                    .filter( Objects::nonNull )
+                    .sorted()
+                    .collect( Collectors.toList() ) ) );
+        }
+        return JsonUtil.serializeMap( keyValues );
+    }
+
+    @Value
+    private static class PasswordPool
+    {
+        private final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig;
+        private final Deque<PooledPassword> passwords = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean refillPending = new AtomicBoolean( false );
+    }
+
+    @Value
+    private static class PooledPassword
+    {
+        private final PasswordData password;
+        private final Instant created;
+    }
+}
@@ -130,6 +130,8 @@ public class SmsQueueManager implements PwmService
                         Long.parseLong( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_RETRY_TIMEOUT_MS ) ),
                         TimeDuration.Unit.MILLISECONDS )
                 )
+                .workerThreads( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_WORKER_THREADS ) ) )
+                .batchSize( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_BATCH_SIZE ) ) )
                 .build();
 
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SMS_QUEUE );
@@ -182,6 +184,12 @@ public class SmsQueueManager implements PwmService
 
             return JsonUtil.serializeMap( debugOutputMap );
         }
+
+        @Override
+        public String orderingKey( final SmsItemBean workItem )
+        {
+            return workItem.getTo();
+        }
     }
 
     public void addSmsToQueue( final SmsItemBean smsItem )
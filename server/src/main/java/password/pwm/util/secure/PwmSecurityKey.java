@@ -29,8 +29,8 @@ import javax.crypto.spec.SecretKeySpec;
 import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PwmSecurityKey
 {
@@ -44,7 +44,7 @@ public class PwmSecurityKey
     }
 
     private final byte[] keyData;
-    private final Map<Type, SecretKey> keyCache = new HashMap<>();
+    private final Map<Type, SecretKey> keyCache = new ConcurrentHashMap<>();
 
     public PwmSecurityKey( final byte[] keyData )
     {
@@ -79,11 +79,15 @@ public class PwmSecurityKey
     SecretKey getKey( final Type keyType )
             throws PwmUnrecoverableException
     {
-        if ( !keyCache.containsKey( keyType ) )
+        final SecretKey cachedKey = keyCache.get( keyType );
+        if ( cachedKey != null )
         {
-            keyCache.put( keyType, getKeyImpl( keyType ) );
+            return cachedKey;
         }
-        return keyCache.get( keyType );
+
+        final SecretKey newKey = getKeyImpl( keyType );
+        keyCache.put( keyType, newKey );
+        return newKey;
     }
 
     private SecretKey getKeyImpl( final Type keyType )
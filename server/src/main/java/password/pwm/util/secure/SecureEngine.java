@@ -49,7 +49,10 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -65,6 +68,11 @@ public class SecureEngine
 
     private static final NonceGenerator AES_GCM_NONCE_GENERATOR = new NonceGenerator( 8, 8 );
 
+    // Cipher and Mac instances are not thread safe but are expensive to look up, so each thread keeps its own
+    // instance per algorithm and re-initializes it for every operation.
+    private static final ThreadLocal<Map<String, Cipher>> THREAD_CIPHERS = ThreadLocal.withInitial( HashMap::new );
+    private static final ThreadLocal<Map<String, Mac>> THREAD_MACS = ThreadLocal.withInitial( HashMap::new );
+
     private SecureEngine( )
     {
     }
@@ -98,6 +106,31 @@ public class SecureEngine
         }
     }
 
+    /**
+     * Encrypt a binary payload to a url safe string.  Unlike {@link #encryptToString(String, PwmSecurityKey, PwmBlockAlgorithm, Flag...)}
+     * the encrypted output is not gzipped, since the payload is expected to be compressed before encryption if at all.
+     */
+    public static String encryptBytesToString(
+            final byte[] value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            final byte[] encrypted = encryptToBytes( value, key, blockAlgorithm );
+            return StringUtil.base64Encode( encrypted, StringUtil.Base64Options.URL_SAFE );
+        }
+        catch ( IOException e )
+        {
+            final String errorMsg = "unexpected error b64 encoding crypto result: " + e.getMessage();
+            final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_CRYPT_ERROR, errorMsg );
+            LOGGER.error( errorInformation.toDebugStr() );
+            throw new PwmUnrecoverableException( errorInformation );
+        }
+    }
+
     // in bytes
     static final int GCM_TAG_LENGTH = 16;
 
@@ -107,10 +140,25 @@ public class SecureEngine
             final PwmBlockAlgorithm blockAlgorithm
     )
             throws PwmUnrecoverableException
+    {
+        if ( value == null || value.length() < 1 )
+        {
+            return null;
+        }
+
+        return encryptToBytes( value.getBytes( PwmConstants.DEFAULT_CHARSET ), key, blockAlgorithm );
+    }
+
+    public static byte[] encryptToBytes(
+            final byte[] value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
     {
         try
         {
-            if ( value == null || value.length() < 1 )
+            if ( value == null || value.length < 1 )
             {
                 return null;
             }
@@ -122,16 +170,16 @@ public class SecureEngine
             {
                 nonce = AES_GCM_NONCE_GENERATOR.nextValue();
                 final GCMParameterSpec spec = new GCMParameterSpec( GCM_TAG_LENGTH * 8, nonce );
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
+                cipher = threadCipher( blockAlgorithm.getAlgName() );
                 cipher.init( Cipher.ENCRYPT_MODE, aesKey, spec );
             }
             else
             {
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
-                cipher.init( Cipher.ENCRYPT_MODE, aesKey, cipher.getParameters() );
+                cipher = threadCipher( blockAlgorithm.getAlgName() );
+                cipher.init( Cipher.ENCRYPT_MODE, aesKey );
                 nonce = null;
             }
-            final byte[] encryptedBytes = cipher.doFinal( value.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            final byte[] encryptedBytes = cipher.doFinal( value );
 
             final byte[] output;
             if ( blockAlgorithm.getHmacAlgorithm() != null )
@@ -193,12 +241,54 @@ public class SecureEngine
         }
     }
 
+    /**
+     * Decrypt a value written by {@link #encryptBytesToString(byte[], PwmSecurityKey, PwmBlockAlgorithm)}, or by
+     * {@link #encryptToString(String, PwmSecurityKey, PwmBlockAlgorithm, Flag...)} with the url safe flag.
+     */
+    public static byte[] decryptStringValueToBytes(
+            final String value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( value == null || value.length() < 1 )
+        {
+            return new byte[ 0 ];
+        }
+
+        final byte[] decoded;
+        try
+        {
+            // gzipped input from encryptToString is detected and decompressed by the decoder
+            decoded = StringUtil.base64Decode( value, StringUtil.Base64Options.URL_SAFE, StringUtil.Base64Options.GZIP );
+        }
+        catch ( Exception e )
+        {
+            final String errorMsg = "unexpected error performing simple decrypt operation: " + e.getMessage();
+            final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_CRYPT_ERROR, errorMsg );
+            throw new PwmUnrecoverableException( errorInformation );
+        }
+        return decryptToBytes( decoded, key, blockAlgorithm );
+    }
+
     public static String decryptBytes(
             final byte[] value,
             final PwmSecurityKey key,
             final PwmBlockAlgorithm blockAlgorithm
     )
             throws PwmUnrecoverableException
+    {
+        final byte[] decrypted = decryptToBytes( value, key, blockAlgorithm );
+        return decrypted == null ? null : new String( decrypted, PwmConstants.DEFAULT_CHARSET );
+    }
+
+    public static byte[] decryptToBytes(
+            final byte[] value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
     {
         try
         {
@@ -241,16 +331,15 @@ public class SecureEngine
                 final byte[] nonce = Arrays.copyOfRange( workingValue, 0, nonceLength );
                 workingValue = Arrays.copyOfRange( workingValue, nonceLength, workingValue.length );
                 final GCMParameterSpec spec = new GCMParameterSpec( GCM_TAG_LENGTH * 8, nonce );
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
+                cipher = threadCipher( blockAlgorithm.getAlgName() );
                 cipher.init( Cipher.DECRYPT_MODE, aesKey, spec );
             }
             else
             {
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
+                cipher = threadCipher( blockAlgorithm.getAlgName() );
                 cipher.init( Cipher.DECRYPT_MODE, aesKey );
             }
-            final byte[] decrypted = cipher.doFinal( workingValue );
-            return new String( decrypted, PwmConstants.DEFAULT_CHARSET );
+            return cipher.doFinal( workingValue );
         }
         catch ( GeneralSecurityException e )
         {
@@ -344,8 +433,7 @@ public class SecureEngine
     {
         try
         {
-
-            final Mac mac = Mac.getInstance( hmacAlgorithm.getAlgorithmName() );
+            final Mac mac = threadMac( hmacAlgorithm.getAlgorithmName() );
             final SecretKey secretKey = pwmSecurityKey.getKey( hmacAlgorithm.getKeyType() );
             mac.init( secretKey );
             return mac.doFinal( input );
@@ -359,6 +447,32 @@ public class SecureEngine
     }
 
 
+    private static Cipher threadCipher( final String algName )
+            throws GeneralSecurityException
+    {
+        final Map<String, Cipher> ciphers = THREAD_CIPHERS.get();
+        Cipher cipher = ciphers.get( algName );
+        if ( cipher == null )
+        {
+            cipher = Cipher.getInstance( algName );
+            ciphers.put( algName, cipher );
+        }
+        return cipher;
+    }
+
+    private static Mac threadMac( final String algName )
+            throws GeneralSecurityException
+    {
+        final Map<String, Mac> macs = THREAD_MACS.get();
+        Mac mac = macs.get( algName );
+        if ( mac == null )
+        {
+            mac = Mac.getInstance( algName );
+            macs.put( algName, mac );
+        }
+        return mac;
+    }
+
     public static byte[] computeHashToBytes(
             final InputStream is,
             final PwmHashAlgorithm algorithm
@@ -452,39 +566,36 @@ public class SecureEngine
         return Arrays.copyOfRange( input, definedPrefix.length, input.length );
     }
 
+    /**
+     * GCM nonce source made of a random fixed component and a counter component.  The counter starts at a random
+     * value and is advanced atomically, so concurrent callers never receive the same nonce and never block.
+     */
     static class NonceGenerator
     {
-        private final byte[] value;
-
-        private final int fixedComponentLength;
+        private final byte[] fixedComponent;
+        private final int counterComponentLength;
+        private final AtomicLong counter;
 
         NonceGenerator( final int fixedComponentLength, final int counterComponentLength )
         {
-            this.fixedComponentLength = fixedComponentLength;
-            value = new byte[ fixedComponentLength + counterComponentLength ];
-            PwmRandom.getInstance().nextBytes( value );
-        }
-
-        public synchronized byte[] nextValue( )
-        {
-            increment( value.length - 1 );
-            return Arrays.copyOf( value, value.length );
+            if ( counterComponentLength < 1 || counterComponentLength > Long.BYTES )
+            {
+                throw new IllegalArgumentException( "counterComponentLength must be between 1 and " + Long.BYTES );
+            }
+            this.fixedComponent = PwmRandom.getInstance().newBytes( fixedComponentLength );
+            this.counterComponentLength = counterComponentLength;
+            this.counter = new AtomicLong( PwmRandom.getInstance().nextLong() );
         }
 
-        private void increment( final int index )
+        public byte[] nextValue( )
         {
-            if ( value[ index ] == Byte.MAX_VALUE )
-            {
-                value[ index ] = 0;
-                if ( index > fixedComponentLength )
-                {
-                    increment( index - 1 );
-                }
-            }
-            else
+            final long counterValue = counter.incrementAndGet();
+            final byte[] value = Arrays.copyOf( fixedComponent, fixedComponent.length + counterComponentLength );
+            for ( int i = 0; i < counterComponentLength; i++ )
             {
-                value[ index ]++;
+                value[ value.length - 1 - i ] = ( byte ) ( counterValue >>> ( Byte.SIZE * i ) );
             }
+            return value;
         }
     }
 
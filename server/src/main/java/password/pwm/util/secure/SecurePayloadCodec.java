@@ -0,0 +1,587 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import com.google.gson.JsonParseException;
+import password.pwm.PwmConstants;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PasswordData;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes objects into the plaintext payload encrypted by {@link SecureService}.
+ *
+ * <p>Payloads written in the {@link Encoding#BINARY} encoding start with a zero marker byte, a format version and a
+ * flags byte.  For plain bean classes the body is a sequence of tagged fields, each tag derived from the field name
+ * so fields can be added or removed between versions; simple values are written in binary and any other value is
+ * written as the json of that field.  Other objects are written as a json body.  Bodies larger than the compression
+ * threshold are deflated.  Payloads that do not start with the marker are read as legacy json.</p>
+ *
+ * <p>Both encodings are always readable, but older releases can only read json.  Json therefore stays the default
+ * encoding; binary should only be enabled once every node sharing cookies or encrypted values runs this release.</p>
+ */
+public class SecurePayloadCodec
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( SecurePayloadCodec.class );
+
+    private static final byte MARKER = 0;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 3;
+
+    private static final int FLAG_DEFLATE = 1;
+    private static final int FLAG_JSON_BODY = 1 << 1;
+
+    private static final int MAX_BODY_LENGTH = 10 * 1024 * 1024;
+
+    private static final Map<Class<?>, Optional<Schema>> SCHEMAS = new ConcurrentHashMap<>();
+
+    private final Encoding encoding;
+    private final int compressThreshold;
+
+    public enum Encoding
+    {
+        JSON,
+        BINARY,
+    }
+
+    private enum ValueType
+    {
+        BOOLEAN,
+        INT,
+        LONG,
+        STRING,
+        ENUM,
+        INSTANT,
+        JSON,
+    }
+
+    public SecurePayloadCodec( final Encoding encoding, final int compressThreshold )
+    {
+        this.encoding = encoding;
+        this.compressThreshold = compressThreshold;
+    }
+
+    public byte[] encode( final Serializable object )
+            throws PwmUnrecoverableException
+    {
+        if ( encoding == Encoding.JSON || object == null )
+        {
+            return JsonUtil.serialize( object ).getBytes( PwmConstants.DEFAULT_CHARSET );
+        }
+
+        try
+        {
+            final Optional<Schema> schema = schemaFor( object.getClass() );
+            int flags = 0;
+            byte[] body;
+            if ( schema.isPresent() )
+            {
+                body = schema.get().write( object );
+            }
+            else
+            {
+                flags |= FLAG_JSON_BODY;
+                body = JsonUtil.serialize( object ).getBytes( PwmConstants.DEFAULT_CHARSET );
+            }
+
+            if ( compressThreshold >= 0 && body.length >= compressThreshold )
+            {
+                final byte[] deflated = deflate( body );
+                if ( deflated.length < body.length )
+                {
+                    flags |= FLAG_DEFLATE;
+                    body = deflated;
+                }
+            }
+
+            final byte[] output = new byte[ HEADER_LENGTH + body.length ];
+            output[ 0 ] = MARKER;
+            output[ 1 ] = FORMAT_VERSION;
+            output[ 2 ] = ( byte ) flags;
+            System.arraycopy( body, 0, output, HEADER_LENGTH, body.length );
+            return output;
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw codecError( "unable to encode " + object.getClass().getName() + ": " + e.getMessage() );
+        }
+    }
+
+    public <T extends Serializable> T decode( final byte[] payload, final Class<T> returnClass )
+            throws PwmUnrecoverableException
+    {
+        if ( payload == null || payload.length == 0 )
+        {
+            return null;
+        }
+
+        try
+        {
+            return decodeImpl( payload, returnClass );
+        }
+        catch ( JsonParseException | IllegalAccessException | IllegalArgumentException | ClassCastException | IndexOutOfBoundsException e )
+        {
+            throw codecError( "unable to decode " + returnClass.getName() + ": " + e.getMessage() );
+        }
+    }
+
+    private <T extends Serializable> T decodeImpl( final byte[] payload, final Class<T> returnClass )
+            throws PwmUnrecoverableException, IllegalAccessException
+    {
+        if ( payload[ 0 ] != MARKER )
+        {
+            return JsonUtil.deserialize( new String( payload, PwmConstants.DEFAULT_CHARSET ), returnClass );
+        }
+
+        if ( payload.length < HEADER_LENGTH || payload[ 1 ] != FORMAT_VERSION )
+        {
+            throw codecError( "unsupported payload format version" );
+        }
+
+        final int flags = payload[ 2 ];
+        byte[] body = Arrays.copyOfRange( payload, HEADER_LENGTH, payload.length );
+        if ( ( flags & FLAG_DEFLATE ) != 0 )
+        {
+            body = inflate( body );
+        }
+
+        if ( ( flags & FLAG_JSON_BODY ) != 0 )
+        {
+            return JsonUtil.deserialize( new String( body, PwmConstants.DEFAULT_CHARSET ), returnClass );
+        }
+
+        final Optional<Schema> schema = schemaFor( returnClass );
+        if ( !schema.isPresent() )
+        {
+            throw codecError( "payload contains tagged fields but " + returnClass.getName() + " can not be decoded from tagged fields" );
+        }
+
+        final T object = JsonUtil.deserialize( "{}", returnClass );
+        schema.get().read( body, object );
+        return object;
+    }
+
+    private static Optional<Schema> schemaFor( final Class<?> theClass )
+    {
+        return SCHEMAS.computeIfAbsent( theClass, SecurePayloadCodec::makeSchema );
+    }
+
+    private static Optional<Schema> makeSchema( final Class<?> theClass )
+    {
+        if ( theClass.isInterface()
+                || theClass.isArray()
+                || theClass.isEnum()
+                || theClass.isPrimitive()
+                || theClass.isAnonymousClass()
+                || theClass.isLocalClass()
+                || Modifier.isAbstract( theClass.getModifiers() )
+                || theClass.getName().startsWith( "java." )
+                || theClass.getName().startsWith( "javax." )
+                || Collection.class.isAssignableFrom( theClass )
+                || Map.class.isAssignableFrom( theClass )
+                || PasswordData.class.isAssignableFrom( theClass ) )
+        {
+            return Optional.empty();
+        }
+
+        final List<FieldCodec> fieldCodecs = new ArrayList<>();
+        final Map<Integer, FieldCodec> fieldsByTag = new HashMap<>();
+        Class<?> loopClass = theClass;
+        while ( loopClass != null && loopClass != Object.class )
+        {
+            for ( final Field field : loopClass.getDeclaredFields() )
+            {
+                final int modifiers = field.getModifiers();
+                if ( Modifier.isStatic( modifiers ) || Modifier.isTransient( modifiers ) || field.isSynthetic() )
+                {
+                    continue;
+                }
+
+                final FieldCodec fieldCodec = new FieldCodec( field );
+                if ( fieldsByTag.containsKey( fieldCodec.tag ) )
+                {
+                    LOGGER.trace( () -> "field tag collision in " + theClass.getName() + ", payloads will be encoded as json" );
+                    return Optional.empty();
+                }
+                field.setAccessible( true );
+                fieldsByTag.put( fieldCodec.tag, fieldCodec );
+                fieldCodecs.add( fieldCodec );
+            }
+            loopClass = loopClass.getSuperclass();
+        }
+
+        return Optional.of( new Schema( Collections.unmodifiableList( fieldCodecs ), Collections.unmodifiableMap( fieldsByTag ) ) );
+    }
+
+    private static final class Schema
+    {
+        private final List<FieldCodec> fieldCodecs;
+        private final Map<Integer, FieldCodec> fieldsByTag;
+
+        private Schema( final List<FieldCodec> fieldCodecs, final Map<Integer, FieldCodec> fieldsByTag )
+        {
+            this.fieldCodecs = fieldCodecs;
+            this.fieldsByTag = fieldsByTag;
+        }
+
+        private byte[] write( final Object object )
+                throws IllegalAccessException
+        {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            for ( final FieldCodec fieldCodec : fieldCodecs )
+            {
+                final Object value = fieldCodec.field.get( object );
+                if ( value != null )
+                {
+                    outputStream.write( fieldCodec.tag >>> 8 );
+                    outputStream.write( fieldCodec.tag );
+                    outputStream.write( fieldCodec.valueType.ordinal() );
+                    fieldCodec.writeValue( outputStream, value );
+                }
+            }
+            return outputStream.toByteArray();
+        }
+
+        private void read( final byte[] body, final Object object )
+                throws IllegalAccessException, PwmUnrecoverableException
+        {
+            final PayloadReader reader = new PayloadReader( body );
+            while ( reader.hasMore() )
+            {
+                final int tag = ( reader.readByte() << 8 ) | reader.readByte();
+                final int typeOrdinal = reader.readByte();
+                if ( typeOrdinal >= ValueType.values().length )
+                {
+                    throw codecError( "unknown payload value type " + typeOrdinal );
+                }
+                final ValueType valueType = ValueType.values()[ typeOrdinal ];
+                final Object rawValue = reader.readValue( valueType );
+
+                final FieldCodec fieldCodec = fieldsByTag.get( tag );
+                if ( fieldCodec != null && fieldCodec.valueType == valueType )
+                {
+                    fieldCodec.setValue( object, rawValue );
+                }
+            }
+        }
+    }
+
+    private static final class FieldCodec
+    {
+        private final Field field;
+        private final int tag;
+        private final ValueType valueType;
+
+        private FieldCodec( final Field field )
+        {
+            this.field = field;
+            this.tag = field.getName().hashCode() & 0xFFFF;
+            this.valueType = valueTypeFor( field.getType() );
+        }
+
+        private static ValueType valueTypeFor( final Class<?> type )
+        {
+            if ( type == boolean.class || type == Boolean.class )
+            {
+                return ValueType.BOOLEAN;
+            }
+            if ( type == int.class || type == Integer.class )
+            {
+                return ValueType.INT;
+            }
+            if ( type == long.class || type == Long.class )
+            {
+                return ValueType.LONG;
+            }
+            if ( type == String.class )
+            {
+                return ValueType.STRING;
+            }
+            if ( type.isEnum() )
+            {
+                return ValueType.ENUM;
+            }
+            if ( type == Instant.class )
+            {
+                return ValueType.INSTANT;
+            }
+            return ValueType.JSON;
+        }
+
+        private void writeValue( final ByteArrayOutputStream outputStream, final Object value )
+        {
+            switch ( valueType )
+            {
+                case BOOLEAN:
+                    outputStream.write( ( Boolean ) value ? 1 : 0 );
+                    break;
+
+                case INT:
+                    writeVarLong( outputStream, ( Integer ) value );
+                    break;
+
+                case LONG:
+                    writeVarLong( outputStream, ( Long ) value );
+                    break;
+
+                case STRING:
+                    writeString( outputStream, ( String ) value );
+                    break;
+
+                case ENUM:
+                    writeString( outputStream, ( ( Enum<?> ) value ).name() );
+                    break;
+
+                case INSTANT:
+                    writeVarLong( outputStream, ( ( Instant ) value ).toEpochMilli() );
+                    break;
+
+                case JSON:
+                    writeString( outputStream, JsonUtil.serialize( value, field.getGenericType() ) );
+                    break;
+
+                default:
+                    JavaHelper.unhandledSwitchStatement( valueType );
+            }
+        }
+
+        private void setValue( final Object object, final Object rawValue )
+                throws IllegalAccessException
+        {
+            final Object value;
+            switch ( valueType )
+            {
+                case INT:
+                    value = ( int ) ( long ) ( Long ) rawValue;
+                    break;
+
+                case ENUM:
+                    value = readEnum( field.getType(), ( String ) rawValue );
+                    break;
+
+                case INSTANT:
+                    value = Instant.ofEpochMilli( ( Long ) rawValue );
+                    break;
+
+                case JSON:
+                    value = JsonUtil.deserialize( ( String ) rawValue, field.getGenericType() );
+                    break;
+
+                default:
+                    value = rawValue;
+            }
+
+            if ( value != null )
+            {
+                field.set( object, value );
+            }
+        }
+
+        private static Object readEnum( final Class<?> enumClass, final String name )
+        {
+            for ( final Object enumConstant : enumClass.getEnumConstants() )
+            {
+                if ( ( ( Enum<?> ) enumConstant ).name().equals( name ) )
+                {
+                    return enumConstant;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class PayloadReader
+    {
+        private final byte[] data;
+        private int position;
+
+        private PayloadReader( final byte[] data )
+        {
+            this.data = data;
+        }
+
+        private boolean hasMore( )
+        {
+            return position < data.length;
+        }
+
+        private int readByte( )
+        {
+            if ( position >= data.length )
+            {
+                throw new IndexOutOfBoundsException( "unexpected end of payload" );
+            }
+            return data[ position++ ] & 0xFF;
+        }
+
+        private Object readValue( final ValueType valueType )
+        {
+            switch ( valueType )
+            {
+                case BOOLEAN:
+                    return readByte() != 0;
+
+                case INT:
+                case LONG:
+                case INSTANT:
+                    return readVarLong();
+
+                case STRING:
+                case ENUM:
+                case JSON:
+                    return readString();
+
+                default:
+                    JavaHelper.unhandledSwitchStatement( valueType );
+            }
+            return null;
+        }
+
+        private long readVarLong( )
+        {
+            long unsigned = 0;
+            int shift = 0;
+            int nextByte;
+            do
+            {
+                nextByte = readByte();
+                unsigned |= ( long ) ( nextByte & 0x7F ) << shift;
+                shift += 7;
+            }
+            while ( ( nextByte & 0x80 ) != 0 && shift < Long.SIZE );
+            return ( unsigned >>> 1 ) ^ -( unsigned & 1 );
+        }
+
+        private String readString( )
+        {
+            final long length = readVarLong();
+            if ( length < 0 || length > data.length - position )
+            {
+                throw new IndexOutOfBoundsException( "invalid string length in payload" );
+            }
+            final String value = new String( data, position, ( int ) length, PwmConstants.DEFAULT_CHARSET );
+            position += ( int ) length;
+            return value;
+        }
+    }
+
+    private static void writeVarLong( final ByteArrayOutputStream outputStream, final long value )
+    {
+        long zigZag = ( value << 1 ) ^ ( value >> 63 );
+        while ( ( zigZag & ~0x7FL ) != 0 )
+        {
+            outputStream.write( ( int ) ( ( zigZag & 0x7F ) | 0x80 ) );
+            zigZag >>>= 7;
+        }
+        outputStream.write( ( int ) zigZag );
+    }
+
+    private static void writeString( final ByteArrayOutputStream outputStream, final String value )
+    {
+        final byte[] bytes = value.getBytes( PwmConstants.DEFAULT_CHARSET );
+        writeVarLong( outputStream, bytes.length );
+        outputStream.write( bytes, 0, bytes.length );
+    }
+
+    private static byte[] deflate( final byte[] input )
+    {
+        final Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+        try
+        {
+            deflater.setInput( input );
+            deflater.finish();
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream( input.length );
+            final byte[] buffer = new byte[ 1024 ];
+            while ( !deflater.finished() )
+            {
+                final int length = deflater.deflate( buffer );
+                outputStream.write( buffer, 0, length );
+            }
+            return outputStream.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate( final byte[] input )
+            throws PwmUnrecoverableException
+    {
+        final Inflater inflater = new Inflater( true );
+        try
+        {
+            inflater.setInput( input );
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream( input.length * 4 );
+            final byte[] buffer = new byte[ 1024 ];
+            while ( !inflater.finished() )
+            {
+                final int length = inflater.inflate( buffer );
+                if ( length == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                {
+                    throw codecError( "truncated compressed payload" );
+                }
+                outputStream.write( buffer, 0, length );
+                if ( outputStream.size() > MAX_BODY_LENGTH )
+                {
+                    throw codecError( "compressed payload exceeds maximum length" );
+                }
+            }
+            return outputStream.toByteArray();
+        }
+        catch ( DataFormatException e )
+        {
+            throw codecError( "invalid compressed payload: " + e.getMessage() );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static PwmUnrecoverableException codecError( final String message )
+    {
+        return new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_CRYPT_ERROR, message ) );
+    }
+}
@@ -49,6 +49,8 @@ public class SecureService implements PwmService
     private PwmSecurityKey pwmSecurityKey;
     private PwmBlockAlgorithm defaultBlockAlgorithm;
     private PwmHashAlgorithm defaultHashAlgorithm;
+    private SecurePayloadCodec payloadCodec;
+    private SecurePayloadCodec.Encoding payloadEncoding;
     private PwmRandom pwmRandom;
 
     @Override
@@ -72,6 +74,12 @@ public class SecureService implements PwmService
             defaultHashAlgorithm = JavaHelper.readEnumFromString( PwmHashAlgorithm.class, PwmHashAlgorithm.SHA512, defaultHashAlgString );
             LOGGER.debug( () -> "using default ephemeral hash algorithm: " + defaultHashAlgString );
         }
+        {
+            final String payloadEncodingString = config.readAppProperty( AppProperty.SECURITY_PAYLOAD_ENCODING );
+            payloadEncoding = JavaHelper.readEnumFromString( SecurePayloadCodec.Encoding.class, SecurePayloadCodec.Encoding.JSON, payloadEncodingString );
+            final int compressThreshold = Integer.parseInt( config.readAppProperty( AppProperty.SECURITY_PAYLOAD_COMPRESS_THRESHOLD ) );
+            payloadCodec = new SecurePayloadCodec( payloadEncoding, compressThreshold );
+        }
     }
 
     @Override
@@ -116,14 +124,41 @@ public class SecureService implements PwmService
 
     public String encryptObjectToString( final Serializable serializableObject ) throws PwmUnrecoverableException
     {
-        final String jsonValue = JsonUtil.serialize( serializableObject );
-        return encryptToString( jsonValue );
+        return encryptObjectToString( serializableObject, pwmSecurityKey );
     }
 
     public String encryptObjectToString( final Serializable serializableObject, final PwmSecurityKey securityKey ) throws PwmUnrecoverableException
     {
-        final String jsonValue = JsonUtil.serialize( serializableObject );
-        return encryptToString( jsonValue, securityKey );
+        if ( payloadEncoding == SecurePayloadCodec.Encoding.JSON )
+        {
+            final String jsonValue = JsonUtil.serialize( serializableObject );
+            return encryptToString( jsonValue, securityKey );
+        }
+
+        return encryptBytesToString( encodeObject( serializableObject ), securityKey );
+    }
+
+    /**
+     * Encode an object to the payload format used by {@link #encryptObjectToString(Serializable)}.
+     */
+    public byte[] encodeObject( final Serializable serializableObject ) throws PwmUnrecoverableException
+    {
+        return payloadCodec.encode( serializableObject );
+    }
+
+    public <T extends Serializable> T decodeObject( final byte[] payload, final Class<T> returnClass ) throws PwmUnrecoverableException
+    {
+        return payloadCodec.decode( payload, returnClass );
+    }
+
+    public String encryptBytesToString( final byte[] value, final PwmSecurityKey securityKey ) throws PwmUnrecoverableException
+    {
+        return SecureEngine.encryptBytesToString( value, securityKey, defaultBlockAlgorithm );
+    }
+
+    public byte[] decryptStringValueToBytes( final String value, final PwmSecurityKey securityKey ) throws PwmUnrecoverableException
+    {
+        return SecureEngine.decryptStringValueToBytes( value, securityKey, defaultBlockAlgorithm );
     }
 
     public String decryptStringValue(
@@ -145,14 +180,16 @@ public class SecureService implements PwmService
 
     public <T extends Serializable> T decryptObject( final String value, final Class<T> returnClass ) throws PwmUnrecoverableException
     {
-        final String decryptedValue = decryptStringValue( value );
-        return JsonUtil.deserialize( decryptedValue, returnClass );
+        return decryptObject( value, pwmSecurityKey, returnClass );
     }
 
+    /**
+     * Decrypt an object written by {@link #encryptObjectToString(Serializable, PwmSecurityKey)}.  Values written as json by
+     * earlier versions are still readable.
+     */
     public <T extends Serializable> T decryptObject( final String value, final PwmSecurityKey securityKey, final Class<T> returnClass ) throws PwmUnrecoverableException
     {
-        final String decryptedValue = decryptStringValue( value, securityKey );
-        return JsonUtil.deserialize( decryptedValue, returnClass );
+        return decodeObject( decryptStringValueToBytes( value, securityKey ), returnClass );
     }
 
     public String hash(
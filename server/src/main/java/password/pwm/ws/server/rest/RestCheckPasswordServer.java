@@ -38,11 +38,14 @@ import password.pwm.ldap.UserInfo;
 import password.pwm.ldap.UserInfoFactory;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.util.PasswordData;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.password.PasswordCheckService;
 import password.pwm.util.password.PasswordUtility;
+import password.pwm.ws.server.RestAuthentication;
 import password.pwm.ws.server.RestMethodHandler;
 import password.pwm.ws.server.RestRequest;
 import password.pwm.ws.server.RestResultBean;
@@ -68,6 +71,7 @@ public class RestCheckPasswordServer extends RestServlet
     private static final String FIELD_PASSWORD_1 = "password1";
     private static final String FIELD_PASSWORD_2 = "password2";
     private static final String FIELD_USERNAME = "username";
+    private static final String FIELD_ASYNC = "async";
 
     @Getter
     @AllArgsConstructor
@@ -77,6 +81,12 @@ public class RestCheckPasswordServer extends RestServlet
         public String password1;
         public String password2;
         public String username;
+
+        /**
+         * Check only the local rules in the request, the deferred rules are checked in the background and the response
+         * is marked as pending until they complete.
+         */
+        public boolean async;
     }
 
     @Getter
@@ -90,6 +100,7 @@ public class RestCheckPasswordServer extends RestServlet
         public String message;
         public boolean passed;
         public int errorCode;
+        public boolean pending;
 
         public static JsonOutput fromPasswordCheckInfo(
                 final PasswordUtility.PasswordCheckInfo checkInfo
@@ -102,6 +113,7 @@ public class RestCheckPasswordServer extends RestServlet
             outputMap.message = checkInfo.getMessage();
             outputMap.passed = checkInfo.isPassed();
             outputMap.errorCode = checkInfo.getErrorCode();
+            outputMap.pending = checkInfo.isPending();
             return outputMap;
         }
     }
@@ -119,7 +131,8 @@ public class RestCheckPasswordServer extends RestServlet
         final JsonInput jsonInput = new JsonInput(
                 restRequest.readParameterAsString( FIELD_PASSWORD_1, PwmHttpRequestWrapper.Flag.BypassValidation ),
                 restRequest.readParameterAsString( FIELD_PASSWORD_2, PwmHttpRequestWrapper.Flag.BypassValidation ),
-                restRequest.readParameterAsString( FIELD_USERNAME, PwmHttpRequestWrapper.Flag.BypassValidation )
+                restRequest.readParameterAsString( FIELD_USERNAME, PwmHttpRequestWrapper.Flag.BypassValidation ),
+                restRequest.readParameterAsBoolean( FIELD_ASYNC )
         );
         return doOperation( restRequest, jsonInput );
     }
@@ -152,7 +165,8 @@ public class RestCheckPasswordServer extends RestServlet
                             restRequest.readParameterAsString( FIELD_USERNAME ),
                             FIELD_USERNAME,
                             RestUtility.ReadValueFlag.optional
-                    )
+                    ),
+                    ( jsonBody != null && jsonBody.isAsync() ) || restRequest.readParameterAsBoolean( FIELD_ASYNC )
             );
         }
 
@@ -196,15 +210,30 @@ public class RestCheckPasswordServer extends RestServlet
 
             restRequest.getPwmApplication().getStatisticsManager().incrementValue( Statistic.REST_CHECKPASSWORD );
 
-            final PasswordUtility.PasswordCheckInfo passwordCheckInfo = PasswordUtility.checkEnteredPassword(
-                    restRequest.getPwmApplication(),
-                    restRequest.getLocale(),
-                    targetUserIdentity.getChaiUser(),
-                    checkRequest.getUserInfo(),
-                    null,
-                    checkRequest.getPassword1(),
-                    checkRequest.getPassword2()
-            );
+            final PasswordUtility.PasswordCheckInfo passwordCheckInfo;
+            if ( jsonInput.isAsync() )
+            {
+                passwordCheckInfo = restRequest.getPwmApplication().getPasswordCheckService().checkEnteredPassword( PasswordCheckService.AsyncCheckRequest.builder()
+                        .sessionKey( makeAsyncSessionKey( restRequest, targetUserIdentity.getUserIdentity() ) )
+                        .locale( restRequest.getLocale() )
+                        .chaiUser( targetUserIdentity.getChaiUser() )
+                        .userInfo( checkRequest.getUserInfo() )
+                        .password( checkRequest.getPassword1() )
+                        .confirmPassword( checkRequest.getPassword2() )
+                        .build() );
+            }
+            else
+            {
+                passwordCheckInfo = PasswordUtility.checkEnteredPassword(
+                        restRequest.getPwmApplication(),
+                        restRequest.getLocale(),
+                        targetUserIdentity.getChaiUser(),
+                        checkRequest.getUserInfo(),
+                        null,
+                        checkRequest.getPassword1(),
+                        checkRequest.getPassword2()
+                );
+            }
 
             final JsonOutput jsonOutput = JsonOutput.fromPasswordCheckInfo( passwordCheckInfo );
             final RestResultBean restResultBean = RestResultBean.withData( jsonOutput );
@@ -226,6 +255,32 @@ public class RestCheckPasswordServer extends RestServlet
         }
     }
 
+    /**
+     * Rest requests have no session, so async checks are grouped by the authenticated client.  Public and named secret
+     * clients are only known by their address, which many clients behind a NAT gateway share, so their checks are also
+     * grouped by the target user and checks for different users do not supersede each other.
+     */
+    private static String makeAsyncSessionKey( final RestRequest restRequest, final UserIdentity targetUserIdentity )
+    {
+        final String targetUserKey = targetUserIdentity == null ? "" : targetUserIdentity.toDelimitedKey();
+        final RestAuthentication restAuthentication = restRequest.getRestAuthentication();
+        switch ( restAuthentication.getType() )
+        {
+            case LDAP:
+                return "rest-ldap-" + restAuthentication.getLdapIdentity().toDelimitedKey();
+
+            case NAMED_SECRET:
+                return "rest-secret-" + restAuthentication.getNamedSecretName() + "-" + restRequest.getSessionLabel().getSrcAddress() + "-" + targetUserKey;
+
+            case PUBLIC:
+                return "rest-public-" + restRequest.getSessionLabel().getSrcAddress() + "-" + targetUserKey;
+
+            default:
+                JavaHelper.unhandledSwitchStatement( restAuthentication.getType() );
+        }
+        return null;
+    }
+
     @Getter
     @AllArgsConstructor
     public static class PasswordCheckRequest
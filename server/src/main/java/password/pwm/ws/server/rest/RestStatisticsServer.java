@@ -52,10 +52,12 @@ import javax.servlet.annotation.WebServlet;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -74,7 +76,9 @@ public class RestStatisticsServer extends RestServlet
 
     private static final String FIELD_VERSION = "version";
     private static final String FIELD_DAYS = "days";
+    private static final String FIELD_MINUTES = "minutes";
     private static final int MAX_DAYS = 365 * 5;
+    private static final int MAX_MINUTES = 60 * 24;
 
     @Value
     @Builder
@@ -85,6 +89,7 @@ public class RestStatisticsServer extends RestServlet
         public List<StatValue> current;
         public List<StatValue> cumulative;
         public List<HistoryData> history;
+        public List<MinuteHistoryData> minuteHistory;
     }
 
     @Builder
@@ -99,6 +104,16 @@ public class RestStatisticsServer extends RestServlet
         private List<StatValue> data;
     }
 
+    @Builder
+    @Value static class MinuteHistoryData implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private String date;
+        private int minutesAgo;
+        private List<StatValue> data;
+    }
+
     @Value
     public static class StatValue implements Serializable
     {
@@ -156,6 +171,11 @@ public class RestStatisticsServer extends RestServlet
                     restRequest.readParameterAsInt( FIELD_DAYS, defaultDays ),
                     MAX_DAYS
             );
+            final int minutes = JavaHelper.rangeCheck(
+                    0,
+                    restRequest.readParameterAsInt( FIELD_MINUTES, 0 ),
+                    MAX_MINUTES
+            );
 
             final StatisticsManager statisticsManager = restRequest.getPwmApplication().getStatisticsManager();
             final JsonOutput jsonOutput = RestStatisticsServer.JsonOutput.builder()
@@ -163,6 +183,7 @@ public class RestStatisticsServer extends RestServlet
                     .current( makeStatInfos( statisticsManager, StatisticsManager.KEY_CURRENT ) )
                     .eventRates( makeEpsStatInfos( statisticsManager ) )
                     .history( makeHistoryStatInfos( statisticsManager, days ) )
+                    .minuteHistory( minutes > 0 ? makeMinuteHistoryStatInfos( statisticsManager, minutes ) : null )
                     .labels( makeLabels( locale ) )
                     .build();
             return RestResultBean.withData( jsonOutput );
@@ -219,6 +240,44 @@ public class RestStatisticsServer extends RestServlet
             return Collections.unmodifiableList( outerOutput );
         }
 
+        private static List<MinuteHistoryData> makeMinuteHistoryStatInfos(
+                final StatisticsManager statisticsManager,
+                final int minutes
+        )
+        {
+            final Map<Instant, Map<String, StatValue>> valuesByMinute = new TreeMap<>( Comparator.reverseOrder() );
+            for ( final Statistic statistic : Statistic.values() )
+            {
+                for ( final Map.Entry<Instant, Long> entry : statisticsManager.getMinuteHistory( statistic, minutes ).entrySet() )
+                {
+                    valuesByMinute.computeIfAbsent( entry.getKey(), k -> new TreeMap<>() )
+                            .put( statistic.name(), new StatValue( statistic.name(), String.valueOf( entry.getValue() ) ) );
+                }
+            }
+            for ( final AvgStatistic statistic : AvgStatistic.values() )
+            {
+                for ( final Map.Entry<Instant, Long> entry : statisticsManager.getMinuteAverageHistory( statistic, minutes ).entrySet() )
+                {
+                    valuesByMinute.computeIfAbsent( entry.getKey(), k -> new TreeMap<>() )
+                            .put( statistic.name(), new StatValue( statistic.name(), String.valueOf( entry.getValue() ) ) );
+                }
+            }
+
+            final List<MinuteHistoryData> outerOutput = new ArrayList<>();
+            int minutesAgo = 0;
+            for ( final Map.Entry<Instant, Map<String, StatValue>> entry : valuesByMinute.entrySet() )
+            {
+                outerOutput.add( MinuteHistoryData.builder()
+                        .date( JavaHelper.toIsoDate( entry.getKey() ) )
+                        .minutesAgo( minutesAgo )
+                        .data( Collections.unmodifiableList( new ArrayList<>( entry.getValue().values() ) ) )
+                        .build() );
+                minutesAgo++;
+            }
+
+            return Collections.unmodifiableList( outerOutput );
+        }
+
         private static List<StatValue> makeEpsStatInfos( final StatisticsManager statisticsManager )
         {
             final Map<String, StatValue> output = new TreeMap<>();
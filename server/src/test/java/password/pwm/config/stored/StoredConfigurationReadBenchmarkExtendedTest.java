@@ -0,0 +1,109 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.config.stored;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.AppProperty;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares setting reads from an unlocked stored configuration, which are resolved against the XML document on
+ * every call, with reads from a locked configuration, which use the compiled snapshot.
+ */
+public class StoredConfigurationReadBenchmarkExtendedTest
+{
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.AverageTime )
+                .timeUnit( TimeUnit.NANOSECONDS )
+                .warmupTime( TimeValue.seconds( 10 ) )
+                .measurementIterations( 10 )
+                .threads( 4 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @State( Scope.Benchmark )
+    public static class ConfigState
+    {
+        private StoredConfigurationImpl documentConfiguration;
+        private StoredConfigurationImpl compiledConfiguration;
+        private Configuration configuration;
+
+        @Setup( Level.Trial )
+        public void setup()
+                throws Exception
+        {
+            documentConfiguration = StoredConfigurationImpl.newStoredConfiguration();
+            compiledConfiguration = StoredConfigurationImpl.copy( documentConfiguration );
+            compiledConfiguration.lock();
+            configuration = new Configuration( compiledConfiguration );
+        }
+    }
+
+    @Benchmark
+    public StoredValue benchmarkDocumentRead( final ConfigState state )
+    {
+        return state.documentConfiguration.readSetting( PwmSetting.DISPLAY_IDLE_TIMEOUT );
+    }
+
+    @Benchmark
+    public StoredValue benchmarkCompiledRead( final ConfigState state )
+    {
+        return state.compiledConfiguration.readSetting( PwmSetting.DISPLAY_IDLE_TIMEOUT );
+    }
+
+    @Benchmark
+    public boolean benchmarkReadSettingAsBoolean( final ConfigState state )
+    {
+        return state.configuration.readSettingAsBoolean( PwmSetting.DISPLAY_IDLE_TIMEOUT );
+    }
+
+    @Benchmark
+    public String benchmarkReadAppProperty( final ConfigState state )
+    {
+        return state.configuration.readAppProperty( AppProperty.HTTP_BODY_MAXREAD_LENGTH );
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.config.stored;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.AppProperty;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredValue;
+import password.pwm.config.value.BooleanValue;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.config.value.StringValue;
+
+import java.util.Collections;
+
+public class StoredConfigurationSnapshotTest
+{
+    @Test
+    public void testLockedReadsMatchDocument()
+            throws Exception
+    {
+        final StoredConfigurationImpl storedConfiguration = StoredConfigurationImpl.newStoredConfiguration();
+        storedConfiguration.writeSetting( PwmSetting.DISPLAY_IDLE_TIMEOUT, new BooleanValue( false ), null );
+        storedConfiguration.writeSetting( PwmSetting.PWM_SITE_URL, new StringValue( "https://www.example.com/pwm" ), null );
+
+        final StoredConfigurationImpl lockedConfiguration = StoredConfigurationImpl.copy( storedConfiguration );
+        lockedConfiguration.lock();
+
+        for ( final PwmSetting setting : PwmSetting.values() )
+        {
+            if ( setting.getCategory().hasProfiles() )
+            {
+                for ( final String profileID : storedConfiguration.profilesForSetting( setting ) )
+                {
+                    assertSameValue( storedConfiguration.readSetting( setting, profileID ), lockedConfiguration.readSetting( setting, profileID ) );
+                }
+            }
+            else
+            {
+                assertSameValue( storedConfiguration.readSetting( setting ), lockedConfiguration.readSetting( setting ) );
+            }
+        }
+
+        Assert.assertEquals( "https://www.example.com/pwm", lockedConfiguration.readSetting( PwmSetting.PWM_SITE_URL ).toNativeObject() );
+    }
+
+    @Test
+    public void testAppPropertyOverride()
+            throws Exception
+    {
+        final StoredConfigurationImpl storedConfiguration = StoredConfigurationImpl.newStoredConfiguration();
+        storedConfiguration.writeSetting(
+                PwmSetting.APP_PROPERTY_OVERRIDES,
+                new StringArrayValue( Collections.singletonList( AppProperty.HTTP_BODY_MAXREAD_LENGTH.getKey() + "=1234" ) ),
+                null );
+        storedConfiguration.lock();
+
+        final Configuration configuration = new Configuration( storedConfiguration );
+        Assert.assertEquals( "1234", configuration.readAppProperty( AppProperty.HTTP_BODY_MAXREAD_LENGTH ) );
+        Assert.assertEquals( AppProperty.HTTP_COOKIE_DEFAULT_SECURE_FLAG.getDefaultValue(), configuration.readAppProperty( AppProperty.HTTP_COOKIE_DEFAULT_SECURE_FLAG ) );
+    }
+
+    private static void assertSameValue( final StoredValue expected, final StoredValue actual )
+            throws Exception
+    {
+        Assert.assertEquals( expected.valueHash(), actual.valueHash() );
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http.bean;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.secure.SecurePayloadCodec;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode time of each {@link SecurePayloadCodec} encoding for the sample beans of
+ * {@link PwmSessionBeanPayloadTest}.  The payload size of each bean and encoding is printed during setup.
+ */
+public class PwmSessionBeanPayloadBenchmarkExtendedTest
+{
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.AverageTime )
+                .timeUnit( TimeUnit.MICROSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 10 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @State( Scope.Thread )
+    public static class PayloadState
+    {
+        @Param( { "JSON", "BINARY" } )
+        public SecurePayloadCodec.Encoding encoding;
+
+        @Param( { "ForgottenPasswordBean", "NewUserBean", "SetupResponsesBean", "UpdateProfileBean", "LoginServletBean" } )
+        public String beanName;
+
+        private SecurePayloadCodec codec;
+        private PwmSessionBean bean;
+        private byte[] payload;
+
+        @Setup( Level.Trial )
+        public void setup()
+                throws Exception
+        {
+            codec = new SecurePayloadCodec( encoding, 256 );
+            for ( final PwmSessionBean sampleBean : PwmSessionBeanPayloadTest.makeSampleBeans() )
+            {
+                if ( sampleBean.getClass().getSimpleName().equals( beanName ) )
+                {
+                    bean = sampleBean;
+                }
+            }
+            payload = codec.encode( bean );
+            System.out.println( beanName + " " + encoding + " payload size: " + payload.length + " bytes" );
+        }
+    }
+
+    @Benchmark
+    public byte[] benchmarkEncode( final PayloadState state )
+            throws PwmUnrecoverableException
+    {
+        return state.codec.encode( state.bean );
+    }
+
+    @Benchmark
+    public PwmSessionBean benchmarkDecode( final PayloadState state )
+            throws PwmUnrecoverableException
+    {
+        return state.codec.decode( state.payload, state.bean.getClass() );
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.bean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.secure.SecurePayloadCodec;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PwmSessionBeanPayloadTest
+{
+    private static final List<Class<? extends PwmSessionBean>> BEAN_CLASSES = Arrays.asList(
+            ActivateUserBean.class,
+            AdminBean.class,
+            ChangePasswordBean.class,
+            DeleteAccountBean.class,
+            ForgottenPasswordBean.class,
+            GuestRegistrationBean.class,
+            LoginServletBean.class,
+            NewUserBean.class,
+            SetupOtpBean.class,
+            SetupResponsesBean.class,
+            ShortcutsBean.class,
+            UpdateProfileBean.class
+    );
+
+    @Test
+    public void testSessionBeanRoundTrip()
+            throws Exception
+    {
+        final SecurePayloadCodec codec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, 256 );
+        for ( final PwmSessionBean bean : makeSampleBeans() )
+        {
+            final byte[] payload = codec.encode( bean );
+            final PwmSessionBean decoded = codec.decode( payload, bean.getClass() );
+            final String beanJson = JsonUtil.serialize( bean );
+            Assert.assertEquals( bean.getClass().getSimpleName(), beanJson, JsonUtil.serialize( decoded ) );
+            Assert.assertTrue( bean.getClass().getSimpleName(), payload.length < beanJson.length() );
+        }
+    }
+
+    static List<PwmSessionBean> makeSampleBeans( )
+            throws Exception
+    {
+        final List<PwmSessionBean> beans = new ArrayList<>();
+        for ( final Class<? extends PwmSessionBean> beanClass : BEAN_CLASSES )
+        {
+            final PwmSessionBean bean = beanClass.newInstance();
+            bean.setGuid( "4f3a1e02-94d1-4c0a-9a67-2b1e0c5a6d11" );
+            bean.setTimestamp( Instant.now() );
+            bean.setLastError( new ErrorInformation( PwmError.ERROR_INTERNAL, "sample error detail" ) );
+            beans.add( bean );
+        }
+        return beans;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.exception.ChaiError;
+import com.novell.ldapchai.exception.ChaiUnavailableException;
+import com.novell.ldapchai.provider.ChaiProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.TimeDuration;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class LdapProxyPoolTest
+{
+    private static final String URL_1 = "ldap://replica1";
+    private static final String URL_2 = "ldap://replica2";
+
+    @Test
+    public void testLeastLoadedReplicaSelection()
+            throws Exception
+    {
+        final List<String> openedURLs = new ArrayList<>();
+        final LdapProxyPool pool = new LdapProxyPool( "test", Arrays.asList( URL_1, URL_2 ), settings( 4 ), url ->
+        {
+            openedURLs.add( url );
+            return fakeProvider();
+        } );
+
+        final LdapProxyPool.Member member1 = pool.checkout();
+        final LdapProxyPool.Member member2 = pool.checkout();
+        Assert.assertEquals( Arrays.asList( URL_1, URL_2 ), openedURLs );
+
+        pool.release( member1, 1, false, LdapProxyPool.OperationType.READ );
+        pool.release( member2, 1, false, LdapProxyPool.OperationType.READ );
+
+        // idle connections are reused instead of opening new ones
+        final LdapProxyPool.Member member3 = pool.checkout();
+        pool.release( member3, 1, false, LdapProxyPool.OperationType.READ );
+        Assert.assertEquals( 2, openedURLs.size() );
+
+        final Map<String, String> debugInfo = pool.debugInfo();
+        Assert.assertEquals( "2", debugInfo.get( "proxyPool.test.openConnections" ) );
+        Assert.assertEquals( "0", debugInfo.get( "proxyPool.test.activeConnections" ) );
+        Assert.assertEquals( "3", debugInfo.get( "proxyPool.test.checkouts" ) );
+    }
+
+    @Test
+    public void testUnavailableReplicaSkipped()
+            throws Exception
+    {
+        final LdapProxyPool pool = new LdapProxyPool( "test", Arrays.asList( URL_1, URL_2 ), settings( 4 ), url ->
+        {
+            if ( URL_1.equals( url ) )
+            {
+                throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_DIRECTORY_UNAVAILABLE, "down" ) );
+            }
+            return fakeProvider();
+        } );
+
+        pool.ensureConnected();
+        final Map<String, String> debugInfo = pool.debugInfo();
+        Assert.assertEquals( "0", debugInfo.get( "proxyPool.test.replica." + URL_1 + ".connections" ) );
+        Assert.assertEquals( "1", debugInfo.get( "proxyPool.test.replica." + URL_2 + ".connections" ) );
+        Assert.assertTrue( debugInfo.containsKey( "proxyPool.test.replica." + URL_1 + ".unavailableUntil" ) );
+    }
+
+    @Test
+    public void testCheckoutTimeoutAndEviction()
+            throws Exception
+    {
+        final LdapProxyPool pool = new LdapProxyPool( "test", Arrays.asList( URL_1 ), settings( 1 ), url -> fakeProvider() );
+
+        final LdapProxyPool.Member member = pool.checkout();
+        try
+        {
+            pool.checkout();
+            Assert.fail( "checkout of saturated pool should time out" );
+        }
+        catch ( PwmUnrecoverableException e )
+        {
+            Assert.assertEquals( PwmError.ERROR_DIRECTORY_UNAVAILABLE, e.getError() );
+        }
+
+        pool.release( member, 1, true, LdapProxyPool.OperationType.READ );
+        final Map<String, String> debugInfo = pool.debugInfo();
+        Assert.assertEquals( "0", debugInfo.get( "proxyPool.test.openConnections" ) );
+        Assert.assertEquals( "1", debugInfo.get( "proxyPool.test.evictedConnections" ) );
+        Assert.assertEquals( "1", debugInfo.get( "proxyPool.test.checkoutTimeouts" ) );
+    }
+
+    @Test
+    public void testWriteAffinity()
+            throws Exception
+    {
+        final List<String> openedURLs = new ArrayList<>();
+        final LdapProxyPool pool = new LdapProxyPool( "test", Arrays.asList( URL_1, URL_2 ), settings( 4 ), url ->
+        {
+            openedURLs.add( url );
+            return fakeProvider();
+        } );
+
+        pool.release( pool.checkout(), 1, false, LdapProxyPool.OperationType.WRITE );
+
+        // replica 2 is less loaded, but the thread stays on the replica it wrote to
+        pool.release( pool.checkout(), 1, false, LdapProxyPool.OperationType.READ );
+        Assert.assertEquals( Arrays.asList( URL_1 ), openedURLs );
+    }
+
+    @Test
+    public void testSearchLatencyNotEvicted()
+            throws Exception
+    {
+        final LdapProxyPool.Settings settings = LdapProxyPool.Settings.builder()
+                .maxConnections( 1 )
+                .latencySpikeMinimum( TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ) )
+                .build();
+        final LdapProxyPool pool = new LdapProxyPool( "test", Arrays.asList( URL_1 ), settings, url -> fakeProvider() );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            pool.release( pool.checkout(), 1, false, LdapProxyPool.OperationType.READ );
+        }
+        pool.release( pool.checkout(), 60_000, false, LdapProxyPool.OperationType.SEARCH );
+
+        final Map<String, String> debugInfo = pool.debugInfo();
+        Assert.assertEquals( "1", debugInfo.get( "proxyPool.test.openConnections" ) );
+        Assert.assertEquals( "0", debugInfo.get( "proxyPool.test.evictedConnections" ) );
+        Assert.assertEquals( "1", debugInfo.get( "proxyPool.test.averageLatencyMs" ) );
+        Assert.assertTrue( debugInfo.get( "proxyPool.test.replica." + URL_1 + ".latencyHistogram" ).endsWith( ">=5000ms=1" ) );
+    }
+
+    @Test
+    public void testReadRetriedOnOtherReplica()
+            throws Exception
+    {
+        final LdapProxyPool pool = new LdapProxyPool( "test", Arrays.asList( URL_1, URL_2 ), settings( 4 ), LdapProxyPoolTest::replicaProvider );
+        final PooledChaiProvider pooledChaiProvider = new PooledChaiProvider( pool, null, null );
+
+        // the first replica fails, the read is retried on the second replica
+        Assert.assertEquals( URL_2, pooledChaiProvider.readStringAttribute( "cn=test", "cn" ) );
+        Assert.assertTrue( pool.hasAvailableReplica() );
+        Assert.assertTrue( pool.debugInfo().containsKey( "proxyPool.test.replica." + URL_1 + ".unavailableUntil" ) );
+    }
+
+    @Test
+    public void testWriteNotRetried()
+            throws Exception
+    {
+        final LdapProxyPool pool = new LdapProxyPool( "test", Arrays.asList( URL_1, URL_2 ), settings( 4 ), LdapProxyPoolTest::replicaProvider );
+        final PooledChaiProvider pooledChaiProvider = new PooledChaiProvider( pool, null, null );
+
+        try
+        {
+            pooledChaiProvider.deleteEntry( "cn=test" );
+            Assert.fail( "write to failed replica should not be retried" );
+        }
+        catch ( ChaiUnavailableException e )
+        {
+            Assert.assertEquals( "1", pool.debugInfo().get( "proxyPool.test.checkouts" ) );
+        }
+
+        // the failed replica is skipped by the next operation
+        Assert.assertEquals( URL_2, pooledChaiProvider.readStringAttribute( "cn=test", "cn" ) );
+    }
+
+    private static LdapProxyPool.Settings settings( final int maxConnections )
+    {
+        return LdapProxyPool.Settings.builder()
+                .maxConnections( maxConnections )
+                .checkoutTimeout( TimeDuration.of( 50, TimeDuration.Unit.MILLISECONDS ) )
+                .build();
+    }
+
+    /**
+     * Provider that fails with a communication error for the first replica and otherwise returns its url as the value of
+     * every read.
+     */
+    private static ChaiProvider replicaProvider( final String ldapURL )
+    {
+        return ( ChaiProvider ) Proxy.newProxyInstance(
+                ChaiProvider.class.getClassLoader(),
+                new Class<?>[] { ChaiProvider.class },
+                ( proxy, method, args ) ->
+                {
+                    if ( "isConnected".equals( method.getName() ) )
+                    {
+                        return Boolean.TRUE;
+                    }
+                    if ( URL_1.equals( ldapURL ) )
+                    {
+                        throw new ChaiUnavailableException( "connection lost", ChaiError.COMMUNICATION );
+                    }
+                    return "readStringAttribute".equals( method.getName() ) ? ldapURL : null;
+                } );
+    }
+
+    private static ChaiProvider fakeProvider( )
+    {
+        return ( ChaiProvider ) Proxy.newProxyInstance(
+                ChaiProvider.class.getClassLoader(),
+                new Class<?>[] { ChaiProvider.class },
+                ( proxy, method, args ) -> "isConnected".equals( method.getName() ) ? Boolean.TRUE : null );
+    }
+}
@@ -18,30 +18,24 @@
  * limitations under the License.
  */
 
-package password.pwm.svc.stats;
 
-import lombok.Value;
+package password.pwm.svc;
 
-import java.util.HashSet;
-import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
 
-@Value
-class EpsKey
+public class PwmServiceEnumTest
 {
-    static final String DB_KEY_PREFIX = "EPS-";
-    private EpsStatistic epsStatistic;
-    private Statistic.EpsDuration epsDuration;
-
-    static Set<EpsKey> allKeys()
+    @Test
+    public void testDependenciesDeclaredBeforeDependents()
     {
-        final Set<EpsKey> returnSet = new HashSet<>();
-        for ( final EpsStatistic epsStatistic : EpsStatistic.values() )
+        for ( final PwmServiceEnum serviceEnum : PwmServiceEnum.values() )
         {
-            for ( final Statistic.EpsDuration epsDuration : Statistic.EpsDuration.values() )
+            for ( final PwmServiceEnum dependency : serviceEnum.getDependencies() )
             {
-                returnSet.add( new EpsKey( epsStatistic, epsDuration ) );
+                Assert.assertNotNull( serviceEnum + " has null dependency", dependency );
+                Assert.assertTrue( serviceEnum + " depends on later service " + dependency, dependency.ordinal() < serviceEnum.ordinal() );
             }
         }
-        return returnSet;
     }
 }
@@ -0,0 +1,345 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.PwmApplication;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.http.servlet.peoplesearch.bean.SearchResultBean;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.TestHelper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class MemoryCacheStoreTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPayloadCopies()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, null );
+        final Instant expiration = Instant.now().plusSeconds( 60 );
+
+        final String stringValue = "value";
+        final CacheKey stringKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "string" );
+        memoryCacheStore.store( stringKey, expiration, stringValue );
+        Assert.assertSame( stringValue, memoryCacheStore.read( stringKey, String.class ) );
+
+        final ArrayList<String> listValue = new ArrayList<>( Collections.singletonList( "value" ) );
+        final CacheKey listKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "list" );
+        memoryCacheStore.store( listKey, expiration, listValue );
+        listValue.add( "modified" );
+
+        final ArrayList cachedList = memoryCacheStore.read( listKey, ArrayList.class );
+        Assert.assertEquals( Collections.singletonList( "value" ), cachedList );
+        Assert.assertNotSame( cachedList, memoryCacheStore.read( listKey, ArrayList.class ) );
+
+        Assert.assertNull( memoryCacheStore.read( listKey, String.class ) );
+    }
+
+    @Test
+    public void testImmutableBeanSharedByReference()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, null );
+        final Instant expiration = Instant.now().plusSeconds( 60 );
+
+        final Map<String, Object> row = new LinkedHashMap<>();
+        row.put( "cn", "user1" );
+        final List<Map<String, Object>> rows = new ArrayList<>( Collections.singletonList( row ) );
+        final SearchResultBean searchResultBean = SearchResultBean.builder().searchResults( rows ).build();
+        rows.clear();
+        row.put( "cn", "modified" );
+
+        final CacheKey beanKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "bean" );
+        memoryCacheStore.store( beanKey, expiration, searchResultBean );
+        final SearchResultBean cachedBean = memoryCacheStore.read( beanKey, SearchResultBean.class );
+        Assert.assertSame( searchResultBean, cachedBean );
+        Assert.assertEquals( "user1", cachedBean.getSearchResults().get( 0 ).get( "cn" ) );
+
+        try
+        {
+            cachedBean.getSearchResults().get( 0 ).put( "cn", "modified" );
+            Assert.fail( "cached search result rows should not be modifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testOverflowToLocalDB()
+            throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-cache-test" ), false, null, null );
+        try
+        {
+            final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+            final LocalDBCacheStore localDBCacheStore = new LocalDBCacheStore( localDB, pwmApplication.getSecureService(), 1000 );
+            final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 10, localDBCacheStore );
+            final Instant expiration = Instant.now().plusSeconds( 60 );
+
+            final int itemCount = 100;
+            for ( int i = 0; i < itemCount; i++ )
+            {
+                memoryCacheStore.store( CacheKey.newKey( MemoryCacheStoreTest.class, null, "key" + i ), expiration, "value" + i );
+            }
+
+            // evicted items are moved to the localDB tier asynchronously
+            waitFor( () -> localDBCacheStore.itemCount() >= itemCount / 2 );
+            final int spilledCount = localDBCacheStore.itemCount();
+            Assert.assertTrue( spilledCount >= itemCount / 2 );
+
+            for ( int i = 0; i < itemCount; i++ )
+            {
+                final CacheKey cacheKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "key" + i );
+                final String[] value = new String[1];
+                waitFor( () ->
+                {
+                    value[0] = readQuietly( memoryCacheStore, cacheKey );
+                    return value[0] != null;
+                } );
+                Assert.assertEquals( "value" + i, value[0] );
+            }
+
+            Assert.assertTrue( localDBCacheStore.getCacheStoreInfo().getHitCount() >= spilledCount );
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    @Test
+    public void testLocalDBValuesAreEncrypted()
+            throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-cache-encrypt-test" ), false, null, null );
+        try
+        {
+            final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+            final LocalDBCacheStore localDBCacheStore = new LocalDBCacheStore( localDB, pwmApplication.getSecureService(), 1000 );
+            final CacheKey cacheKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "secret" );
+            localDBCacheStore.store( cacheKey, Instant.now().plusSeconds( 60 ), "cleartext-user-value" );
+
+            try ( LocalDB.LocalDBIterator<String> iterator = localDB.iterator( LocalDB.DB.CACHE ) )
+            {
+                Assert.assertTrue( iterator.hasNext() );
+                final String storedValue = localDB.get( LocalDB.DB.CACHE, iterator.next() );
+                Assert.assertFalse( storedValue.contains( "cleartext-user-value" ) );
+            }
+
+            Assert.assertEquals( "cleartext-user-value", localDBCacheStore.read( cacheKey, String.class ) );
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    @Test
+    public void testCoalescedLoad()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, null );
+        final CacheKey cacheKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "coalesced" );
+        final Instant expiration = Instant.now().plusSeconds( 60 );
+        final AtomicInteger loadCount = new AtomicInteger( 0 );
+        final CountDownLatch loadStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseLoad = new CountDownLatch( 1 );
+
+        final CacheLoader<String> cacheLoader = () ->
+        {
+            loadCount.incrementAndGet();
+            loadStarted.countDown();
+            try
+            {
+                releaseLoad.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return "loaded";
+        };
+
+        final int callerCount = 8;
+        final ExecutorService executorService = Executors.newFixedThreadPool( callerCount );
+        try
+        {
+            final List<Future<String>> results = new ArrayList<>();
+            results.add( executorService.submit( () -> memoryCacheStore.readAndStore( cacheKey, expiration, String.class, cacheLoader ) ) );
+            loadStarted.await();
+            for ( int i = 1; i < callerCount; i++ )
+            {
+                results.add( executorService.submit( () -> memoryCacheStore.readAndStore( cacheKey, expiration, String.class, cacheLoader ) ) );
+            }
+
+            waitFor( () -> memoryCacheStore.getCacheStoreInfo().getCoalescedWaitCount() >= callerCount - 1 );
+            releaseLoad.countDown();
+
+            for ( final Future<String> result : results )
+            {
+                Assert.assertEquals( "loaded", result.get() );
+            }
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        Assert.assertEquals( 1, loadCount.get() );
+        Assert.assertEquals( callerCount - 1, memoryCacheStore.getCacheStoreInfo().getCoalescedWaitCount() );
+    }
+
+    @Test
+    public void testCoalescedLoadError()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, null );
+        final CacheKey cacheKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "coalescedError" );
+        final Instant expiration = Instant.now().plusSeconds( 60 );
+        final CountDownLatch loadStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseLoad = new CountDownLatch( 1 );
+
+        final CacheLoader<String> cacheLoader = () ->
+        {
+            loadStarted.countDown();
+            try
+            {
+                releaseLoad.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            throw new StackOverflowError( "simulated loader error" );
+        };
+
+        final ExecutorService executorService = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<String> loader = executorService.submit( () -> memoryCacheStore.readAndStore( cacheKey, expiration, String.class, cacheLoader ) );
+            loadStarted.await();
+            final Future<String> waiter = executorService.submit( () -> memoryCacheStore.readAndStore( cacheKey, expiration, String.class, cacheLoader ) );
+            waitFor( () -> memoryCacheStore.getCacheStoreInfo().getCoalescedWaitCount() >= 1 );
+            releaseLoad.countDown();
+
+            try
+            {
+                loader.get( 10, TimeUnit.SECONDS );
+                Assert.fail( "expected loader error" );
+            }
+            catch ( ExecutionException e )
+            {
+                Assert.assertTrue( e.getCause() instanceof StackOverflowError );
+            }
+
+            // the coalesced caller must not hang when the loader fails with an Error
+            try
+            {
+                waiter.get( 10, TimeUnit.SECONDS );
+                Assert.fail( "expected coalesced caller error" );
+            }
+            catch ( ExecutionException e )
+            {
+                Assert.assertTrue( e.getCause() instanceof PwmUnrecoverableException );
+            }
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRefreshAhead()
+            throws Exception
+    {
+        final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, null, 50, refreshExecutor );
+            final CacheKey cacheKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "refresh" );
+            final AtomicInteger loadCount = new AtomicInteger( 0 );
+            final CacheLoader<String> cacheLoader = () -> "value" + loadCount.incrementAndGet();
+
+            Assert.assertEquals( "value1", memoryCacheStore.readAndStore( cacheKey, Instant.now().plusMillis( 1000 ), String.class, cacheLoader ) );
+
+            // more than half of the lifetime has passed, so the stale value is returned and a refresh is started
+            Thread.sleep( 600 );
+            Assert.assertEquals( "value1", memoryCacheStore.readAndStore( cacheKey, Instant.now().plusSeconds( 60 ), String.class, cacheLoader ) );
+
+            waitFor( () -> loadCount.get() >= 2 );
+            Assert.assertEquals( 1, memoryCacheStore.getCacheStoreInfo().getRefreshCount() );
+            waitFor( () -> "value2".equals( readQuietly( memoryCacheStore, cacheKey ) ) );
+            Assert.assertEquals( "value2", memoryCacheStore.readAndStore( cacheKey, Instant.now().plusSeconds( 60 ), String.class, cacheLoader ) );
+            Assert.assertEquals( 2, loadCount.get() );
+        }
+        finally
+        {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    private static String readQuietly( final MemoryCacheStore memoryCacheStore, final CacheKey cacheKey )
+    {
+        try
+        {
+            return memoryCacheStore.read( cacheKey, String.class );
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static void waitFor( final BooleanSupplier condition )
+            throws InterruptedException
+    {
+        final long startTime = System.currentTimeMillis();
+        while ( !condition.getAsBoolean() && System.currentTimeMillis() - startTime < 10_000 )
+        {
+            Thread.sleep( 10 );
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.intruder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.util.java.TimeDuration;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.Executors;
+
+public class DelayPenaltySchedulerTest
+{
+    private static final TimeDuration PENALTY = TimeDuration.of( 300, TimeDuration.Unit.MILLISECONDS );
+
+    @Test
+    public void testHeldResponse()
+    {
+        final DelayPenaltyScheduler scheduler = new DelayPenaltyScheduler( Executors.newSingleThreadScheduledExecutor() );
+        try
+        {
+            final AsyncContext asyncContext = Mockito.mock( AsyncContext.class );
+            final HttpServletRequest request = makeRequest( asyncContext );
+
+            final long startTime = System.currentTimeMillis();
+            scheduler.beginDeferral( request );
+            scheduler.penalize( PENALTY );
+            scheduler.penalize( TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ) );
+            scheduler.endDeferral();
+
+            // the penalized request itself is suspended, without holding the thread
+            Assert.assertTrue( System.currentTimeMillis() - startTime < PENALTY.asMillis() );
+            Mockito.verify( request, Mockito.times( 1 ) ).startAsync();
+            Assert.assertEquals( 1, scheduler.heldRequestCount() );
+
+            Mockito.verify( asyncContext, Mockito.timeout( 10_000 ) ).complete();
+            Assert.assertTrue( System.currentTimeMillis() - startTime >= PENALTY.asMillis() );
+            Assert.assertEquals( 0, scheduler.heldRequestCount() );
+        }
+        finally
+        {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void testUnpenalizedRequestNotHeld()
+    {
+        final DelayPenaltyScheduler scheduler = new DelayPenaltyScheduler( Executors.newSingleThreadScheduledExecutor() );
+        try
+        {
+            final HttpServletRequest request = makeRequest( Mockito.mock( AsyncContext.class ) );
+            scheduler.beginDeferral( request );
+            scheduler.endDeferral();
+
+            Mockito.verify( request, Mockito.never() ).startAsync();
+            Assert.assertEquals( 0, scheduler.heldRequestCount() );
+        }
+        finally
+        {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void testAsyncUnsupportedFallsBackToPause()
+    {
+        final DelayPenaltyScheduler scheduler = new DelayPenaltyScheduler( Executors.newSingleThreadScheduledExecutor() );
+        try
+        {
+            final HttpServletRequest request = Mockito.mock( HttpServletRequest.class );
+            Mockito.when( request.getDispatcherType() ).thenReturn( DispatcherType.REQUEST );
+
+            final long startTime = System.currentTimeMillis();
+            scheduler.beginDeferral( request );
+            scheduler.penalize( PENALTY );
+            scheduler.endDeferral();
+
+            Assert.assertTrue( System.currentTimeMillis() - startTime >= PENALTY.asMillis() );
+            Assert.assertEquals( 0, scheduler.heldRequestCount() );
+            Mockito.verify( request, Mockito.never() ).startAsync();
+        }
+        finally
+        {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void testPauseWithoutDeferral()
+    {
+        final DelayPenaltyScheduler scheduler = new DelayPenaltyScheduler( Executors.newSingleThreadScheduledExecutor() );
+        try
+        {
+            final long startTime = System.currentTimeMillis();
+            scheduler.penalize( PENALTY );
+            Assert.assertTrue( System.currentTimeMillis() - startTime >= PENALTY.asMillis() );
+            Assert.assertEquals( 0, scheduler.heldRequestCount() );
+        }
+        finally
+        {
+            scheduler.close();
+        }
+    }
+
+    private static HttpServletRequest makeRequest( final AsyncContext asyncContext )
+    {
+        final HttpServletRequest request = Mockito.mock( HttpServletRequest.class );
+        Mockito.when( request.isAsyncSupported() ).thenReturn( true );
+        Mockito.when( request.getDispatcherType() ).thenReturn( DispatcherType.REQUEST );
+        Mockito.when( request.startAsync() ).thenReturn( asyncContext );
+        return request;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBehindRecordManagerTest
+{
+    private static final String SUBJECT = "subject";
+
+    @Test
+    public void testMarkIsWrittenOnFlush()
+    {
+        final TestRecordStore recordStore = new TestRecordStore();
+        final RecordManager recordManager = makeRecordManager( recordStore, TimeDuration.MINUTE );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            recordManager.markSubject( SUBJECT );
+        }
+
+        Assert.assertTrue( recordManager.checkSubject( SUBJECT ) );
+        Assert.assertEquals( 0, recordStore.writeCount.get() );
+
+        recordManager.flush();
+        Assert.assertEquals( 1, recordStore.writeCount.get() );
+        Assert.assertEquals( 3, recordStore.records.values().iterator().next().getAttemptCount() );
+
+        recordManager.clearSubject( SUBJECT );
+        Assert.assertFalse( recordManager.checkSubject( SUBJECT ) );
+        recordManager.flush();
+        Assert.assertEquals( 0, recordStore.records.values().iterator().next().getAttemptCount() );
+    }
+
+    @Test
+    public void testNodesShareStoredCount()
+    {
+        final TestRecordStore recordStore = new TestRecordStore();
+        final RecordManager node1 = makeRecordManager( recordStore, TimeDuration.ZERO );
+        final RecordManager node2 = makeRecordManager( recordStore, TimeDuration.ZERO );
+
+        node1.markSubject( SUBJECT );
+        node1.markSubject( SUBJECT );
+        node2.markSubject( SUBJECT );
+        Assert.assertFalse( node1.checkSubject( SUBJECT ) );
+        Assert.assertFalse( node2.checkSubject( SUBJECT ) );
+
+        node1.flush();
+        node2.flush();
+
+        Assert.assertEquals( 3, recordStore.records.values().iterator().next().getAttemptCount() );
+        Assert.assertTrue( node1.checkSubject( SUBJECT ) );
+        Assert.assertTrue( node2.checkSubject( SUBJECT ) );
+    }
+
+    private static RecordManager makeRecordManager( final RecordStore recordStore, final TimeDuration consistencyWindow )
+    {
+        final IntruderSettings settings = new IntruderSettings();
+        settings.setCheckCount( 3 );
+        settings.setCheckDuration( TimeDuration.MINUTE );
+        settings.setResetDuration( TimeDuration.MINUTE );
+        return new WriteBehindRecordManager( RecordType.USERNAME, recordStore, settings, consistencyWindow );
+    }
+
+    private static class TestRecordStore implements RecordStore
+    {
+        private final Map<String, IntruderRecord> records = new ConcurrentHashMap<>();
+        private final AtomicInteger writeCount = new AtomicInteger();
+
+        @Override
+        public IntruderRecord read( final String key )
+        {
+            final IntruderRecord record = records.get( key );
+            return record == null
+                    ? null
+                    : new IntruderRecord( record.getType(), record.getSubject(), record.getTimeStamp(), record.getAttemptCount(), record.isAlerted() );
+        }
+
+        @Override
+        public void write( final String key, final IntruderRecord record )
+        {
+            writeCount.incrementAndGet();
+            records.put( key, record );
+        }
+
+        @Override
+        public ClosableIterator<IntruderRecord> iterator( )
+        {
+            final Iterator<IntruderRecord> iterator = records.values().iterator();
+            return new ClosableIterator<IntruderRecord>()
+            {
+                @Override
+                public void close( )
+                {
+                }
+
+                @Override
+                public boolean hasNext( )
+                {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public IntruderRecord next( )
+                {
+                    return iterator.next();
+                }
+            };
+        }
+
+        @Override
+        public void cleanup( final TimeDuration maxRecordAge )
+        {
+        }
+    }
+}
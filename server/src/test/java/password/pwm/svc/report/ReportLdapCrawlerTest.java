@@ -0,0 +1,62 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.report;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReportLdapCrawlerTest
+{
+    @Test
+    public void testReserveResults()
+    {
+        final AtomicInteger remaining = new AtomicInteger( 10 );
+        Assert.assertEquals( 6, ReportLdapCrawler.reserveResults( remaining, 6 ) );
+        Assert.assertEquals( 4, ReportLdapCrawler.reserveResults( remaining, 6 ) );
+        Assert.assertEquals( 0, ReportLdapCrawler.reserveResults( remaining, 6 ) );
+        Assert.assertEquals( 0, remaining.get() );
+    }
+
+    @Test
+    public void testParseGeneralizedTime()
+    {
+        final Instant expected = Instant.parse( "2019-03-01T12:30:00Z" );
+        Assert.assertEquals( expected, ReportLdapCrawler.parseGeneralizedTime( "20190301123000Z" ) );
+        Assert.assertEquals( expected, ReportLdapCrawler.parseGeneralizedTime( "20190301123000.0Z" ) );
+        Assert.assertNull( ReportLdapCrawler.parseGeneralizedTime( "not-a-time" ) );
+    }
+
+    @Test
+    public void testChangedSinceFilter()
+    {
+        final ReportCrawlShard shard = new ReportCrawlShard( "default", "o=test", "objectClass=person" );
+        Assert.assertEquals( "(&(objectClass=person)(modifyTimestamp>=20190301123000Z))",
+                shard.changedSinceFilter( "modifyTimestamp", "20190301123000Z" ) );
+
+        final ReportCrawlShard wrappedShard = new ReportCrawlShard( "default", "o=test", "(cn=*)" );
+        Assert.assertEquals( "(&(cn=*)(modifyTimestamp>=20190301123000Z))",
+                wrappedShard.changedSinceFilter( "modifyTimestamp", "20190301123000Z" ) );
+    }
+}
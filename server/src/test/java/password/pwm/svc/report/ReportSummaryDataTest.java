@@ -0,0 +1,93 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.report;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.config.option.DataStorageMethod;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+public class ReportSummaryDataTest
+{
+    @Test
+    public void testRemoveReversesUpdate()
+    {
+        final ReportSummaryData summaryData = ReportSummaryData.newSummaryData( Arrays.asList( -30, 30 ) );
+
+        final Instant lastLoginTime = Instant.now().minusSeconds( 60 );
+        final UserCacheRecord oldRecord = UserCacheRecord.builder()
+                .ldapProfile( "default" )
+                .lastLoginTime( lastLoginTime )
+                .responseStorageMethod( DataStorageMethod.LDAP )
+                .hasResponses( true )
+                .build();
+        final UserCacheRecord newRecord = UserCacheRecord.builder()
+                .ldapProfile( "default" )
+                .lastLoginTime( lastLoginTime )
+                .hasOtpSecret( true )
+                .build();
+
+        summaryData.update( oldRecord );
+        Assert.assertEquals( 1, summaryData.getHasResponses().get() );
+        Assert.assertEquals( 1, summaryData.getLoginDays().get( -30 ).intValue() );
+
+        summaryData.remove( oldRecord );
+        summaryData.update( newRecord );
+        Assert.assertEquals( 1, summaryData.getTotalUsers().get() );
+        Assert.assertEquals( 0, summaryData.getHasResponses().get() );
+        Assert.assertEquals( 1, summaryData.getHasOtpSecret().get() );
+
+        Assert.assertEquals( 0, summaryData.getResponseStorage().get( DataStorageMethod.LDAP ).intValue() );
+
+        summaryData.remove( newRecord );
+        Assert.assertEquals( 0, summaryData.getTotalUsers().get() );
+        Assert.assertEquals( 0, summaryData.getHasOtpSecret().get() );
+        Assert.assertEquals( 0, summaryData.getLoginDays().get( -30 ).intValue() );
+        Assert.assertEquals( 0, summaryData.getLdapProfile().get( "default" ).get() );
+    }
+
+    @Test
+    public void testDayWindows()
+    {
+        final ReportSummaryData summaryData = ReportSummaryData.newSummaryData( Arrays.asList( -30, -1, 1, 30 ) );
+
+        final Instant now = Instant.now();
+        summaryData.update( UserCacheRecord.builder()
+                .lastLoginTime( now.minus( 10, ChronoUnit.DAYS ) )
+                .passwordExpirationTime( now.plus( 10, ChronoUnit.DAYS ) )
+                .build() );
+        summaryData.update( UserCacheRecord.builder()
+                .lastLoginTime( now.minus( 40, ChronoUnit.DAYS ) )
+                .passwordExpirationTime( now.minus( 5, ChronoUnit.DAYS ) )
+                .build() );
+
+        Assert.assertEquals( 1, summaryData.getLoginDays().get( -30 ).intValue() );
+        Assert.assertEquals( 0, summaryData.getLoginDays().get( -1 ).intValue() );
+        Assert.assertEquals( 0, summaryData.getLoginDays().get( 30 ).intValue() );
+        Assert.assertEquals( 1, summaryData.getPwExpireDays().get( -30 ).intValue() );
+        Assert.assertEquals( 1, summaryData.getPwExpireDays().get( 30 ).intValue() );
+        Assert.assertEquals( 0, summaryData.getPwExpireDays().get( 1 ).intValue() );
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.report;
+
+import com.novell.ldapchai.cr.Answer;
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.PasswordStatus;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.util.java.JsonUtil;
+
+import java.time.Instant;
+
+public class UserCacheRecordCodecTest
+{
+    private static UserCacheRecord makeRecord( )
+    {
+        return UserCacheRecord.builder()
+                .userDN( "cn=user|1\\a,ou=test,o=org" )
+                .ldapProfile( "default" )
+                .userGUID( "guid-1" )
+                .username( "user1" )
+                .passwordStatus( PasswordStatus.builder().expired( true ).warnPeriod( true ).build() )
+                .passwordExpirationTime( Instant.ofEpochMilli( 1_550_000_000_000L ) )
+                .lastLoginTime( Instant.ofEpochMilli( -1000L ) )
+                .hasResponses( true )
+                .responseStorageMethod( DataStorageMethod.LOCALDB )
+                .responseFormatType( Answer.FormatType.SHA512_SALT )
+                .requiresProfileUpdate( true )
+                .cacheTimestamp( Instant.ofEpochMilli( 1_560_000_000_000L ) )
+                .build();
+    }
+
+    @Test
+    public void testCompactRoundTrip()
+    {
+        final UserCacheRecord record = makeRecord();
+        for ( final UserCacheRecordCodec.Encoding encoding : UserCacheRecordCodec.Encoding.values() )
+        {
+            final String encoded = UserCacheRecordCodec.encode( record, encoding );
+            Assert.assertEquals( JsonUtil.serialize( record ), JsonUtil.serialize( UserCacheRecordCodec.decode( encoded ) ) );
+        }
+    }
+
+    @Test
+    public void testColumnViews()
+    {
+        final UserCacheRecord record = makeRecord();
+        for ( final UserCacheRecordCodec.Encoding encoding : UserCacheRecordCodec.Encoding.values() )
+        {
+            final UserCacheRecordCodec.RecordView view = UserCacheRecordCodec.view( UserCacheRecordCodec.encode( record, encoding ) );
+            Assert.assertEquals( record.getUserDN(), view.readString( UserCacheRecordCodec.Column.USER_DN ) );
+            Assert.assertNull( view.readString( UserCacheRecordCodec.Column.EMAIL ) );
+            Assert.assertEquals( record.getLastLoginTime(), view.readInstant( UserCacheRecordCodec.Column.LAST_LOGIN_TIME ) );
+            Assert.assertTrue( view.readBoolean( UserCacheRecordCodec.Column.REQUIRES_PROFILE_UPDATE ) );
+            Assert.assertFalse( view.readBoolean( UserCacheRecordCodec.Column.HAS_OTP_SECRET ) );
+            Assert.assertEquals( record.getCacheTimestamp(), view.readInstant( UserCacheRecordCodec.Column.CACHE_TIMESTAMP ) );
+        }
+    }
+
+    @Test
+    public void testMissingTrailingColumns()
+    {
+        final String encoded = UserCacheRecordCodec.encode( makeRecord(), UserCacheRecordCodec.Encoding.COMPACT );
+        final String truncated = encoded.substring( 0, encoded.lastIndexOf( '|' ) );
+
+        final UserCacheRecord decoded = UserCacheRecordCodec.decode( truncated );
+        Assert.assertEquals( "user1", decoded.getUsername() );
+        Assert.assertNull( decoded.getCacheTimestamp() );
+    }
+}
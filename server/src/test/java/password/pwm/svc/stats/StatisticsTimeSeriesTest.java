@@ -0,0 +1,114 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StatisticsTimeSeriesTest
+{
+    private static final long START_TIME = TimeUnit.MINUTES.toMillis( 25_000_000 );
+
+    @Test
+    public void testHistoryAcrossMinutes()
+    {
+        final AtomicLong clock = new AtomicLong( START_TIME );
+        final StatisticsTimeSeries timeSeries = new StatisticsTimeSeries( 10, clock::get );
+
+        timeSeries.incrementValue( Statistic.AUTHENTICATIONS );
+        timeSeries.incrementValue( Statistic.AUTHENTICATIONS );
+        timeSeries.updateAverageValue( AvgStatistic.AVG_AUTHENTICATION_TIME, 100 );
+        timeSeries.updateAverageValue( AvgStatistic.AVG_AUTHENTICATION_TIME, 300 );
+
+        clock.addAndGet( TimeUnit.MINUTES.toMillis( 2 ) );
+        timeSeries.incrementValue( Statistic.AUTHENTICATIONS );
+
+        final List<Long> counts = new ArrayList<>( timeSeries.history( Statistic.AUTHENTICATIONS, 3 ).values() );
+        Assert.assertEquals( 3, counts.size() );
+        Assert.assertEquals( Long.valueOf( 2 ), counts.get( 0 ) );
+        Assert.assertEquals( Long.valueOf( 0 ), counts.get( 1 ) );
+        Assert.assertEquals( Long.valueOf( 1 ), counts.get( 2 ) );
+
+        final Map<Instant, Long> averages = timeSeries.averageHistory( AvgStatistic.AVG_AUTHENTICATION_TIME, 3 );
+        Assert.assertEquals( Long.valueOf( 200 ), averages.get( Instant.ofEpochMilli( START_TIME ) ) );
+
+        Assert.assertEquals( 10, timeSeries.history( Statistic.AUTHENTICATIONS, 100 ).size() );
+    }
+
+    @Test
+    public void testRingExpiry()
+    {
+        final AtomicLong clock = new AtomicLong( START_TIME );
+        final StatisticsTimeSeries timeSeries = new StatisticsTimeSeries( 5, clock::get );
+
+        timeSeries.incrementValue( Statistic.AUTHENTICATIONS );
+        Assert.assertTrue( timeSeries.takeExpiredKeys().isEmpty() );
+
+        clock.addAndGet( TimeUnit.MINUTES.toMillis( 5 ) );
+        timeSeries.incrementValue( Statistic.AUTHENTICATIONS );
+
+        final Collection<String> expiredKeys = timeSeries.takeExpiredKeys();
+        Assert.assertEquals( 1, expiredKeys.size() );
+        Assert.assertEquals( StatisticsTimeSeries.DB_KEY_PREFIX + TimeUnit.MILLISECONDS.toMinutes( START_TIME ), expiredKeys.iterator().next() );
+        Assert.assertTrue( timeSeries.takeExpiredKeys().isEmpty() );
+
+        final long total = timeSeries.history( Statistic.AUTHENTICATIONS, 5 ).values().stream().mapToLong( Long::longValue ).sum();
+        Assert.assertEquals( 1, total );
+    }
+
+    @Test
+    public void testModifiedRecordRestore()
+    {
+        final AtomicLong clock = new AtomicLong( START_TIME );
+        final StatisticsTimeSeries timeSeries = new StatisticsTimeSeries( 60, clock::get );
+
+        timeSeries.incrementValue( Statistic.PASSWORD_CHANGES );
+        timeSeries.updateAverageValue( AvgStatistic.AVG_PASSWORD_SYNC_TIME, 50 );
+
+        final Map<String, String> records = timeSeries.takeModifiedRecords();
+        Assert.assertEquals( 1, records.size() );
+        Assert.assertTrue( timeSeries.takeModifiedRecords().isEmpty() );
+
+        clock.addAndGet( TimeUnit.MINUTES.toMillis( 1 ) );
+        final StatisticsTimeSeries restoredSeries = new StatisticsTimeSeries( 60, clock::get );
+        for ( final Map.Entry<String, String> entry : records.entrySet() )
+        {
+            Assert.assertTrue( restoredSeries.isSeriesKey( entry.getKey() ) );
+            Assert.assertTrue( restoredSeries.restore( entry.getKey(), entry.getValue() ) );
+        }
+
+        Assert.assertEquals( Long.valueOf( 1 ), restoredSeries.history( Statistic.PASSWORD_CHANGES, 2 ).get( Instant.ofEpochMilli( START_TIME ) ) );
+        Assert.assertEquals( Long.valueOf( 50 ), restoredSeries.averageHistory( AvgStatistic.AVG_PASSWORD_SYNC_TIME, 2 ).get( Instant.ofEpochMilli( START_TIME ) ) );
+
+        clock.addAndGet( TimeUnit.MINUTES.toMillis( 60 ) );
+        final StatisticsTimeSeries laterSeries = new StatisticsTimeSeries( 60, clock::get );
+        Assert.assertFalse( laterSeries.restore( records.keySet().iterator().next(), records.values().iterator().next() ) );
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class MappedWordlistIndexTest
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( MappedWordlistIndexTest.class );
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testBuildAndLookup()
+            throws Exception
+    {
+        final List<String> words = new ArrayList<>();
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            words.add( "word" + i );
+        }
+
+        // duplicates are expected across import transactions
+        words.add( "word1" );
+
+        final File dataFile = new File( temporaryFolder.getRoot(), "test.idx" );
+        final MappedWordlistIndex index = MappedWordlistIndex.build(
+                dataFile, "tag", iterator( words ), words.size(), 0.01, 1000, () -> false, LOGGER );
+
+        Assert.assertNotNull( index );
+        Assert.assertEquals( 10_000, index.size() );
+
+        for ( final String word : words )
+        {
+            Assert.assertTrue( index.containsWord( word ) );
+        }
+
+        Assert.assertFalse( index.containsWord( "missing-word" ) );
+        Assert.assertFalse( index.containsWord( "word10000" ) );
+    }
+
+    @Test
+    public void testOpenRequiresMatchingTag()
+            throws Exception
+    {
+        final List<String> words = new ArrayList<>();
+        words.add( "password" );
+        words.add( "letmein" );
+
+        final File dataFile = new File( temporaryFolder.getRoot(), "test.idx" );
+        MappedWordlistIndex.build( dataFile, "tag1", iterator( words ), words.size(), 0.01, 1000, () -> false, LOGGER );
+
+        Assert.assertNull( MappedWordlistIndex.open( dataFile, "tag2" ) );
+
+        final MappedWordlistIndex reopened = MappedWordlistIndex.open( dataFile, "tag1" );
+        Assert.assertNotNull( reopened );
+        Assert.assertTrue( reopened.containsWord( "letmein" ) );
+
+        MappedWordlistIndex.delete( dataFile );
+        Assert.assertNull( MappedWordlistIndex.open( dataFile, "tag1" ) );
+    }
+
+    @Test
+    public void testCloseAndDelete()
+            throws Exception
+    {
+        final List<String> words = new ArrayList<>();
+        words.add( "password" );
+
+        final File dataFile = new File( temporaryFolder.getRoot(), "test.idx" );
+        final MappedWordlistIndex index = MappedWordlistIndex.build( dataFile, "tag", iterator( words ), words.size(), 0.01, 1000, () -> false, LOGGER );
+        Assert.assertNotNull( index );
+
+        index.close();
+        MappedWordlistIndex.delete( dataFile );
+        Assert.assertFalse( dataFile.exists() );
+        Assert.assertFalse( MappedWordlistIndex.metaFile( dataFile ).exists() );
+    }
+
+    @Test
+    public void testBuildWithMissingRunFile()
+            throws Exception
+    {
+        final List<String> words = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            words.add( "word" + i );
+        }
+
+        // removing a run file after it is written makes the merge fail after the earlier runs have been opened
+        final File dataFile = new File( temporaryFolder.getRoot(), "test.idx" );
+        final File removedRun = new File( dataFile.getAbsolutePath() + ".run5" );
+        final Iterator<String> innerIterator = words.iterator();
+        final ClosableIterator<String> deletingIterator = new ClosableIterator<String>()
+        {
+            private int count;
+
+            @Override
+            public void close()
+            {
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return innerIterator.hasNext();
+            }
+
+            @Override
+            public String next()
+            {
+                if ( count++ == 70 )
+                {
+                    Assert.assertTrue( removedRun.delete() );
+                }
+                return innerIterator.next();
+            }
+        };
+
+        try
+        {
+            MappedWordlistIndex.build( dataFile, "tag", deletingIterator, words.size(), 0.01, 10, () -> false, LOGGER );
+            Assert.fail( "expected build to fail" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+
+        Assert.assertNull( MappedWordlistIndex.open( dataFile, "tag" ) );
+        final String[] remainingFiles = temporaryFolder.getRoot().list();
+        Assert.assertNotNull( remainingFiles );
+        Assert.assertEquals( 0, remainingFiles.length );
+    }
+
+    @Test
+    public void testCancelledBuild()
+            throws Exception
+    {
+        final List<String> words = new ArrayList<>();
+        words.add( "password" );
+
+        final File dataFile = new File( temporaryFolder.getRoot(), "test.idx" );
+        Assert.assertNull( MappedWordlistIndex.build( dataFile, "tag", iterator( words ), words.size(), 0.01, 1000, () -> true, LOGGER ) );
+        Assert.assertNull( MappedWordlistIndex.open( dataFile, "tag" ) );
+    }
+
+    private static ClosableIterator<String> iterator( final List<String> words )
+    {
+        final Iterator<String> innerIterator = words.iterator();
+        return new ClosableIterator<String>()
+        {
+            @Override
+            public void close()
+            {
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return innerIterator.hasNext();
+            }
+
+            @Override
+            public String next()
+            {
+                return innerIterator.next();
+            }
+        };
+    }
+}
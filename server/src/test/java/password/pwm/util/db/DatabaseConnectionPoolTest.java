@@ -0,0 +1,238 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.util.java.TimeDuration;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DatabaseConnectionPoolTest
+{
+    private static final TimeDuration SHORT_TIMEOUT = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
+
+    @Test
+    public void testConnectionReuse()
+            throws Exception
+    {
+        final AtomicInteger openedConnections = new AtomicInteger();
+        final DatabaseConnectionPool pool = makePool( openedConnections, new AtomicBoolean( true ), 2, TimeDuration.HOUR );
+
+        final DatabaseConnectionPool.PooledConnection connection1 = pool.checkout();
+        pool.release( connection1, false );
+        final DatabaseConnectionPool.PooledConnection connection2 = pool.checkout();
+        Assert.assertSame( connection1, connection2 );
+        Assert.assertEquals( 1, openedConnections.get() );
+
+        final DatabaseConnectionPool.PooledConnection connection3 = pool.checkout();
+        Assert.assertNotSame( connection2, connection3 );
+        Assert.assertEquals( 2, pool.openConnectionCount() );
+
+        pool.release( connection2, false );
+        pool.release( connection3, false );
+        Assert.assertEquals( 2, pool.idleConnectionCount() );
+        pool.close();
+        Assert.assertEquals( 0, pool.openConnectionCount() );
+    }
+
+    @Test
+    public void testCheckoutTimeout()
+            throws Exception
+    {
+        final DatabaseConnectionPool pool = makePool( new AtomicInteger(), new AtomicBoolean( true ), 1, TimeDuration.HOUR );
+
+        final DatabaseConnectionPool.PooledConnection connection = pool.checkout();
+        try
+        {
+            pool.checkout();
+            Assert.fail( "checkout beyond max connections should time out" );
+        }
+        catch ( DatabaseException e )
+        {
+            Assert.assertEquals( "1", pool.debugProperties().get( DatabaseService.DatabaseAboutProperty.poolCheckoutTimeouts ) );
+        }
+
+        pool.release( connection, false );
+        pool.release( pool.checkout(), false );
+    }
+
+    @Test
+    public void testSuspectConnectionDiscarded()
+            throws Exception
+    {
+        final AtomicBoolean valid = new AtomicBoolean( true );
+        final DatabaseConnectionPool pool = makePool( new AtomicInteger(), valid, 2, TimeDuration.HOUR );
+
+        final DatabaseConnectionPool.PooledConnection connection = pool.checkout();
+        pool.release( connection, true );
+        Assert.assertEquals( 1, pool.idleConnectionCount() );
+
+        valid.set( false );
+        pool.release( pool.checkout(), true );
+        Assert.assertEquals( 0, pool.idleConnectionCount() );
+        Assert.assertEquals( 0, pool.openConnectionCount() );
+    }
+
+    @Test
+    public void testIdleEviction()
+            throws Exception
+    {
+        final DatabaseConnectionPool pool = makePool( new AtomicInteger(), new AtomicBoolean( true ), 3, TimeDuration.ZERO );
+
+        final DatabaseConnectionPool.PooledConnection connection1 = pool.checkout();
+        final DatabaseConnectionPool.PooledConnection connection2 = pool.checkout();
+        final DatabaseConnectionPool.PooledConnection connection3 = pool.checkout();
+        pool.release( connection1, false );
+        pool.release( connection2, false );
+        pool.release( connection3, false );
+        Thread.sleep( 5 );
+
+        Assert.assertEquals( 2, pool.evictIdle() );
+        Assert.assertEquals( 1, pool.idleConnectionCount() );
+        Assert.assertSame( connection3, pool.checkout() );
+    }
+
+    @Test
+    public void testStatementCache()
+            throws Exception
+    {
+        final DatabaseConnectionPool pool = makePool( new AtomicInteger(), new AtomicBoolean( true ), 1, TimeDuration.HOUR );
+
+        final DatabaseConnectionPool.PooledConnection connection = pool.checkout();
+        final PreparedStatement statement1 = connection.prepareStatement( "SELECT 1" );
+        final PreparedStatement statement2 = connection.prepareStatement( "SELECT 1" );
+        final PreparedStatement statement3 = connection.prepareStatement( "SELECT 2" );
+        Assert.assertSame( statement1, statement2 );
+        Assert.assertNotSame( statement1, statement3 );
+        Assert.assertEquals( 1, pool.statementCacheHits() );
+        Assert.assertEquals( "33%", pool.debugProperties().get( DatabaseService.DatabaseAboutProperty.statementCacheHitRate ) );
+        pool.release( connection, false );
+    }
+
+    @Test
+    public void testStatementRelease()
+            throws Exception
+    {
+        final List<String> statementCalls = new ArrayList<>();
+
+        // a cached statement stays open and has its batch cleared when it is reused
+        final DatabaseConnectionPool cachingPool = makePool( new AtomicInteger(), new AtomicBoolean( true ), 1, TimeDuration.HOUR, 4, statementCalls );
+        final DatabaseConnectionPool.PooledConnection cachingConnection = cachingPool.checkout();
+        cachingConnection.releaseStatement( cachingConnection.prepareStatement( "SELECT 1" ) );
+        cachingConnection.releaseStatement( cachingConnection.prepareStatement( "SELECT 1" ) );
+        Assert.assertEquals( Arrays.asList( "clearParameters", "clearBatch" ), statementCalls );
+        cachingPool.release( cachingConnection, false );
+
+        // without the cache every statement is closed when released
+        statementCalls.clear();
+        final DatabaseConnectionPool uncachedPool = makePool( new AtomicInteger(), new AtomicBoolean( true ), 1, TimeDuration.HOUR, 0, statementCalls );
+        final DatabaseConnectionPool.PooledConnection uncachedConnection = uncachedPool.checkout();
+        final PreparedStatement statement = uncachedConnection.prepareStatement( "SELECT 1" );
+        Assert.assertFalse( uncachedConnection.isCached( statement ) );
+        uncachedConnection.releaseStatement( statement );
+        Assert.assertEquals( Collections.singletonList( "close" ), statementCalls );
+        uncachedPool.release( uncachedConnection, false );
+    }
+
+    private static DatabaseConnectionPool makePool(
+            final AtomicInteger openedConnections,
+            final AtomicBoolean valid,
+            final int maxConnections,
+            final TimeDuration idleTimeout
+    )
+    {
+        return makePool( openedConnections, valid, maxConnections, idleTimeout, 4, new ArrayList<>() );
+    }
+
+    private static DatabaseConnectionPool makePool(
+            final AtomicInteger openedConnections,
+            final AtomicBoolean valid,
+            final int maxConnections,
+            final TimeDuration idleTimeout,
+            final int statementCacheSize,
+            final List<String> statementCalls
+    )
+    {
+        return new DatabaseConnectionPool(
+                () ->
+                {
+                    openedConnections.incrementAndGet();
+                    return fakeConnection( valid, statementCalls );
+                },
+                maxConnections,
+                SHORT_TIMEOUT,
+                TimeDuration.ZERO,
+                idleTimeout,
+                statementCacheSize );
+    }
+
+    private static Connection fakeConnection( final AtomicBoolean valid, final List<String> statementCalls )
+    {
+        final AtomicBoolean closed = new AtomicBoolean( false );
+        return ( Connection ) Proxy.newProxyInstance( Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, ( proxy, method, args ) ->
+        {
+            switch ( method.getName() )
+            {
+                case "isValid":
+                    return valid.get();
+                case "isClosed":
+                    return closed.get();
+                case "close":
+                    closed.set( true );
+                    return null;
+                case "prepareStatement":
+                    return fakeStatement( statementCalls );
+                default:
+                    return null;
+            }
+        } );
+    }
+
+    private static PreparedStatement fakeStatement( final List<String> statementCalls )
+    {
+        return ( PreparedStatement ) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                ( proxy, method, args ) ->
+                {
+                    switch ( method.getName() )
+                    {
+                        case "hashCode":
+                            return System.identityHashCode( proxy );
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            statementCalls.add( method.getName() );
+                            return null;
+                    }
+                } );
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatabaseVendorTest
+{
+    @Test
+    public void testForProductName()
+    {
+        Assert.assertEquals( DatabaseVendor.POSTGRESQL, DatabaseVendor.forProductName( "PostgreSQL" ) );
+        Assert.assertEquals( DatabaseVendor.MYSQL, DatabaseVendor.forProductName( "MySQL" ) );
+        Assert.assertEquals( DatabaseVendor.MYSQL, DatabaseVendor.forProductName( "MariaDB" ) );
+        Assert.assertEquals( DatabaseVendor.ORACLE, DatabaseVendor.forProductName( "Oracle" ) );
+        Assert.assertEquals( DatabaseVendor.MSSQL, DatabaseVendor.forProductName( "Microsoft SQL Server" ) );
+        Assert.assertEquals( DatabaseVendor.H2, DatabaseVendor.forProductName( "H2" ) );
+        Assert.assertEquals( DatabaseVendor.GENERIC, DatabaseVendor.forProductName( "Apache Derby" ) );
+        Assert.assertEquals( DatabaseVendor.GENERIC, DatabaseVendor.forProductName( null ) );
+    }
+
+    @Test
+    public void testStatementParameters()
+    {
+        for ( final DatabaseVendor vendor : DatabaseVendor.values() )
+        {
+            final String upsertSql = vendor.upsertSql( DatabaseTable.PWM_META.name() );
+            if ( upsertSql != null )
+            {
+                Assert.assertTrue( upsertSql.contains( DatabaseTable.PWM_META.name() ) );
+                Assert.assertEquals( vendor.name(), 2, countParameters( upsertSql ) );
+            }
+
+            final String insertIfAbsentSql = vendor.insertIfAbsentSql( DatabaseTable.PWM_META.name() );
+            if ( insertIfAbsentSql != null )
+            {
+                Assert.assertEquals( vendor.name(), 2, countParameters( insertIfAbsentSql ) );
+            }
+        }
+
+        Assert.assertNull( DatabaseVendor.GENERIC.upsertSql( DatabaseTable.PWM_META.name() ) );
+        Assert.assertNull( DatabaseVendor.GENERIC.insertIfAbsentSql( DatabaseTable.PWM_META.name() ) );
+
+        // oracle can not bind CLOB values larger than 4000 bytes in a select from DUAL
+        Assert.assertNull( DatabaseVendor.ORACLE.upsertSql( DatabaseTable.PWM_META.name() ) );
+        Assert.assertFalse( DatabaseVendor.ORACLE.insertIfAbsentSql( DatabaseTable.PWM_META.name() ).contains( "DUAL" ) );
+    }
+
+    private static int countParameters( final String sql )
+    {
+        int count = 0;
+        for ( final char c : sql.toCharArray() )
+        {
+            if ( c == '?' )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+}
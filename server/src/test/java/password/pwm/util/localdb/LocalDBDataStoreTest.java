@@ -0,0 +1,85 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.localdb;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LocalDBDataStoreTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LocalDB localDB;
+    private LocalDBDataStore dataStore;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-datastore-test" ), false, null, null );
+        localDB.truncate( LocalDB.DB.TEMP );
+        dataStore = new LocalDBDataStore( localDB, LocalDB.DB.TEMP );
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        localDB.close();
+    }
+
+    @Test
+    public void testBulkOperations() throws Exception
+    {
+        final Map<String, String> values = new LinkedHashMap<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            values.put( "key" + i, String.valueOf( i ) );
+        }
+        dataStore.putAll( values );
+        Assert.assertEquals( 100, dataStore.size() );
+
+        final Map<String, String> readValues = dataStore.getAll( Arrays.asList( "key1", "key2", "missing" ) );
+        Assert.assertEquals( 2, readValues.size() );
+        Assert.assertEquals( "2", readValues.get( "key2" ) );
+
+        dataStore.removeAll( Arrays.asList( "key1", "key2" ) );
+        Assert.assertEquals( 98, dataStore.size() );
+
+        // a stopped removal leaves the records in place
+        Assert.assertEquals( 0, dataStore.removeWhere( ( key, value ) -> true, () -> false ) );
+        Assert.assertEquals( 98, dataStore.size() );
+
+        final int removed = dataStore.removeWhere( ( key, value ) -> Integer.parseInt( value ) >= 50, () -> true );
+        Assert.assertEquals( 50, removed );
+        Assert.assertEquals( 48, dataStore.size() );
+        Assert.assertFalse( dataStore.contains( "key50" ) );
+        Assert.assertTrue( dataStore.contains( "key49" ) );
+    }
+}
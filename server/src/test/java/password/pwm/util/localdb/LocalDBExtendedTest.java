@@ -28,6 +28,8 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 
 public class LocalDBExtendedTest
 {
@@ -56,6 +58,15 @@ public class LocalDBExtendedTest
         Assert.assertEquals( localDB.get( TEST_DB, "testKey1" ), "testValue1" );
     }
 
+    @Test
+    public void testContainsAny() throws LocalDBException
+    {
+        localDB.put( TEST_DB, "containsKey2", "testValue2" );
+        Assert.assertTrue( localDB.containsAny( TEST_DB, Arrays.asList( "containsKey1", "containsKey2", "containsKey3" ) ) );
+        Assert.assertFalse( localDB.containsAny( TEST_DB, Arrays.asList( "containsKey1", "containsKey3" ) ) );
+        Assert.assertFalse( localDB.containsAny( TEST_DB, Collections.emptyList() ) );
+    }
+
     @Test
     public void testSize() throws LocalDBException
     {
@@ -29,7 +29,9 @@ import org.junit.rules.TemporaryFolder;
 import password.pwm.util.java.TimeDuration;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 public class LocalDBStoredQueueExtendedTest
@@ -249,6 +251,23 @@ public class LocalDBStoredQueueExtendedTest
         Assert.assertEquals( initialSize, storedQueue.size() );
     }
 
+    /**
+     * pollFirst(n) removes and returns up to n values from the head.
+     */
+    @Test
+    public void testPollFirstCount()
+    {
+        populatedQueue( SIZE, storedQueue );
+        final List<String> values = storedQueue.pollFirst( 3 );
+        Assert.assertEquals( Arrays.asList( "4", "3", "2" ), values );
+        Assert.assertEquals( SIZE - 3, storedQueue.size() );
+        Assert.assertEquals( "1", storedQueue.peekFirst() );
+
+        Assert.assertEquals( Arrays.asList( "1", "0" ), storedQueue.pollFirst( SIZE ) );
+        Assert.assertTrue( storedQueue.isEmpty() );
+        Assert.assertTrue( storedQueue.pollFirst( SIZE ).isEmpty() );
+    }
+
     @AfterClass
     public static void tearDown() throws Exception
     {
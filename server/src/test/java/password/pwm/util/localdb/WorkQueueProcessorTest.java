@@ -0,0 +1,350 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.localdb;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class WorkQueueProcessorTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final int KEY_COUNT = 7;
+    private static final int ITEMS_PER_KEY = 50;
+
+    @Test
+    public void testPerKeyOrdering()
+            throws Exception
+    {
+        final Map<String, List<Integer>> processed = Collections.synchronizedMap( new HashMap<>() );
+        final AtomicInteger processedCount = new AtomicInteger( 0 );
+
+        final WorkQueueProcessor.ItemProcessor<String> itemProcessor = new WorkQueueProcessor.ItemProcessor<String>()
+        {
+            @Override
+            public WorkQueueProcessor.ProcessResult process( final String workItem )
+            {
+                final String[] parts = workItem.split( ":" );
+                processed.computeIfAbsent( parts[0], k -> Collections.synchronizedList( new ArrayList<>() ) ).add( Integer.parseInt( parts[1] ) );
+                processedCount.incrementAndGet();
+                return WorkQueueProcessor.ProcessResult.SUCCESS;
+            }
+
+            @Override
+            public String convertToDebugString( final String workItem )
+            {
+                return workItem;
+            }
+
+            @Override
+            public String orderingKey( final String workItem )
+            {
+                return workItem.split( ":" )[0];
+            }
+        };
+
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .workerThreads( 4 )
+                .batchSize( 20 )
+                .build();
+
+        final ConcurrentLinkedDeque<String> queue = new ConcurrentLinkedDeque<>();
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>( null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+
+        for ( int i = 0; i < ITEMS_PER_KEY; i++ )
+        {
+            for ( int k = 0; k < KEY_COUNT; k++ )
+            {
+                workQueueProcessor.submit( "key" + k + ":" + i );
+            }
+        }
+
+        waitFor( () -> processedCount.get() >= KEY_COUNT * ITEMS_PER_KEY );
+        workQueueProcessor.close();
+
+        Assert.assertEquals( KEY_COUNT * ITEMS_PER_KEY, processedCount.get() );
+        Assert.assertTrue( queue.isEmpty() );
+        for ( final List<Integer> values : processed.values() )
+        {
+            Assert.assertEquals( ITEMS_PER_KEY, values.size() );
+            for ( int i = 0; i < ITEMS_PER_KEY; i++ )
+            {
+                Assert.assertEquals( Integer.valueOf( i ), values.get( i ) );
+            }
+        }
+    }
+
+    @Test
+    public void testRetryPreservesOrder()
+            throws Exception
+    {
+        final List<String> processed = Collections.synchronizedList( new ArrayList<>() );
+        final AtomicInteger retryCount = new AtomicInteger( 0 );
+
+        final WorkQueueProcessor.ItemProcessor<String> itemProcessor = new WorkQueueProcessor.ItemProcessor<String>()
+        {
+            @Override
+            public WorkQueueProcessor.ProcessResult process( final String workItem )
+            {
+                if ( "a:1".equals( workItem ) && retryCount.getAndIncrement() < 1 )
+                {
+                    return WorkQueueProcessor.ProcessResult.RETRY;
+                }
+                processed.add( workItem );
+                return WorkQueueProcessor.ProcessResult.SUCCESS;
+            }
+
+            @Override
+            public String convertToDebugString( final String workItem )
+            {
+                return workItem;
+            }
+
+            @Override
+            public String orderingKey( final String workItem )
+            {
+                return workItem.split( ":" )[0];
+            }
+        };
+
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .workerThreads( 2 )
+                .retryInterval( TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ) )
+                .build();
+
+        final ConcurrentLinkedDeque<String> queue = new ConcurrentLinkedDeque<>();
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>( null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+
+        workQueueProcessor.submit( "a:1" );
+        workQueueProcessor.submit( "b:1" );
+        workQueueProcessor.submit( "a:2" );
+        workQueueProcessor.submit( "b:2" );
+
+        waitFor( () -> processed.size() >= 4 );
+        workQueueProcessor.close();
+
+        Assert.assertEquals( 4, processed.size() );
+        Assert.assertTrue( processed.indexOf( "a:1" ) < processed.indexOf( "a:2" ) );
+        Assert.assertTrue( processed.indexOf( "b:1" ) < processed.indexOf( "b:2" ) );
+        Assert.assertTrue( queue.isEmpty() );
+    }
+
+    @Test
+    public void testRetryDoesNotBlockOtherKeys()
+            throws Exception
+    {
+        final List<String> processed = Collections.synchronizedList( new ArrayList<>() );
+        final AtomicInteger retryCount = new AtomicInteger( 0 );
+
+        final WorkQueueProcessor.ItemProcessor<String> itemProcessor = new OrderedItemProcessor()
+        {
+            @Override
+            public WorkQueueProcessor.ProcessResult process( final String workItem )
+            {
+                if ( workItem.startsWith( "a:" ) )
+                {
+                    retryCount.incrementAndGet();
+                    return WorkQueueProcessor.ProcessResult.RETRY;
+                }
+                processed.add( workItem );
+                return WorkQueueProcessor.ProcessResult.SUCCESS;
+            }
+        };
+
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .workerThreads( 2 )
+                .batchSize( 2 )
+                .retryInterval( TimeDuration.of( 1, TimeDuration.Unit.MINUTES ) )
+                .maxShutdownWaitTime( TimeDuration.ZERO )
+                .build();
+
+        final ConcurrentLinkedDeque<String> queue = new ConcurrentLinkedDeque<>();
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>( null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+
+        workQueueProcessor.submit( "a:1" );
+        for ( int i = 1; i <= 10; i++ )
+        {
+            workQueueProcessor.submit( "b:" + i );
+        }
+
+        // the head item waits for its retry interval while items with other keys are still delivered
+        waitFor( () -> processed.size() >= 10 );
+        workQueueProcessor.close();
+
+        Assert.assertEquals( 10, processed.size() );
+        Assert.assertEquals( 1, retryCount.get() );
+        Assert.assertEquals( 11, queue.size() );
+    }
+
+    @Test
+    public void testCompletionMarkersSurviveRestart()
+            throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-workqueue-markers" ), false, null, null );
+        try
+        {
+            final LocalDBStoredQueue storedQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+            storedQueue.clear();
+
+            final List<String> processed = Collections.synchronizedList( new ArrayList<>() );
+            final AtomicBoolean accept = new AtomicBoolean( false );
+            final WorkQueueProcessor.ItemProcessor<String> itemProcessor = new OrderedItemProcessor()
+            {
+                @Override
+                public WorkQueueProcessor.ProcessResult process( final String workItem )
+                {
+                    if ( workItem.startsWith( "a:" ) && !accept.get() )
+                    {
+                        return WorkQueueProcessor.ProcessResult.RETRY;
+                    }
+                    processed.add( workItem );
+                    return WorkQueueProcessor.ProcessResult.SUCCESS;
+                }
+            };
+
+            final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                    .workerThreads( 2 )
+                    .retryInterval( TimeDuration.of( 1, TimeDuration.Unit.MINUTES ) )
+                    .maxShutdownWaitTime( TimeDuration.ZERO )
+                    .build();
+
+            final WorkQueueProcessor<String> firstProcessor = new WorkQueueProcessor<>( null, storedQueue, settings, itemProcessor, WorkQueueProcessorTest.class );
+            firstProcessor.submit( "a:1" );
+            firstProcessor.submit( "b:1" );
+            waitFor( () -> processed.contains( "b:1" ) );
+            firstProcessor.close();
+
+            // b:1 was delivered behind the retrying head item, so it is still queued but must not be delivered again
+            Assert.assertEquals( 2, storedQueue.size() );
+
+            accept.set( true );
+            final WorkQueueProcessor<String> secondProcessor = new WorkQueueProcessor<>( null, storedQueue, settings, itemProcessor, WorkQueueProcessorTest.class );
+            waitFor( storedQueue::isEmpty );
+            secondProcessor.close();
+
+            Assert.assertEquals( Arrays.asList( "b:1", "a:1" ), processed );
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    @Test
+    public void testMixedItemEncodings()
+            throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-workqueue-test" ), false, null, null );
+        try
+        {
+            final LocalDBStoredQueue storedQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+            storedQueue.clear();
+
+            final List<String> processed = Collections.synchronizedList( new ArrayList<>() );
+            final AtomicBoolean accept = new AtomicBoolean( false );
+            final WorkQueueProcessor.ItemProcessor<String> itemProcessor = new WorkQueueProcessor.ItemProcessor<String>()
+            {
+                @Override
+                public WorkQueueProcessor.ProcessResult process( final String workItem )
+                {
+                    if ( !accept.get() )
+                    {
+                        return WorkQueueProcessor.ProcessResult.RETRY;
+                    }
+                    processed.add( workItem );
+                    return WorkQueueProcessor.ProcessResult.SUCCESS;
+                }
+
+                @Override
+                public String convertToDebugString( final String workItem )
+                {
+                    return workItem;
+                }
+            };
+
+            for ( final WorkQueueProcessor.ItemEncoding itemEncoding : WorkQueueProcessor.ItemEncoding.values() )
+            {
+                final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                        .itemEncoding( itemEncoding )
+                        .maxShutdownWaitTime( TimeDuration.ZERO )
+                        .build();
+                final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>( null, storedQueue, settings, itemProcessor, WorkQueueProcessorTest.class );
+                workQueueProcessor.submit( itemEncoding.name() + "|value" );
+                workQueueProcessor.close();
+            }
+
+            Assert.assertEquals( WorkQueueProcessor.ItemEncoding.values().length, storedQueue.size() );
+
+            accept.set( true );
+            final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                    null, storedQueue, WorkQueueProcessor.Settings.builder().build(), itemProcessor, WorkQueueProcessorTest.class );
+            waitFor( () -> processed.size() >= WorkQueueProcessor.ItemEncoding.values().length );
+            workQueueProcessor.close();
+
+            Assert.assertEquals( Arrays.asList( "JSON|value", "COMPACT|value" ), processed );
+            Assert.assertTrue( storedQueue.isEmpty() );
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    private abstract static class OrderedItemProcessor implements WorkQueueProcessor.ItemProcessor<String>
+    {
+        @Override
+        public String convertToDebugString( final String workItem )
+        {
+            return workItem;
+        }
+
+        @Override
+        public String orderingKey( final String workItem )
+        {
+            return workItem.split( ":" )[0];
+        }
+    }
+
+    private static void waitFor( final BooleanSupplier condition )
+            throws InterruptedException
+    {
+        final long startTime = System.currentTimeMillis();
+        while ( !condition.getAsBoolean() && System.currentTimeMillis() - startTime < 10_000 )
+        {
+            Thread.sleep( 10 );
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.logging;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class LocalDBLogEventBufferTest
+{
+    @Test
+    public void testConcurrentProducers()
+            throws Exception
+    {
+        final int threads = 4;
+        final int eventsPerThread = 5000;
+        final LocalDBLogEventBuffer buffer = new LocalDBLogEventBuffer( 256, LocalDBLoggerSettings.OverflowPolicy.BLOCK, TimeDuration.SECONDS_10 );
+        final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+        final CountDownLatch doneLatch = new CountDownLatch( threads );
+        for ( int t = 0; t < threads; t++ )
+        {
+            final String actor = "thread" + t;
+            executorService.execute( () ->
+            {
+                for ( int i = 0; i < eventsPerThread; i++ )
+                {
+                    buffer.add( makeEvent( actor, String.valueOf( i ), PwmLogLevel.INFO ) );
+                }
+                doneLatch.countDown();
+            } );
+        }
+
+        final List<PwmLogEvent> drained = new ArrayList<>();
+        while ( doneLatch.getCount() > 0 || !buffer.isEmpty() )
+        {
+            buffer.drainTo( drained, 100 );
+        }
+        executorService.shutdown();
+        Assert.assertTrue( executorService.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+        Assert.assertEquals( threads * eventsPerThread, drained.size() );
+        Assert.assertEquals( 0, buffer.droppedEvents() );
+
+        // events from each producer arrive in the order they were added
+        final int[] lastSeen = new int[threads];
+        Arrays.fill( lastSeen, -1 );
+        for ( final PwmLogEvent event : drained )
+        {
+            final int thread = Integer.parseInt( event.getActor().substring( "thread".length() ) );
+            final int sequence = Integer.parseInt( event.getMessage() );
+            Assert.assertTrue( sequence > lastSeen[thread] );
+            lastSeen[thread] = sequence;
+        }
+    }
+
+    @Test
+    public void testDropOldest()
+    {
+        final LocalDBLogEventBuffer buffer = new LocalDBLogEventBuffer( 4, LocalDBLoggerSettings.OverflowPolicy.DROP_OLDEST, TimeDuration.ZERO );
+        for ( int i = 0; i < 10; i++ )
+        {
+            Assert.assertTrue( buffer.add( makeEvent( "", String.valueOf( i ), PwmLogLevel.INFO ) ) );
+        }
+
+        final List<PwmLogEvent> drained = new ArrayList<>();
+        buffer.drainTo( drained, 100 );
+        Assert.assertEquals( buffer.capacity(), drained.size() );
+        Assert.assertEquals( "9", drained.get( drained.size() - 1 ).getMessage() );
+        Assert.assertEquals( 10 - buffer.capacity(), buffer.droppedEvents() );
+    }
+
+    @Test
+    public void testDropTrace()
+    {
+        final LocalDBLogEventBuffer buffer = new LocalDBLogEventBuffer( 4, LocalDBLoggerSettings.OverflowPolicy.DROP_TRACE, TimeDuration.ZERO );
+        for ( int i = 0; i < buffer.capacity(); i++ )
+        {
+            Assert.assertTrue( buffer.add( makeEvent( "", String.valueOf( i ), PwmLogLevel.TRACE ) ) );
+        }
+
+        Assert.assertFalse( buffer.add( makeEvent( "", "trace", PwmLogLevel.TRACE ) ) );
+        Assert.assertFalse( buffer.add( makeEvent( "", "error", PwmLogLevel.ERROR ) ) );
+        Assert.assertEquals( 2, buffer.droppedEvents() );
+
+        final List<PwmLogEvent> drained = new ArrayList<>();
+        buffer.drainTo( drained, 1 );
+        Assert.assertTrue( buffer.add( makeEvent( "", "error", PwmLogLevel.ERROR ) ) );
+    }
+
+    @Test
+    public void testCodecRoundTrip()
+            throws Exception
+    {
+        final List<PwmLogEvent> events = new ArrayList<>();
+        events.add( makeEvent( "user1", "message with | and : delimiters", PwmLogLevel.WARN ) );
+        events.add( PwmLogEvent.createPwmLogEvent( Instant.ofEpochMilli( 1234567 ), null, null, null, null, null, null, PwmLogLevel.FATAL ) );
+
+        final List<String> encoded = LocalDBLogEventCodec.encode( events );
+        for ( int i = 0; i < events.size(); i++ )
+        {
+            Assert.assertEquals( events.get( i ), LocalDBLogEventCodec.decode( encoded.get( i ) ) );
+        }
+
+        final PwmLogEvent jsonEvent = makeEvent( "user2", "stored as json", PwmLogLevel.INFO );
+        Assert.assertEquals( jsonEvent.getMessage(), LocalDBLogEventCodec.decode( jsonEvent.toEncodedString() ).getMessage() );
+    }
+
+    private static PwmLogEvent makeEvent( final String actor, final String message, final PwmLogLevel level )
+    {
+        return PwmLogEvent.createPwmLogEvent( Instant.ofEpochMilli( 1_500_000_000_123L ), "topic", message, "source", actor, "label", null, level );
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.logging;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class LocalDBLogSegmentStoreTest
+{
+    private static final int SEGMENT_MAX_EVENTS = 50;
+
+    // forty minutes into an hour, so all test events share one hourly time bucket
+    private static final Instant START_TIME = Instant.parse( "2020-01-01T10:40:00Z" );
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testIndexedSearch()
+            throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-segment-test" ), false, null, null );
+        try
+        {
+            final LocalDBLogSegmentStore store = LocalDBLogSegmentStore.open( localDB, TimeDuration.HOUR, SEGMENT_MAX_EVENTS );
+            final List<PwmLogEvent> events = makeEvents( 230 );
+            store.append( events );
+
+            Assert.assertEquals( 230, store.size() );
+            Assert.assertEquals( 5, store.segmentCount() );
+
+            final List<LocalDBSearchQuery> queries = new ArrayList<>();
+            queries.add( LocalDBSearchQuery.builder().build() );
+            queries.add( LocalDBSearchQuery.builder().minimumLevel( PwmLogLevel.WARN ).build() );
+            queries.add( LocalDBSearchQuery.builder().username( "user3" ).build() );
+            queries.add( LocalDBSearchQuery.builder().username( "user[12]" ).minimumLevel( PwmLogLevel.INFO ).build() );
+            queries.add( LocalDBSearchQuery.builder().eventType( LocalDBLogger.EventType.System ).build() );
+            queries.add( LocalDBSearchQuery.builder().eventType( LocalDBLogger.EventType.User ).text( "message 1" ).build() );
+            queries.add( LocalDBSearchQuery.builder().username( "user4" ).oldestFirst( true ).build() );
+
+            for ( final LocalDBSearchQuery query : queries )
+            {
+                final List<String> expected = new ArrayList<>();
+                for ( final PwmLogEvent event : events )
+                {
+                    if ( LocalDBLogger.checkEventForParams( event, query ) )
+                    {
+                        expected.add( event.getMessage() );
+                    }
+                }
+                if ( !query.isOldestFirst() )
+                {
+                    Collections.reverse( expected );
+                }
+
+                final List<String> results = new ArrayList<>();
+                final LocalDBSearchResults searchResults = new LocalDBSearchResults( store.search( query ), query );
+                while ( searchResults.hasNext() )
+                {
+                    results.add( searchResults.next().getMessage() );
+                }
+
+                Assert.assertEquals( query.toString(), expected, results );
+            }
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    @Test
+    public void testSegmentRemoval()
+            throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-segment-test" ), false, null, null );
+        try
+        {
+            final LocalDBLogSegmentStore store = LocalDBLogSegmentStore.open( localDB, TimeDuration.HOUR, SEGMENT_MAX_EVENTS );
+            store.append( makeEvents( 120 ) );
+            Assert.assertEquals( 3, store.segmentCount() );
+            final Instant initialTailDate = store.getTailDate();
+
+            Assert.assertEquals( SEGMENT_MAX_EVENTS, store.removeOldestSegment() );
+            Assert.assertEquals( SEGMENT_MAX_EVENTS, store.removeOldestSegment() );
+            Assert.assertEquals( 0, store.removeOldestSegment() );
+            Assert.assertEquals( 1, store.segmentCount() );
+            Assert.assertEquals( 20, store.size() );
+            Assert.assertTrue( store.getTailDate().isAfter( initialTailDate ) );
+
+            final LocalDBLogSegmentStore reopenedStore = LocalDBLogSegmentStore.open( localDB, TimeDuration.HOUR, SEGMENT_MAX_EVENTS );
+            Assert.assertEquals( 20, reopenedStore.size() );
+
+            int count = 0;
+            final Iterator<String> iterator = reopenedStore.search( LocalDBSearchQuery.builder().build() );
+            while ( iterator.hasNext() )
+            {
+                iterator.next();
+                count++;
+            }
+            Assert.assertEquals( 20, count );
+
+            reopenedStore.append( makeEvents( 10 ) );
+            Assert.assertEquals( 2, reopenedStore.segmentCount() );
+            Assert.assertEquals( 30, reopenedStore.size() );
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    @Test
+    public void testIncrementalIndex()
+            throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb-segment-test" ), false, null, null );
+        try
+        {
+            final List<PwmLogEvent> events = makeEvents( 70 );
+            final LocalDBLogSegmentStore store = LocalDBLogSegmentStore.open( localDB, TimeDuration.HOUR, SEGMENT_MAX_EVENTS );
+            store.append( events.subList( 0, 10 ) );
+            final String directory = localDB.get( LocalDB.DB.EVENTLOG_EVENTS, "SEGMENTS" );
+
+            // appending to the open segment does not rewrite the directory
+            store.append( events.subList( 10, 20 ) );
+            store.append( events.subList( 20, 30 ) );
+            Assert.assertEquals( directory, localDB.get( LocalDB.DB.EVENTLOG_EVENTS, "SEGMENTS" ) );
+            Assert.assertFalse( localDB.contains( LocalDB.DB.EVENTLOG_EVENTS, "I1" ) );
+
+            // starting a new segment closes the open one
+            store.append( events.subList( 30, 60 ) );
+            Assert.assertNotEquals( directory, localDB.get( LocalDB.DB.EVENTLOG_EVENTS, "SEGMENTS" ) );
+            Assert.assertTrue( localDB.contains( LocalDB.DB.EVENTLOG_EVENTS, "I1" ) );
+            Assert.assertFalse( localDB.contains( LocalDB.DB.EVENTLOG_EVENTS, "I1.0" ) );
+            store.append( events.subList( 60, 70 ) );
+            Assert.assertEquals( 2, store.segmentCount() );
+
+            final LocalDBLogSegmentStore reopenedStore = LocalDBLogSegmentStore.open( localDB, TimeDuration.HOUR, SEGMENT_MAX_EVENTS );
+            Assert.assertEquals( 70, reopenedStore.size() );
+            Assert.assertEquals( 2, reopenedStore.segmentCount() );
+            Assert.assertEquals( events.get( 0 ).getDate(), reopenedStore.getTailDate() );
+
+            final LocalDBSearchQuery query = LocalDBSearchQuery.builder().username( "user2" ).oldestFirst( true ).build();
+            final List<String> expected = new ArrayList<>();
+            for ( final PwmLogEvent event : events )
+            {
+                if ( LocalDBLogger.checkEventForParams( event, query ) )
+                {
+                    expected.add( event.getMessage() );
+                }
+            }
+            final List<String> results = new ArrayList<>();
+            final LocalDBSearchResults searchResults = new LocalDBSearchResults( reopenedStore.search( query ), query );
+            while ( searchResults.hasNext() )
+            {
+                results.add( searchResults.next().getMessage() );
+            }
+            Assert.assertEquals( expected, results );
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    private static List<PwmLogEvent> makeEvents( final int count )
+    {
+        final PwmLogLevel[] levels = PwmLogLevel.values();
+        final List<PwmLogEvent> events = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            final String actor = i % 3 == 0 ? "" : "user" + ( i % 5 );
+            events.add( PwmLogEvent.createPwmLogEvent(
+                    START_TIME.plusSeconds( i ),
+                    LocalDBLogSegmentStoreTest.class.getName(),
+                    "message " + i,
+                    "",
+                    actor,
+                    null,
+                    null,
+                    levels[i % levels.length] ) );
+        }
+        return events;
+    }
+}
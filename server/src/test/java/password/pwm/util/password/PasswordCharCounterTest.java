@@ -0,0 +1,87 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PasswordCharCounterTest
+{
+    @Test
+    public void emptyPasswordTest()
+    {
+        final PasswordCharCounter charCounter = new PasswordCharCounter( "" );
+        Assert.assertEquals( 0, charCounter.getAlphaCharCount() );
+        Assert.assertEquals( 0, charCounter.getNonAlphaCharCount() );
+        Assert.assertEquals( 0, charCounter.getUniqueChars() );
+        Assert.assertEquals( 0, charCounter.getRepeatedChars() );
+        Assert.assertFalse( charCounter.isFirstNumeric() );
+        Assert.assertFalse( charCounter.isLastSpecial() );
+    }
+
+    @Test
+    public void singleCharPasswordTest()
+    {
+        final PasswordCharCounter charCounter = new PasswordCharCounter( "a" );
+        Assert.assertEquals( 1, charCounter.getLowerCharCount() );
+        Assert.assertEquals( 1, charCounter.getUniqueChars() );
+
+        // repeats and runs are only counted for passwords of two or more characters
+        Assert.assertEquals( 0, charCounter.getRepeatedChars() );
+        Assert.assertEquals( 0, charCounter.getSequentialRepeatedChars() );
+        Assert.assertEquals( 0, charCounter.getSequentialAlphaChars() );
+    }
+
+    @Test
+    public void charCountsTest()
+    {
+        final PasswordCharCounter charCounter = new PasswordCharCounter( "aaBB1234!!" );
+        Assert.assertEquals( 4, charCounter.getNumericCharCount() );
+        Assert.assertEquals( 2, charCounter.getUpperCharCount() );
+        Assert.assertEquals( 2, charCounter.getLowerCharCount() );
+        Assert.assertEquals( 4, charCounter.getAlphaCharCount() );
+        Assert.assertEquals( 6, charCounter.getNonAlphaCharCount() );
+        Assert.assertEquals( 2, charCounter.getSpecialCharsCount() );
+        Assert.assertEquals( 7, charCounter.getUniqueChars() );
+        Assert.assertEquals( 2, charCounter.getRepeatedChars() );
+        Assert.assertEquals( 2, charCounter.getSequentialRepeatedChars() );
+        Assert.assertEquals( 4, charCounter.getSequentialNumericChars() );
+        Assert.assertEquals( 4, charCounter.getSequentialAlphaChars() );
+        Assert.assertEquals( "BB", charCounter.getUpperChars() );
+        Assert.assertEquals( "1234", charCounter.getNumericChars() );
+        Assert.assertEquals( "!!", charCounter.getSpecialChars() );
+        Assert.assertTrue( charCounter.isLastSpecial() );
+    }
+
+    @Test
+    public void caseInsensitiveRepeatTest()
+    {
+        final PasswordCharCounter charCounter = new PasswordCharCounter( "abAB12ab#1" );
+        Assert.assertEquals( 5, charCounter.getUniqueChars() );
+        Assert.assertEquals( 3, charCounter.getRepeatedChars() );
+        Assert.assertEquals( 1, charCounter.getSequentialRepeatedChars() );
+        Assert.assertEquals( 4, charCounter.getSequentialAlphaChars() );
+
+        // a numeric run starting on the last character is not counted
+        Assert.assertEquals( 2, charCounter.getSequentialNumericChars() );
+        Assert.assertTrue( charCounter.isLastNumeric() );
+    }
+}
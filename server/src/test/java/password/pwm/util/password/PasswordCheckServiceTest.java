@@ -0,0 +1,225 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.config.stored.StoredConfigurationImpl;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.ldap.UserInfoBean;
+import password.pwm.util.PasswordData;
+import password.pwm.util.localdb.TestHelper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class PasswordCheckServiceTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void localRuleFailureTest()
+            throws Exception
+    {
+        final PasswordCheckService passwordCheckService = makeService( 0, 0 );
+        try
+        {
+            final PasswordUtility.PasswordCheckInfo checkInfo = passwordCheckService.checkEnteredPassword( makeRequest( "session1", "abc" ) );
+            Assert.assertFalse( checkInfo.isPending() );
+            Assert.assertFalse( checkInfo.isPassed() );
+            Assert.assertEquals( PwmError.PASSWORD_TOO_SHORT.getErrorCode(), checkInfo.getErrorCode() );
+        }
+        finally
+        {
+            passwordCheckService.close();
+        }
+    }
+
+    @Test
+    public void deferredRuleFailureTest()
+            throws Exception
+    {
+        final PasswordCheckService passwordCheckService = makeService( 0, 0 );
+        try
+        {
+            // the password meets the local rules, so the strength rule is checked in the background
+            final PasswordCheckService.AsyncCheckRequest checkRequest = makeRequest( "session1", "abcdefgh" );
+            final PasswordUtility.PasswordCheckInfo checkInfo = waitForResult( passwordCheckService, checkRequest );
+            Assert.assertFalse( checkInfo.isPassed() );
+            Assert.assertEquals( PwmError.PASSWORD_TOO_WEAK.getErrorCode(), checkInfo.getErrorCode() );
+        }
+        finally
+        {
+            passwordCheckService.close();
+        }
+    }
+
+    @Test
+    public void cachedResultTest()
+            throws Exception
+    {
+        final PasswordCheckService passwordCheckService = makeService( 0, 0 );
+        try
+        {
+            final PasswordData password = new PasswordData( "wX9#kd!Lm2$qRz^T" );
+            final PasswordUtility.PasswordCheckInfo checkInfo = waitForResult( passwordCheckService, makeRequest( "session1", password, null ) );
+            Assert.assertTrue( checkInfo.isPassed() );
+            Assert.assertEquals( PasswordUtility.PasswordCheckInfo.MatchStatus.EMPTY, checkInfo.getMatch() );
+
+            // typing the confirmation password re-uses the completed check
+            final PasswordUtility.PasswordCheckInfo confirmInfo = passwordCheckService.checkEnteredPassword( makeRequest( "session1", password, password ) );
+            Assert.assertFalse( confirmInfo.isPending() );
+            Assert.assertTrue( confirmInfo.isPassed() );
+            Assert.assertEquals( PasswordUtility.PasswordCheckInfo.MatchStatus.MATCH, confirmInfo.getMatch() );
+            Assert.assertEquals( checkInfo.getStrength(), confirmInfo.getStrength() );
+            Assert.assertEquals( "1", passwordCheckService.serviceInfo().getDebugProperties().get( "deferredChecks" ) );
+        }
+        finally
+        {
+            passwordCheckService.close();
+        }
+    }
+
+    @Test
+    public void supersededCheckTest()
+            throws Exception
+    {
+        final PasswordCheckService passwordCheckService = makeService( 60_000, 0 );
+        try
+        {
+            Assert.assertTrue( passwordCheckService.checkEnteredPassword( makeRequest( "session1", "wX9#kd!Lm2$qRz^T" ) ).isPending() );
+            Assert.assertTrue( passwordCheckService.checkEnteredPassword( makeRequest( "session1", "wX9#kd!Lm2$qRz^Ta" ) ).isPending() );
+            Assert.assertTrue( passwordCheckService.checkEnteredPassword( makeRequest( "session2", "wX9#kd!Lm2$qRz^T" ) ).isPending() );
+
+            // the second check of session1 cancels the first one, while the session2 check is independent
+            final Map<String, String> debugInfo = passwordCheckService.serviceInfo().getDebugProperties();
+            Assert.assertEquals( "1", debugInfo.get( "supersededChecks" ) );
+            Assert.assertEquals( "2", debugInfo.get( "pendingChecks" ) );
+            Assert.assertEquals( "0", debugInfo.get( "deferredChecks" ) );
+        }
+        finally
+        {
+            passwordCheckService.close();
+        }
+    }
+
+    @Test
+    public void startedCheckCompletesTest()
+            throws Exception
+    {
+        final PasswordCheckService passwordCheckService = makeService( 0, 0 );
+        try
+        {
+            final PasswordCheckService.AsyncCheckRequest firstRequest = makeRequest( "session1", "wX9#kd!Lm2$qRz^T" );
+            passwordCheckService.checkEnteredPassword( firstRequest );
+            final long startTime = System.currentTimeMillis();
+            while ( "0".equals( passwordCheckService.serviceInfo().getDebugProperties().get( "deferredChecks" ) ) && System.currentTimeMillis() - startTime < 10_000 )
+            {
+                Thread.sleep( 10 );
+            }
+
+            // the first check has started, so the second check does not cancel it and both results are cached
+            waitForResult( passwordCheckService, makeRequest( "session1", "wX9#kd!Lm2$qRz^Ta" ) );
+            final PasswordUtility.PasswordCheckInfo firstInfo = passwordCheckService.checkEnteredPassword( firstRequest );
+            Assert.assertFalse( firstInfo.isPending() );
+            Assert.assertTrue( firstInfo.isPassed() );
+
+            final Map<String, String> debugInfo = passwordCheckService.serviceInfo().getDebugProperties();
+            Assert.assertEquals( "0", debugInfo.get( "supersededChecks" ) );
+            Assert.assertEquals( "2", debugInfo.get( "deferredChecks" ) );
+        }
+        finally
+        {
+            passwordCheckService.close();
+        }
+    }
+
+    private PasswordCheckService makeService( final int debounceMs, final int responseWaitMs )
+            throws Exception
+    {
+        final StoredConfigurationImpl storedConfiguration = StoredConfigurationImpl.newStoredConfiguration();
+        storedConfiguration.writeSetting(
+                PwmSetting.APP_PROPERTY_OVERRIDES,
+                new StringArrayValue( Arrays.asList(
+                        AppProperty.PASSWORD_CHECK_ASYNC_DEBOUNCE_MS.getKey() + "=" + debounceMs,
+                        AppProperty.PASSWORD_CHECK_ASYNC_RESPONSE_WAIT_MS.getKey() + "=" + responseWaitMs,
+                        AppProperty.PASSWORD_CHECK_ASYNC_THREADS.getKey() + "=1" ) ),
+                null );
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder(), new Configuration( storedConfiguration ) );
+
+        final PasswordCheckService passwordCheckService = new PasswordCheckService();
+        passwordCheckService.init( pwmApplication );
+        return passwordCheckService;
+    }
+
+    private static PasswordCheckService.AsyncCheckRequest makeRequest( final String sessionKey, final String password )
+            throws PwmUnrecoverableException
+    {
+        return makeRequest( sessionKey, new PasswordData( password ), null );
+    }
+
+    private static PasswordCheckService.AsyncCheckRequest makeRequest( final String sessionKey, final PasswordData password, final PasswordData confirmPassword )
+    {
+        final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+        policyMap.put( PwmPasswordRule.MinimumLength.getKey(), "8" );
+        policyMap.put( PwmPasswordRule.MinimumStrength.getKey(), "50" );
+        policyMap.put( PwmPasswordRule.AllowNumeric.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.AllowSpecial.getKey(), "true" );
+
+        return PasswordCheckService.AsyncCheckRequest.builder()
+                .sessionKey( sessionKey )
+                .locale( Locale.ENGLISH )
+                .userInfo( UserInfoBean.builder().passwordPolicy( PwmPasswordPolicy.createPwmPasswordPolicy( policyMap ) ).build() )
+                .password( password )
+                .confirmPassword( confirmPassword )
+                .build();
+    }
+
+    private static PasswordUtility.PasswordCheckInfo waitForResult(
+            final PasswordCheckService passwordCheckService,
+            final PasswordCheckService.AsyncCheckRequest checkRequest
+    )
+            throws Exception
+    {
+        final long startTime = System.currentTimeMillis();
+        PasswordUtility.PasswordCheckInfo checkInfo = passwordCheckService.checkEnteredPassword( checkRequest );
+        while ( checkInfo.isPending() && System.currentTimeMillis() - startTime < 10_000 )
+        {
+            Thread.sleep( 10 );
+            checkInfo = passwordCheckService.checkEnteredPassword( checkRequest );
+        }
+        Assert.assertFalse( checkInfo.isPending() );
+        return checkInfo;
+    }
+}
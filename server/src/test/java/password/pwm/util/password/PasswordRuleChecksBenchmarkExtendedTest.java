@@ -0,0 +1,129 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validations per second of {@link PasswordRuleChecks} using the policies and passwords of {@link PasswordRuleChecksTest}.
+ */
+public class PasswordRuleChecksBenchmarkExtendedTest
+{
+    private static final String[] PASSWORDS = new String[] {
+            "123", "1234567", "12345678", "ABC", "aBcDeF", "abc", "a1b2c3", "^^^", "aaa^", "aaaaaa", "Passw0rd!", "c0rrect-h0rse-battery",
+    };
+
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.Throughput )
+                .timeUnit( TimeUnit.SECONDS )
+                .warmupTime( TimeValue.seconds( 10 ) )
+                .measurementIterations( 10 )
+                .threads( 4 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @State( Scope.Thread )
+    public static class PolicyState
+    {
+        private final List<PwmPasswordPolicy> policies = new ArrayList<>();
+        private int nextCase;
+
+        @Setup( Level.Trial )
+        public void setup()
+        {
+            addPolicy( PwmPasswordRule.MinimumLength, "7" );
+            addPolicy( PwmPasswordRule.MaximumLength, "7" );
+            addPolicy( PwmPasswordRule.MinimumUpperCase, "3" );
+            addPolicy( PwmPasswordRule.MaximumUpperCase, "3" );
+            addPolicy( PwmPasswordRule.MinimumLowerCase, "3" );
+            addPolicy( PwmPasswordRule.MaximumLowerCase, "3" );
+            addPolicy( PwmPasswordRule.MinimumNumeric, "3" );
+            addPolicy( PwmPasswordRule.MaximumNumeric, "3" );
+            addPolicy( PwmPasswordRule.MinimumSpecial, "3" );
+            addPolicy( PwmPasswordRule.MaximumSpecial, "3" );
+            addPolicy( PwmPasswordRule.MinimumAlpha, "3" );
+            addPolicy( PwmPasswordRule.MaximumAlpha, "3" );
+            addPolicy( PwmPasswordRule.MinimumNonAlpha, "3" );
+            addPolicy( PwmPasswordRule.MaximumNonAlpha, "3" );
+            addPolicy( PwmPasswordRule.MinimumUnique, "4" );
+            addPolicy( PwmPasswordRule.MaximumRepeat, "4" );
+            addPolicy( PwmPasswordRule.MaximumSequentialRepeat, "4" );
+            addPolicy( PwmPasswordRule.AllowNumeric, "false" );
+            addPolicy( PwmPasswordRule.AllowSpecial, "false" );
+            addPolicy( PwmPasswordRule.AllowNonAlpha, "false" );
+        }
+
+        private void addPolicy( final PwmPasswordRule rule, final String value )
+        {
+            final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+            policyMap.put( rule.getKey(), value );
+            policies.add( PwmPasswordPolicy.createPwmPasswordPolicy( policyMap ) );
+        }
+    }
+
+    @Benchmark
+    public List<ErrorInformation> benchmarkPolicyValidation( final PolicyState state )
+            throws PwmUnrecoverableException
+    {
+        final int nextCase = state.nextCase++;
+        final PwmPasswordPolicy policy = state.policies.get( nextCase % state.policies.size() );
+        final String password = PASSWORDS[ nextCase % PASSWORDS.length ];
+        return PasswordRuleChecks.extendedPolicyRuleChecker( null, policy, password, null, null );
+    }
+
+    @Benchmark
+    public int benchmarkCharCounter( final PolicyState state )
+    {
+        final String password = PASSWORDS[ state.nextCase++ % PASSWORDS.length ];
+        return new PasswordCharCounter( password ).getSequentialRepeatedChars();
+    }
+}
@@ -24,17 +24,27 @@ import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
 import password.pwm.config.profile.PwmPasswordPolicy;
 import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.config.stored.StoredConfigurationImpl;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.PasswordData;
 import password.pwm.util.localdb.TestHelper;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 public class RandomPasswordGeneratorTest
@@ -70,4 +80,122 @@ public class RandomPasswordGeneratorTest
             seenValues.add( passwordString );
         }
     }
+
+    @Test
+    public void generateStrictPolicyPasswordsTest()
+            throws PwmUnrecoverableException, IOException
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+        final PwmPasswordPolicy pwmPasswordPolicy = makeStrictPolicy();
+        final PwmPasswordRuleValidator pwmPasswordRuleValidator = new PwmPasswordRuleValidator( pwmApplication, pwmPasswordPolicy );
+
+        for ( int i = 0; i < 500; i++ )
+        {
+            final PasswordData passwordData = RandomPasswordGenerator.createRandomPassword(
+                    null,
+                    pwmPasswordPolicy,
+                    pwmApplication );
+
+            final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator( passwordData, null, null );
+            Assert.assertTrue( "generated password does not meet policy: " + errors, errors.isEmpty() );
+        }
+    }
+
+    @Test
+    public void seedPhrasePasswordsTest()
+            throws PwmUnrecoverableException, IOException
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+        final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig = RandomPasswordGenerator.RandomGeneratorConfig.builder()
+                .passwordPolicy( PwmPasswordPolicy.defaultPolicy() )
+                .seedlistPhrases( new HashSet<>( Arrays.asList( "pumpkin", "wombat" ) ) )
+                .build();
+
+        int seededCount = 0;
+        for ( int i = 0; i < 100; i++ )
+        {
+            final String password = RandomPasswordGenerator.createRandomPassword( null, randomGeneratorConfig, pwmApplication ).getStringValue();
+            for ( final char c : password.toCharArray() )
+            {
+                if ( Character.isLowerCase( c ) )
+                {
+                    Assert.assertTrue( "password " + password + " has letters outside the seed phrases", "pumpkinwombat".indexOf( c ) >= 0 );
+                }
+            }
+
+            final String lowerCasePassword = password.toLowerCase();
+            if ( lowerCasePassword.contains( "pum" ) || lowerCasePassword.contains( "wom" ) )
+            {
+                seededCount++;
+            }
+        }
+
+        // letter runs are built from the seed phrases rather than from random letters of the phrases
+        Assert.assertTrue( "only " + seededCount + " passwords contain seed phrase fragments", seededCount > 50 );
+    }
+
+    @Test
+    public void pooledPasswordTest()
+            throws Exception
+    {
+        final StoredConfigurationImpl storedConfiguration = StoredConfigurationImpl.newStoredConfiguration();
+        storedConfiguration.writeSetting(
+                PwmSetting.APP_PROPERTY_OVERRIDES,
+                new StringArrayValue( Collections.singletonList( AppProperty.PASSWORD_RANDOMGEN_POOL_SIZE.getKey() + "=5" ) ),
+                null );
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder(), new Configuration( storedConfiguration ) );
+
+        final PwmPasswordPolicy pwmPasswordPolicy = makeStrictPolicy();
+        final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig = RandomPasswordGenerator.RandomGeneratorConfig.builder()
+                .passwordPolicy( pwmPasswordPolicy )
+                .build();
+
+        final RandomPasswordService randomPasswordService = new RandomPasswordService();
+        randomPasswordService.init( pwmApplication );
+        try
+        {
+            // first request creates the pool for the policy
+            Assert.assertFalse( randomPasswordService.takePooledPassword( randomGeneratorConfig ).isPresent() );
+
+            final long startTime = System.currentTimeMillis();
+            Optional<PasswordData> pooledPassword = randomPasswordService.takePooledPassword( randomGeneratorConfig );
+            while ( !pooledPassword.isPresent() && System.currentTimeMillis() - startTime < 10_000 )
+            {
+                Thread.sleep( 10 );
+                pooledPassword = randomPasswordService.takePooledPassword( randomGeneratorConfig );
+            }
+
+            Assert.assertTrue( pooledPassword.isPresent() );
+            final PwmPasswordRuleValidator pwmPasswordRuleValidator = new PwmPasswordRuleValidator( pwmApplication, pwmPasswordPolicy );
+            Assert.assertTrue( pwmPasswordRuleValidator.internalPwmPolicyValidator( pooledPassword.get(), null, null ).isEmpty() );
+        }
+        finally
+        {
+            randomPasswordService.close();
+        }
+    }
+
+    private static PwmPasswordPolicy makeStrictPolicy()
+    {
+        final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+        policyMap.put( PwmPasswordRule.MinimumLength.getKey(), "14" );
+        policyMap.put( PwmPasswordRule.MaximumLength.getKey(), "16" );
+        policyMap.put( PwmPasswordRule.AllowNumeric.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.AllowSpecial.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.MinimumUpperCase.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.MinimumLowerCase.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.MinimumNumeric.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.MaximumNumeric.getKey(), "4" );
+        policyMap.put( PwmPasswordRule.MinimumSpecial.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MaximumSpecial.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.AllowFirstCharNumeric.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.AllowFirstCharSpecial.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.AllowLastCharNumeric.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.AllowLastCharSpecial.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.MaximumSequentialRepeat.getKey(), "1" );
+        policyMap.put( PwmPasswordRule.MaximumRepeat.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MaximumConsecutive.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.MinimumUnique.getKey(), "10" );
+        return PwmPasswordPolicy.createPwmPasswordPolicy( policyMap );
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.StringUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SecureEngineTest
+{
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 500;
+
+    @Test
+    public void testNonceUniqueness()
+            throws Exception
+    {
+        final SecureEngine.NonceGenerator nonceGenerator = new SecureEngine.NonceGenerator( 8, 8 );
+        final Set<String> nonces = ConcurrentHashMap.newKeySet();
+
+        runConcurrently( () ->
+        {
+            final byte[] nonce = nonceGenerator.nextValue();
+            Assert.assertEquals( 16, nonce.length );
+            Assert.assertTrue( nonces.add( StringUtil.base64Encode( nonce ) ) );
+            return null;
+        } );
+
+        Assert.assertEquals( THREADS * ITERATIONS, nonces.size() );
+    }
+
+    @Test
+    public void testConcurrentRoundTrip()
+            throws Exception
+    {
+        final PwmSecurityKey key = new PwmSecurityKey( "test-key-0123456789" );
+        for ( final PwmBlockAlgorithm blockAlgorithm : PwmBlockAlgorithm.values() )
+        {
+            runConcurrently( () ->
+            {
+                final String value = "value-" + Thread.currentThread().getId() + "-" + PwmRandom.getInstance().alphaNumericString( 20 );
+                final String encrypted = SecureEngine.encryptToString( value, key, blockAlgorithm, SecureEngine.Flag.URL_SAFE );
+                Assert.assertEquals( value, SecureEngine.decryptStringValue( encrypted, key, blockAlgorithm, SecureEngine.Flag.URL_SAFE ) );
+                return null;
+            } );
+        }
+    }
+
+    @Test( expected = PwmUnrecoverableException.class )
+    public void testWrongKeyRejected()
+            throws Exception
+    {
+        final String encrypted = SecureEngine.encryptToString( "value", new PwmSecurityKey( "key-one-0123456789" ), PwmBlockAlgorithm.AES128_GCM );
+        SecureEngine.decryptStringValue( encrypted, new PwmSecurityKey( "key-two-0123456789" ), PwmBlockAlgorithm.AES128_GCM );
+    }
+
+    private static void runConcurrently( final Callable<Void> task )
+            throws Exception
+    {
+        final ExecutorService executorService = Executors.newFixedThreadPool( THREADS );
+        try
+        {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for ( int t = 0; t < THREADS; t++ )
+            {
+                futures.add( executorService.submit( () ->
+                {
+                    for ( int i = 0; i < ITERATIONS; i++ )
+                    {
+                        task.call();
+                    }
+                    return null;
+                } ) );
+            }
+            for ( final Future<Void> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2019 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.PwmConstants;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.JsonUtil;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SecurePayloadCodecTest
+{
+    enum Color
+    {
+        RED,
+        BLUE,
+    }
+
+    public static class NestedValue implements Serializable
+    {
+        private String name;
+        private int count;
+    }
+
+    public static class SampleBean implements Serializable
+    {
+        private String stringValue;
+        private int intValue;
+        private long longValue = 7;
+        private boolean booleanValue;
+        private Boolean boxedBoolean;
+        private Color color;
+        private Instant instant;
+        private List<String> list = new ArrayList<>();
+        private Map<String, Integer> map = new HashMap<>();
+        private NestedValue nestedValue;
+        private transient String transientValue;
+    }
+
+    public static class SampleBeanSubset implements Serializable
+    {
+        private String stringValue;
+        private Color color;
+    }
+
+    @Test
+    public void testBinaryRoundTrip()
+            throws Exception
+    {
+        final SampleBean sampleBean = makeSampleBean();
+        final SecurePayloadCodec codec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, -1 );
+
+        final byte[] payload = codec.encode( sampleBean );
+        Assert.assertEquals( 0, payload[ 0 ] );
+
+        final SampleBean decoded = codec.decode( payload, SampleBean.class );
+        Assert.assertEquals( "value é", decoded.stringValue );
+        Assert.assertEquals( -42, decoded.intValue );
+        Assert.assertEquals( Long.MAX_VALUE, decoded.longValue );
+        Assert.assertTrue( decoded.booleanValue );
+        Assert.assertEquals( Boolean.FALSE, decoded.boxedBoolean );
+        Assert.assertEquals( Color.BLUE, decoded.color );
+        Assert.assertEquals( sampleBean.instant, decoded.instant );
+        Assert.assertEquals( Arrays.asList( "a", "b" ), decoded.list );
+        Assert.assertEquals( Integer.valueOf( 3 ), decoded.map.get( "three" ) );
+        Assert.assertEquals( "nested", decoded.nestedValue.name );
+        Assert.assertEquals( 5, decoded.nestedValue.count );
+        Assert.assertNull( decoded.transientValue );
+
+        Assert.assertTrue( payload.length < JsonUtil.serialize( sampleBean ).length() );
+    }
+
+    @Test
+    public void testNullFieldsKeepDefaults()
+            throws Exception
+    {
+        final SampleBean sampleBean = new SampleBean();
+        sampleBean.list = null;
+
+        final SecurePayloadCodec codec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, -1 );
+        final SampleBean decoded = codec.decode( codec.encode( sampleBean ), SampleBean.class );
+        Assert.assertEquals( 7, decoded.longValue );
+        Assert.assertNotNull( decoded.list );
+        Assert.assertNull( decoded.stringValue );
+    }
+
+    @Test
+    public void testCompressionAndUnknownFields()
+            throws Exception
+    {
+        final SampleBean sampleBean = makeSampleBean();
+        for ( int i = 0; i < 100; i++ )
+        {
+            sampleBean.list.add( "repeated list value " + i );
+        }
+
+        final SecurePayloadCodec uncompressedCodec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, -1 );
+        final SecurePayloadCodec compressedCodec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, 64 );
+        final byte[] compressed = compressedCodec.encode( sampleBean );
+        Assert.assertTrue( compressed.length < uncompressedCodec.encode( sampleBean ).length );
+        Assert.assertEquals( 102, compressedCodec.decode( compressed, SampleBean.class ).list.size() );
+
+        // fields not present in the decoding class are skipped
+        final SampleBeanSubset subset = uncompressedCodec.decode( compressed, SampleBeanSubset.class );
+        Assert.assertEquals( "value é", subset.stringValue );
+        Assert.assertEquals( Color.BLUE, subset.color );
+    }
+
+    @Test
+    public void testLegacyJsonAndNonBeanPayloads()
+            throws Exception
+    {
+        final SampleBean sampleBean = makeSampleBean();
+        final SecurePayloadCodec codec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, 256 );
+
+        final byte[] legacyPayload = JsonUtil.serialize( sampleBean ).getBytes( PwmConstants.DEFAULT_CHARSET );
+        Assert.assertEquals( "value é", codec.decode( legacyPayload, SampleBean.class ).stringValue );
+
+        final LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        map.put( "key", "value" );
+        final Map decodedMap = codec.decode( codec.encode( map ), LinkedHashMap.class );
+        Assert.assertEquals( "value", decodedMap.get( "key" ) );
+
+        final SecurePayloadCodec jsonCodec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.JSON, 256 );
+        Assert.assertArrayEquals( legacyPayload, jsonCodec.encode( sampleBean ) );
+    }
+
+    @Test( expected = PwmUnrecoverableException.class )
+    public void testUnsupportedVersion()
+            throws Exception
+    {
+        final SecurePayloadCodec codec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, 256 );
+        codec.decode( new byte[] { 0, 99, 0 }, SampleBean.class );
+    }
+
+    @Test
+    public void testMalformedPayload()
+            throws Exception
+    {
+        final SecurePayloadCodec codec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, 256 );
+        final byte[][] malformedPayloads = new byte[][] {
+                "{ not json".getBytes( PwmConstants.DEFAULT_CHARSET ),
+                "{\"intValue\":\"abc\"}".getBytes( PwmConstants.DEFAULT_CHARSET ),
+                new byte[] { 0, 1, 0, 1 },
+        };
+
+        for ( final byte[] malformedPayload : malformedPayloads )
+        {
+            try
+            {
+                codec.decode( malformedPayload, SampleBean.class );
+                Assert.fail( "malformed payload should not decode" );
+            }
+            catch ( PwmUnrecoverableException e )
+            {
+                Assert.assertEquals( PwmError.ERROR_CRYPT_ERROR, e.getError() );
+            }
+        }
+    }
+
+    @Test
+    public void testEncryptedRoundTrip()
+            throws Exception
+    {
+        final PwmSecurityKey key = new PwmSecurityKey( "test-key-0123456789" );
+        final SecurePayloadCodec codec = new SecurePayloadCodec( SecurePayloadCodec.Encoding.BINARY, 256 );
+        final SampleBean sampleBean = makeSampleBean();
+
+        final String encrypted = SecureEngine.encryptBytesToString( codec.encode( sampleBean ), key, PwmBlockAlgorithm.AES128_GCM );
+        final byte[] decrypted = SecureEngine.decryptStringValueToBytes( encrypted, key, PwmBlockAlgorithm.AES128_GCM );
+        Assert.assertEquals( Color.BLUE, codec.decode( decrypted, SampleBean.class ).color );
+
+        // values written by the legacy string encryption are still readable
+        final String legacyEncrypted = SecureEngine.encryptToString(
+                JsonUtil.serialize( sampleBean ), key, PwmBlockAlgorithm.AES128_GCM, SecureEngine.Flag.URL_SAFE );
+        final byte[] legacyDecrypted = SecureEngine.decryptStringValueToBytes( legacyEncrypted, key, PwmBlockAlgorithm.AES128_GCM );
+        Assert.assertEquals( Color.BLUE, codec.decode( legacyDecrypted, SampleBean.class ).color );
+    }
+
+    private static SampleBean makeSampleBean( )
+    {
+        final SampleBean sampleBean = new SampleBean();
+        sampleBean.stringValue = "value é";
+        sampleBean.intValue = -42;
+        sampleBean.longValue = Long.MAX_VALUE;
+        sampleBean.booleanValue = true;
+        sampleBean.boxedBoolean = false;
+        sampleBean.color = Color.BLUE;
+        sampleBean.instant = Instant.ofEpochMilli( 1_500_000_000_123L );
+        sampleBean.list.add( "a" );
+        sampleBean.list.add( "b" );
+        sampleBean.map.put( "three", 3 );
+        sampleBean.nestedValue = new NestedValue();
+        sampleBean.nestedValue.name = "nested";
+        sampleBean.nestedValue.count = 5;
+        sampleBean.transientValue = "transient";
+        return sampleBean;
+    }
+}
@@ -83,6 +83,12 @@ PWM_CHANGEPW.updateDisplay = function(resultInfo) {
         return;
     }
 
+    if (resultInfo["pending"] === true) {
+        PWM_MAIN.showInfo(message);
+        PWM_CHANGEPW.markConfirmationCheck(resultInfo["match"]);
+        return;
+    }
+
     if (resultInfo["passed"] === true) {
         if (resultInfo["match"] === "MATCH") {
             PWM_MAIN.showSuccess(message);
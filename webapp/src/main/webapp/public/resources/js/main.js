@@ -1280,6 +1280,13 @@ PWM_MAIN.pwmFormValidator = function(validationProps, reentrant) {
     if (CONSOLE_DEBUG) PWM_MAIN.log('FormValidator: sending form data to server... ' + formDataString);
     var loadFunction = function(data) {
         PWM_VAR['validationInProgress'] = false;
+        if (data && data['data'] && data['data']['pending'] === true) {
+            // server is still running the slower checks in the background; show the partial result and poll again.
+            processResultsFunction(data);
+            if (CONSOLE_DEBUG) PWM_MAIN.log('pwmFormValidator: result is pending, will poll again');
+            setTimeout(function(){PWM_MAIN.pwmFormValidator(validationProps, true)}, typeWaitTimeMs + 1);
+            return;
+        }
         delete PWM_VAR['validationLastType'];
         PWM_VAR['validationCache'][formKey] = data;
         if (CONSOLE_DEBUG) PWM_MAIN.log('pwmFormValidator: successful read, data added to cache');